@@ -0,0 +1,55 @@
+package com.amazonaws.kinesisvideo.auth;
+
+import com.amazonaws.kinesisvideo.producer.AuthInfo;
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Security token callback of the native producer, serializing the credentials on the callback executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultAuthCallbacksBenchmark {
+    private ScheduledExecutorService executor;
+    private DefaultAuthCallbacks authCallbacks;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        authCallbacks = new DefaultAuthCallbacks(
+                new StaticCredentialsProvider(new KinesisVideoCredentials("ASIAEXAMPLE",
+                        "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "session-token",
+                        new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))),
+                executor,
+                LogManager.getLogger(DefaultAuthCallbacksBenchmark.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public AuthInfo getSecurityToken() {
+        return authCallbacks.getSecurityToken();
+    }
+}
@@ -0,0 +1,62 @@
+package com.amazonaws.kinesisvideo.client.signing;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.kinesisvideo.config.ClientConfiguration;
+import com.amazonaws.kinesisvideo.http.HttpClient;
+import com.amazonaws.kinesisvideo.http.ParallelSimpleHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.http.HttpMethodName.POST;
+
+/**
+ * Signing of the PutMedia request opening every upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KinesisVideoAWS4SignerBenchmark {
+    private static final URI PUT_MEDIA_URI =
+            URI.create("https://s-1234abcd.kinesisvideo.us-west-2.amazonaws.com/putMedia");
+
+    private KinesisVideoAWS4Signer signer;
+
+    @Setup
+    public void setUp() {
+        signer = new KinesisVideoAWS4Signer(
+                new AWSStaticCredentialsProvider(new BasicSessionCredentials("ASIAEXAMPLE",
+                        "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "session-token")),
+                ClientConfiguration.builder().serviceName("kinesisvideo").region("us-west-2").build());
+    }
+
+    @Benchmark
+    public HttpClient sign() {
+        final HttpClient httpClient = ParallelSimpleHttpClient.builder()
+                .uri(PUT_MEDIA_URI)
+                .method(POST)
+                .header("x-amzn-stream-name", "benchmark-stream")
+                .header("Transfer-Encoding", "chunked")
+                .header("connection", "keep-alive")
+                .header("user-agent", "benchmark-agent")
+                .header("x-amzn-producer-start-timestamp", "1580000000.000")
+                .header("x-amzn-fragment-timecode-type", "RELATIVE")
+                .build();
+        signer.sign(httpClient);
+        return httpClient;
+    }
+}
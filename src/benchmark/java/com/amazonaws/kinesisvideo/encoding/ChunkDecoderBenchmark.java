@@ -0,0 +1,72 @@
+package com.amazonaws.kinesisvideo.encoding;
+
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the HTTP responses and of the ACK stream of the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkDecoderBenchmark {
+    private static final int ACK_COUNT = 32;
+
+    private byte[] response;
+    private byte[] ackResponse;
+
+    @Setup
+    public void setUp() {
+        final String headers = "HTTP/1.1 200 OK\r\n"
+                + "x-amzn-RequestId: 4f6d7a9e-1b2c-4d3e-8f90-a1b2c3d4e5f6\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "Date: Sun, 18 Oct 2026 10:00:00 GMT\r\n"
+                + "\r\n";
+        response = headers.getBytes(StandardCharsets.US_ASCII);
+
+        final StringBuilder acks = new StringBuilder(headers);
+        for (int i = 0; i < ACK_COUNT; i++) {
+            final String ack = String.format("{\"EventType\":\"PERSISTED\",\"FragmentTimecode\":%d,"
+                    + "\"FragmentNumber\":\"91343852333181432392682062607743920146264183%05d\"}", i * 2000L, i);
+            acks.append(Integer.toHexString(ack.length())).append("\r\n").append(ack).append("\r\n");
+        }
+        acks.append("0\r\n\r\n");
+        ackResponse = acks.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public Map<String, String> readStatusLineAndHeaders() {
+        final ByteArrayInputStream inputStream = new ByteArrayInputStream(response);
+        ChunkDecoder.readStatusLine(inputStream);
+        return ChunkDecoder.decodeHeaders(inputStream);
+    }
+
+    @Benchmark
+    public Integer decodeAcks(final Blackhole blackhole) {
+        return ChunkDecoder.decodeAckInResponseBody(new ByteArrayInputStream(ackResponse), new Consumer<String>() {
+            @Override
+            public void accept(final String ack) {
+                blackhole.consume(ack);
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package com.amazonaws.kinesisvideo.encoding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk encoding of every buffer read from the MKV stream of a PutMedia upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkEncoderBenchmark {
+    @Param({"4096", "65536"})
+    private int size;
+
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        buffer = new byte[size];
+        new Random(42).nextBytes(buffer);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return ChunkEncoder.encode(buffer, size);
+    }
+}
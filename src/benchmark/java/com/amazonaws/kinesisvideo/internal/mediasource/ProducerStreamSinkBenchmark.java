@@ -0,0 +1,49 @@
+package com.amazonaws.kinesisvideo.internal.mediasource;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.producer.StubProducerStream;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames of a media source put into the stream, up to the hand-over of their data to the native producer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProducerStreamSinkBenchmark {
+    @Param({"8192", "131072"})
+    private int size;
+
+    private ProducerStreamSink sink;
+    private KinesisVideoFrame frame;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        sink = new ProducerStreamSink(new StubProducerStream(blackhole));
+        frame = new KinesisVideoFrame(0, FrameFlags.FRAME_FLAG_KEY_FRAME, 0, 0, 0, ByteBuffer.allocate(size));
+    }
+
+    @Benchmark
+    public void onFrame() throws KinesisVideoException {
+        sink.onFrame(frame);
+    }
+}
@@ -0,0 +1,135 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.journal;
+
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_SECOND;
+
+/**
+ * Frames of a stream journaled, in frames per second, against the frames copied without a journal.
+ * <p>
+ * The journal is run without syncing, with the periodic group sync the {@link FrameJournalStore} does, and with a sync
+ * after every frame. The fragments are acknowledged as persisted a couple of fragments behind, as the service would, so
+ * the journal deletes its segments as it goes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameJournalBenchmark {
+    private static final int FRAME_RATE = 30;
+    private static final int KEY_FRAME_INTERVAL = 60;
+
+    public enum Journaling {
+        NO_JOURNAL,
+        NO_SYNC,
+        GROUP_SYNC,
+        FRAME_SYNC
+    }
+
+    @Param({"NO_JOURNAL", "NO_SYNC", "GROUP_SYNC", "FRAME_SYNC"})
+    private Journaling journaling;
+
+    @Param({"51200"})
+    private int frameSize;
+
+    private Path directory;
+    private ByteBuffer data;
+    private ByteBuffer copy;
+    private FrameJournal journal;
+    private ScheduledExecutorService syncExecutor;
+    private int frameIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("frame-journal-benchmark");
+        final byte[] random = new byte[frameSize];
+        new Random(0).nextBytes(random);
+        data = ByteBuffer.allocateDirect(frameSize);
+        data.put(random).flip();
+        copy = ByteBuffer.allocateDirect(frameSize);
+
+        journal = FrameJournal.open(directory, FrameJournalStore.DEFAULT_SEGMENT_SIZE);
+        syncExecutor = Executors.newSingleThreadScheduledExecutor();
+        if (journaling == Journaling.GROUP_SYNC) {
+            syncExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    journal.sync();
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }, FrameJournalStore.DEFAULT_SYNC_INTERVAL_IN_MILLIS, FrameJournalStore.DEFAULT_SYNC_INTERVAL_IN_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        syncExecutor.shutdownNow();
+        journal.close();
+        final File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        final KinesisVideoFrame frame = frame(frameIndex);
+        if (journaling == Journaling.NO_JOURNAL) {
+            copy.clear();
+            copy.put(frame.getData());
+        } else {
+            journal.append(frame);
+            if (journaling == Journaling.FRAME_SYNC) {
+                journal.sync();
+            }
+
+            if (frameIndex % KEY_FRAME_INTERVAL == 0 && frameIndex >= 2 * KEY_FRAME_INTERVAL) {
+                journal.onPersisted(frame(frameIndex - 2 * KEY_FRAME_INTERVAL).getDecodingTs());
+            }
+        }
+
+        frameIndex++;
+    }
+
+    private KinesisVideoFrame frame(final int index) {
+        final long timestamp = index * HUNDREDS_OF_NANOS_IN_A_SECOND / FRAME_RATE;
+        return new KinesisVideoFrame(index,
+                index % KEY_FRAME_INTERVAL == 0 ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE,
+                timestamp,
+                timestamp,
+                HUNDREDS_OF_NANOS_IN_A_SECOND / FRAME_RATE,
+                data.duplicate());
+    }
+}
@@ -0,0 +1,96 @@
+package com.amazonaws.kinesisvideo.internal.producer;
+
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.InputStream;
+
+/**
+ * Producer stream standing in for the native one in the benchmarks, handing what it is given to a {@link Blackhole}.
+ */
+public final class StubProducerStream extends ForwardingStreamCallbacks implements KinesisVideoProducerStream {
+    private final Blackhole blackhole;
+
+    public StubProducerStream(final Blackhole blackhole) {
+        super(new DefaultStreamCallbacks());
+        this.blackhole = blackhole;
+    }
+
+    @Nonnull
+    @Override
+    public InputStream getDataStream(final long uploadHandle) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void getStreamData(final long uploadHandle, @Nonnull final byte[] fillBuffer, final int offset,
+                              final int length, @Nonnull final ReadResult readResult) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) {
+        // The native producer reads the frame data off a direct buffer
+        blackhole.consume(kinesisVideoFrame.getData());
+    }
+
+    @Override
+    public void putFragmentMetadata(@Nonnull final String metadataName, @Nonnull final String metadataValue,
+                                    final boolean persistent) {
+    }
+
+    @Override
+    public void fragmentAck(final long uploadHandle,
+                            @Nonnull final KinesisVideoFragmentAck kinesisVideoFragmentAck) {
+        blackhole.consume(kinesisVideoFragmentAck);
+    }
+
+    @Override
+    public void parseFragmentAck(final long uploadHandle, @Nonnull final String kinesisVideoFragmentAck) {
+        blackhole.consume(kinesisVideoFragmentAck);
+    }
+
+    @Override
+    public void streamFormatChanged(@Nullable final byte[] codecPrivateData, final int trackId) {
+    }
+
+    @Override
+    public long getStreamHandle() {
+        return 1;
+    }
+
+    @Override
+    public String getStreamName() {
+        return "benchmark-stream";
+    }
+
+    @Override
+    public void stopStream() {
+    }
+
+    @Override
+    public void stopStreamSync() {
+    }
+
+    @Override
+    public void streamTerminated(final long uploadHandle, final int statusCode) {
+    }
+
+    @Override
+    public KinesisVideoStreamMetrics getMetrics() {
+        return new KinesisVideoStreamMetrics();
+    }
+
+    @Override
+    public void streamFreed() {
+    }
+
+    @Override
+    public void resetConnection() {
+    }
+}
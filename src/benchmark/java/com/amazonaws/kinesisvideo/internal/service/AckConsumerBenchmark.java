@@ -0,0 +1,75 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.internal.producer.StubProducerStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ACK stream processing of an upload, from the reads of the response body to the hand-over of every ACK to the
+ * stream, the stream itself being stubbed out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AckConsumerBenchmark {
+    private static final int ACK_COUNT = 64;
+    private static final long UPLOAD_HANDLE = 1;
+
+    private final Logger log = LogManager.getLogger(AckConsumerBenchmark.class);
+    private byte[] acks;
+    private int ackLength;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < ACK_COUNT; i++) {
+            builder.append(String.format("{\"EventType\":\"PERSISTED\",\"FragmentTimecode\":%013d,"
+                    + "\"FragmentNumber\":\"91343852333181432392682062607743920146264183%05d\"}", i * 2000L, i));
+        }
+        acks = builder.toString().getBytes(StandardCharsets.UTF_8);
+        ackLength = acks.length / ACK_COUNT;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACK_COUNT)
+    public void accept(final Blackhole blackhole) {
+        new AckConsumer(UPLOAD_HANDLE, new StubProducerStream(blackhole), log)
+                .accept(new OneAckPerReadInputStream(acks, ackLength));
+    }
+
+    /**
+     * Returns an ACK per read, the way they come off the network.
+     */
+    private static final class OneAckPerReadInputStream extends ByteArrayInputStream {
+        private final int ackLength;
+
+        OneAckPerReadInputStream(final byte[] acks, final int ackLength) {
+            super(acks);
+            this.ackLength = ackLength;
+        }
+
+        @Override
+        public synchronized int read(final byte[] buffer, final int offset, final int length) {
+            return super.read(buffer, offset, Math.min(length, ackLength));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image frames served by re-reading the image files on every frame, the way {@link ImageFrameSource} used to,
+ * versus served from the {@link ImageFrameCache}, on all the cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ImageFrameCacheBenchmark {
+    private static final String FILENAME_FORMAT = "frame-%03d.h264";
+
+    @Param({"90"})
+    private int numberOfFiles;
+
+    @Param({"65536"})
+    private int fileSize;
+
+    private Path dir;
+    private ImageFileMediaSourceConfiguration configuration;
+
+    /**
+     * The cache is not thread safe, each benchmark thread has its own
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+        private ImageFrameCache cache;
+        private long frameIndex;
+
+        @Setup
+        public void setUp(final ImageFrameCacheBenchmark benchmark) throws IOException {
+            cache = new ImageFrameCache(benchmark.configuration);
+            cache.preload();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("image-frame-cache-benchmark");
+        final Random random = new Random(0);
+        for (int i = 0; i < numberOfFiles; i++) {
+            final byte[] image = new byte[fileSize];
+            random.nextBytes(image);
+            Files.write(dir.resolve(String.format(FILENAME_FORMAT, i)), image);
+        }
+
+        configuration = new ImageFileMediaSourceConfiguration.Builder()
+                .fps(25)
+                .dir(dir.toString() + File.separator)
+                .filenameFormat(FILENAME_FORMAT)
+                .startFileIndex(0)
+                .endFileIndex(numberOfFiles - 1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        final File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public byte readAllBytes(final Reader reader) throws IOException {
+        final String filename = String.format(FILENAME_FORMAT, reader.frameIndex++ % numberOfFiles);
+        final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(Paths.get(configuration.getDir() + filename)));
+        return data.get(data.limit() - 1);
+    }
+
+    @Benchmark
+    public byte frameCache(final Reader reader) throws IOException {
+        final ByteBuffer data = reader.cache.getFrameData(reader.frameIndex++);
+        return data.get(data.limit() - 1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.amazonaws.kinesisvideo.producer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hand-over of the frame data to the native producer, which copies the heap buffers into direct ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KinesisVideoFrameBenchmark {
+    @Param({"8192", "131072"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean direct;
+
+    private KinesisVideoFrame frame;
+
+    @Setup
+    public void setUp() {
+        final ByteBuffer data = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        frame = new KinesisVideoFrame(0, FrameFlags.FRAME_FLAG_KEY_FRAME, 0, 0, 0, data);
+    }
+
+    @Benchmark
+    public ByteBuffer getData() {
+        return frame.getData();
+    }
+}
@@ -0,0 +1,321 @@
+package com.amazonaws.kinesisvideo.stream.packaging;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentials;
+import com.amazonaws.kinesisvideo.auth.StaticCredentialsProvider;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClient;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.client.PutMediaClient;
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.client.signing.KinesisVideoAWS4Signer;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import com.amazonaws.kinesisvideo.config.ClientConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.java.client.KinesisVideoJavaClientFactory;
+import com.amazonaws.kinesisvideo.java.service.local.LocalKinesisVideoService;
+import com.amazonaws.kinesisvideo.producer.DeviceInfo;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+import com.amazonaws.kinesisvideo.producer.StorageInfo;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import com.amazonaws.kinesisvideo.producer.TrackInfo;
+import com.amazonaws.kinesisvideo.storage.DefaultStorageCallbacks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.producer.StreamInfo.NalAdaptationFlags.NAL_ADAPTATION_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BUFFER_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_GOP_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_REPLAY_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_STALENESS_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_TIMESCALE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.KEYFRAME_FRAGMENTATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.MAX_LATENCY_ZERO;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NOT_ADAPTIVE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NO_KMS_KEY_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECALCULATE_METRICS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECOVER_ON_FAILURE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RELATIVE_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.REQUEST_FRAGMENT_ACKS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.USE_FRAME_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VERSION_TWO;
+
+/**
+ * Frames put into the Java packager streaming to PutMediaClient, against the native producer, both uploading to a
+ * {@link LocalKinesisVideoService}. JMH times the putFrame calls; as the packaging and the upload also take the CPU of
+ * other threads, every iteration logs the frames packaged per second of the CPU of the whole process. The native
+ * engine needs the producer library loadable, its setup failing otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MkvFragmentPackagerBenchmark {
+    private static final String STREAM_NAME = "packager-benchmark";
+    private static final String REGION = "us-west-2";
+    private static final String ACCESS_KEY = "AKIDEXAMPLE";
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    private static final long FRAME_DURATION = 33 * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+    private static final int GOP_LENGTH = 30;
+    private static final long STORAGE_SIZE = 128L * 1024 * 1024;
+
+    private final Logger log = LogManager.getLogger(MkvFragmentPackagerBenchmark.class);
+
+    @Param({"java", "native"})
+    private String engine;
+
+    @Param({"16384", "131072"})
+    private int frameSize;
+
+    private LocalKinesisVideoService service;
+    private ScheduledExecutorService executor;
+    private MkvFragmentPackager packager;
+    private KinesisVideoClient client;
+    private KinesisVideoProducerStream producerStream;
+    private ByteBuffer data;
+    private long streamStartTime;
+    private int frameIndex;
+    private int iterationFrameIndex;
+    private long iterationCpuTime;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = LocalKinesisVideoService.builder()
+                .stream(STREAM_NAME)
+                .start();
+        executor = Executors.newScheduledThreadPool(4);
+        data = ByteBuffer.allocate(frameSize);
+        streamStartTime = System.currentTimeMillis() * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        if ("java".equals(engine)) {
+            startPackager();
+        } else {
+            startNativeProducer();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (packager != null) {
+            packager.close();
+        }
+
+        if (client != null) {
+            client.free();
+        }
+
+        executor.shutdownNow();
+        service.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationFrameIndex = frameIndex;
+        iterationCpuTime = getProcessCpuTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        final long cpuTime = getProcessCpuTime() - iterationCpuTime;
+        log.info(String.format("%s: %.0f frames per CPU second", engine,
+                (frameIndex - iterationFrameIndex) * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(cpuTime, 1)));
+    }
+
+    @Benchmark
+    public boolean putFrame() throws Exception {
+        final KinesisVideoFrame frame = nextFrame();
+        if (packager != null) {
+            return packager.putFrame(frame, 1, TimeUnit.SECONDS);
+        }
+
+        producerStream.putFrame(frame);
+        return true;
+    }
+
+    private KinesisVideoFrame nextFrame() {
+        final int index = frameIndex++;
+        final long timestamp = streamStartTime + index * FRAME_DURATION;
+        return new KinesisVideoFrame(index,
+                index % GOP_LENGTH == 0 ? FrameFlags.FRAME_FLAG_KEY_FRAME : FrameFlags.FRAME_FLAG_NONE,
+                timestamp, timestamp, FRAME_DURATION, data.duplicate());
+    }
+
+    private void startPackager() {
+        packager = MkvFragmentPackager.builder()
+                .streamInfo(streamInfo())
+                .streamStartTime(streamStartTime)
+                .build();
+        PutMediaClient.builder()
+                .putMediaDestinationUri(URI.create(service.getEndpoint() + "/putMedia"))
+                .streamName(STREAM_NAME)
+                .fragmentPackager(packager)
+                .signWith(new KinesisVideoAWS4Signer(
+                        new AWSStaticCredentialsProvider(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY)),
+                        ClientConfiguration.builder().serviceName("kinesisvideo").region(REGION).build()))
+                .receiveAcks(new Consumer<InputStream>() {
+                    @Override
+                    public void accept(final InputStream acks) {
+                        drain(acks);
+                    }
+                })
+                .build()
+                .putMediaInBackground();
+    }
+
+    private void startNativeProducer() throws KinesisVideoException {
+        client = KinesisVideoJavaClientFactory.createKinesisVideoClient(
+                KinesisVideoClientConfiguration.builder()
+                        .withRegion(REGION)
+                        .withEndpoint(service.getEndpoint())
+                        .withCredentialsProvider(new StaticCredentialsProvider(
+                                new KinesisVideoCredentials(ACCESS_KEY, SECRET_KEY)))
+                        .withStorageCallbacks(new DefaultStorageCallbacks())
+                        .build(),
+                new DeviceInfo(0, "packager-benchmark",
+                        new StorageInfo(0, StorageInfo.DeviceStorageType.DEVICE_STORAGE_TYPE_IN_MEM, STORAGE_SIZE, 90,
+                                System.getProperty("java.io.tmpdir")),
+                        1, null),
+                executor);
+        final SinkMediaSource mediaSource = new SinkMediaSource();
+        client.registerMediaSource(mediaSource);
+        producerStream = mediaSource.sink.getProducerStream();
+    }
+
+    private static StreamInfo streamInfo() {
+        return new StreamInfo(VERSION_TWO,
+                STREAM_NAME,
+                StreamInfo.StreamingType.STREAMING_TYPE_REALTIME,
+                "video/h264",
+                NO_KMS_KEY_ID,
+                0,
+                NOT_ADAPTIVE,
+                MAX_LATENCY_ZERO,
+                DEFAULT_GOP_DURATION,
+                KEYFRAME_FRAGMENTATION,
+                USE_FRAME_TIMECODES,
+                RELATIVE_TIMECODES,
+                REQUEST_FRAGMENT_ACKS,
+                RECOVER_ON_FAILURE,
+                0,
+                GOP_LENGTH,
+                DEFAULT_BUFFER_DURATION,
+                DEFAULT_REPLAY_DURATION,
+                DEFAULT_STALENESS_DURATION,
+                DEFAULT_TIMESCALE,
+                RECALCULATE_METRICS,
+                new Tag[0],
+                NAL_ADAPTATION_FLAG_NONE,
+                UUID.randomUUID(),
+                new TrackInfo[] {
+                        new TrackInfo(1, "V_MPEG4/ISO/AVC", "kinesis_video", new byte[] {1, 2, 3, 4},
+                                MkvTrackInfoType.VIDEO)});
+    }
+
+    private static void drain(final InputStream inputStream) {
+        final byte[] buffer = new byte[4096];
+        try {
+            while (inputStream.read(buffer) != -1) {
+                // The ACKs are not checked
+            }
+        } catch (final IOException e) {
+            // The upload is over
+        }
+    }
+
+    private static long getProcessCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    /**
+     * Media source handing the native stream over to the benchmark instead of producing the frames itself.
+     */
+    private static final class SinkMediaSource implements MediaSource {
+        private MediaSourceSink sink;
+
+        @Override
+        public MediaSourceState getMediaSourceState() {
+            return MediaSourceState.RUNNING;
+        }
+
+        @Override
+        public MediaSourceConfiguration getConfiguration() {
+            return null;
+        }
+
+        @Override
+        public StreamInfo getStreamInfo() {
+            return streamInfo();
+        }
+
+        @Override
+        public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) {
+            sink = mediaSourceSink;
+        }
+
+        @Override
+        public void configure(final MediaSourceConfiguration configuration) {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isStopped() {
+            return false;
+        }
+
+        @Override
+        public void free() {
+        }
+
+        @Override
+        public MediaSourceSink getMediaSourceSink() {
+            return sink;
+        }
+
+        @Override
+        public StreamCallbacks getStreamCallbacks() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.amazonaws.kinesisvideo.stream.recording;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the recording tee to the upload thread, for the 4KB pieces the PutMedia client sends. The recording goes to
+ * a temporary directory deleted after every iteration, the bytes the disk cannot keep up with being dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MkvRecorderBenchmark {
+    private static final int PIECE_SIZE = 4096;
+    private static final int BLOCK_SIZE = 16 * 1024;
+    private static final int BLOCKS_PER_CLUSTER = 16;
+
+    private final Logger log = LogManager.getLogger(MkvRecorderBenchmark.class);
+
+    private byte[] header;
+    private byte[] cluster;
+    private int clusterOffset;
+    private Path directory;
+    private MkvRecorder recorder;
+
+    @Setup
+    public void setUp() {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final byte[] docType = "matroska".getBytes(StandardCharsets.US_ASCII);
+        write(stream, ClusterBoundaryScanner.EBML_ID, 2 + 8 + docType.length);
+        write(stream, 0x4282, docType.length);
+        stream.write(docType, 0, docType.length);
+        writeUnknownSized(stream, ClusterBoundaryScanner.SEGMENT_ID);
+        header = stream.toByteArray();
+
+        stream.reset();
+        writeUnknownSized(stream, ClusterBoundaryScanner.CLUSTER_ID);
+        for (int i = 0; i < BLOCKS_PER_CLUSTER; i++) {
+            write(stream, 0xA3, BLOCK_SIZE);
+            final byte[] block = new byte[BLOCK_SIZE];
+            block[0] = (byte) 0x81;
+            stream.write(block, 0, block.length);
+        }
+        cluster = stream.toByteArray();
+    }
+
+    @Setup(Level.Iteration)
+    public void openRecorder() throws IOException {
+        directory = Files.createTempDirectory("kvs-recorder-benchmark");
+        recorder = MkvRecorder.builder()
+                .outputPath(directory.resolve("recording.mkv"))
+                .build();
+        recorder.record(header, 0, header.length);
+        clusterOffset = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRecorder() throws IOException, InterruptedException {
+        recorder.close();
+        recorder.awaitTermination(10, TimeUnit.SECONDS);
+        log.info("Recorder metrics {}", recorder.getMetrics());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (final Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void record() {
+        final int length = Math.min(PIECE_SIZE, cluster.length - clusterOffset);
+        recorder.record(cluster, clusterOffset, length);
+        clusterOffset = (clusterOffset + length) % cluster.length;
+    }
+
+    /**
+     * Writes an element id with a size on 8 bytes.
+     */
+    private static void write(final ByteArrayOutputStream stream, final int id, final long size) {
+        writeId(stream, id);
+        stream.write(0x01);
+        for (int i = 6; i >= 0; i--) {
+            stream.write((int) (size >>> (8 * i)));
+        }
+    }
+
+    private static void writeUnknownSized(final ByteArrayOutputStream stream, final int id) {
+        writeId(stream, id);
+        stream.write(0x01);
+        for (int i = 0; i < 7; i++) {
+            stream.write(0xFF);
+        }
+    }
+
+    private static void writeId(final ByteArrayOutputStream stream, final int id) {
+        for (int i = id > 0xFFFFFF ? 3 : id > 0xFFFF ? 2 : id > 0xFF ? 1 : 0; i >= 0; i--) {
+            stream.write(id >>> (8 * i));
+        }
+    }
+}
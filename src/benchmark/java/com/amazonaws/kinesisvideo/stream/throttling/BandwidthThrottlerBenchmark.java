@@ -0,0 +1,39 @@
+package com.amazonaws.kinesisvideo.stream.throttling;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bookkeeping of the throttler on every write of a throttled upload, the limit being too high to ever sleep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BandwidthThrottlerBenchmark {
+    private static final int WRITE_SIZE = 4096;
+
+    private BandwidthThrottler throttler;
+
+    @Setup
+    public void setUp() {
+        throttler = new BandwidthThrottlerImpl(Long.MAX_VALUE / 1024);
+    }
+
+    @Benchmark
+    public int getAllowedBytes() {
+        return throttler.getAllowedBytes(WRITE_SIZE);
+    }
+}
@@ -8,7 +8,9 @@ import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import com.amazonaws.kinesisvideo.producer.DeviceInfo;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  *
@@ -17,6 +19,11 @@ import java.util.List;
  *
  */
 public interface KinesisVideoClient {
+    /**
+     * Default number of streams created concurrently when registering a batch of media sources
+     */
+    int DEFAULT_MAX_CONCURRENT_REGISTRATIONS = 16;
+
     /**
      * Returns whether the client has been initialized
      *
@@ -62,6 +69,31 @@ public interface KinesisVideoClient {
      */
     void registerMediaSourceAsync(final MediaSource mediaSource) throws KinesisVideoException;
 
+    /**
+     * Register a batch of media sources. The streams for the media sources are created concurrently,
+     * at most {@link #DEFAULT_MAX_CONCURRENT_REGISTRATIONS} at a time.
+     * Async call which returns once the creation of the streams has been kicked off.
+     *
+     * @param mediaSources media sources binding to kinesis video producer streams
+     * @return future which completes once every media source has either been registered or failed to
+     * @throws KinesisVideoException if unable to start registering the media sources.
+     */
+    CompletableFuture<RegisterMediaSourcesResult> registerMediaSources(
+            @Nonnull final Collection<MediaSource> mediaSources) throws KinesisVideoException;
+
+    /**
+     * Register a batch of media sources with at most the given number of streams being created concurrently.
+     * Async call which returns once the creation of the streams has been kicked off.
+     *
+     * @param mediaSources media sources binding to kinesis video producer streams
+     * @param maxConcurrentRegistrations maximum number of streams being created at the same time
+     * @return future which completes once every media source has either been registered or failed to
+     * @throws KinesisVideoException if unable to start registering the media sources.
+     */
+    CompletableFuture<RegisterMediaSourcesResult> registerMediaSources(
+            @Nonnull final Collection<MediaSource> mediaSources,
+            final int maxConcurrentRegistrations) throws KinesisVideoException;
+
     /**
      * Un-Register a media source. The media source will stop binding to kinesis video producer stream
      * and it cannot send data via producer stream afterwards until register again.
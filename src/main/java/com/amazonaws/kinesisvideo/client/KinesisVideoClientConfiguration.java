@@ -1,6 +1,10 @@
 package com.amazonaws.kinesisvideo.client;
 
 import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentialsProvider;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.AsyncMediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.service.ReconnectAdmissionScheduler;
+import com.amazonaws.kinesisvideo.internal.service.ServiceCallBulkheads;
 import com.amazonaws.kinesisvideo.producer.StorageCallbacks;
 
 /**
@@ -11,12 +15,22 @@ public final class KinesisVideoClientConfiguration {
     private final KinesisVideoCredentialsProvider credentialsProvider;
     private final StorageCallbacks storageCallbacks;
     private final String endpoint;
+    private final int mediaSourceSinkCapacity;
+    private final AsyncMediaSourceSink.OverflowPolicy mediaSourceSinkOverflowPolicy;
+    private final boolean isServiceCallBulkheadsEnabled;
+    private final long reconnectMaxJitterInMillis;
+    private final int reconnectMaxConcurrentConnectsPerEndpoint;
 
     private KinesisVideoClientConfiguration(final Builder builder) {
         this.region = builder.region;
         this.credentialsProvider = builder.credentialsProvider;
         this.storageCallbacks = builder.storageCallbacks;
         this.endpoint = builder.endpoint;
+        this.mediaSourceSinkCapacity = builder.mediaSourceSinkCapacity;
+        this.mediaSourceSinkOverflowPolicy = builder.mediaSourceSinkOverflowPolicy;
+        this.isServiceCallBulkheadsEnabled = builder.isServiceCallBulkheadsEnabled;
+        this.reconnectMaxJitterInMillis = builder.reconnectMaxJitterInMillis;
+        this.reconnectMaxConcurrentConnectsPerEndpoint = builder.reconnectMaxConcurrentConnectsPerEndpoint;
     }
 
     public static Builder builder() {
@@ -66,12 +80,52 @@ public final class KinesisVideoClientConfiguration {
         return this.endpoint;
     }
 
+    /**
+     * @return number of entries queued between a media source and its stream, 0 if the media sources put their frames
+     * into the stream directly
+     */
+    public int getMediaSourceSinkCapacity() {
+        return this.mediaSourceSinkCapacity;
+    }
+
+    public AsyncMediaSourceSink.OverflowPolicy getMediaSourceSinkOverflowPolicy() {
+        return this.mediaSourceSinkOverflowPolicy;
+    }
+
+    /**
+     * @return whether the service calls run on bulkheads of their own per operation class rather than on the executor
+     * of the client
+     */
+    public boolean isServiceCallBulkheadsEnabled() {
+        return this.isServiceCallBulkheadsEnabled;
+    }
+
+    public long getReconnectMaxJitterInMillis() {
+        return this.reconnectMaxJitterInMillis;
+    }
+
+    /**
+     * @return number of PutMedia connects allowed in flight per endpoint, 0 if the connects are not admission
+     * controlled
+     */
+    public int getReconnectMaxConcurrentConnectsPerEndpoint() {
+        return this.reconnectMaxConcurrentConnectsPerEndpoint;
+    }
+
     public static class Builder {
         private String region;
         private KinesisVideoCredentialsProvider credentialsProvider;
         private StorageCallbacks storageCallbacks =
                 KinesisVideoClientConfigurationDefaults.NO_OP_STORAGE_CALLBACKS;
         private String endpoint;
+        private int mediaSourceSinkCapacity = 0;
+        private AsyncMediaSourceSink.OverflowPolicy mediaSourceSinkOverflowPolicy =
+                AsyncMediaSourceSink.OverflowPolicy.BLOCK;
+        private boolean isServiceCallBulkheadsEnabled = false;
+        private long reconnectMaxJitterInMillis =
+                KinesisVideoClientConfigurationDefaults.RECONNECT_MAX_JITTER_IN_MILLIS;
+        private int reconnectMaxConcurrentConnectsPerEndpoint =
+                KinesisVideoClientConfigurationDefaults.RECONNECT_MAX_CONCURRENT_CONNECTS_PER_ENDPOINT;
 
         public Builder withRegion(final String region) {
             this.region = region;
@@ -93,6 +147,54 @@ public final class KinesisVideoClientConfiguration {
             return this;
         }
 
+        /**
+         * Queues the frames of the media sources in an {@link AsyncMediaSourceSink} so that a stalled stream does not
+         * hold up the thread producing them.
+         * <p>
+         * The frames are then delivered after the media source has handed them over, so the media source gives up
+         * the data buffer of each frame it hands over and must not write to it again. A media source reusing its
+         * buffers has to copy the data of each frame into a buffer of its own first.
+         *
+         * @param capacity - number of entries queued per media source, 0 to put the frames into the stream directly
+         * @param overflowPolicy - what to do with a frame when the queue is full
+         */
+        public Builder withMediaSourceSink(final int capacity,
+                                           final AsyncMediaSourceSink.OverflowPolicy overflowPolicy) {
+            Preconditions.checkArgument(capacity >= 0, "Media source sink capacity should not be negative");
+            this.mediaSourceSinkOverflowPolicy = Preconditions.checkNotNull(overflowPolicy);
+            this.mediaSourceSinkCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Runs the control plane calls, the streaming token fetches and the PutMedia connects each on a bounded pool
+         * of threads of its own, with the default sizes of {@link ServiceCallBulkheads}, so that calls stuck on one
+         * endpoint can't starve the others. A call finding its pool full is reported back to the producer as failed
+         * with a retriable status.
+         */
+        public Builder withServiceCallBulkheads(final boolean isEnabled) {
+            this.isServiceCallBulkheadsEnabled = isEnabled;
+            return this;
+        }
+
+        /**
+         * Spreads out the PutMedia connects of the streams reconnecting together after an endpoint blip with
+         * {@link ReconnectAdmissionScheduler}, the streams with the largest backlog connecting first.
+         *
+         * @param maxJitterInMillis - upper bound of the random delay added to each connect
+         * @param maxConcurrentConnectsPerEndpoint - number of connects allowed in flight per endpoint, 0 to connect
+         *                                         as soon as asked
+         */
+        public Builder withReconnectAdmission(final long maxJitterInMillis,
+                                              final int maxConcurrentConnectsPerEndpoint) {
+            Preconditions.checkArgument(maxJitterInMillis >= 0, "Max reconnect jitter should not be negative");
+            Preconditions.checkArgument(maxConcurrentConnectsPerEndpoint >= 0,
+                    "Max concurrent connects per endpoint should not be negative");
+            this.reconnectMaxJitterInMillis = maxJitterInMillis;
+            this.reconnectMaxConcurrentConnectsPerEndpoint = maxConcurrentConnectsPerEndpoint;
+            return this;
+        }
+
         public KinesisVideoClientConfiguration build() {
             sanitizeBuilder(this);
             return new KinesisVideoClientConfiguration(this);
@@ -13,6 +13,8 @@ public final class KinesisVideoClientConfigurationDefaults {
     static final int TEN_STREAMS = 10;
     static final int SPILL_RATIO_90_PERCENT = 90;
     static final int STORAGE_SIZE_256_MEGS = 256 * 1024 * 1024;
+    static final long RECONNECT_MAX_JITTER_IN_MILLIS = 250;
+    static final int RECONNECT_MAX_CONCURRENT_CONNECTS_PER_ENDPOINT = 16;
 
     public static final int DEFAULT_SERVICE_CALL_TIMEOUT_IN_MILLIS = 5000;
 
@@ -6,6 +6,8 @@ import org.apache.logging.log4j.LogManager;
 import com.amazonaws.kinesisvideo.encoding.ChunkEncoder;
 import com.amazonaws.kinesisvideo.http.ParallelSimpleHttpClient;
 import com.amazonaws.kinesisvideo.signing.KinesisVideoSigner;
+import com.amazonaws.kinesisvideo.stream.packaging.MkvFragmentPackager;
+import com.amazonaws.kinesisvideo.stream.recording.MkvRecorder;
 import com.amazonaws.kinesisvideo.stream.throttling.BandwidthMeasuringOutputStream;
 import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottledOutputStream;
 import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottler;
@@ -15,12 +17,11 @@ import com.amazonaws.kinesisvideo.util.VersionUtil;
 
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
 import static com.amazonaws.kinesisvideo.http.HttpMethodName.POST;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -39,6 +40,8 @@ public final class PutMediaClient {
     private static final String CONNECTION = "connection";
     private static final String KEEP_ALIVE = "keep-alive";
     private static final String USER_AGENT = "user-agent";
+    private static final String ABSOLUTE_TIMECODE = "ABSOLUTE";
+    private static final String RELATIVE_TIMECODE = "RELATIVE";
     private static final int BUFFER_SIZE = 4096; // 4KB
     private static final double MILLI_TO_SEC = 1000;
     private static final int LOGGING_INTERVAL = 250; // Rougly every 10 seconds in 25 fps
@@ -104,10 +107,10 @@ public final class PutMediaClient {
         return new Consumer<OutputStream>() {
             @Override
             public void accept(final OutputStream rawOutputStream) {
-                FileOutputStream outputFileStream = null;
+                final MkvRecorder ownRecorder = createRecorder();
+                final MkvRecorder recorder = ownRecorder == null ? mBuilder.mRecorder : ownRecorder;
                 try {
                     final OutputStream throttledOutputStream = throttleAndMeasureOutput(rawOutputStream);
-                    outputFileStream = createOutputFileStream();
                     final byte[] buffer = new byte[BUFFER_SIZE];
                     int mkvBytesRead;
                     long counter = 0;
@@ -123,7 +126,9 @@ public final class PutMediaClient {
                             continueLoop = false;
                         } else {
                             throttledOutputStream.write(ChunkEncoder.encode(buffer, mkvBytesRead));
-                            tryWriteToFile(outputFileStream, buffer, mkvBytesRead);
+                            if (recorder != null) {
+                                recorder.record(buffer, 0, mkvBytesRead);
+                            }
                             if (fragmentThrottle > 0) {
                                 Thread.sleep(fragmentThrottle);
                             }
@@ -136,7 +141,9 @@ public final class PutMediaClient {
                     log.debug("Exception while sending data.", e);
                     throw new RuntimeException("Exception while sending encoded chunk in MKV stream ! ", e);
                 } finally {
-                    tryCloseOutputFileStream(outputFileStream);
+                    if (ownRecorder != null) {
+                        ownRecorder.close();
+                    }
                 }
             }
         };
@@ -170,35 +177,9 @@ public final class PutMediaClient {
         };
     }
 
-    private FileOutputStream createOutputFileStream() {
-        try {
-            return mBuilder.mFileOutputPath == null ? null : new FileOutputStream(mBuilder.mFileOutputPath);
-        } catch (final FileNotFoundException e) {
-            throw new RuntimeException("Unable to open the file " + mBuilder.mFileOutputPath, e);
-        }
-    }
-
-    private void tryWriteToFile(final FileOutputStream fileOutputStream, final byte[] buffer, final int bytesToWrite) {
-        if (fileOutputStream == null) {
-            return;
-        }
-        try {
-            fileOutputStream.write(buffer, 0, bytesToWrite);
-            fileOutputStream.flush();
-        } catch (final IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void tryCloseOutputFileStream(final FileOutputStream outputFileStream) {
-        if (outputFileStream == null) {
-            return;
-        }
-        try {
-            outputFileStream.close();
-        } catch (final IOException e) {
-            log.error(e.getMessage());
-        }
+    private MkvRecorder createRecorder() {
+        return mBuilder.mFileOutputPath == null ? null
+                : MkvRecorder.builder().outputPath(Paths.get(mBuilder.mFileOutputPath)).build();
     }
 
     private double mbitPerSecond(final long bps) {
@@ -217,6 +198,7 @@ public final class PutMediaClient {
         private Integer mReceiveTimeout;
         private boolean mLogUsedBandwidth;
         private String mFileOutputPath;
+        private MkvRecorder mRecorder;
         private Long upstreamKbps;
         private Consumer<Exception> mCompletion;
         // TODO: Set to correct output channel
@@ -237,6 +219,20 @@ public final class PutMediaClient {
             return this;
         }
 
+        /**
+         * Streams the MKV packaged in Java by the packager, with the start timestamp and the fragment timecode type
+         * of its stream, in place of the stream of the native producer.
+         *
+         * @param packager Packager of the frames of the stream
+         * @return Builder object
+         */
+        public Builder fragmentPackager(final MkvFragmentPackager packager) {
+            mMkvStream = packager.getMkvStream();
+            mTimestamp = packager.getStreamStartTimeInMillis();
+            mFragmentTimecodeType = packager.isAbsoluteFragmentTimes() ? ABSOLUTE_TIMECODE : RELATIVE_TIMECODE;
+            return this;
+        }
+
         public Builder receiveAcks(final Consumer<InputStream> acksReceiver) {
             mAcksReceiver = acksReceiver;
             return this;
@@ -273,18 +269,30 @@ public final class PutMediaClient {
         }
 
         /**
-         * Allows writing the stream data into a localc file in addition to sending it to back-end.
+         * Allows writing the stream data into a local file in addition to sending it to back-end.
          * <p>
+         * The file is written asynchronously by an {@link MkvRecorder} of the upload, with the default settings.
+         *
          * @param fileOutputPath Output file path
          * @return Builder object
-         *
-         * NOTE: Useful for debugging
          */
         public Builder fileOutputPath(final String fileOutputPath) {
             mFileOutputPath = fileOutputPath;
             return this;
         }
 
+        /**
+         * Allows recording the stream data with a recorder of the caller, rotating the files for instance, in
+         * addition to sending it to back-end. The recorder is left open when the upload ends.
+         *
+         * @param recorder Recorder of the stream data
+         * @return Builder object
+         */
+        public Builder recorder(final MkvRecorder recorder) {
+            mRecorder = recorder;
+            return this;
+        }
+
         public Builder upstreamKbps(final long kbps) {
             upstreamKbps = kbps;
             return this;
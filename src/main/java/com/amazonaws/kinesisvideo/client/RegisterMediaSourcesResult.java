@@ -0,0 +1,57 @@
+package com.amazonaws.kinesisvideo.client;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of registering a batch of media sources with
+ * {@link KinesisVideoClient#registerMediaSources(java.util.Collection, int)}.
+ * <p>
+ * Registering a batch is not atomic: the media sources which have been registered stay registered
+ * even if the others have failed.
+ */
+@Immutable
+public final class RegisterMediaSourcesResult {
+    private final List<MediaSource> registeredMediaSources;
+    private final Map<MediaSource, KinesisVideoException> failedMediaSources;
+
+    public RegisterMediaSourcesResult(@Nonnull final List<MediaSource> registeredMediaSources,
+                                      @Nonnull final Map<MediaSource, KinesisVideoException> failedMediaSources) {
+        this.registeredMediaSources = Collections.unmodifiableList(registeredMediaSources);
+        this.failedMediaSources = Collections.unmodifiableMap(
+                new LinkedHashMap<MediaSource, KinesisVideoException>(failedMediaSources));
+    }
+
+    /**
+     * @return media sources which have been registered, in the order they have been submitted
+     */
+    @Nonnull
+    public List<MediaSource> getRegisteredMediaSources() {
+        return registeredMediaSources;
+    }
+
+    /**
+     * @return media sources which have failed to register along with the reason, in the order they have been submitted
+     */
+    @Nonnull
+    public Map<MediaSource, KinesisVideoException> getFailedMediaSources() {
+        return failedMediaSources;
+    }
+
+    public boolean isAllRegistered() {
+        return failedMediaSources.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RegisterMediaSourcesResult{registered=" + registeredMediaSources.size()
+                + ", failed=" + failedMediaSources.size() + '}';
+    }
+}
@@ -0,0 +1,44 @@
+package com.amazonaws.kinesisvideo.client.signing;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small size-bounded LRU cache used by the signer to keep derived signing keys
+ * and canonical request templates across requests.
+ */
+@ThreadSafe
+final class BoundedLruCache<K, V> {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Map<K, V> mEntries;
+
+    BoundedLruCache(final int maxEntries) {
+        mEntries = new LinkedHashMap<K, V>(16, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Nullable
+    synchronized V get(@Nonnull final K key) {
+        return mEntries.get(key);
+    }
+
+    synchronized void put(@Nonnull final K key, @Nonnull final V value) {
+        mEntries.put(key, value);
+    }
+
+    synchronized int size() {
+        return mEntries.size();
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+    }
+}
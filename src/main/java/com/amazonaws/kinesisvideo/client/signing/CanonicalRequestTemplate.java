@@ -0,0 +1,169 @@
+package com.amazonaws.kinesisvideo.client.signing;
+
+import com.amazonaws.util.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkArgument;
+
+/**
+ * Pre-computed SigV4 canonical request for a request whose headers barely change between signings,
+ * like the PutMedia request of a stream being re-established.
+ * <p>
+ * The template is cut out of a canonical request produced by the SDK signer. Every header which is
+ * expected to change between signings becomes a slot, while the rest of the canonical request is kept as
+ * pre-rendered text blocks, so rendering a new canonical request is just a concatenation.
+ */
+@Immutable
+final class CanonicalRequestTemplate {
+    private static final char NEW_LINE = '\n';
+    private static final char HEADER_SEPARATOR = ':';
+    private static final int NUMBER_OF_REQUEST_LINE_PARTS = 3;
+
+    private final String[] mBlocks;
+    private final String[] mSlotHeaderNames;
+    private final String mSignedHeaders;
+    private final int mEstimatedLength;
+
+    private CanonicalRequestTemplate(final String[] blocks,
+                                     final String[] slotHeaderNames,
+                                     final String signedHeaders,
+                                     final int estimatedLength) {
+        mBlocks = blocks;
+        mSlotHeaderNames = slotHeaderNames;
+        mSignedHeaders = signedHeaders;
+        mEstimatedLength = estimatedLength;
+    }
+
+    /**
+     * Cuts the template out of the canonical request.
+     *
+     * @param canonicalRequest - canonical request as produced by the SDK signer
+     * @param slotHeaderNames - lower-case names of the headers which will be substituted on each rendering
+     * @return the template
+     */
+    @Nonnull
+    static CanonicalRequestTemplate fromCanonicalRequest(@Nonnull final String canonicalRequest,
+                                                         @Nonnull final Set<String> slotHeaderNames) {
+        final String[] lines = canonicalRequest.split(String.valueOf(NEW_LINE), -1);
+        checkArgument(lines.length > NUMBER_OF_REQUEST_LINE_PARTS + 2, "Malformed canonical request");
+
+        final List<String> blocks = new ArrayList<String>();
+        final List<String> slots = new ArrayList<String>();
+        StringBuilder block = new StringBuilder();
+        for (int i = 0; i < NUMBER_OF_REQUEST_LINE_PARTS; i++) {
+            block.append(lines[i]).append(NEW_LINE);
+        }
+
+        int index = NUMBER_OF_REQUEST_LINE_PARTS;
+        for (; index < lines.length && !lines[index].isEmpty(); index++) {
+            final String line = lines[index];
+            final String headerName = line.substring(0, line.indexOf(HEADER_SEPARATOR));
+            if (slotHeaderNames.contains(headerName)) {
+                blocks.add(block.toString());
+                slots.add(headerName);
+                block = new StringBuilder();
+            } else {
+                block.append(line).append(NEW_LINE);
+            }
+        }
+
+        checkArgument(index + 2 < lines.length, "Malformed canonical request");
+        final String signedHeaders = lines[index + 1];
+        block.append(NEW_LINE).append(signedHeaders).append(NEW_LINE).append(lines[index + 2]);
+        blocks.add(block.toString());
+
+        return new CanonicalRequestTemplate(
+                blocks.toArray(new String[blocks.size()]),
+                slots.toArray(new String[slots.size()]),
+                signedHeaders,
+                canonicalRequest.length());
+    }
+
+    /**
+     * Renders the canonical request.
+     *
+     * @param slotValues - values for the slot headers keyed by their lower-case names
+     * @return canonical request identical to the one the SDK signer would produce for the same headers
+     */
+    @Nonnull
+    String render(@Nonnull final Map<String, String> slotValues) {
+        final StringBuilder builder = new StringBuilder(mEstimatedLength + 64);
+        for (int i = 0; i < mSlotHeaderNames.length; i++) {
+            builder.append(mBlocks[i]).append(mSlotHeaderNames[i]).append(HEADER_SEPARATOR);
+            final String value = slotValues.get(mSlotHeaderNames[i]);
+            if (value != null) {
+                StringUtils.appendCompactedString(builder, value);
+            }
+            builder.append(NEW_LINE);
+        }
+
+        return builder.append(mBlocks[mSlotHeaderNames.length]).toString();
+    }
+
+    @Nonnull
+    String getSignedHeaders() {
+        return mSignedHeaders;
+    }
+
+    /**
+     * Identifies the requests a template can be rendered for: same method and URI, the same headers
+     * with the same values except for the slot headers, and the same presence of a session token.
+     */
+    @Immutable
+    static final class Key {
+        private final String mMethod;
+        private final String mUri;
+        private final Map<String, String> mStaticHeaders;
+        private final boolean mHasSessionToken;
+        private final int mHashCode;
+
+        Key(@Nonnull final String method,
+            @Nonnull final String uri,
+            @Nonnull final Map<String, String> headers,
+            @Nonnull final Set<String> slotHeaderNames,
+            final boolean hasSessionToken) {
+            mMethod = method;
+            mUri = uri;
+            mHasSessionToken = hasSessionToken;
+            mStaticHeaders = new HashMap<String, String>(headers.size() * 2);
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                final boolean isSlot = slotHeaderNames.contains(StringUtils.lowerCase(header.getKey()));
+                mStaticHeaders.put(header.getKey(), isSlot ? "" : header.getValue());
+            }
+
+            int result = mMethod.hashCode();
+            result = 31 * result + mUri.hashCode();
+            result = 31 * result + mStaticHeaders.hashCode();
+            mHashCode = 31 * result + (mHasSessionToken ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return mHashCode == key.mHashCode
+                    && mHasSessionToken == key.mHasSessionToken
+                    && mMethod.equals(key.mMethod)
+                    && mUri.equals(key.mUri)
+                    && mStaticHeaders.equals(key.mStaticHeaders);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
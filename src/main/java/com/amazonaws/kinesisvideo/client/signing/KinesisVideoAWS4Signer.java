@@ -1,16 +1,30 @@
 package com.amazonaws.kinesisvideo.client.signing;
 
 import java.net.URI;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import com.amazonaws.DefaultRequest;
 import com.amazonaws.SignableRequest;
 import com.amazonaws.auth.AWS4Signer;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.auth.AnonymousAWSCredentials;
+import com.amazonaws.auth.SigningAlgorithm;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.kinesisvideo.config.ClientConfiguration;
 import com.amazonaws.kinesisvideo.http.HttpClient;
 import com.amazonaws.kinesisvideo.signing.KinesisVideoSigner;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.StringUtils;
 
 public class KinesisVideoAWS4Signer extends AWS4Signer implements KinesisVideoSigner {
 
@@ -19,6 +33,32 @@ public class KinesisVideoAWS4Signer extends AWS4Signer implements KinesisVideoSi
     private static final String AUTH_HEADER = "Authorization";
     private static final String DATE_HEADER = "X-Amz-Date";
     private static final String SECURITY_TOKEN_HEADER = "X-Amz-Security-Token";
+    private static final String SIGNING_ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SCOPE_TERMINATOR = "aws4_request";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final int DATE_STAMP_LENGTH = 8;
+
+    /**
+     * Headers which are expected to change every time the same request is signed again. These become
+     * slots in the pre-computed canonical requests. Everything else is signed from the cached template.
+     */
+    private static final Set<String> VOLATILE_HEADERS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            StringUtils.lowerCase(DATE_HEADER),
+            StringUtils.lowerCase(SECURITY_TOKEN_HEADER),
+            "x-amzn-producer-start-timestamp")));
+
+    /**
+     * Signing keys are valid for a whole day, and canonical requests only change in their volatile headers,
+     * so both are shared by all of the signer instances. Hundreds of streams re-connecting at the same time
+     * then only pay for hashing the canonical request and a single HMAC each.
+     */
+    private static final int MAX_CACHED_SIGNING_KEYS = 300;
+    private static final int MAX_CACHED_CANONICAL_REQUESTS = 1024;
+    private static final SigningKeyCache SIGNING_KEY_CACHE = new SigningKeyCache(MAX_CACHED_SIGNING_KEYS);
+    private static final BoundedLruCache<CanonicalRequestTemplate.Key, CanonicalRequestTemplate>
+            CANONICAL_REQUEST_CACHE = new BoundedLruCache<CanonicalRequestTemplate.Key, CanonicalRequestTemplate>(
+                    MAX_CACHED_CANONICAL_REQUESTS);
 
     private final AWSCredentialsProvider mAWSCredentialsProvider;
     private final ClientConfiguration mConfiguration;
@@ -60,20 +100,122 @@ public class KinesisVideoAWS4Signer extends AWS4Signer implements KinesisVideoSi
         setServiceName(mConfiguration.getServiceName());
         setRegionName(mConfiguration.getRegion());
 
-        final SignableRequest signableRequest = toSignableRequest(httpClient);
         final AWSCredentials credentials = mAWSCredentialsProvider.getCredentials();
+        if (canUseCachedSigning(httpClient, credentials)) {
+            signWithCachedState(httpClient, sanitizeCredentials(credentials));
+        } else {
+            signFully(httpClient, credentials);
+        }
+        addContentHeader(httpClient);
+    }
+
+    public SignableRequest<?> toSignableRequest(final HttpClient httpClient) {
+        return new SimpleSignableRequest(httpClient);
+    }
+
+    private void signFully(final HttpClient httpClient, final AWSCredentials credentials) {
+        final SignableRequest signableRequest = toSignableRequest(httpClient);
 
         sign(signableRequest, credentials);
         // TODO: Implement logging
         httpClient.getHeaders().put(AUTH_HEADER, (String) signableRequest.getHeaders().get(AUTH_HEADER));
         httpClient.getHeaders().put(DATE_HEADER, (String) signableRequest.getHeaders().get(DATE_HEADER));
         addSecurityToken(httpClient, signableRequest);
-        addContentHeader(httpClient);
+    }
 
+    /**
+     * The cached path produces exactly the same headers as {@link #signFully} but re-uses the derived signing
+     * key and the pre-computed canonical request, so only the date and the signature are computed per request.
+     * Requests with a signed payload or query parameters always go through the full signer.
+     */
+    private boolean canUseCachedSigning(final HttpClient httpClient, final AWSCredentials credentials) {
+        return credentials != null
+                && !(credentials instanceof AnonymousAWSCredentials)
+                && credentials.getAWSAccessKeyId() != null
+                && credentials.getAWSSecretKey() != null
+                && getServiceName() != null
+                && getRegionName() != null
+                && httpClient.getUri().getRawQuery() == null
+                && shouldAddContentUnsignedPayloadInHeader(httpClient.getMethod().name());
     }
 
-    public SignableRequest<?> toSignableRequest(final HttpClient httpClient) {
-        return new SimpleSignableRequest(httpClient);
+    private void signWithCachedState(final HttpClient httpClient, final AWSCredentials credentials) {
+        final String sessionToken = credentials instanceof AWSSessionCredentials
+                ? ((AWSSessionCredentials) credentials).getSessionToken()
+                : null;
+        final long signingTimeMillis = getOverriddenDate() != null
+                ? getOverriddenDate().getTime()
+                : System.currentTimeMillis();
+        final String dateTime = DATE_TIME_FORMATTER.format(Instant.ofEpochMilli(signingTimeMillis));
+        final String dateStamp = dateTime.substring(0, DATE_STAMP_LENGTH);
+        final String scope = dateStamp + "/" + getRegionName() + "/" + getServiceName() + "/" + SCOPE_TERMINATOR;
+
+        final Map<String, String> headers = httpClient.getHeaders();
+        final CanonicalRequestTemplate template = getCanonicalRequestTemplate(httpClient, sessionToken != null);
+        final Map<String, String> slotValues = new HashMap<String, String>();
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            final String headerName = StringUtils.lowerCase(header.getKey());
+            if (VOLATILE_HEADERS.contains(headerName)) {
+                slotValues.put(headerName, header.getValue());
+            }
+        }
+        slotValues.put(StringUtils.lowerCase(DATE_HEADER), dateTime);
+        if (sessionToken != null) {
+            slotValues.put(StringUtils.lowerCase(SECURITY_TOKEN_HEADER), sessionToken);
+        }
+
+        final String canonicalRequest = template.render(slotValues);
+        final String stringToSign = SIGNING_ALGORITHM + "\n"
+                + dateTime + "\n"
+                + scope + "\n"
+                + BinaryUtils.toHex(hash(canonicalRequest));
+        final byte[] signature = sign(stringToSign, getSigningKey(credentials, dateStamp), SigningAlgorithm.HmacSHA256);
+
+        headers.put(AUTH_HEADER, SIGNING_ALGORITHM
+                + " Credential=" + credentials.getAWSAccessKeyId() + "/" + scope
+                + ", SignedHeaders=" + template.getSignedHeaders()
+                + ", Signature=" + BinaryUtils.toHex(signature));
+        headers.put(DATE_HEADER, dateTime);
+        if (sessionToken != null) {
+            headers.put(SECURITY_TOKEN_HEADER, sessionToken);
+        }
+    }
+
+    private byte[] getSigningKey(final AWSCredentials credentials, final String dateStamp) {
+        byte[] signingKey = SIGNING_KEY_CACHE.get(credentials, dateStamp, getRegionName(), getServiceName());
+        if (signingKey == null) {
+            signingKey = newSigningKey(credentials, dateStamp, getRegionName(), getServiceName());
+            SIGNING_KEY_CACHE.put(credentials, dateStamp, getRegionName(), getServiceName(), signingKey);
+        }
+
+        return signingKey;
+    }
+
+    private CanonicalRequestTemplate getCanonicalRequestTemplate(final HttpClient httpClient,
+                                                                 final boolean hasSessionToken) {
+        final CanonicalRequestTemplate.Key key = new CanonicalRequestTemplate.Key(
+                httpClient.getMethod().name(),
+                httpClient.getUri().toString(),
+                httpClient.getHeaders(),
+                VOLATILE_HEADERS,
+                hasSessionToken);
+        CanonicalRequestTemplate template = CANONICAL_REQUEST_CACHE.get(key);
+        if (template == null) {
+            // Let the SDK signer canonicalize the request once, with the same headers it would add itself
+            final SignableRequest<?> signableRequest = toSignableRequest(httpClient);
+            addHostHeader(signableRequest);
+            signableRequest.addHeader(DATE_HEADER, "");
+            if (hasSessionToken) {
+                signableRequest.addHeader(SECURITY_TOKEN_HEADER, "");
+            }
+
+            template = CanonicalRequestTemplate.fromCanonicalRequest(
+                    createCanonicalRequest(signableRequest, CONTENT_UNSIGNED_PAYLOAD),
+                    VOLATILE_HEADERS);
+            CANONICAL_REQUEST_CACHE.put(key, template);
+        }
+
+        return template;
     }
 
     private void addSecurityToken(final HttpClient httpClient, final SignableRequest signableRequest) {
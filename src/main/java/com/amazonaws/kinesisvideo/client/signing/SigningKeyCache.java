@@ -0,0 +1,90 @@
+package com.amazonaws.kinesisvideo.client.signing;
+
+import com.amazonaws.auth.AWSCredentials;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Cache of derived SigV4 signing keys.
+ * <p>
+ * A signing key only depends on the date stamp, region, service and the secret key, so deriving it
+ * (four chained HMACs) once per day per credentials is enough no matter how many requests get signed.
+ */
+@ThreadSafe
+final class SigningKeyCache {
+    private final BoundedLruCache<Key, byte[]> mCache;
+
+    SigningKeyCache(final int maxEntries) {
+        mCache = new BoundedLruCache<Key, byte[]>(maxEntries);
+    }
+
+    @Nullable
+    byte[] get(@Nonnull final AWSCredentials credentials,
+               @Nonnull final String dateStamp,
+               @Nonnull final String regionName,
+               @Nonnull final String serviceName) {
+        return mCache.get(new Key(credentials, dateStamp, regionName, serviceName));
+    }
+
+    void put(@Nonnull final AWSCredentials credentials,
+             @Nonnull final String dateStamp,
+             @Nonnull final String regionName,
+             @Nonnull final String serviceName,
+             @Nonnull final byte[] signingKey) {
+        mCache.put(new Key(credentials, dateStamp, regionName, serviceName), signingKey);
+    }
+
+    int size() {
+        return mCache.size();
+    }
+
+    void clear() {
+        mCache.clear();
+    }
+
+    private static final class Key {
+        private final String mAccessKeyId;
+        private final String mSecretKey;
+        private final String mDateStamp;
+        private final String mRegionName;
+        private final String mServiceName;
+
+        Key(final AWSCredentials credentials,
+            final String dateStamp,
+            final String regionName,
+            final String serviceName) {
+            mAccessKeyId = credentials.getAWSAccessKeyId();
+            mSecretKey = credentials.getAWSSecretKey();
+            mDateStamp = dateStamp;
+            mRegionName = regionName;
+            mServiceName = serviceName;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return mDateStamp.equals(key.mDateStamp)
+                    && mRegionName.equals(key.mRegionName)
+                    && mServiceName.equals(key.mServiceName)
+                    && mAccessKeyId.equals(key.mAccessKeyId)
+                    && mSecretKey.equals(key.mSecretKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mAccessKeyId.hashCode();
+            result = 31 * result + mSecretKey.hashCode();
+            result = 31 * result + mDateStamp.hashCode();
+            result = 31 * result + mRegionName.hashCode();
+            return 31 * result + mServiceName.hashCode();
+        }
+    }
+}
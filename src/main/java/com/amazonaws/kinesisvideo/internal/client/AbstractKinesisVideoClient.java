@@ -1,8 +1,11 @@
 package com.amazonaws.kinesisvideo.internal.client;
 
 import com.amazonaws.kinesisvideo.client.KinesisVideoClient;
+import com.amazonaws.kinesisvideo.client.RegisterMediaSourcesResult;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
 import org.apache.logging.log4j.Logger;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.producer.DeviceInfo;
@@ -13,7 +16,12 @@ import javax.annotation.concurrent.NotThreadSafe;
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkState;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Abstract Kinesis Video Client implementation which handles some of the common pieces
@@ -23,9 +31,21 @@ import java.util.List;
 public abstract class AbstractKinesisVideoClient implements KinesisVideoClient {
 
     /**
-     * Stores the list of streams
+     * Stores the list of streams. The media sources can be registered from several threads at once, see
+     * {@link #registerMediaSources(Collection, int)}.
      */
-    protected final List<MediaSource> mMediaSources = new ArrayList<MediaSource>();
+    protected final List<MediaSource> mMediaSources = new CopyOnWriteArrayList<MediaSource>();
+
+    /**
+     * Number of threads running the frame sources of all the media sources of the client
+     */
+    protected static final int FRAME_SOURCE_DISPATCH_THREADS = 2;
+
+    /**
+     * Clock pacing the frame sources of the registered media sources, created with the first of them and shut down
+     * when the client is freed
+     */
+    private PacingClock mPacingClock;
 
     /**
      * Whether the object has been initialized
@@ -128,6 +148,26 @@ public abstract class AbstractKinesisVideoClient implements KinesisVideoClient {
 
         // Clean the list
         mMediaSources.clear();
+
+        synchronized (this) {
+            if (mPacingClock != null) {
+                mPacingClock.shutdown();
+                mPacingClock = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the clock pacing the frame sources of the media sources registered with this client, so that they share
+     * a small pool of threads rather than running one each.
+     */
+    @Nonnull
+    public synchronized PacingClock getPacingClock() {
+        if (mPacingClock == null) {
+            mPacingClock = new PacingClock("FrameSources", FRAME_SOURCE_DISPATCH_THREADS);
+        }
+
+        return mPacingClock;
     }
 
     /**
@@ -140,14 +180,53 @@ public abstract class AbstractKinesisVideoClient implements KinesisVideoClient {
     @Override
     public void registerMediaSource(@Nonnull final MediaSource mediaSource) throws KinesisVideoException {
         // The actual media source creation happens in the derived class
+        bindPacingClock(mediaSource);
         mMediaSources.add(mediaSource);
     }
 
     @Override
     public void registerMediaSourceAsync(@Nonnull final MediaSource mediaSource) throws KinesisVideoException {
+        bindPacingClock(mediaSource);
         mMediaSources.add(mediaSource);
     }
 
+    private void bindPacingClock(final MediaSource mediaSource) {
+        if (mediaSource instanceof PacedMediaSource) {
+            ((PacedMediaSource) mediaSource).setPacingClock(getPacingClock());
+        }
+    }
+
+    @Override
+    public CompletableFuture<RegisterMediaSourcesResult> registerMediaSources(
+            @Nonnull final Collection<MediaSource> mediaSources) throws KinesisVideoException {
+        return registerMediaSources(mediaSources, DEFAULT_MAX_CONCURRENT_REGISTRATIONS);
+    }
+
+    /**
+     * Registers the media sources one by one. The derived classes which can create the streams concurrently
+     * should override this.
+     */
+    @Override
+    public CompletableFuture<RegisterMediaSourcesResult> registerMediaSources(
+            @Nonnull final Collection<MediaSource> mediaSources,
+            final int maxConcurrentRegistrations) throws KinesisVideoException {
+        Preconditions.checkNotNull(mediaSources);
+        Preconditions.checkArgument(maxConcurrentRegistrations > 0, "Max concurrent registrations should be positive");
+
+        final List<MediaSource> registered = new ArrayList<MediaSource>();
+        final Map<MediaSource, KinesisVideoException> failed = new LinkedHashMap<MediaSource, KinesisVideoException>();
+        for (final MediaSource mediaSource : mediaSources) {
+            try {
+                registerMediaSource(mediaSource);
+                registered.add(mediaSource);
+            } catch (final KinesisVideoException e) {
+                failed.put(mediaSource, e);
+            }
+        }
+
+        return CompletableFuture.completedFuture(new RegisterMediaSourcesResult(registered, failed));
+    }
+
     /**
      * Un-Register a media source. The media source will stop binding to kinesis video producer stream
      * and it cannot send data via producer stream afterwards until register again.
@@ -3,22 +3,33 @@ package com.amazonaws.kinesisvideo.internal.client;
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
 import static com.amazonaws.kinesisvideo.internal.producer.ReadResult.INVALID_UPLOAD_HANDLE_VALUE;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
 import com.amazonaws.kinesisvideo.auth.DefaultAuthCallbacks;
 import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.client.RegisterMediaSourcesResult;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.AsyncMediaSourceSink;
 import com.amazonaws.kinesisvideo.internal.mediasource.ProducerStreamSink;
 import com.amazonaws.kinesisvideo.producer.AuthCallbacks;
 import com.amazonaws.kinesisvideo.producer.DeviceInfo;
@@ -32,6 +43,7 @@ import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceCl
 import com.amazonaws.kinesisvideo.internal.producer.jni.NativeKinesisVideoProducerJni;
 import com.amazonaws.kinesisvideo.internal.service.DefaultServiceCallbacksImpl;
 import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Implement Kinesis Video Client interface for Android.
@@ -52,11 +64,38 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
      */
     private static final String TAG = "NativeKinesisVideoClient";
 
+    /**
+     * Number of threads delivering the queued frames of all the media sources to their streams
+     */
+    private static final int SINK_DRAINER_THREADS = 2;
+
+    /**
+     * Time given to a media source sink to deliver its queued frames before its stream is stopped
+     */
+    private static final long SINK_DRAIN_TIMEOUT_IN_SECONDS = 5;
+
     /**
      * Map of the media source to KVS producer stream
      */
     private final Map<MediaSource, KinesisVideoProducerStream> mMediaSourceToStreamMap;
 
+    /**
+     * Map of the media source to the sink queueing its frames, when the client is configured with one
+     */
+    private final Map<MediaSource, AsyncMediaSourceSink> mMediaSourceToSinkMap;
+
+    /**
+     * Queue capacity and overflow policy of the media source sinks, no queue if the capacity is 0
+     */
+    private final int mMediaSourceSinkCapacity;
+    private final AsyncMediaSourceSink.OverflowPolicy mMediaSourceSinkOverflowPolicy;
+
+    /**
+     * Pool delivering the queued frames of the media sources, created with the first sink and shut down when the client
+     * is freed
+     */
+    private ExecutorService mSinkDrainer;
+
     /**
      * Kinesis Video producer callbacks
      */
@@ -91,7 +130,9 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
                         log),
                 configuration.getStorageCallbacks(),
                 new DefaultServiceCallbacksImpl(log, executor, configuration, serviceClient),
-                new DefaultStreamCallbacks());
+                new DefaultStreamCallbacks(),
+                configuration.getMediaSourceSinkCapacity(),
+                configuration.getMediaSourceSinkOverflowPolicy());
     }
 
     public NativeKinesisVideoClient(
@@ -100,15 +141,36 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
             @Nonnull final StorageCallbacks storageCallbacks,
             @Nonnull final ServiceCallbacks serviceCallbacks,
             @Nonnull final StreamCallbacks streamCallbacks) {
+        this(log, authCallbacks, storageCallbacks, serviceCallbacks, streamCallbacks, 0,
+                AsyncMediaSourceSink.OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param mediaSourceSinkCapacity - number of entries queued between each media source and its stream, 0 for the
+     *                                media sources to put their frames into the streams directly
+     * @param mediaSourceSinkOverflowPolicy - what to do with a frame when the queue of a media source is full
+     */
+    public NativeKinesisVideoClient(
+            @Nonnull final Logger log,
+            @Nonnull final AuthCallbacks authCallbacks,
+            @Nonnull final StorageCallbacks storageCallbacks,
+            @Nonnull final ServiceCallbacks serviceCallbacks,
+            @Nonnull final StreamCallbacks streamCallbacks,
+            final int mediaSourceSinkCapacity,
+            @Nonnull final AsyncMediaSourceSink.OverflowPolicy mediaSourceSinkOverflowPolicy) {
 
         super(log);
 
+        Preconditions.checkArgument(mediaSourceSinkCapacity >= 0, "Media source sink capacity should not be negative");
         mAuthCallbacks = checkNotNull(authCallbacks);
         mStorageCallbacks = checkNotNull(storageCallbacks);
         mServiceCallbacks = checkNotNull(serviceCallbacks);
         mStreamCallbacks = checkNotNull(streamCallbacks);
+        mMediaSourceSinkCapacity = mediaSourceSinkCapacity;
+        mMediaSourceSinkOverflowPolicy = checkNotNull(mediaSourceSinkOverflowPolicy);
 
-        mMediaSourceToStreamMap = new HashMap<MediaSource, KinesisVideoProducerStream>();
+        mMediaSourceToStreamMap = new ConcurrentHashMap<MediaSource, KinesisVideoProducerStream>();
+        mMediaSourceToSinkMap = new ConcurrentHashMap<MediaSource, AsyncMediaSourceSink>();
     }
 
     /**
@@ -129,7 +191,103 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
         }
 
         final KinesisVideoProducerStream producerStream = kinesisVideoProducer.createStreamSync(mediaSource.getStreamInfo(), streamCallbacks);
-        mediaSource.initialize(new ProducerStreamSink(producerStream));
+        mediaSource.initialize(createMediaSourceSink(mediaSource, producerStream));
+        mServiceCallbacks.addStream(producerStream);
+        mMediaSourceToStreamMap.put(mediaSource, producerStream);
+        super.registerMediaSource(mediaSource);
+    }
+
+    /**
+     * Creates the streams for the media sources concurrently and waits for them to become ready on a pool of
+     * registration threads, so the service calls of the different streams overlap instead of adding up.
+     * <p>
+     * NOTE: The registered media sources are added to the client from the registration threads as their streams become
+     * ready.
+     */
+    @Override
+    public CompletableFuture<RegisterMediaSourcesResult> registerMediaSources(
+            @Nonnull final Collection<MediaSource> mediaSources,
+            final int maxConcurrentRegistrations) throws KinesisVideoException {
+        Preconditions.checkNotNull(mediaSources);
+        Preconditions.checkArgument(maxConcurrentRegistrations > 0, "Max concurrent registrations should be positive");
+        Preconditions.checkState(isInitialized(), "Must initialize first.");
+
+        final List<MediaSource> batch = new ArrayList<MediaSource>(mediaSources);
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(new RegisterMediaSourcesResult(
+                    Collections.<MediaSource>emptyList(),
+                    Collections.<MediaSource, KinesisVideoException>emptyMap()));
+        }
+
+        final ExecutorService registrationExecutor = Executors.newFixedThreadPool(
+                Math.min(maxConcurrentRegistrations, batch.size()),
+                new ThreadFactoryBuilder().setNameFormat("KVS-RegisterMediaSource-%d").setDaemon(true).build());
+
+        final List<CompletableFuture<Void>> registrations = new ArrayList<CompletableFuture<Void>>(batch.size());
+        for (final MediaSource mediaSource : batch) {
+            registrations.add(CompletableFuture.runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        registerMediaSourceForBatch(mediaSource);
+                    } catch (final KinesisVideoException e) {
+                        throw new CompletionException(e);
+                    }
+                }
+            }, registrationExecutor));
+        }
+
+        registrationExecutor.shutdown();
+
+        return CompletableFuture.allOf(registrations.toArray(new CompletableFuture[registrations.size()]))
+                .handle((ignored, e) -> {
+                    final List<MediaSource> registered = new ArrayList<MediaSource>();
+                    final Map<MediaSource, KinesisVideoException> failed =
+                            new LinkedHashMap<MediaSource, KinesisVideoException>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        final MediaSource mediaSource = batch.get(i);
+                        final CompletableFuture<Void> registration = registrations.get(i);
+                        if (!registration.isCompletedExceptionally()) {
+                            registered.add(mediaSource);
+                            continue;
+                        }
+
+                        try {
+                            registration.join();
+                        } catch (final CompletionException ex) {
+                            final Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                            failed.put(mediaSource, cause instanceof KinesisVideoException
+                                    ? (KinesisVideoException) cause
+                                    : new KinesisVideoException(cause));
+                        }
+                    }
+
+                    if (!failed.isEmpty()) {
+                        mLog.warn("Failed to register {} out of {} media sources", failed.size(), batch.size());
+                    }
+
+                    return new RegisterMediaSourcesResult(registered, failed);
+                });
+    }
+
+    private void registerMediaSourceForBatch(@Nonnull final MediaSource mediaSource) throws KinesisVideoException {
+        StreamCallbacks streamCallbacks = mediaSource.getStreamCallbacks();
+        if (streamCallbacks == null) {
+            streamCallbacks = mStreamCallbacks;
+        }
+
+        // Blocks until the stream is ready, the other registration threads make progress meanwhile
+        final KinesisVideoProducerStream producerStream = kinesisVideoProducer.createStreamSync(
+                mediaSource.getStreamInfo(), streamCallbacks);
+
+        try {
+            mediaSource.initialize(createMediaSourceSink(mediaSource, producerStream));
+        } catch (final KinesisVideoException e) {
+            closeMediaSourceSink(mediaSource);
+            kinesisVideoProducer.freeStream(producerStream);
+            throw e;
+        }
+
         mServiceCallbacks.addStream(producerStream);
         mMediaSourceToStreamMap.put(mediaSource, producerStream);
         super.registerMediaSource(mediaSource);
@@ -144,7 +302,7 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
         }
 
         final KinesisVideoProducerStream producerStream = kinesisVideoProducer.createStream(mediaSource.getStreamInfo(), streamCallbacks);
-        mediaSource.initialize(new ProducerStreamSink(producerStream));
+        mediaSource.initialize(createMediaSourceSink(mediaSource, producerStream));
         mServiceCallbacks.addStream(producerStream);
         mMediaSourceToStreamMap.put(mediaSource, producerStream);
         super.registerMediaSource(mediaSource);
@@ -155,6 +313,7 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
         Preconditions.checkNotNull(mediaSource);
         mediaSource.stop();
         super.unregisterMediaSource(mediaSource);
+        closeMediaSourceSink(mediaSource);
 
         final KinesisVideoProducerStream producerStream = mMediaSourceToStreamMap.remove(mediaSource);
         try {
@@ -170,6 +329,7 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
     public void freeMediaSource(@Nonnull final MediaSource mediaSource) throws KinesisVideoException {
         Preconditions.checkNotNull(mediaSource);
         super.freeMediaSource(mediaSource);
+        closeMediaSourceSink(mediaSource);
 
         final KinesisVideoProducerStream producerStream = mMediaSourceToStreamMap.remove(mediaSource);
         try {
@@ -188,6 +348,7 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
             for (final MediaSource mediaSource : mMediaSources) {
                 final KinesisVideoProducerStream producerStream = mMediaSourceToStreamMap.get(mediaSource);
                 try {
+                    awaitMediaSourceSinkDrained(mediaSource);
                     producerStream.stopStreamSync();
                 } catch (final KinesisVideoException e) {
                     mLog.error("Failed to stop media source {} due to Exception.", mediaSource);
@@ -199,6 +360,58 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
         }
     }
 
+    /**
+     * Creates the sink the media source puts its frames into: the producer stream itself, or a queue in front of it
+     * when the client is configured with a media source sink capacity.
+     */
+    private MediaSourceSink createMediaSourceSink(@Nonnull final MediaSource mediaSource,
+                                                  @Nonnull final KinesisVideoProducerStream producerStream) {
+        final ProducerStreamSink producerStreamSink = new ProducerStreamSink(producerStream);
+        if (mMediaSourceSinkCapacity == 0) {
+            return producerStreamSink;
+        }
+
+        final AsyncMediaSourceSink sink = new AsyncMediaSourceSink(producerStreamSink, mMediaSourceSinkCapacity,
+                mMediaSourceSinkOverflowPolicy, getSinkDrainer());
+        mMediaSourceToSinkMap.put(mediaSource, sink);
+        return sink;
+    }
+
+    private synchronized ExecutorService getSinkDrainer() {
+        if (mSinkDrainer == null) {
+            mSinkDrainer = Executors.newFixedThreadPool(SINK_DRAINER_THREADS,
+                    new ThreadFactoryBuilder().setNameFormat("KVS-SinkDrainer-%d").setDaemon(true).build());
+        }
+
+        return mSinkDrainer;
+    }
+
+    /**
+     * Stops the media source sink from taking frames and waits for the queued ones to be delivered to the stream.
+     */
+    private void closeMediaSourceSink(@Nonnull final MediaSource mediaSource) throws KinesisVideoException {
+        final AsyncMediaSourceSink sink = mMediaSourceToSinkMap.remove(mediaSource);
+        if (sink != null) {
+            sink.close();
+            awaitDrained(mediaSource, sink);
+        }
+    }
+
+    private void awaitMediaSourceSinkDrained(@Nonnull final MediaSource mediaSource) throws KinesisVideoException {
+        final AsyncMediaSourceSink sink = mMediaSourceToSinkMap.get(mediaSource);
+        if (sink != null) {
+            awaitDrained(mediaSource, sink);
+        }
+    }
+
+    private void awaitDrained(@Nonnull final MediaSource mediaSource, @Nonnull final AsyncMediaSourceSink sink)
+            throws KinesisVideoException {
+        if (!sink.awaitDrained(SINK_DRAIN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+            mLog.warn("Media source {} still had {} queued entries after {} seconds", mediaSource,
+                    sink.getMetrics().getQueueDepth(), SINK_DRAIN_TIMEOUT_IN_SECONDS);
+        }
+    }
+
     @Override
     public MediaSource createMediaSource(final String streamName,
                                          final MediaSourceConfiguration mediaSourceConfiguration)
@@ -217,6 +430,17 @@ public class NativeKinesisVideoClient extends AbstractKinesisVideoClient {
         if (isInitialized()) {
             super.free();
 
+            for (final MediaSource mediaSource : mMediaSourceToSinkMap.keySet()) {
+                closeMediaSourceSink(mediaSource);
+            }
+
+            synchronized (this) {
+                if (mSinkDrainer != null) {
+                    mSinkDrainer.shutdown();
+                    mSinkDrainer = null;
+                }
+            }
+
             mServiceCallbacks.free();
             kinesisVideoProducer.stopStreams();
             kinesisVideoProducer.free();
@@ -0,0 +1,543 @@
+package com.amazonaws.kinesisvideo.internal.mediasource;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_TRACK_ID;
+
+/**
+ * MediaSourceSink decoupling the media source from the sink it feeds, usually a {@link ProducerStreamSink}.
+ * <p>
+ * The frames, codec private data and fragment metadata are put into a ring buffer of preallocated entries and
+ * delivered in order to the downstream sink by a drainer, either a thread of its own or a pool shared between the
+ * sinks of several streams. The capture thread of the media source then only waits for the ring buffer and not for
+ * the producer, whose putFrame may stall on content store pressure.
+ * <p>
+ * When the ring buffer is full, the {@link OverflowPolicy} decides between waiting for room and dropping frames.
+ * Codec private data and fragment metadata are never dropped.
+ * <p>
+ * The frames are delivered after {@link #onFrame(KinesisVideoFrame)} returns, so the media source must not reuse their
+ * data buffers.
+ * <p>
+ * The client puts one between each media source and its stream when it is configured with
+ * {@link com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration.Builder#withMediaSourceSink}.
+ */
+@ThreadSafe
+public class AsyncMediaSourceSink implements MediaSourceSink {
+    /**
+     * What to do with a frame when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the drainer makes room.
+         */
+        BLOCK,
+
+        /**
+         * Drop the oldest queued frame which is not a key frame, or the oldest queued frame if all of them are.
+         */
+        DROP_OLDEST_NON_KEY_FRAME,
+
+        /**
+         * Drop the oldest queued frames up to the next queued key frame. If there is none, drop all the queued frames
+         * and then the incoming ones until a key frame comes in.
+         */
+        DROP_TO_NEXT_KEY_FRAME
+    }
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Number of entries delivered before a drainer shared with other sinks is handed over.
+     */
+    private static final int DRAIN_BATCH_SIZE = 64;
+
+    private static final int ENTRY_FRAME = 0;
+    private static final int ENTRY_CODEC_PRIVATE_DATA = 1;
+    private static final int ENTRY_FRAGMENT_METADATA = 2;
+
+    private final Log log = LogFactory.getLog(AsyncMediaSourceSink.class);
+    private final MediaSourceSink delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor drainer;
+    private final ExecutorService ownDrainer;
+    /**
+     * Only used by the drain task, of which there is at most one running or scheduled at a time
+     */
+    private final Entry delivery = new Entry();
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    @GuardedBy("lock")
+    private final Entry[] entries;
+    @GuardedBy("lock")
+    private int head;
+    @GuardedBy("lock")
+    private int size;
+    @GuardedBy("lock")
+    private boolean isDraining;
+    @GuardedBy("lock")
+    private boolean isWaitingForKeyFrame;
+    @GuardedBy("lock")
+    private boolean isClosed;
+    @GuardedBy("lock")
+    private int maxQueueDepth;
+    @GuardedBy("lock")
+    private long enqueuedFrameCount;
+    @GuardedBy("lock")
+    private long deliveredFrameCount;
+    @GuardedBy("lock")
+    private long droppedFrameCount;
+    @GuardedBy("lock")
+    private long blockedCount;
+    @GuardedBy("lock")
+    private long deliveryErrorCount;
+
+    /**
+     * Sink drained by a thread of its own.
+     *
+     * @param delegate - sink to deliver to
+     * @param capacity - number of entries of the ring buffer
+     * @param overflowPolicy - what to do with a frame when the ring buffer is full
+     */
+    public AsyncMediaSourceSink(@Nonnull final MediaSourceSink delegate,
+                                final int capacity,
+                                @Nonnull final OverflowPolicy overflowPolicy) {
+        this(delegate, capacity, overflowPolicy, null);
+    }
+
+    /**
+     * Sink drained by a pool shared with other sinks.
+     *
+     * @param delegate - sink to deliver to
+     * @param capacity - number of entries of the ring buffer
+     * @param overflowPolicy - what to do with a frame when the ring buffer is full
+     * @param drainer - pool to deliver on, null to drain on a thread of its own
+     */
+    public AsyncMediaSourceSink(@Nonnull final MediaSourceSink delegate,
+                                final int capacity,
+                                @Nonnull final OverflowPolicy overflowPolicy,
+                                @Nullable final Executor drainer) {
+        Preconditions.checkArgument(capacity > 0, "Capacity should be positive");
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy);
+        this.entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+        }
+
+        if (drainer == null) {
+            this.ownDrainer = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("KVS-SinkDrainer-%d").setDaemon(true).build());
+            this.drainer = ownDrainer;
+        } else {
+            this.ownDrainer = null;
+            this.drainer = drainer;
+        }
+    }
+
+    @Override
+    public void onFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) throws KinesisVideoException {
+        Preconditions.checkNotNull(kinesisVideoFrame);
+        final boolean isKeyFrame = FrameFlags.isKeyFrame(kinesisVideoFrame.getFlags());
+        lock.lock();
+        try {
+            if (!isWaitingForKeyFrame || isKeyFrame) {
+                // Making room may give up on the queued frames until the next key frame
+                awaitRoom();
+            }
+
+            if (isWaitingForKeyFrame && !isKeyFrame) {
+                droppedFrameCount++;
+                return;
+            }
+
+            isWaitingForKeyFrame = false;
+            tail().frame = kinesisVideoFrame;
+            enqueue(ENTRY_FRAME);
+            enqueuedFrameCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData) throws KinesisVideoException {
+        onCodecPrivateData(codecPrivateData, DEFAULT_TRACK_ID);
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData, final int trackId)
+            throws KinesisVideoException {
+        lock.lock();
+        try {
+            awaitRoom();
+            final Entry entry = tail();
+            entry.codecPrivateData = codecPrivateData;
+            entry.trackId = trackId;
+            enqueue(ENTRY_CODEC_PRIVATE_DATA);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onFragmentMetadata(@Nonnull final String metadataName,
+                                   @Nonnull final String metadataValue,
+                                   final boolean persistent) throws KinesisVideoException {
+        lock.lock();
+        try {
+            awaitRoom();
+            final Entry entry = tail();
+            entry.metadataName = metadataName;
+            entry.metadataValue = metadataValue;
+            entry.persistent = persistent;
+            enqueue(ENTRY_FRAGMENT_METADATA);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public KinesisVideoProducerStream getProducerStream() {
+        return delegate.getProducerStream();
+    }
+
+    /**
+     * Waits until all the queued entries have been delivered.
+     *
+     * @return false if the timeout elapsed first
+     * @throws KinesisVideoException if interrupted while waiting
+     */
+    public boolean awaitDrained(final long timeout, @Nonnull final TimeUnit unit) throws KinesisVideoException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (size > 0 || isDraining) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+
+                remainingNanos = drained.awaitNanos(remainingNanos);
+            }
+
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KinesisVideoException("Interrupted while waiting for the sink to drain", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting entries and releases the drainer thread of the sink, if it has one, once the queued entries
+     * have been delivered.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            isClosed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (ownDrainer != null) {
+            ownDrainer.shutdown();
+        }
+    }
+
+    @Nonnull
+    public AsyncMediaSourceSinkMetrics getMetrics() {
+        lock.lock();
+        try {
+            return new AsyncMediaSourceSinkMetrics(entries.length,
+                    size,
+                    maxQueueDepth,
+                    enqueuedFrameCount,
+                    deliveredFrameCount,
+                    droppedFrameCount,
+                    blockedCount,
+                    deliveryErrorCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes room for an entry by applying the overflow policy to the queued frames.
+     */
+    @GuardedBy("lock")
+    private void awaitRoom() throws KinesisVideoException {
+        checkNotClosed();
+        if (size < entries.length) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST_NON_KEY_FRAME:
+                if (dropOldestNonKeyFrame()) {
+                    return;
+                }
+                break;
+            case DROP_TO_NEXT_KEY_FRAME:
+                if (dropToNextKeyFrame()) {
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        // Blocking, or nothing left to drop but codec private data and metadata
+        blockedCount++;
+        try {
+            while (size == entries.length && !isClosed) {
+                notFull.await();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KinesisVideoException("Interrupted while waiting for room in the sink", e);
+        }
+
+        checkNotClosed();
+    }
+
+    @GuardedBy("lock")
+    private void checkNotClosed() throws KinesisVideoException {
+        if (isClosed) {
+            throw new KinesisVideoException("Sink has been closed");
+        }
+    }
+
+    @GuardedBy("lock")
+    private boolean dropOldestNonKeyFrame() {
+        int oldestFrame = -1;
+        for (int i = 0; i < size; i++) {
+            final Entry entry = entryAt(i);
+            if (entry.type == ENTRY_FRAME) {
+                if (!FrameFlags.isKeyFrame(entry.frame.getFlags())) {
+                    removeAt(i);
+                    return true;
+                }
+
+                if (oldestFrame < 0) {
+                    oldestFrame = i;
+                }
+            }
+        }
+
+        if (oldestFrame < 0) {
+            return false;
+        }
+
+        removeAt(oldestFrame);
+        return true;
+    }
+
+    @GuardedBy("lock")
+    private boolean dropToNextKeyFrame() {
+        boolean isFirstFrame = true;
+        boolean hasDropped = false;
+        int i = 0;
+        while (i < size) {
+            final Entry entry = entryAt(i);
+            if (entry.type != ENTRY_FRAME) {
+                i++;
+                continue;
+            }
+
+            if (!isFirstFrame && FrameFlags.isKeyFrame(entry.frame.getFlags())) {
+                return true;
+            }
+
+            isFirstFrame = false;
+            hasDropped = true;
+            removeAt(i);
+        }
+
+        // No key frame left to resume from
+        isWaitingForKeyFrame = hasDropped;
+        return hasDropped;
+    }
+
+    @GuardedBy("lock")
+    private Entry entryAt(final int index) {
+        return entries[(head + index) % entries.length];
+    }
+
+    @GuardedBy("lock")
+    private Entry tail() {
+        return entryAt(size);
+    }
+
+    /**
+     * Removes a queued frame, shifting the entries behind it and moving the emptied entry to the tail.
+     */
+    @GuardedBy("lock")
+    private void removeAt(final int index) {
+        final Entry removed = entryAt(index);
+        for (int i = index; i < size - 1; i++) {
+            entries[(head + i) % entries.length] = entryAt(i + 1);
+        }
+
+        removed.clear();
+        entries[(head + size - 1) % entries.length] = removed;
+        size--;
+        droppedFrameCount++;
+    }
+
+    @GuardedBy("lock")
+    private void enqueue(final int type) throws KinesisVideoException {
+        tail().type = type;
+        size++;
+        if (!isDraining) {
+            isDraining = true;
+            try {
+                drainer.execute(drainTask);
+            } catch (final RejectedExecutionException e) {
+                // Nothing is going to deliver the entry, take it back
+                isDraining = false;
+                size--;
+                tail().clear();
+                throw new KinesisVideoException("Sink drainer rejected the delivery", e);
+            }
+        }
+
+        maxQueueDepth = Math.max(maxQueueDepth, size);
+    }
+
+    private void drain() {
+        while (deliverBatch()) {
+            try {
+                // Let the other sinks sharing the drainer have their turn
+                drainer.execute(drainTask);
+                return;
+            } catch (final RejectedExecutionException e) {
+                // Drainer shutting down, keep delivering the queued entries on this thread
+            }
+        }
+    }
+
+    /**
+     * Delivers up to a batch of queued entries.
+     *
+     * @return whether there are entries left to deliver
+     */
+    private boolean deliverBatch() {
+        for (int delivered = 0; delivered < DRAIN_BATCH_SIZE; delivered++) {
+            lock.lock();
+            try {
+                if (size == 0) {
+                    isDraining = false;
+                    drained.signalAll();
+                    return false;
+                }
+
+                final Entry entry = entries[head];
+                delivery.copyFrom(entry);
+                entry.clear();
+                head = (head + 1) % entries.length;
+                size--;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            deliver();
+        }
+
+        return true;
+    }
+
+    private void deliver() {
+        try {
+            switch (delivery.type) {
+                case ENTRY_FRAME:
+                    delegate.onFrame(delivery.frame);
+                    break;
+                case ENTRY_CODEC_PRIVATE_DATA:
+                    delegate.onCodecPrivateData(delivery.codecPrivateData, delivery.trackId);
+                    break;
+                default:
+                    delegate.onFragmentMetadata(delivery.metadataName, delivery.metadataValue, delivery.persistent);
+                    break;
+            }
+
+            countDelivery(delivery.type == ENTRY_FRAME, false);
+        } catch (final KinesisVideoException | RuntimeException e) {
+            log.error("Failed to deliver to the downstream sink", e);
+            countDelivery(false, true);
+        } finally {
+            delivery.clear();
+        }
+    }
+
+    private void countDelivery(final boolean isFrame, final boolean isError) {
+        lock.lock();
+        try {
+            deliveredFrameCount += isFrame ? 1 : 0;
+            deliveryErrorCount += isError ? 1 : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Preallocated slot of the ring buffer.
+     */
+    private static final class Entry {
+        private int type;
+        private KinesisVideoFrame frame;
+        private byte[] codecPrivateData;
+        private int trackId;
+        private String metadataName;
+        private String metadataValue;
+        private boolean persistent;
+
+        private void copyFrom(final Entry other) {
+            type = other.type;
+            frame = other.frame;
+            codecPrivateData = other.codecPrivateData;
+            trackId = other.trackId;
+            metadataName = other.metadataName;
+            metadataValue = other.metadataValue;
+            persistent = other.persistent;
+        }
+
+        private void clear() {
+            frame = null;
+            codecPrivateData = null;
+            metadataName = null;
+            metadataValue = null;
+        }
+    }
+}
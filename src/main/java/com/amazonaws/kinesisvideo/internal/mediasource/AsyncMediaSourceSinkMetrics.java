@@ -0,0 +1,104 @@
+package com.amazonaws.kinesisvideo.internal.mediasource;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Point-in-time snapshot of the metrics of an {@link AsyncMediaSourceSink}.
+ */
+@Immutable
+public final class AsyncMediaSourceSinkMetrics {
+    private final int capacity;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final long enqueuedFrameCount;
+    private final long deliveredFrameCount;
+    private final long droppedFrameCount;
+    private final long blockedCount;
+    private final long deliveryErrorCount;
+
+    AsyncMediaSourceSinkMetrics(final int capacity,
+                                final int queueDepth,
+                                final int maxQueueDepth,
+                                final long enqueuedFrameCount,
+                                final long deliveredFrameCount,
+                                final long droppedFrameCount,
+                                final long blockedCount,
+                                final long deliveryErrorCount) {
+        this.capacity = capacity;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.enqueuedFrameCount = enqueuedFrameCount;
+        this.deliveredFrameCount = deliveredFrameCount;
+        this.droppedFrameCount = droppedFrameCount;
+        this.blockedCount = blockedCount;
+        this.deliveryErrorCount = deliveryErrorCount;
+    }
+
+    /**
+     * @return number of entries the ring buffer holds
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of entries waiting to be delivered
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return highest number of entries seen waiting to be delivered
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return number of frames accepted from the media source
+     */
+    public long getEnqueuedFrameCount() {
+        return enqueuedFrameCount;
+    }
+
+    /**
+     * @return number of frames handed over to the downstream sink
+     */
+    public long getDeliveredFrameCount() {
+        return deliveredFrameCount;
+    }
+
+    /**
+     * @return number of frames dropped by the overflow policy, queued or incoming
+     */
+    public long getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
+    /**
+     * @return number of times the media source had to wait for room in the ring buffer
+     */
+    public long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * @return number of entries the downstream sink failed to accept
+     */
+    public long getDeliveryErrorCount() {
+        return deliveryErrorCount;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncMediaSourceSinkMetrics{capacity=" + capacity
+                + ", queueDepth=" + queueDepth
+                + ", maxQueueDepth=" + maxQueueDepth
+                + ", enqueued=" + enqueuedFrameCount
+                + ", delivered=" + deliveredFrameCount
+                + ", dropped=" + droppedFrameCount
+                + ", blocked=" + blockedCount
+                + ", deliveryErrors=" + deliveryErrorCount + '}';
+    }
+}
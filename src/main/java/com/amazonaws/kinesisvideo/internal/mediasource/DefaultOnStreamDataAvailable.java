@@ -26,4 +26,9 @@ public class DefaultOnStreamDataAvailable implements OnStreamDataAvailable {
                                             final boolean persistent) throws KinesisVideoException {
         mediaSourceSink.onFragmentMetadata(metadataName, metadataValue, persistent);
     }
+
+    @Override
+    public void onCodecPrivateData(final byte[] codecPrivateData, final int trackId) throws KinesisVideoException {
+        mediaSourceSink.onCodecPrivateData(codecPrivateData, trackId);
+    }
 }
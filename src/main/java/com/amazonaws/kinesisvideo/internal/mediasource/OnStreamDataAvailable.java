@@ -16,4 +16,7 @@ public interface OnStreamDataAvailable {
                                              final boolean persistent) throws KinesisVideoException {
         // no-op
     }
+    default void onCodecPrivateData(final byte[] codecPrivateData, final int trackId) throws KinesisVideoException {
+        // no-op
+    }
 }
@@ -2,13 +2,12 @@ package com.amazonaws.kinesisvideo.internal.mediasource.bytes;
 
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
 import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
-import com.amazonaws.kinesisvideo.stream.throttling.DiscreteTimePeriodsThrottler;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.time.Duration;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -18,31 +17,27 @@ import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
 import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
 
 public class BytesGenerator {
-    private static final int DISCRETENESS_10HZ = 10;
     private static final int MAX_FRAME_SIZE_BYTES_1024 = 1024;
     private static final int KEY_FRAME_EVERY_60_FRAMES = 60;
     private static final long DEFAULT_FRAME_DURATION_33MS = 33L;
 
     private OnStreamDataAvailable streamDataAvailable;
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(1);
-    private final DiscreteTimePeriodsThrottler throttler;
-    private final byte[][] framesData = new byte[][]{
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024]
-    };
-
+    private final PacingClock pacingClock;
+    private final int fps;
+    private PacingClock.Registration pacing;
     private final Log log = LogFactory.getLog(BytesGenerator.class);
     private volatile boolean isRunning;
     private int frameCounter;
 
     public BytesGenerator(final int fps) {
+        this(fps, PacingClock.getDefault());
+    }
+
+    public BytesGenerator(final int fps, final PacingClock pacingClock) {
         frameCounter = 0;
-        throttler = new DiscreteTimePeriodsThrottler(fps, DISCRETENESS_10HZ);
+        this.fps = fps;
+        this.pacingClock = pacingClock;
     }
 
     public void onStreamDataAvailable(final OnStreamDataAvailable streamDataAvailable) {
@@ -61,34 +56,30 @@ public class BytesGenerator {
 
     public synchronized void stop() {
         isRunning = false;
+        if (pacing != null) {
+            pacing.cancel();
+            log.info("Stopped generating frames, " + pacing.getStats());
+            pacing = null;
+        }
     }
 
     private void startGeneratorInBackground() {
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    generateBytesAndNotifyListener();
-                } catch (final KinesisVideoException e) {
-                    log.error("Failed to keep generating frames with Exception", e);
-                }
-            }
-        });
+        pacing = pacingClock.schedule(0, Duration.ofSeconds(1L).toNanos() / fps, PacingClock.Policy.SKIP,
+                new PacingClock.Listener() {
+                    @Override
+                    public void onDeadline(final long deadlineInNanos) throws KinesisVideoException {
+                        generateBytesAndNotifyListener();
+                    }
+                });
     }
 
     private void generateBytesAndNotifyListener() throws KinesisVideoException {
-        while (isRunning) {
-            fillArrayWithDigitsOfFramesCounter();
-
-            if (streamDataAvailable != null) {
-                streamDataAvailable
-                        .onFrameDataAvailable(createKinesisVideoFrame());
-            }
-
-            frameCounter++;
-
-            throttler.throttle();
+        if (streamDataAvailable != null) {
+            streamDataAvailable
+                    .onFrameDataAvailable(createKinesisVideoFrame());
         }
+
+        frameCounter++;
     }
 
     private KinesisVideoFrame createKinesisVideoFrame() {
@@ -105,20 +96,25 @@ public class BytesGenerator {
                 decodingTs,
                 presentationTs,
                 frameDuration,
-                ByteBuffer.wrap(framesData[frameCounter % framesData.length]));
+                ByteBuffer.wrap(createFrameDataWithDigitsOfFramesCounter()));
     }
 
     private boolean isKeyFrame() {
         return frameCounter % KEY_FRAME_EVERY_60_FRAMES == 0;
     }
 
-    private void fillArrayWithDigitsOfFramesCounter() {
+    /**
+     * Allocates the data of every frame, the sinks queueing the frames deliver them after they have been handed over.
+     */
+    private byte[] createFrameDataWithDigitsOfFramesCounter() {
         final String counterString = String.valueOf(frameCounter) + "|";
         final byte[] counterBytes = counterString.getBytes(StandardCharsets.US_ASCII);
-        final byte[] frameData = this.framesData[frameCounter % this.framesData.length];
+        final byte[] frameData = new byte[MAX_FRAME_SIZE_BYTES_1024];
 
         for (int i = 0; i < frameData.length; i++) {
             frameData[i] = counterBytes[i % counterBytes.length];
         }
+
+        return frameData;
     }
 }
@@ -30,11 +30,13 @@ import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
 import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
 import com.amazonaws.kinesisvideo.producer.StreamInfo;
 import com.amazonaws.kinesisvideo.producer.Tag;
 
-public class BytesMediaSource implements MediaSource {
+public class BytesMediaSource implements MediaSource, PacedMediaSource {
     private static final String TAG = "BytesMediaSource";
 
     private final String streamName;
@@ -43,11 +45,17 @@ public class BytesMediaSource implements MediaSource {
     private MediaSourceState mediaSourceState;
     private MediaSourceSink mediaSourceSink;
     private BytesGenerator bytesGenerator;
+    private PacingClock pacingClock;
 
     public BytesMediaSource(final @Nonnull String streamName) {
         this.streamName = streamName;
     }
 
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+    }
+
     @Override
     public MediaSourceState getMediaSourceState() {
         return mediaSourceState;
@@ -109,7 +117,7 @@ public class BytesMediaSource implements MediaSource {
     @Override
     public void start() throws KinesisVideoException {
         mediaSourceState = MediaSourceState.RUNNING;
-        bytesGenerator = new BytesGenerator(configuration.getFps());
+        bytesGenerator = new BytesGenerator(configuration.getFps(), PacingClock.orDefault(pacingClock));
         bytesGenerator.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
         bytesGenerator.start();
     }
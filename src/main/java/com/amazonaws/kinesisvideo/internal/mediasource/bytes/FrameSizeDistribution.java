@@ -0,0 +1,187 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.bytes;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequence of frame sizes and key frame flags replayed in a loop by the {@link LoadGenerator}.
+ * <p>
+ * The sequence is either a constant size, a GOP shaped as one large key frame followed by smaller delta frames, or a
+ * trace recorded from a real encoder.
+ */
+@Immutable
+public final class FrameSizeDistribution {
+    private static final String TRACE_KEY_FRAME_MARKER = "K";
+    private static final String TRACE_COMMENT = "#";
+    private static final int BITS_IN_A_BYTE = 8;
+
+    private final int[] frameSizes;
+    private final boolean[] keyFrames;
+    private final int maxFrameSize;
+
+    private FrameSizeDistribution(final int[] frameSizes, final boolean[] keyFrames) {
+        Preconditions.checkArgument(frameSizes.length > 0, "Frame size distribution can not be empty");
+        Preconditions.checkArgument(frameSizes.length == keyFrames.length,
+                "Every frame size needs a key frame flag");
+        Preconditions.checkArgument(keyFrames[0], "Frame size distribution must start with a key frame");
+
+        int max = 0;
+        for (final int frameSize : frameSizes) {
+            Preconditions.checkArgument(frameSize > 0, "Frame sizes must be positive");
+            max = Math.max(max, frameSize);
+        }
+
+        this.frameSizes = frameSizes;
+        this.keyFrames = keyFrames;
+        this.maxFrameSize = max;
+    }
+
+    /**
+     * @param frameSize - size of every frame in bytes
+     * @param gopLength - number of frames from one key frame to the next
+     */
+    public static FrameSizeDistribution constant(final int frameSize, final int gopLength) {
+        return gop(frameSize, frameSize, gopLength);
+    }
+
+    /**
+     * @param keyFrameSize - size of the key frame starting every GOP in bytes
+     * @param deltaFrameSize - size of the other frames of the GOP in bytes
+     * @param gopLength - number of frames from one key frame to the next
+     */
+    public static FrameSizeDistribution gop(final int keyFrameSize, final int deltaFrameSize, final int gopLength) {
+        Preconditions.checkArgument(gopLength > 0, "GOP length must be positive");
+
+        final int[] frameSizes = new int[gopLength];
+        final boolean[] keyFrames = new boolean[gopLength];
+        frameSizes[0] = keyFrameSize;
+        keyFrames[0] = true;
+        for (int i = 1; i < gopLength; i++) {
+            frameSizes[i] = deltaFrameSize;
+        }
+
+        return new FrameSizeDistribution(frameSizes, keyFrames);
+    }
+
+    /**
+     * GOP shaped distribution averaging the target bitrate at the given frame rate.
+     *
+     * @param bitsPerSecond - target bitrate
+     * @param fps - frame rate the distribution is replayed at
+     * @param gopLength - number of frames from one key frame to the next
+     * @param keyFrameRatio - how many times larger than a delta frame the key frame is
+     */
+    public static FrameSizeDistribution forBitrate(final long bitsPerSecond,
+                                                   final int fps,
+                                                   final int gopLength,
+                                                   final double keyFrameRatio) {
+        Preconditions.checkArgument(bitsPerSecond > 0, "Bitrate must be positive");
+        Preconditions.checkArgument(fps > 0, "Frame rate must be positive");
+        Preconditions.checkArgument(gopLength > 0, "GOP length must be positive");
+        Preconditions.checkArgument(keyFrameRatio >= 1, "Key frames can not be smaller than delta frames");
+
+        final double bytesPerGop = (double) bitsPerSecond * gopLength / fps / BITS_IN_A_BYTE;
+        final double deltaFrameSize = bytesPerGop / (keyFrameRatio + gopLength - 1);
+        final int keyFrameSize = (int) Math.max(1, Math.round(deltaFrameSize * keyFrameRatio));
+
+        // Spread the rounding of the delta frames over the GOP so that the bitrate is hit on average
+        final int[] frameSizes = new int[gopLength];
+        final boolean[] keyFrames = new boolean[gopLength];
+        frameSizes[0] = keyFrameSize;
+        keyFrames[0] = true;
+        double carriedBytes = 0;
+        for (int i = 1; i < gopLength; i++) {
+            final double size = deltaFrameSize + carriedBytes;
+            frameSizes[i] = (int) Math.max(1, Math.round(size));
+            carriedBytes = size - frameSizes[i];
+        }
+
+        return new FrameSizeDistribution(frameSizes, keyFrames);
+    }
+
+    /**
+     * @param frameSizes - recorded frame sizes in bytes
+     * @param keyFrames - recorded key frame flags, the first frame must be a key frame
+     */
+    public static FrameSizeDistribution trace(@Nonnull final int[] frameSizes, @Nonnull final boolean[] keyFrames) {
+        return new FrameSizeDistribution(frameSizes.clone(), keyFrames.clone());
+    }
+
+    /**
+     * Reads a recorded trace, one frame per line as its size in bytes followed by {@code K} for key frames. Blank
+     * lines and lines starting with {@code #} are skipped.
+     */
+    public static FrameSizeDistribution readTrace(@Nonnull final Path tracePath) throws IOException {
+        final List<Integer> frameSizes = new ArrayList<Integer>();
+        final List<Boolean> keyFrames = new ArrayList<Boolean>();
+        try (BufferedReader reader = Files.newBufferedReader(tracePath, StandardCharsets.US_ASCII)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith(TRACE_COMMENT)) {
+                    continue;
+                }
+
+                final String[] fields = line.split("[\\s,]+");
+                try {
+                    frameSizes.add(Integer.parseInt(fields[0]));
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Invalid frame size on line " + lineNumber + " of " + tracePath, e);
+                }
+
+                keyFrames.add(fields.length > 1 && TRACE_KEY_FRAME_MARKER.equalsIgnoreCase(fields[1]));
+            }
+        }
+
+        final int[] sizes = new int[frameSizes.size()];
+        final boolean[] keys = new boolean[keyFrames.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = frameSizes.get(i);
+            keys[i] = keyFrames.get(i);
+        }
+
+        return new FrameSizeDistribution(sizes, keys);
+    }
+
+    /**
+     * @return number of frames before the distribution repeats
+     */
+    public int getLength() {
+        return frameSizes.length;
+    }
+
+    public int getFrameSize(final int index) {
+        return frameSizes[index];
+    }
+
+    public boolean isKeyFrame(final int index) {
+        return keyFrames[index];
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * @return average bitrate in bits per second when replayed at the given frame rate
+     */
+    public long getBitrate(final int fps) {
+        long totalBytes = 0;
+        for (final int frameSize : frameSizes) {
+            totalBytes += frameSize;
+        }
+
+        return Math.round((double) totalBytes * BITS_IN_A_BYTE * fps / frameSizes.length);
+    }
+}
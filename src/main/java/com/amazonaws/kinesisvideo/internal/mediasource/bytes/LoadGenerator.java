@@ -0,0 +1,132 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.bytes;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Random;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_SECOND;
+
+/**
+ * Frame source emitting synthetic frames sized after a {@link FrameSizeDistribution}.
+ * <p>
+ * The payloads are views of a single direct buffer of random bytes prepared up front, so producing a frame only costs
+ * the frame object itself and the load measured is the one of the producer path. Every tick emits one frame per
+ * track, all sharing the same timestamps.
+ */
+public class LoadGenerator {
+    private static final long PAYLOAD_SEED = 0x4b56534c4f4144L;
+
+    private OnStreamDataAvailable streamDataAvailable;
+
+    private final PacingClock pacingClock;
+    private final int fps;
+    private final int trackCount;
+    private final FrameSizeDistribution distribution;
+    private final ByteBuffer[] payloads;
+    private PacingClock.Registration pacing;
+
+    private final Log log = LogFactory.getLog(LoadGenerator.class);
+    private volatile boolean isRunning;
+    private int frameCounter;
+    private long emittedBytes;
+
+    public LoadGenerator(@Nonnull final FrameSizeDistribution distribution, final int fps, final int trackCount) {
+        this(distribution, fps, trackCount, PacingClock.getDefault());
+    }
+
+    public LoadGenerator(@Nonnull final FrameSizeDistribution distribution,
+                         final int fps,
+                         final int trackCount,
+                         final PacingClock pacingClock) {
+        this.distribution = distribution;
+        this.fps = fps;
+        this.trackCount = trackCount;
+        this.pacingClock = pacingClock;
+        this.payloads = preparePayloads(distribution);
+    }
+
+    public void onStreamDataAvailable(final OnStreamDataAvailable streamDataAvailable) {
+        this.streamDataAvailable = streamDataAvailable;
+    }
+
+    public synchronized void start() {
+        if (isRunning) {
+            throw new IllegalStateException("should stop previous generator before starting the new one");
+        }
+
+        isRunning = true;
+        pacing = pacingClock.schedule(0, Duration.ofSeconds(1L).toNanos() / fps, PacingClock.Policy.SKIP,
+                new PacingClock.Listener() {
+                    @Override
+                    public void onDeadline(final long deadlineInNanos) throws KinesisVideoException {
+                        generateFramesAndNotifyListener();
+                    }
+                });
+    }
+
+    public synchronized void stop() {
+        isRunning = false;
+        if (pacing != null) {
+            pacing.cancel();
+            log.info("Stopped generating load after " + frameCounter + " frames and " + emittedBytes
+                    + " bytes per track, " + pacing.getStats());
+            pacing = null;
+        }
+    }
+
+    /**
+     * @return number of frames generated so far on every track
+     */
+    public int getFrameCount() {
+        return frameCounter;
+    }
+
+    void generateFramesAndNotifyListener() throws KinesisVideoException {
+        final int slot = frameCounter % payloads.length;
+        final long timestamp = System.currentTimeMillis() * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        final int flags = distribution.isKeyFrame(slot) ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE;
+
+        if (streamDataAvailable != null) {
+            for (int trackId = 1; trackId <= trackCount; trackId++) {
+                streamDataAvailable.onFrameDataAvailable(new KinesisVideoFrame(frameCounter,
+                        flags,
+                        timestamp,
+                        timestamp,
+                        HUNDREDS_OF_NANOS_IN_A_SECOND / fps,
+                        payloads[slot].duplicate(),
+                        trackId));
+            }
+        }
+
+        emittedBytes += distribution.getFrameSize(slot);
+        frameCounter++;
+    }
+
+    private static ByteBuffer[] preparePayloads(final FrameSizeDistribution distribution) {
+        // Random bytes, so that the payloads do not compress better than real media would
+        final byte[] data = new byte[distribution.getMaxFrameSize()];
+        new Random(PAYLOAD_SEED).nextBytes(data);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+
+        final ByteBuffer[] payloads = new ByteBuffer[distribution.getLength()];
+        for (int i = 0; i < payloads.length; i++) {
+            final ByteBuffer payload = buffer.duplicate();
+            payload.limit(distribution.getFrameSize(i));
+            payloads[i] = payload.slice();
+        }
+
+        return payloads;
+    }
+}
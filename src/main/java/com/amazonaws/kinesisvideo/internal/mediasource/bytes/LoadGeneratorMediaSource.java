@@ -0,0 +1,189 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.bytes;
+
+import static com.amazonaws.kinesisvideo.producer.StreamInfo.NalAdaptationFlags.NAL_ADAPTATION_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_AN_HOUR;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.ABSOLUTE_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BUFFER_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_GOP_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_REPLAY_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_STALENESS_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_TIMESCALE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.KEYFRAME_FRAGMENTATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.MAX_LATENCY_ZERO;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NOT_ADAPTIVE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NO_KMS_KEY_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECALCULATE_METRICS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECOVER_ON_FAILURE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.REQUEST_FRAGMENT_ACKS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.USE_FRAME_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VERSION_TWO;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import com.amazonaws.kinesisvideo.producer.TrackInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Media source generating synthetic load, to reproduce production bitrates without a camera.
+ * <p>
+ * Several streams carrying the same load are created with {@link #createFanOut} and registered together through
+ * {@link com.amazonaws.kinesisvideo.client.KinesisVideoClient#registerMediaSources}.
+ */
+public class LoadGeneratorMediaSource implements MediaSource, PacedMediaSource {
+    private final String streamName;
+
+    private LoadGeneratorMediaSourceConfiguration configuration;
+    private MediaSourceState mediaSourceState;
+    private MediaSourceSink mediaSourceSink;
+    private LoadGenerator loadGenerator;
+    private PacingClock pacingClock;
+
+    public LoadGeneratorMediaSource(final @Nonnull String streamName) {
+        this.streamName = streamName;
+    }
+
+    /**
+     * Creates one configured media source per stream of the configuration, named after the prefix and the index of
+     * the stream.
+     */
+    public static List<MediaSource> createFanOut(@Nonnull final String streamNamePrefix,
+                                                 @Nonnull final LoadGeneratorMediaSourceConfiguration configuration) {
+        final List<MediaSource> mediaSources = new ArrayList<MediaSource>(configuration.getStreamCount());
+        for (int i = 0; i < configuration.getStreamCount(); i++) {
+            final LoadGeneratorMediaSource mediaSource = new LoadGeneratorMediaSource(streamNamePrefix + "-" + i);
+            mediaSource.configure(configuration);
+            mediaSources.add(mediaSource);
+        }
+
+        return mediaSources;
+    }
+
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+    }
+
+    @Override
+    public MediaSourceState getMediaSourceState() {
+        return mediaSourceState;
+    }
+
+    @Override
+    public MediaSourceConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public StreamInfo getStreamInfo() {
+        final FrameSizeDistribution distribution = configuration.getFrameSizeDistribution();
+        return new StreamInfo(VERSION_TWO,
+                streamName,
+                StreamInfo.StreamingType.STREAMING_TYPE_REALTIME,
+                configuration.getContentType(),
+                NO_KMS_KEY_ID,
+                configuration.getRetentionPeriodInHours() * HUNDREDS_OF_NANOS_IN_AN_HOUR,
+                NOT_ADAPTIVE,
+                MAX_LATENCY_ZERO,
+                DEFAULT_GOP_DURATION,
+                KEYFRAME_FRAGMENTATION,
+                USE_FRAME_TIMECODES,
+                ABSOLUTE_TIMECODES,
+                REQUEST_FRAGMENT_ACKS,
+                RECOVER_ON_FAILURE,
+                (int) Math.min(Integer.MAX_VALUE,
+                        distribution.getBitrate(configuration.getFps()) * configuration.getTrackCount()),
+                configuration.getFps(),
+                DEFAULT_BUFFER_DURATION,
+                DEFAULT_REPLAY_DURATION,
+                DEFAULT_STALENESS_DURATION,
+                DEFAULT_TIMESCALE,
+                RECALCULATE_METRICS,
+                new Tag[] {
+                        new Tag("device", "Load Generator"),
+                        new Tag("stream", streamName) },
+                NAL_ADAPTATION_FLAG_NONE,
+                null,
+                getTrackInfoList());
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        this.mediaSourceSink = mediaSourceSink;
+    }
+
+    @Override
+    public void configure(final MediaSourceConfiguration configuration) {
+        Preconditions.checkState(this.configuration == null);
+
+        if (!(configuration instanceof LoadGeneratorMediaSourceConfiguration)) {
+            throw new IllegalArgumentException("can only use LoadGeneratorMediaSourceConfiguration");
+        }
+
+        this.configuration = (LoadGeneratorMediaSourceConfiguration) configuration;
+    }
+
+    @Override
+    public void start() throws KinesisVideoException {
+        mediaSourceState = MediaSourceState.RUNNING;
+        loadGenerator = new LoadGenerator(configuration.getFrameSizeDistribution(),
+                configuration.getFps(),
+                configuration.getTrackCount(),
+                PacingClock.orDefault(pacingClock));
+        loadGenerator.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        loadGenerator.start();
+    }
+
+    @Override
+    public void stop() throws KinesisVideoException {
+        if (loadGenerator != null) {
+            loadGenerator.stop();
+        }
+
+        mediaSourceState = MediaSourceState.STOPPED;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return mediaSourceState == MediaSourceState.STOPPED;
+    }
+
+    @Override
+    public void free() throws KinesisVideoException { }
+
+    @Override
+    public MediaSourceSink getMediaSourceSink() {
+        return mediaSourceSink;
+    }
+
+    @Nullable
+    @Override
+    public StreamCallbacks getStreamCallbacks() {
+        return null;
+    }
+
+    private TrackInfo[] getTrackInfoList() {
+        final TrackInfo[] trackInfoList = new TrackInfo[configuration.getTrackCount()];
+        for (int i = 0; i < trackInfoList.length; i++) {
+            trackInfoList[i] = new TrackInfo(i + 1, configuration.getCodecId(), "load-" + (i + 1), null,
+                    MkvTrackInfoType.VIDEO);
+        }
+
+        return trackInfoList;
+    }
+}
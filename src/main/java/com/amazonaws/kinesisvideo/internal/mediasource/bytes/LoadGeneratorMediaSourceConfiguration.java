@@ -0,0 +1,154 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.bytes;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.FRAMERATE_30;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_CODEC_ID;
+
+public class LoadGeneratorMediaSourceConfiguration implements MediaSourceConfiguration {
+
+    private static final String MEDIA_SOURCE_TYPE = "LoadGeneratorMediaSource";
+    private static final String MEDIA_SOURCE_DESCRIPTION = "Generates synthetic frames at a configurable "
+            + "bitrate and GOP shape. Useful for load testing";
+
+    public static final int DEFAULT_FRAME_SIZE = 1024;
+    public static final int DEFAULT_GOP_LENGTH = 60;
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    public static class Builder
+            implements MediaSourceConfiguration.Builder<LoadGeneratorMediaSourceConfiguration> {
+
+        private int fps = FRAMERATE_30;
+        private long retentionPeriodInHours;
+        private FrameSizeDistribution frameSizeDistribution;
+        private long bitsPerSecond;
+        private int gopLength;
+        private double keyFrameRatio;
+        private int trackCount = 1;
+        private int streamCount = 1;
+        private String contentType = DEFAULT_CONTENT_TYPE;
+        private String codecId = VIDEO_CODEC_ID;
+
+        public Builder withFps(final int fps) {
+            this.fps = fps;
+            return this;
+        }
+
+        public Builder withRetentionPeriodInHours(final long retentionPeriodInHours) {
+            this.retentionPeriodInHours = retentionPeriodInHours;
+            return this;
+        }
+
+        /**
+         * Frame sizes and key frames to replay, 1 KB frames with a key frame every 60 frames if not set
+         */
+        public Builder withFrameSizeDistribution(final FrameSizeDistribution frameSizeDistribution) {
+            this.frameSizeDistribution = frameSizeDistribution;
+            this.bitsPerSecond = 0;
+            return this;
+        }
+
+        /**
+         * Shortcut for a GOP shaped distribution averaging the target bitrate at the frame rate the configuration is
+         * built with
+         */
+        public Builder withBitrate(final long bitsPerSecond, final int gopLength, final double keyFrameRatio) {
+            Preconditions.checkArgument(bitsPerSecond > 0, "Bitrate must be positive");
+            this.bitsPerSecond = bitsPerSecond;
+            this.gopLength = gopLength;
+            this.keyFrameRatio = keyFrameRatio;
+            this.frameSizeDistribution = null;
+            return this;
+        }
+
+        /**
+         * Number of tracks of every stream, each carrying the whole distribution
+         */
+        public Builder withTrackCount(final int trackCount) {
+            this.trackCount = trackCount;
+            return this;
+        }
+
+        /**
+         * Number of streams created by {@link LoadGeneratorMediaSource#createFanOut}
+         */
+        public Builder withStreamCount(final int streamCount) {
+            this.streamCount = streamCount;
+            return this;
+        }
+
+        public Builder withContentType(final String contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        /**
+         * Codec id of the tracks, H.264 if not set
+         */
+        public Builder withCodecId(final String codecId) {
+            this.codecId = codecId;
+            return this;
+        }
+
+        @Override
+        public LoadGeneratorMediaSourceConfiguration build() {
+            Preconditions.checkArgument(fps > 0, "Frame rate must be positive");
+            Preconditions.checkArgument(trackCount > 0, "Track count must be positive");
+            Preconditions.checkArgument(streamCount > 0, "Stream count must be positive");
+            Preconditions.checkNotNull(codecId);
+            if (bitsPerSecond > 0) {
+                frameSizeDistribution = FrameSizeDistribution.forBitrate(bitsPerSecond, fps, gopLength,
+                        keyFrameRatio);
+            } else if (frameSizeDistribution == null) {
+                frameSizeDistribution = FrameSizeDistribution.constant(DEFAULT_FRAME_SIZE, DEFAULT_GOP_LENGTH);
+            }
+
+            return new LoadGeneratorMediaSourceConfiguration(this);
+        }
+    }
+
+    private final Builder mBuilder;
+
+    public LoadGeneratorMediaSourceConfiguration(final Builder builder) {
+        mBuilder = builder;
+    }
+
+    public int getFps() {
+        return mBuilder.fps;
+    }
+
+    public long getRetentionPeriodInHours() {
+        return mBuilder.retentionPeriodInHours;
+    }
+
+    public FrameSizeDistribution getFrameSizeDistribution() {
+        return mBuilder.frameSizeDistribution;
+    }
+
+    public int getTrackCount() {
+        return mBuilder.trackCount;
+    }
+
+    public int getStreamCount() {
+        return mBuilder.streamCount;
+    }
+
+    public String getContentType() {
+        return mBuilder.contentType;
+    }
+
+    public String getCodecId() {
+        return mBuilder.codecId;
+    }
+
+    @Override
+    public String getMediaSourceType() {
+        return MEDIA_SOURCE_TYPE;
+    }
+
+    @Override
+    public String getMediaSourceDescription() {
+        return MEDIA_SOURCE_DESCRIPTION;
+    }
+}
@@ -0,0 +1,372 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.journal;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords;
+import com.amazonaws.kinesisvideo.internal.mediasource.segment.SegmentDirectory;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords.DECODING_TS_OFFSET;
+import static com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords.LOG_WORD_OFFSET;
+import static com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords.MAGIC_OFFSET;
+import static com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords.RECORD_HEADER_SIZE;
+
+/**
+ * Write-ahead journal of the frames put into a stream, kept until their fragments are acknowledged as persisted.
+ * <p>
+ * The frames are appended to segment files through a write buffer, and the segments are synced to the disk by
+ * {@link #sync()}, which is meant to be called periodically rather than for every frame so that the frames appended in
+ * between share a single fsync. The persisted acknowledgements are journaled too, and the segments of which every frame
+ * is persisted are deleted.
+ * <p>
+ * When the journal is opened again after the process went away, the frames from the first key frame past the last
+ * persisted fragment are read back for {@link #takeRecoveredFrames()} to replay. Every record is laid out as
+ * {@link FrameRecords} and carries a checksum in the word left to the log, so a record torn by a crash ends the segment
+ * it is in.
+ */
+@ThreadSafe
+public final class FrameJournal {
+    static final int FRAME_RECORD_MAGIC = 0x4b564a46;
+    static final int PERSISTED_RECORD_MAGIC = 0x4b564a50;
+    private static final int CHECKSUM_OFFSET = LOG_WORD_OFFSET;
+    private static final int CHECKSUMMED_HEADER_OFFSET = LOG_WORD_OFFSET + 4;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private final Log log = LogFactory.getLog(FrameJournal.class);
+    private final SegmentDirectory directory;
+    private final long segmentSize;
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Segments which are not written to anymore, oldest first
+     */
+    @GuardedBy("this")
+    private final Deque<Segment> closedSegments = new ArrayDeque<Segment>();
+    @GuardedBy("this")
+    private List<KinesisVideoFrame> recoveredFrames = Collections.emptyList();
+    @GuardedBy("this")
+    private FileChannel channel;
+    @GuardedBy("this")
+    private Segment activeSegment;
+    @GuardedBy("this")
+    private long persistedTimestamp = Long.MIN_VALUE;
+    @GuardedBy("this")
+    private long journaledFrameCount;
+    @GuardedBy("this")
+    private long journaledByteCount;
+    @GuardedBy("this")
+    private long syncCount;
+    @GuardedBy("this")
+    private boolean isClosed;
+
+    private FrameJournal(final SegmentDirectory directory, final long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in the directory, reading back the frames left there by a previous run.
+     *
+     * @param directory - directory of the segment files, created if needed
+     * @param segmentSize - size after which a new segment file is started
+     */
+    @Nonnull
+    public static FrameJournal open(@Nonnull final Path directory, final long segmentSize) throws IOException {
+        Preconditions.checkArgument(segmentSize > RECORD_HEADER_SIZE, "Segment size is too small");
+        final FrameJournal journal = new FrameJournal(new SegmentDirectory(directory, SEGMENT_PREFIX), segmentSize);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * Appends the frame to the journal. The frame is only durable once the journal has been synced.
+     */
+    public synchronized void append(@Nonnull final KinesisVideoFrame frame) throws IOException {
+        Preconditions.checkState(!isClosed, "Journal is closed");
+        final ByteBuffer data = frame.getData().duplicate();
+        final int recordSize = RECORD_HEADER_SIZE + data.remaining();
+        if (activeSegment != null && activeSegment.size + recordSize > segmentSize) {
+            closeActiveSegment();
+        }
+
+        header.clear();
+        FrameRecords.putHeader(header, 0, frame, data.remaining());
+        write(FRAME_RECORD_MAGIC, data);
+
+        activeSegment.maxDecodingTs = Math.max(activeSegment.maxDecodingTs, frame.getDecodingTs());
+        journaledFrameCount++;
+        journaledByteCount += recordSize;
+    }
+
+    /**
+     * Records that the fragments up to the timestamp are persisted and deletes the segments of which every frame is
+     * older than it.
+     *
+     * @param timestamp - timestamp of the persisted fragment, in 100ns units
+     * @return number of segments deleted
+     */
+    public synchronized int onPersisted(final long timestamp) throws IOException {
+        if (isClosed || timestamp <= persistedTimestamp) {
+            return 0;
+        }
+
+        persistedTimestamp = timestamp;
+        if (activeSegment != null || !closedSegments.isEmpty()) {
+            // Empty record carrying the timestamp in place of a decoding timestamp
+            header.clear();
+            for (int i = 0; i < RECORD_HEADER_SIZE; i += 4) {
+                header.putInt(i, 0);
+            }
+            header.putLong(DECODING_TS_OFFSET, timestamp);
+            write(PERSISTED_RECORD_MAGIC, ByteBuffer.allocate(0));
+        }
+
+        int deleted = 0;
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().maxDecodingTs < timestamp) {
+            final Segment segment = closedSegments.removeFirst();
+            deleted++;
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (final IOException e) {
+                log.warn("Unable to delete journal segment " + segment.path, e);
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Writes out the buffered records and syncs them to the disk. The records appended while the disk is being synced
+     * are left to the next sync.
+     */
+    public void sync() throws IOException {
+        final FileChannel syncChannel;
+        synchronized (this) {
+            if (isClosed || channel == null) {
+                return;
+            }
+
+            flushWriteBuffer();
+            syncChannel = channel;
+        }
+
+        try {
+            syncChannel.force(false);
+        } catch (final ClosedChannelException e) {
+            // The segment was closed meanwhile, which synced it
+            return;
+        }
+
+        synchronized (this) {
+            syncCount++;
+        }
+    }
+
+    /**
+     * Hands the frames read back from a previous run over to be replayed, once.
+     *
+     * @return frames to replay in order, their data being read-only views of the segment files
+     */
+    @Nonnull
+    public synchronized List<KinesisVideoFrame> takeRecoveredFrames() {
+        final List<KinesisVideoFrame> frames = recoveredFrames;
+        recoveredFrames = Collections.emptyList();
+        return frames;
+    }
+
+    public synchronized long getJournaledFrameCount() {
+        return journaledFrameCount;
+    }
+
+    /**
+     * @return size of the frame records journaled, headers included
+     */
+    public synchronized long getJournaledByteCount() {
+        return journaledByteCount;
+    }
+
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    public synchronized int getSegmentCount() {
+        return closedSegments.size() + (activeSegment == null ? 0 : 1);
+    }
+
+    /**
+     * Syncs and closes the journal. The segment files are kept for the journal to be opened again.
+     */
+    public synchronized void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        if (channel != null) {
+            flushWriteBuffer();
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @GuardedBy("this")
+    private void write(final int magic, final ByteBuffer data) throws IOException {
+        if (channel == null) {
+            openSegment();
+        }
+
+        header.putInt(MAGIC_OFFSET, magic);
+        checksum.reset();
+        header.limit(RECORD_HEADER_SIZE).position(CHECKSUMMED_HEADER_OFFSET);
+        checksum.update(header);
+        checksum.update(data.duplicate());
+        header.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        header.clear();
+
+        final int recordSize = RECORD_HEADER_SIZE + data.remaining();
+        if (writeBuffer.remaining() < recordSize) {
+            flushWriteBuffer();
+        }
+
+        if (writeBuffer.remaining() < recordSize) {
+            // Larger than the write buffer, written straight through
+            writeFully(header);
+            writeFully(data);
+        } else {
+            writeBuffer.put(header);
+            writeBuffer.put(data);
+        }
+
+        activeSegment.size += recordSize;
+    }
+
+    @GuardedBy("this")
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    @GuardedBy("this")
+    private void writeFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @GuardedBy("this")
+    private void openSegment() throws IOException {
+        final Path path = directory.nextSegmentPath();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSegment = new Segment(path);
+    }
+
+    @GuardedBy("this")
+    private void closeActiveSegment() throws IOException {
+        flushWriteBuffer();
+        channel.force(false);
+        channel.close();
+        channel = null;
+        closedSegments.addLast(activeSegment);
+        activeSegment = null;
+    }
+
+    private synchronized void recover() throws IOException {
+        final List<KinesisVideoFrame> frames = new ArrayList<KinesisVideoFrame>();
+        for (final Path path : directory.listSegments()) {
+            final Segment segment = new Segment(path);
+            scan(segment, frames);
+            if (segment.size == 0) {
+                Files.deleteIfExists(path);
+                continue;
+            }
+
+            closedSegments.addLast(segment);
+        }
+
+        // Replay from the first key frame of the fragment after the last persisted one
+        int first = 0;
+        if (persistedTimestamp != Long.MIN_VALUE) {
+            first = frames.size();
+            for (int i = 0; i < frames.size(); i++) {
+                final KinesisVideoFrame frame = frames.get(i);
+                if (FrameFlags.isKeyFrame(frame.getFlags()) && frame.getDecodingTs() > persistedTimestamp) {
+                    first = i;
+                    break;
+                }
+            }
+        }
+
+        recoveredFrames = new ArrayList<KinesisVideoFrame>(frames.subList(first, frames.size()));
+        if (!closedSegments.isEmpty()) {
+            log.info("Recovered " + recoveredFrames.size() + " unpersisted frames in " + closedSegments.size()
+                    + " segments from " + directory.getDirectory());
+        }
+    }
+
+    private void scan(final Segment segment, final List<KinesisVideoFrame> frames) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel segmentChannel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            buffer = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+        }
+
+        segment.size = FrameRecords.scan(buffer, (segmentBuffer, position, magic, dataSize) -> {
+            if (magic != FRAME_RECORD_MAGIC && magic != PERSISTED_RECORD_MAGIC) {
+                return false;
+            }
+
+            final ByteBuffer record = segmentBuffer.duplicate();
+            record.limit(position + RECORD_HEADER_SIZE + dataSize).position(position + CHECKSUMMED_HEADER_OFFSET);
+            checksum.reset();
+            checksum.update(record);
+            if ((int) checksum.getValue() != segmentBuffer.getInt(position + CHECKSUM_OFFSET)) {
+                log.warn("Torn record at " + position + " of journal segment " + segment.path);
+                return false;
+            }
+
+            final long decodingTs = FrameRecords.getDecodingTs(segmentBuffer, position);
+            if (magic == PERSISTED_RECORD_MAGIC) {
+                persistedTimestamp = Math.max(persistedTimestamp, decodingTs);
+            } else {
+                frames.add(FrameRecords.getFrame(segmentBuffer, position));
+                segment.maxDecodingTs = Math.max(segment.maxDecodingTs, decodingTs);
+            }
+
+            return true;
+        });
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private long size;
+        private long maxDecodingTs = Long.MIN_VALUE;
+
+        private Segment(final Path path) {
+            this.path = path;
+        }
+    }
+}
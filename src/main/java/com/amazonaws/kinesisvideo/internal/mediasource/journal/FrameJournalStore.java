@@ -0,0 +1,132 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.journal;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.StorageInfo;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journals of the streams of a client, one directory per stream, synced to the disk together on a single thread.
+ * <p>
+ * The sync interval bounds how much is lost if the host or the process goes down, and how many appends share every
+ * fsync: the journals are synced every interval whatever the number of frames appended in between. The frames are
+ * held in the write buffer of their journal until the next sync, or until the buffer fills up, so losing the process
+ * loses up to a sync interval of frames as well, just as losing the host does.
+ */
+@ThreadSafe
+public class FrameJournalStore {
+    public static final String JOURNAL_DIRECTORY_NAME = "kvs-journal";
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final long DEFAULT_SYNC_INTERVAL_IN_MILLIS = 100;
+
+    private final Log log = LogFactory.getLog(FrameJournalStore.class);
+    private final Path directory;
+    private final long segmentSize;
+    private final long syncIntervalInMillis;
+    private final List<FrameJournal> journals = new CopyOnWriteArrayList<FrameJournal>();
+
+    @GuardedBy("this")
+    private ScheduledExecutorService syncExecutor;
+
+    /**
+     * Lays the journals out under the root directory of the storage.
+     */
+    public FrameJournalStore(@Nonnull final StorageInfo storageInfo) {
+        this(Paths.get(storageInfo.getRootDirectory(), JOURNAL_DIRECTORY_NAME),
+                DEFAULT_SEGMENT_SIZE,
+                DEFAULT_SYNC_INTERVAL_IN_MILLIS);
+    }
+
+    /**
+     * @param directory - directory of the journals
+     * @param segmentSize - size after which a journal starts a new segment file
+     * @param syncIntervalInMillis - interval between the syncs of the journals, 0 not to sync them periodically
+     */
+    public FrameJournalStore(@Nonnull final Path directory,
+                             final long segmentSize,
+                             final long syncIntervalInMillis) {
+        Preconditions.checkArgument(syncIntervalInMillis >= 0, "Sync interval should not be negative");
+        this.directory = Preconditions.checkNotNull(directory);
+        this.segmentSize = segmentSize;
+        this.syncIntervalInMillis = syncIntervalInMillis;
+    }
+
+    /**
+     * Opens the journal of a stream, with the frames the stream left unpersisted on a previous run to replay.
+     */
+    @Nonnull
+    public FrameJournal openJournal(@Nonnull final String streamName) throws IOException {
+        final FrameJournal journal = FrameJournal.open(directory.resolve(streamName), segmentSize);
+        journals.add(journal);
+        startSyncing();
+        return journal;
+    }
+
+    public void closeJournal(@Nonnull final FrameJournal journal) throws IOException {
+        if (journals.remove(journal)) {
+            journal.close();
+        }
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Syncs all the journals to the disk.
+     */
+    public void syncAll() {
+        for (final FrameJournal journal : journals) {
+            try {
+                journal.sync();
+            } catch (final IOException e) {
+                log.error("Unable to sync journal", e);
+            }
+        }
+    }
+
+    /**
+     * Stops syncing and closes all the journals.
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (syncExecutor != null) {
+                syncExecutor.shutdownNow();
+                syncExecutor = null;
+            }
+        }
+
+        for (final FrameJournal journal : journals) {
+            closeJournal(journal);
+        }
+    }
+
+    private synchronized void startSyncing() {
+        if (syncExecutor != null || syncIntervalInMillis == 0) {
+            return;
+        }
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("KVS-FrameJournalSync").setDaemon(true).build());
+        syncExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                syncAll();
+            }
+        }, syncIntervalInMillis, syncIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+}
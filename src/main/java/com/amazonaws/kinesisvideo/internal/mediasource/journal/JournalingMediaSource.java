@@ -0,0 +1,138 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.journal;
+
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * MediaSource opting any other media source into journaling: the frames it produces are journaled by a
+ * {@link JournalingMediaSourceSink} until their fragments are persisted, and the frames its stream left unpersisted
+ * when the process went away are replayed when it is registered again.
+ * <p>
+ * Register this media source with the client instead of the wrapped one. The fragments are matched with the journaled
+ * frames by timestamp, so the stream should have absolute fragment times and fragment acks.
+ */
+public class JournalingMediaSource implements MediaSource, PacedMediaSource {
+    private final MediaSource delegate;
+    private final FrameJournalStore journalStore;
+    private StreamCallbacks streamCallbacks;
+    private volatile JournalingMediaSourceSink mediaSourceSink;
+
+    public JournalingMediaSource(@Nonnull final MediaSource delegate,
+                                 @Nonnull final FrameJournalStore journalStore) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.journalStore = Preconditions.checkNotNull(journalStore);
+    }
+
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        if (delegate instanceof PacedMediaSource) {
+            ((PacedMediaSource) delegate).setPacingClock(pacingClock);
+        }
+    }
+
+    @Override
+    public MediaSourceState getMediaSourceState() {
+        return delegate.getMediaSourceState();
+    }
+
+    @Override
+    public MediaSourceConfiguration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public StreamInfo getStreamInfo() throws KinesisVideoException {
+        return delegate.getStreamInfo();
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        final String streamName = delegate.getStreamInfo().getName();
+        try {
+            this.mediaSourceSink = new JournalingMediaSourceSink(streamName, mediaSourceSink,
+                    journalStore.openJournal(streamName));
+        } catch (final IOException e) {
+            throw new KinesisVideoException("Unable to open the journal of stream " + streamName, e);
+        }
+
+        delegate.initialize(this.mediaSourceSink);
+    }
+
+    @Override
+    public void configure(final MediaSourceConfiguration configuration) {
+        delegate.configure(configuration);
+    }
+
+    @Override
+    public void start() throws KinesisVideoException {
+        delegate.start();
+    }
+
+    @Override
+    public void stop() throws KinesisVideoException {
+        delegate.stop();
+    }
+
+    @Override
+    public boolean isStopped() {
+        return delegate.isStopped();
+    }
+
+    @Override
+    public void free() throws KinesisVideoException {
+        delegate.free();
+        final JournalingMediaSourceSink sink = mediaSourceSink;
+        if (sink != null) {
+            try {
+                journalStore.closeJournal(sink.getJournal());
+            } catch (final IOException e) {
+                throw new KinesisVideoException("Unable to close the journal", e);
+            }
+        }
+    }
+
+    @Override
+    public MediaSourceSink getMediaSourceSink() {
+        return mediaSourceSink;
+    }
+
+    @Nullable
+    @Override
+    public synchronized StreamCallbacks getStreamCallbacks() {
+        if (streamCallbacks == null) {
+            final StreamCallbacks delegateCallbacks = delegate.getStreamCallbacks();
+            streamCallbacks = new ForwardingStreamCallbacks(
+                    delegateCallbacks == null ? new DefaultStreamCallbacks() : delegateCallbacks) {
+                @Override
+                public void fragmentAckReceived(final long uploadHandle,
+                                                @Nonnull final KinesisVideoFragmentAck fragmentAck)
+                        throws ProducerException {
+                    final JournalingMediaSourceSink sink = mediaSourceSink;
+                    if (sink != null) {
+                        sink.onFragmentAck(fragmentAck);
+                    }
+
+                    super.fragmentAckReceived(uploadHandle, fragmentAck);
+                }
+            };
+        }
+
+        return streamCallbacks;
+    }
+}
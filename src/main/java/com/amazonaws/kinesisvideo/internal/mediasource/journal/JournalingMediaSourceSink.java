@@ -0,0 +1,125 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.journal;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.producer.FragmentAckType;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * MediaSourceSink journaling every frame before putting it into the stream.
+ * <p>
+ * The frames a previous run of the stream left unpersisted are replayed into the stream ahead of the first new frame,
+ * once the media source has handed its codec private data over. The journal is told about the persisted fragments
+ * through {@link #onFragmentAck(KinesisVideoFragmentAck)}.
+ */
+@ThreadSafe
+public class JournalingMediaSourceSink implements MediaSourceSink {
+    private final Log log = LogFactory.getLog(JournalingMediaSourceSink.class);
+    private final String streamName;
+    private final MediaSourceSink delegate;
+    private final FrameJournal journal;
+
+    @GuardedBy("this")
+    private boolean isReplayed;
+    @GuardedBy("this")
+    private long replayedFrameCount;
+
+    public JournalingMediaSourceSink(@Nonnull final String streamName,
+                                     @Nonnull final MediaSourceSink delegate,
+                                     @Nonnull final FrameJournal journal) {
+        this.streamName = Preconditions.checkNotNull(streamName);
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.journal = Preconditions.checkNotNull(journal);
+    }
+
+    @Override
+    public synchronized void onFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) throws KinesisVideoException {
+        Preconditions.checkNotNull(kinesisVideoFrame);
+        if (!isReplayed) {
+            isReplayed = true;
+            replay();
+        }
+
+        try {
+            journal.append(kinesisVideoFrame);
+        } catch (final IOException e) {
+            throw new KinesisVideoException("Unable to journal frame of stream " + streamName, e);
+        }
+
+        delegate.onFrame(kinesisVideoFrame);
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData) throws KinesisVideoException {
+        delegate.onCodecPrivateData(codecPrivateData);
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData, final int trackId)
+            throws KinesisVideoException {
+        delegate.onCodecPrivateData(codecPrivateData, trackId);
+    }
+
+    @Override
+    public void onFragmentMetadata(@Nonnull final String metadataName,
+                                   @Nonnull final String metadataValue,
+                                   final boolean persistent) throws KinesisVideoException {
+        delegate.onFragmentMetadata(metadataName, metadataValue, persistent);
+    }
+
+    @Override
+    public KinesisVideoProducerStream getProducerStream() {
+        return delegate.getProducerStream();
+    }
+
+    /**
+     * Releases the journaled frames once their fragments are persisted.
+     */
+    public void onFragmentAck(@Nonnull final KinesisVideoFragmentAck fragmentAck) {
+        if (fragmentAck.getAckType().getIntType() != FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED) {
+            return;
+        }
+
+        try {
+            journal.onPersisted(fragmentAck.getTimestamp());
+        } catch (final IOException e) {
+            log.error("Unable to journal persisted fragment of stream " + streamName, e);
+        }
+    }
+
+    public synchronized long getReplayedFrameCount() {
+        return replayedFrameCount;
+    }
+
+    @Nonnull
+    public FrameJournal getJournal() {
+        return journal;
+    }
+
+    @GuardedBy("this")
+    private void replay() throws KinesisVideoException {
+        final List<KinesisVideoFrame> frames = journal.takeRecoveredFrames();
+        if (frames.isEmpty()) {
+            return;
+        }
+
+        log.info("Replaying " + frames.size() + " unpersisted frames of stream " + streamName);
+        for (final KinesisVideoFrame frame : frames) {
+            // Already in the journal, from the previous run
+            delegate.onFrame(frame);
+            replayedFrameCount++;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.multitrack;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Stage merging the frames of several tracks into a single stream ordered by decoding timestamp.
+ * <p>
+ * The frames of every track are expected in decoding order and are queued per track. The track queues are merged
+ * through a heap keyed by the decoding timestamp of their first frame: the earliest frame is let through as soon as
+ * every track has a frame queued, since no earlier frame can come in anymore, or once it is older than the newest
+ * frame by more than the max delay, so that a stalled track does not hold the others back for longer than that.
+ * <p>
+ * A frame coming in after a later frame has been let through would break the order and is dropped as late.
+ */
+@ThreadSafe
+public class FrameInterleaver implements OnStreamDataAvailable {
+    private final Log log = LogFactory.getLog(FrameInterleaver.class);
+    private final OnStreamDataAvailable downstream;
+    private final long maxDelay;
+
+    @GuardedBy("this")
+    private final Map<Long, ArrayDeque<KinesisVideoFrame>> trackQueues =
+            new HashMap<Long, ArrayDeque<KinesisVideoFrame>>();
+    @GuardedBy("this")
+    private final PriorityQueue<ArrayDeque<KinesisVideoFrame>> nonEmptyTrackQueues =
+            new PriorityQueue<ArrayDeque<KinesisVideoFrame>>(new Comparator<ArrayDeque<KinesisVideoFrame>>() {
+                @Override
+                public int compare(final ArrayDeque<KinesisVideoFrame> queue1,
+                                   final ArrayDeque<KinesisVideoFrame> queue2) {
+                    return Long.compare(queue1.peekFirst().getDecodingTs(), queue2.peekFirst().getDecodingTs());
+                }
+            });
+    @GuardedBy("this")
+    private long newestDecodingTs = Long.MIN_VALUE;
+    @GuardedBy("this")
+    private long lastEmittedDecodingTs = Long.MIN_VALUE;
+    @GuardedBy("this")
+    private int queuedFrameCount;
+    @GuardedBy("this")
+    private long emittedFrameCount;
+    @GuardedBy("this")
+    private long lateFrameCount;
+
+    /**
+     * @param downstream - stage to emit the ordered frames to
+     * @param maxDelay - longest time a frame is held back waiting for the other tracks, in 100ns units
+     * @param expectedTrackIds - tracks to wait for from the start, the other tracks are waited for once they show up
+     */
+    public FrameInterleaver(@Nonnull final OnStreamDataAvailable downstream,
+                            final long maxDelay,
+                            final long... expectedTrackIds) {
+        Preconditions.checkArgument(maxDelay >= 0, "Max delay can not be negative");
+        this.downstream = Preconditions.checkNotNull(downstream);
+        this.maxDelay = maxDelay;
+        for (final long trackId : expectedTrackIds) {
+            trackQueues.put(trackId, new ArrayDeque<KinesisVideoFrame>());
+        }
+    }
+
+    @Override
+    public synchronized void onFrameDataAvailable(final KinesisVideoFrame frame) throws KinesisVideoException {
+        final long decodingTs = frame.getDecodingTs();
+        if (decodingTs < lastEmittedDecodingTs) {
+            lateFrameCount++;
+            log.debug("Dropping late frame of track " + frame.getTrackId() + " with decoding timestamp "
+                    + decodingTs + ", already emitted up to " + lastEmittedDecodingTs);
+            return;
+        }
+
+        ArrayDeque<KinesisVideoFrame> trackQueue = trackQueues.get(frame.getTrackId());
+        if (trackQueue == null) {
+            trackQueue = new ArrayDeque<KinesisVideoFrame>();
+            trackQueues.put(frame.getTrackId(), trackQueue);
+        }
+
+        trackQueue.addLast(frame);
+        if (trackQueue.size() == 1) {
+            nonEmptyTrackQueues.add(trackQueue);
+        }
+
+        queuedFrameCount++;
+        newestDecodingTs = Math.max(newestDecodingTs, decodingTs);
+        emitReadyFrames();
+    }
+
+    @Override
+    public void onFrameDataAvailable(final ByteBuffer frame) throws KinesisVideoException {
+        downstream.onFrameDataAvailable(frame);
+    }
+
+    @Override
+    public synchronized void onFragmentMetadataAvailable(final String metadataName,
+                                                         final String metadataValue,
+                                                         final boolean persistent) throws KinesisVideoException {
+        downstream.onFragmentMetadataAvailable(metadataName, metadataValue, persistent);
+    }
+
+    @Override
+    public synchronized void onCodecPrivateData(final byte[] codecPrivateData, final int trackId)
+            throws KinesisVideoException {
+        downstream.onCodecPrivateData(codecPrivateData, trackId);
+    }
+
+    /**
+     * Emits all the queued frames, in order, without waiting any longer for the other tracks. The sources should be
+     * stopped first, a frame coming in afterwards is held back again.
+     */
+    public synchronized void flush() throws KinesisVideoException {
+        while (!nonEmptyTrackQueues.isEmpty()) {
+            emitEarliestFrame();
+        }
+    }
+
+    /**
+     * @return number of frames held back waiting for the other tracks
+     */
+    public synchronized int getQueuedFrameCount() {
+        return queuedFrameCount;
+    }
+
+    public synchronized long getEmittedFrameCount() {
+        return emittedFrameCount;
+    }
+
+    /**
+     * @return number of frames dropped because a later frame had already been emitted
+     */
+    public synchronized long getLateFrameCount() {
+        return lateFrameCount;
+    }
+
+    @GuardedBy("this")
+    private void emitReadyFrames() throws KinesisVideoException {
+        while (!nonEmptyTrackQueues.isEmpty()) {
+            final boolean isEveryTrackQueued = nonEmptyTrackQueues.size() == trackQueues.size();
+            final long earliestDecodingTs = nonEmptyTrackQueues.peek().peekFirst().getDecodingTs();
+            if (!isEveryTrackQueued && earliestDecodingTs >= newestDecodingTs - maxDelay) {
+                return;
+            }
+
+            emitEarliestFrame();
+        }
+    }
+
+    @GuardedBy("this")
+    private void emitEarliestFrame() throws KinesisVideoException {
+        final ArrayDeque<KinesisVideoFrame> trackQueue = nonEmptyTrackQueues.poll();
+        final KinesisVideoFrame frame = trackQueue.pollFirst();
+        if (!trackQueue.isEmpty()) {
+            nonEmptyTrackQueues.add(trackQueue);
+        }
+
+        queuedFrameCount--;
+        emittedFrameCount++;
+        lastEmittedDecodingTs = frame.getDecodingTs();
+        downstream.onFrameDataAvailable(frame);
+    }
+}
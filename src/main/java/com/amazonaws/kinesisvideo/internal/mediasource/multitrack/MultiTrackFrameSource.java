@@ -2,6 +2,7 @@ package com.amazonaws.kinesisvideo.internal.mediasource.multitrack;
 
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
 import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
 import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -9,8 +10,6 @@ import org.apache.commons.logging.LogFactory;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
 import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
@@ -24,21 +23,19 @@ public class MultiTrackFrameSource {
     private OnStreamDataAvailable streamDataAvailable;
     private final int fps;
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(1);
-    private final byte[][] framesData = new byte[][]{
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024],
-            new byte[MAX_FRAME_SIZE_BYTES_1024]
-    };
-
+    private final PacingClock pacingClock;
+    private PacingClock.Registration pacing;
     private final Log log = LogFactory.getLog(MultiTrackFrameSource.class);
     private volatile boolean isRunning;
     private int frameCounter;
 
     public MultiTrackFrameSource(final MultiTrackMediaSourceConfiguration configuration) {
+        this(configuration, PacingClock.getDefault());
+    }
+
+    public MultiTrackFrameSource(final MultiTrackMediaSourceConfiguration configuration,
+                                 final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
         frameCounter = 0;
         this.fps = configuration.getFps();
     }
@@ -57,40 +54,35 @@ public class MultiTrackFrameSource {
         startGeneratorInBackground();
     }
 
+    /**
+     * Stops generating frames, waiting for the frame being generated, if any, to be handed over.
+     */
     public synchronized void stop() {
         isRunning = false;
+        if (pacing != null) {
+            pacing.cancelAndAwait();
+            log.info("Stopped generating frames, " + pacing.getStats());
+            pacing = null;
+        }
     }
 
     private void startGeneratorInBackground() {
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    generateBytesAndNotifyListener();
-                } catch (final KinesisVideoException e) {
-                    log.error("Failed to keep generating frames with Exception", e);
-                }
-            }
-        });
+        pacing = pacingClock.schedule(0, Duration.ofSeconds(1L).toNanos() / fps, PacingClock.Policy.SKIP,
+                new PacingClock.Listener() {
+                    @Override
+                    public void onDeadline(final long deadlineInNanos) throws KinesisVideoException {
+                        generateBytesAndNotifyListener();
+                    }
+                });
     }
 
     private void generateBytesAndNotifyListener() throws KinesisVideoException {
-        while (isRunning) {
-            fillArrayWithDigitsOfFramesCounter();
-
-            if (streamDataAvailable != null) {
-                streamDataAvailable
-                        .onFrameDataAvailable(createKinesisVideoFrame());
-            }
-
-            frameCounter++;
-
-            try {
-                Thread.sleep(Duration.ofSeconds(1L).toMillis() / fps);
-            } catch (final InterruptedException e) {
-                log.error("Frame interval wait interrupted by Exception ", e);
-            }
+        if (streamDataAvailable != null) {
+            streamDataAvailable
+                    .onFrameDataAvailable(createKinesisVideoFrame());
         }
+
+        frameCounter++;
     }
 
     private KinesisVideoFrame createKinesisVideoFrame() {
@@ -104,20 +96,25 @@ public class MultiTrackFrameSource {
                 decodingTs,
                 presentationTs,
                 FRAME_DURATION_0_MS,
-                ByteBuffer.wrap(framesData[frameCounter % framesData.length]));
+                ByteBuffer.wrap(createFrameDataWithDigitsOfFramesCounter()));
     }
 
     private boolean isKeyFrame() {
         return frameCounter % FRAME_RATE_25 == 0;
     }
 
-    private void fillArrayWithDigitsOfFramesCounter() {
+    /**
+     * Allocates the data of every frame, the sinks queueing the frames deliver them after they have been handed over.
+     */
+    private byte[] createFrameDataWithDigitsOfFramesCounter() {
         final String counterString = String.valueOf(frameCounter) + "|";
         final byte[] counterBytes = counterString.getBytes(StandardCharsets.US_ASCII);
-        final byte[] frameData = this.framesData[frameCounter % this.framesData.length];
+        final byte[] frameData = new byte[MAX_FRAME_SIZE_BYTES_1024];
 
         for (int i = 0; i < frameData.length; i++) {
             frameData[i] = counterBytes[i % counterBytes.length];
         }
+
+        return frameData;
     }
 }
@@ -7,6 +7,9 @@ import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
 import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
 import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
 import com.amazonaws.kinesisvideo.producer.StreamInfo;
 
@@ -26,18 +29,32 @@ import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.REQUEST_FRAGME
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.USE_FRAME_TIMECODES;
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VERSION_ZERO;
 
-public class MultiTrackMediaSource implements MediaSource {
+public class MultiTrackMediaSource implements MediaSource, PacedMediaSource {
     private final String streamName;
 
     private MediaSourceState mediaSourceState;
     private MediaSourceSink mediaSourceSink;
     private MultiTrackFrameSource frameSource;
+    private OnStreamDataAvailable streamDataAvailable;
     private MultiTrackMediaSourceConfiguration configuration;
+    private PacingClock pacingClock;
 
     public MultiTrackMediaSource(final @Nonnull String streamName) {
         this.streamName = streamName;
     }
 
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+    }
+
+    /**
+     * @return clock to pace the frame source by, the one of the client if the media source has been given one
+     */
+    protected PacingClock getPacingClock() {
+        return PacingClock.orDefault(pacingClock);
+    }
+
     @Override
     public MediaSourceState getMediaSourceState() {
         return  mediaSourceState;
@@ -95,8 +112,9 @@ public class MultiTrackMediaSource implements MediaSource {
 
     @Override
     public void start() throws KinesisVideoException {
-        frameSource = new MultiTrackFrameSource(configuration);
-        frameSource.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        frameSource = new MultiTrackFrameSource(configuration, getPacingClock());
+        streamDataAvailable = configuration.interleave(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        frameSource.onStreamDataAvailable(streamDataAvailable);
         frameSource.start();
     }
 
@@ -105,6 +123,9 @@ public class MultiTrackMediaSource implements MediaSource {
         if (frameSource != null) {
             frameSource.stop();
         }
+        if (streamDataAvailable instanceof FrameInterleaver) {
+            ((FrameInterleaver) streamDataAvailable).flush();
+        }
         mediaSourceSink.getProducerStream().stopStreamSync();
 
         mediaSourceState = MediaSourceState.STOPPED;
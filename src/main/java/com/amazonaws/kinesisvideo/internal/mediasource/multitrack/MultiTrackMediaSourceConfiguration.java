@@ -1,6 +1,7 @@
 package com.amazonaws.kinesisvideo.internal.mediasource.multitrack;
 
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
 import com.amazonaws.kinesisvideo.producer.StreamInfo;
 import com.amazonaws.kinesisvideo.producer.TrackInfo;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -19,6 +20,11 @@ public class MultiTrackMediaSourceConfiguration implements MediaSourceConfigurat
     private static final String MEDIA_SOURCE_TYPE = "MultiTrackMediaSource";
     private static final String MEDIA_SOURCE_DESCRIPTION = "Media Source accepts multi-track data. ";
 
+    /**
+     * Interleaving window passing the frames through in the order they are produced
+     */
+    public static final long NO_INTERLEAVING = 0;
+
     public static class Builder<T extends Builder<T>>
             implements MediaSourceConfiguration.Builder<MultiTrackMediaSourceConfiguration> {
 
@@ -32,6 +38,7 @@ public class MultiTrackMediaSourceConfiguration implements MediaSourceConfigurat
         protected String contentType = null;
         protected TrackInfo[] trackInfoList;
         protected boolean absoluteTimecode = ABSOLUTE_TIMECODES;
+        protected long interleavingWindow = NO_INTERLEAVING;
 
         private StreamInfo.NalAdaptationFlags nalAdaptationFlag = NAL_ADAPTATION_FLAG_NONE;
 
@@ -85,6 +92,15 @@ public class MultiTrackMediaSourceConfiguration implements MediaSourceConfigurat
             return (T) this;
         }
 
+        /**
+         * Orders the frames of the tracks by decoding timestamp before they reach the sink, holding a frame back
+         * for at most the window, in 100ns units, waiting for the other tracks.
+         */
+        public T withInterleavingWindow(final long interleavingWindow) {
+            this.interleavingWindow = interleavingWindow;
+            return (T) this;
+        }
+
         public T withNalAdaptationFlag(final StreamInfo.NalAdaptationFlags nalAdaptationFlag) {
             this.nalAdaptationFlag = nalAdaptationFlag;
             return (T) this;
@@ -146,6 +162,30 @@ public class MultiTrackMediaSourceConfiguration implements MediaSourceConfigurat
         return mBuilder.absoluteTimecode;
     }
 
+    public long getInterleavingWindow() {
+        return mBuilder.interleavingWindow;
+    }
+
+    /**
+     * Wraps the stage the frames are emitted to in a {@link FrameInterleaver} if an interleaving window is configured.
+     *
+     * @param downstream - stage receiving the frames
+     * @return stage to emit the frames of the tracks to
+     */
+    public OnStreamDataAvailable interleave(final OnStreamDataAvailable downstream) {
+        if (mBuilder.interleavingWindow <= NO_INTERLEAVING) {
+            return downstream;
+        }
+
+        final TrackInfo[] trackInfoList = mBuilder.trackInfoList == null ? new TrackInfo[0] : mBuilder.trackInfoList;
+        final long[] trackIds = new long[trackInfoList.length];
+        for (int i = 0; i < trackIds.length; i++) {
+            trackIds[i] = trackInfoList[i].getTrackId();
+        }
+
+        return new FrameInterleaver(downstream, mBuilder.interleavingWindow, trackIds);
+    }
+
     @Override
     public String getMediaSourceType() {
         return MEDIA_SOURCE_TYPE;
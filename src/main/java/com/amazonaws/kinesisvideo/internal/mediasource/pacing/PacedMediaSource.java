@@ -0,0 +1,16 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.pacing;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Media source whose frame source can be paced by the clock of the client it is registered with, rather than by
+ * {@link PacingClock#getDefault()}.
+ */
+public interface PacedMediaSource {
+    /**
+     * Sets the clock the frame source is paced by once the media source is started.
+     *
+     * @param pacingClock - clock owned by the client, shut down when the client is freed
+     */
+    void setPacingClock(@Nonnull PacingClock pacingClock);
+}
@@ -0,0 +1,440 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.pacing;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared clock pacing the frame sources.
+ * <p>
+ * Every source registers a period and gets run on its deadlines, which are computed from the registration time on the
+ * monotonic {@link System#nanoTime()} clock, so neither the time the source takes to produce a frame nor the lateness
+ * of the earlier deadlines makes it drift. The deadlines of all the sources are kept in a hashed timer wheel driven by
+ * a single thread, the sources themselves run on a small pool of dispatch threads.
+ * <p>
+ * The sources share the dispatch threads, so a source running long on a deadline holds up the sources waiting for a
+ * thread behind it. The listeners should do the work of a single deadline and return.
+ * <p>
+ * When a source falls behind, it is either run back to back for the missed deadlines, up to a bound, or the missed
+ * deadlines are skipped, depending on the {@link Policy}.
+ */
+@ThreadSafe
+public final class PacingClock {
+    /**
+     * What to do with the deadlines missed by a source which has fallen behind.
+     */
+    public enum Policy {
+        /**
+         * Run the source back to back for the missed deadlines, up to {@link #MAX_CATCH_UP_DEADLINES} in a row.
+         */
+        CATCH_UP,
+
+        /**
+         * Drop the missed deadlines and continue with the next one ahead.
+         */
+        SKIP
+    }
+
+    /**
+     * Source paced by the clock.
+     */
+    public interface Listener {
+        /**
+         * Called on every deadline, never concurrently for the same registration. Should return well within the
+         * period, the dispatch thread is not available to the other sources meanwhile.
+         *
+         * @param deadlineInNanos - the deadline on the {@link System#nanoTime()} clock
+         * @throws KinesisVideoException to stop pacing the source
+         */
+        void onDeadline(long deadlineInNanos) throws KinesisVideoException;
+    }
+
+    public static final int MAX_CATCH_UP_DEADLINES = 25;
+    public static final long DEFAULT_TICK_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int WHEEL_SIZE = 512;
+    private static final int DEFAULT_NUMBER_OF_DISPATCH_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final Object DEFAULT_CLOCK_LOCK = new Object();
+    @GuardedBy("DEFAULT_CLOCK_LOCK")
+    private static PacingClock defaultClock;
+
+    private final Log log = LogFactory.getLog(PacingClock.class);
+    private final long tickInNanos;
+    private final Ticker ticker;
+    private final long startTimeInNanos;
+    private final List<List<Registration>> wheel;
+    private final Queue<Registration> pendingRegistrations = new ConcurrentLinkedQueue<Registration>();
+    private final ExecutorService dispatcher;
+    @Nullable
+    private final Thread wheelThread;
+    private volatile boolean isShutdown;
+
+    /**
+     * Ticks and number of registrations in the wheel, only accessed from the wheel thread, or from the thread
+     * advancing the wheel when there is none.
+     */
+    private long nextTick = 1;
+    private int numberOfRegistrationsInWheel;
+
+    /**
+     * @param name - name of the clock threads
+     * @param numberOfDispatchThreads - number of threads running the sources
+     */
+    public PacingClock(@Nonnull final String name, final int numberOfDispatchThreads) {
+        this(name, numberOfDispatchThreads, DEFAULT_TICK_IN_NANOS);
+    }
+
+    /**
+     * @param name - name of the clock threads
+     * @param numberOfDispatchThreads - number of threads running the sources
+     * @param tickInNanos - resolution of the clock
+     */
+    public PacingClock(@Nonnull final String name, final int numberOfDispatchThreads, final long tickInNanos) {
+        this(Executors.newFixedThreadPool(checkNumberOfDispatchThreads(numberOfDispatchThreads),
+                new ThreadFactoryBuilder().setNameFormat("KVS-" + Preconditions.checkNotNull(name) + "-%d")
+                        .setDaemon(true).build()),
+                tickInNanos,
+                Ticker.systemTicker(),
+                "KVS-" + name + "-Wheel");
+    }
+
+    /**
+     * Clock without threads, running the sources on the thread calling {@link #advanceTick()}.
+     *
+     * @param tickInNanos - resolution of the clock
+     * @param ticker - source of the time
+     */
+    @VisibleForTesting
+    PacingClock(final long tickInNanos, @Nonnull final Ticker ticker) {
+        this(MoreExecutors.newDirectExecutorService(), tickInNanos, ticker, null);
+    }
+
+    private PacingClock(@Nonnull final ExecutorService dispatcher,
+                        final long tickInNanos,
+                        @Nonnull final Ticker ticker,
+                        @Nullable final String wheelThreadName) {
+        Preconditions.checkArgument(tickInNanos > 0, "Clock tick should be positive");
+
+        this.tickInNanos = tickInNanos;
+        this.ticker = Preconditions.checkNotNull(ticker);
+        this.wheel = new ArrayList<List<Registration>>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<Registration>());
+        }
+
+        this.dispatcher = dispatcher;
+        this.startTimeInNanos = ticker.read();
+        if (wheelThreadName == null) {
+            this.wheelThread = null;
+            return;
+        }
+
+        this.wheelThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWheel();
+            }
+        }, wheelThreadName);
+        this.wheelThread.setDaemon(true);
+        this.wheelThread.start();
+    }
+
+    private static int checkNumberOfDispatchThreads(final int numberOfDispatchThreads) {
+        Preconditions.checkArgument(numberOfDispatchThreads > 0, "Clock needs at least one dispatch thread");
+        return numberOfDispatchThreads;
+    }
+
+    /**
+     * @return clock shared by the frame sources which have not been given one
+     */
+    @Nonnull
+    public static PacingClock getDefault() {
+        synchronized (DEFAULT_CLOCK_LOCK) {
+            if (defaultClock == null) {
+                defaultClock = new PacingClock("PacingClock", DEFAULT_NUMBER_OF_DISPATCH_THREADS);
+            }
+
+            return defaultClock;
+        }
+    }
+
+    /**
+     * @return the given clock, or the default one if none was given
+     */
+    @Nonnull
+    public static PacingClock orDefault(@Nullable final PacingClock pacingClock) {
+        return pacingClock != null ? pacingClock : getDefault();
+    }
+
+    /**
+     * Starts pacing a source.
+     *
+     * @param initialDelayInNanos - delay of the first deadline from now
+     * @param periodInNanos - time between two deadlines
+     * @param policy - what to do with the missed deadlines
+     * @param listener - source to run on every deadline
+     * @return registration to stop pacing the source with and to get its stats from
+     */
+    @Nonnull
+    public Registration schedule(final long initialDelayInNanos,
+                                 final long periodInNanos,
+                                 @Nonnull final Policy policy,
+                                 @Nonnull final Listener listener) {
+        Preconditions.checkArgument(initialDelayInNanos >= 0, "Initial delay can not be negative");
+        Preconditions.checkArgument(periodInNanos > 0, "Period should be positive");
+        Preconditions.checkState(!isShutdown, "Clock has been shut down");
+
+        final Registration registration = new Registration(ticker.read() + initialDelayInNanos,
+                periodInNanos,
+                Preconditions.checkNotNull(policy),
+                Preconditions.checkNotNull(listener));
+        enqueue(registration);
+        return registration;
+    }
+
+    /**
+     * Stops pacing all the sources and releases the threads.
+     */
+    public void shutdown() {
+        isShutdown = true;
+        unparkWheelThread();
+        dispatcher.shutdown();
+    }
+
+    private void enqueue(final Registration registration) {
+        pendingRegistrations.add(registration);
+        unparkWheelThread();
+    }
+
+    private void unparkWheelThread() {
+        if (wheelThread != null) {
+            LockSupport.unpark(wheelThread);
+        }
+    }
+
+    private void runWheel() {
+        while (!isShutdown) {
+            if (numberOfRegistrationsInWheel == 0 && pendingRegistrations.isEmpty()) {
+                // Nothing to pace, sleep until something is scheduled and pick up from the current tick
+                LockSupport.park(this);
+                nextTick = Math.max(nextTick, (ticker.read() - startTimeInNanos) / tickInNanos);
+                continue;
+            }
+
+            final long tickTime = startTimeInNanos + nextTick * tickInNanos;
+            long waitTime;
+            while ((waitTime = tickTime - ticker.read()) > 0 && !isShutdown) {
+                LockSupport.parkNanos(this, waitTime);
+            }
+
+            advanceTick();
+        }
+    }
+
+    /**
+     * Runs the sources whose deadlines fall into the next tick of the wheel and moves on to the tick after it.
+     */
+    @VisibleForTesting
+    void advanceTick() {
+        addPendingRegistrations();
+        expireTick(nextTick);
+        nextTick++;
+    }
+
+    private void addPendingRegistrations() {
+        Registration registration;
+        while ((registration = pendingRegistrations.poll()) != null) {
+            if (registration.isCancelled) {
+                continue;
+            }
+
+            // The earliest tick at or after the deadline which has not been expired yet
+            final long deadlineOffset = registration.nextDeadlineInNanos - startTimeInNanos;
+            final long tick = Math.max(nextTick, (deadlineOffset + tickInNanos - 1) / tickInNanos);
+            registration.tick = tick;
+            wheel.get((int) (tick % WHEEL_SIZE)).add(registration);
+            numberOfRegistrationsInWheel++;
+        }
+    }
+
+    private void expireTick(final long tick) {
+        final Iterator<Registration> iterator = wheel.get((int) (tick % WHEEL_SIZE)).iterator();
+        while (iterator.hasNext()) {
+            final Registration registration = iterator.next();
+            if (registration.isCancelled) {
+                iterator.remove();
+                numberOfRegistrationsInWheel--;
+            } else if (registration.tick <= tick) {
+                iterator.remove();
+                numberOfRegistrationsInWheel--;
+                dispatch(registration);
+            }
+        }
+    }
+
+    private void dispatch(final Registration registration) {
+        try {
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runDeadlines(registration);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // Shutting down
+            registration.cancel();
+        }
+    }
+
+    private void runDeadlines(final Registration registration) {
+        int deadlinesInARow = 0;
+        while (!registration.isCancelled) {
+            final long deadline = registration.nextDeadlineInNanos;
+            registration.runLock.lock();
+            try {
+                if (registration.isCancelled) {
+                    return;
+                }
+
+                registration.recordLateness(ticker.read() - deadline);
+                registration.listener.onDeadline(deadline);
+            } catch (final KinesisVideoException | RuntimeException e) {
+                log.error("Paced source threw, no longer pacing it", e);
+                registration.cancel();
+                return;
+            } finally {
+                registration.runLock.unlock();
+            }
+
+            deadlinesInARow++;
+            registration.nextDeadlineInNanos = deadline + registration.periodInNanos;
+            final long now = ticker.read();
+            if (registration.nextDeadlineInNanos > now) {
+                break;
+            }
+
+            if (registration.policy == Policy.CATCH_UP && deadlinesInARow < MAX_CATCH_UP_DEADLINES) {
+                continue;
+            }
+
+            final long missedDeadlines = (now - registration.nextDeadlineInNanos) / registration.periodInNanos + 1;
+            registration.nextDeadlineInNanos += missedDeadlines * registration.periodInNanos;
+            registration.recordSkipped(missedDeadlines);
+            break;
+        }
+
+        if (!registration.isCancelled) {
+            enqueue(registration);
+        }
+    }
+
+    /**
+     * Registration of a source with the clock.
+     */
+    @ThreadSafe
+    public static final class Registration {
+        private final long periodInNanos;
+        private final Policy policy;
+        private final Listener listener;
+        /**
+         * Held while the source runs for a deadline
+         */
+        private final ReentrantLock runLock = new ReentrantLock();
+        private volatile boolean isCancelled;
+
+        /**
+         * Only accessed by one thread at a time, handed over through the clock queues.
+         */
+        private long nextDeadlineInNanos;
+        private long tick;
+
+        @GuardedBy("this")
+        private long deadlineCount;
+        @GuardedBy("this")
+        private long skippedDeadlineCount;
+        @GuardedBy("this")
+        private long totalLatenessInNanos;
+        @GuardedBy("this")
+        private double totalSquaredLateness;
+        @GuardedBy("this")
+        private long maxLatenessInNanos;
+
+        private Registration(final long firstDeadlineInNanos,
+                             final long periodInNanos,
+                             final Policy policy,
+                             final Listener listener) {
+            this.nextDeadlineInNanos = firstDeadlineInNanos;
+            this.periodInNanos = periodInNanos;
+            this.policy = policy;
+            this.listener = listener;
+        }
+
+        /**
+         * Stops pacing the source. The source may still be running for the current deadline.
+         */
+        public void cancel() {
+            isCancelled = true;
+        }
+
+        /**
+         * Stops pacing the source and waits for it to be done with the current deadline, if it is running, so that
+         * it is not run anymore once this returns. Called from the source itself, it returns right away.
+         */
+        public void cancelAndAwait() {
+            isCancelled = true;
+            runLock.lock();
+            runLock.unlock();
+        }
+
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+
+        @Nonnull
+        public synchronized PacingStats getStats() {
+            if (deadlineCount == 0) {
+                return new PacingStats(0, skippedDeadlineCount, 0, 0, 0);
+            }
+
+            final double averageLateness = (double) totalLatenessInNanos / deadlineCount;
+            final double variance = Math.max(0, totalSquaredLateness / deadlineCount - averageLateness * averageLateness);
+            return new PacingStats(deadlineCount,
+                    skippedDeadlineCount,
+                    (long) averageLateness,
+                    maxLatenessInNanos,
+                    (long) Math.sqrt(variance));
+        }
+
+        private synchronized void recordLateness(final long latenessInNanos) {
+            deadlineCount++;
+            totalLatenessInNanos += latenessInNanos;
+            totalSquaredLateness += (double) latenessInNanos * latenessInNanos;
+            maxLatenessInNanos = Math.max(maxLatenessInNanos, latenessInNanos);
+        }
+
+        private synchronized void recordSkipped(final long skippedDeadlines) {
+            skippedDeadlineCount += skippedDeadlines;
+        }
+    }
+}
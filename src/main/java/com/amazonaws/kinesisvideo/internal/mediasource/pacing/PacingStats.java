@@ -0,0 +1,65 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.pacing;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Snapshot of how closely a paced source has been kept to its deadlines.
+ * <p>
+ * The lateness of a deadline is the time between the deadline and the moment the source has actually been run.
+ * The jitter is the standard deviation of the lateness.
+ */
+@Immutable
+public final class PacingStats {
+    private final long deadlineCount;
+    private final long skippedDeadlineCount;
+    private final long averageLatenessInNanos;
+    private final long maxLatenessInNanos;
+    private final long jitterInNanos;
+
+    PacingStats(final long deadlineCount,
+                final long skippedDeadlineCount,
+                final long averageLatenessInNanos,
+                final long maxLatenessInNanos,
+                final long jitterInNanos) {
+        this.deadlineCount = deadlineCount;
+        this.skippedDeadlineCount = skippedDeadlineCount;
+        this.averageLatenessInNanos = averageLatenessInNanos;
+        this.maxLatenessInNanos = maxLatenessInNanos;
+        this.jitterInNanos = jitterInNanos;
+    }
+
+    /**
+     * @return number of deadlines the source has been run for
+     */
+    public long getDeadlineCount() {
+        return deadlineCount;
+    }
+
+    /**
+     * @return number of deadlines dropped because the source was running too late to catch up
+     */
+    public long getSkippedDeadlineCount() {
+        return skippedDeadlineCount;
+    }
+
+    public long getAverageLatenessInNanos() {
+        return averageLatenessInNanos;
+    }
+
+    public long getMaxLatenessInNanos() {
+        return maxLatenessInNanos;
+    }
+
+    public long getJitterInNanos() {
+        return jitterInNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PacingStats{deadlines=" + deadlineCount
+                + ", skipped=" + skippedDeadlineCount
+                + ", averageLatenessInNanos=" + averageLatenessInNanos
+                + ", maxLatenessInNanos=" + maxLatenessInNanos
+                + ", jitterInNanos=" + jitterInNanos + '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.segment;
+
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the frame records of the segment files: a fixed header followed by the frame data.
+ * <p>
+ * The header holds, in order, the magic number of the record, the size of the data, the frame flags, a word left to
+ * the log, and the index, decoding and presentation timestamps, duration and track id of the frame. The magic numbers
+ * tell the records of the different logs, and kinds of records, apart.
+ */
+public final class FrameRecords {
+    public static final int RECORD_HEADER_SIZE = 56;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int DATA_SIZE_OFFSET = 4;
+    public static final int FLAGS_OFFSET = 8;
+    /**
+     * Word the log is free to use, 0 if it does not
+     */
+    public static final int LOG_WORD_OFFSET = 12;
+    public static final int INDEX_OFFSET = 16;
+    public static final int DECODING_TS_OFFSET = 24;
+    public static final int PRESENTATION_TS_OFFSET = 32;
+    public static final int DURATION_OFFSET = 40;
+    public static final int TRACK_ID_OFFSET = 48;
+
+    /**
+     * Reads the records of a segment one after the other.
+     */
+    public interface RecordReader {
+        /**
+         * @param buffer - segment
+         * @param position - position of the record in the segment
+         * @param magic - magic number of the record
+         * @param dataSize - size of the data of the record, which is within the segment
+         * @return false to stop at this record, because it is torn or not of this log
+         */
+        boolean read(@Nonnull ByteBuffer buffer, int position, int magic, int dataSize);
+    }
+
+    private FrameRecords() {
+    }
+
+    /**
+     * Writes the header of a frame record but for its magic number and the word left to the log, which is cleared.
+     */
+    public static void putHeader(@Nonnull final ByteBuffer buffer,
+                                 final int position,
+                                 @Nonnull final KinesisVideoFrame frame,
+                                 final int dataSize) {
+        buffer.putInt(position + DATA_SIZE_OFFSET, dataSize);
+        buffer.putInt(position + FLAGS_OFFSET, frame.getFlags());
+        buffer.putInt(position + LOG_WORD_OFFSET, 0);
+        buffer.putLong(position + INDEX_OFFSET, frame.getIndex());
+        buffer.putLong(position + DECODING_TS_OFFSET, frame.getDecodingTs());
+        buffer.putLong(position + PRESENTATION_TS_OFFSET, frame.getPresentationTs());
+        buffer.putLong(position + DURATION_OFFSET, frame.getDuration());
+        buffer.putLong(position + TRACK_ID_OFFSET, frame.getTrackId());
+    }
+
+    /**
+     * @return frame of the record, its data being a view of the buffer
+     */
+    @Nonnull
+    public static KinesisVideoFrame getFrame(@Nonnull final ByteBuffer buffer, final int position) {
+        final ByteBuffer data = buffer.duplicate();
+        data.limit(position + RECORD_HEADER_SIZE + getDataSize(buffer, position))
+                .position(position + RECORD_HEADER_SIZE);
+        return new KinesisVideoFrame((int) buffer.getLong(position + INDEX_OFFSET),
+                buffer.getInt(position + FLAGS_OFFSET),
+                getDecodingTs(buffer, position),
+                buffer.getLong(position + PRESENTATION_TS_OFFSET),
+                buffer.getLong(position + DURATION_OFFSET),
+                data.slice(),
+                buffer.getLong(position + TRACK_ID_OFFSET));
+    }
+
+    public static int getDataSize(@Nonnull final ByteBuffer buffer, final int position) {
+        return buffer.getInt(position + DATA_SIZE_OFFSET);
+    }
+
+    public static long getDecodingTs(@Nonnull final ByteBuffer buffer, final int position) {
+        return buffer.getLong(position + DECODING_TS_OFFSET);
+    }
+
+    /**
+     * Walks the records from the start of the segment, up to the end of the segment, a record which does not fit in it
+     * or a record the reader stops at.
+     *
+     * @return end of the last record read, where the next record goes
+     */
+    public static int scan(@Nonnull final ByteBuffer buffer, @Nonnull final RecordReader reader) {
+        int position = 0;
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            final int dataSize = getDataSize(buffer, position);
+            if (dataSize < 0 || dataSize > buffer.capacity() - position - RECORD_HEADER_SIZE
+                    || !reader.read(buffer, position, buffer.getInt(position + MAGIC_OFFSET), dataSize)) {
+                break;
+            }
+
+            position += RECORD_HEADER_SIZE + dataSize;
+        }
+
+        return position;
+    }
+}
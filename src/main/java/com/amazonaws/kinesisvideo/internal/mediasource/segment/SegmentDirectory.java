@@ -0,0 +1,111 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.segment;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Directory of numbered segment files, as laid out by the frame logs which keep their records in a series of segments.
+ * <p>
+ * The segments are named after a prefix and a zero-padded id, so that they sort in the order they were created, and
+ * the ids of the new segments follow the ids of the segments found in the directory.
+ */
+@NotThreadSafe
+public final class SegmentDirectory {
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Log log = LogFactory.getLog(SegmentDirectory.class);
+
+    private final Path directory;
+    private final String prefix;
+    private long nextSegmentId;
+
+    /**
+     * @param directory - directory of the segment files, created if needed
+     * @param prefix - prefix of the names of the segment files
+     */
+    public SegmentDirectory(@Nonnull final Path directory, @Nonnull final String prefix) throws IOException {
+        this.directory = Preconditions.checkNotNull(directory);
+        this.prefix = Preconditions.checkNotNull(prefix);
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * @return segment files found in the directory, oldest first
+     */
+    @Nonnull
+    public List<Path> listSegments() throws IOException {
+        final List<Path> paths = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + SEGMENT_SUFFIX)) {
+            for (final Path path : stream) {
+                paths.add(path);
+            }
+        }
+
+        // The zero-padded ids sort in the order the segments were created
+        Collections.sort(paths);
+        for (final Path path : paths) {
+            final String fileName = path.getFileName().toString();
+            final long segmentId = Long.parseLong(fileName.substring(prefix.length(),
+                    fileName.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+        }
+
+        return paths;
+    }
+
+    /**
+     * @return path of a new segment, after all the segments created or listed so far
+     */
+    @Nonnull
+    public Path nextSegmentPath() {
+        return directory.resolve(String.format("%s%020d%s", prefix, nextSegmentId++, SEGMENT_SUFFIX));
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Releases the mapping of a segment right away rather than when the buffer is garbage collected, so that the file
+     * can be deleted on the platforms which do not delete mapped files and the address space is given back. The
+     * buffer, and any view of it, must not be accessed afterwards.
+     */
+    public static void unmap(@Nonnull final MappedByteBuffer buffer) {
+        try {
+            try {
+                // Java 9 and later
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (final NoSuchMethodException e) {
+                // Java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector
+            log.debug("Unable to unmap segment", e);
+        }
+    }
+}
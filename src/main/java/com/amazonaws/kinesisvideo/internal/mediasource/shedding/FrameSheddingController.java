@@ -0,0 +1,264 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.google.common.base.Ticker;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_SECOND;
+import static com.amazonaws.kinesisvideo.producer.Time.NANOS_IN_A_TIME_UNIT;
+
+/**
+ * Degrades a stream gracefully under pressure, shedding frames before the content store has to evict whole
+ * fragments.
+ * <p>
+ * Every latency, buffer duration or storage pressure report escalates the {@link Level} by one, at most once per
+ * escalation interval so that a burst of reports does not jump straight to the last level. Once the buffered duration
+ * reported by the stream stays under the recovery threshold for the recovery hold time, the level is lowered by one,
+ * and so on until the stream is back to normal.
+ * <p>
+ * The level only takes effect at key frames, so that every frame let through can still be decoded. The shedding is
+ * decided per track, and tracks without key frames, such as most audio tracks, are never shed.
+ */
+@ThreadSafe
+public class FrameSheddingController {
+    /**
+     * Degradation levels, each one shedding more than the previous one.
+     */
+    public enum Level {
+        /**
+         * All the frames are let through.
+         */
+        NONE,
+
+        /**
+         * The second half of the non-key frames of every GOP is shed.
+         */
+        SHED_NON_KEY_FRAMES,
+
+        /**
+         * Every other GOP is shed whole, on top of the non-key frames of the remaining ones.
+         */
+        SHED_GOPS,
+
+        /**
+         * Only the key frame of every other GOP is let through, lowering the frame rate to a frame every two GOPs.
+         */
+        REDUCE_FRAME_RATE
+    }
+
+    public static final long DEFAULT_ESCALATION_INTERVAL = 2L * HUNDREDS_OF_NANOS_IN_A_SECOND;
+    public static final long DEFAULT_RECOVERY_THRESHOLD = 2L * HUNDREDS_OF_NANOS_IN_A_SECOND;
+    public static final long DEFAULT_RECOVERY_HOLD_TIME = 10L * HUNDREDS_OF_NANOS_IN_A_SECOND;
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final Log log = LogFactory.getLog(FrameSheddingController.class);
+    private final String streamName;
+    private final long escalationIntervalInNanos;
+    private final long recoveryThreshold;
+    private final long recoveryHoldTimeInNanos;
+    private final Ticker ticker;
+
+    @GuardedBy("this")
+    private final Map<Long, TrackState> trackStates = new HashMap<Long, TrackState>();
+    @GuardedBy("this")
+    private Level level = Level.NONE;
+    @GuardedBy("this")
+    private long lastLevelChangeInNanos;
+    @GuardedBy("this")
+    private boolean isDraining;
+    @GuardedBy("this")
+    private long drainingSinceInNanos;
+    @GuardedBy("this")
+    private long pressureCount;
+    @GuardedBy("this")
+    private long escalationCount;
+    @GuardedBy("this")
+    private long recoveryCount;
+    @GuardedBy("this")
+    private long deliveredFrameCount;
+    @GuardedBy("this")
+    private long shedFrameCount;
+    @GuardedBy("this")
+    private long shedByteCount;
+    @GuardedBy("this")
+    private long shedGopCount;
+
+    public FrameSheddingController(@Nonnull final String streamName) {
+        this(streamName, DEFAULT_ESCALATION_INTERVAL, DEFAULT_RECOVERY_THRESHOLD, DEFAULT_RECOVERY_HOLD_TIME);
+    }
+
+    /**
+     * @param streamName - name of the stream, for logging
+     * @param escalationInterval - shortest time between two escalations, in 100ns units
+     * @param recoveryThreshold - buffered duration under which the stream is considered drained, in 100ns units
+     * @param recoveryHoldTime - how long the stream has to stay drained before each recovery step, in 100ns units
+     */
+    public FrameSheddingController(@Nonnull final String streamName,
+                                   final long escalationInterval,
+                                   final long recoveryThreshold,
+                                   final long recoveryHoldTime) {
+        this(streamName, escalationInterval, recoveryThreshold, recoveryHoldTime, Ticker.systemTicker());
+    }
+
+    FrameSheddingController(@Nonnull final String streamName,
+                            final long escalationInterval,
+                            final long recoveryThreshold,
+                            final long recoveryHoldTime,
+                            @Nonnull final Ticker ticker) {
+        Preconditions.checkArgument(escalationInterval >= 0, "Escalation interval can not be negative");
+        Preconditions.checkArgument(recoveryThreshold >= 0, "Recovery threshold can not be negative");
+        Preconditions.checkArgument(recoveryHoldTime >= 0, "Recovery hold time can not be negative");
+        this.streamName = Preconditions.checkNotNull(streamName);
+        this.escalationIntervalInNanos = escalationInterval * NANOS_IN_A_TIME_UNIT;
+        this.recoveryThreshold = recoveryThreshold;
+        this.recoveryHoldTimeInNanos = recoveryHoldTime * NANOS_IN_A_TIME_UNIT;
+        this.ticker = Preconditions.checkNotNull(ticker);
+        this.lastLevelChangeInNanos = ticker.read() - escalationIntervalInNanos;
+    }
+
+    /**
+     * Reports pressure on the stream or the storage, escalating the level unless it just has been.
+     */
+    public synchronized void onPressure() {
+        pressureCount++;
+        isDraining = false;
+
+        final long now = ticker.read();
+        if (level.ordinal() == LEVELS.length - 1 || now - lastLevelChangeInNanos < escalationIntervalInNanos) {
+            return;
+        }
+
+        changeLevel(LEVELS[level.ordinal() + 1], now);
+        escalationCount++;
+    }
+
+    /**
+     * Reports the duration of content buffered in the stream, lowering the level once it has been low enough for
+     * long enough.
+     *
+     * @param bufferedDuration - buffered duration in 100ns units
+     */
+    public synchronized void onBufferedDuration(final long bufferedDuration) {
+        if (level == Level.NONE) {
+            return;
+        }
+
+        final long now = ticker.read();
+        if (bufferedDuration > recoveryThreshold) {
+            isDraining = false;
+            return;
+        }
+
+        if (!isDraining) {
+            isDraining = true;
+            drainingSinceInNanos = now;
+            return;
+        }
+
+        if (now - drainingSinceInNanos >= recoveryHoldTimeInNanos
+                && now - lastLevelChangeInNanos >= recoveryHoldTimeInNanos) {
+            changeLevel(LEVELS[level.ordinal() - 1], now);
+            recoveryCount++;
+            drainingSinceInNanos = now;
+        }
+    }
+
+    /**
+     * @return whether the frame should be let through, false if it is shed
+     */
+    public synchronized boolean shouldDeliver(@Nonnull final KinesisVideoFrame frame) {
+        TrackState trackState = trackStates.get(frame.getTrackId());
+        if (trackState == null) {
+            trackState = new TrackState();
+            trackStates.put(frame.getTrackId(), trackState);
+        }
+
+        final boolean isDelivered = trackState.shouldDeliver(FrameFlags.isKeyFrame(frame.getFlags()));
+        if (isDelivered) {
+            deliveredFrameCount++;
+        } else {
+            shedFrameCount++;
+            shedByteCount += frame.getSize();
+        }
+
+        return isDelivered;
+    }
+
+    public synchronized Level getLevel() {
+        return level;
+    }
+
+    public synchronized FrameSheddingMetrics getMetrics() {
+        return new FrameSheddingMetrics(streamName,
+                level,
+                pressureCount,
+                escalationCount,
+                recoveryCount,
+                deliveredFrameCount,
+                shedFrameCount,
+                shedByteCount,
+                shedGopCount);
+    }
+
+    @GuardedBy("this")
+    private void changeLevel(final Level newLevel, final long now) {
+        log.info("Stream " + streamName + " shedding level " + level + " -> " + newLevel + ", shed "
+                + shedFrameCount + " frames so far");
+        level = newLevel;
+        lastLevelChangeInNanos = now;
+    }
+
+    /**
+     * Position of a track in its current GOP and the level latched at the GOP key frame.
+     */
+    private final class TrackState {
+        private Level gopLevel = Level.NONE;
+        private long gopCount;
+        private int framesInGop;
+        private int lastGopLength;
+        private boolean isGopShed;
+
+        @GuardedBy("FrameSheddingController.this")
+        boolean shouldDeliver(final boolean isKeyFrame) {
+            if (isKeyFrame) {
+                if (gopCount > 0) {
+                    lastGopLength = framesInGop;
+                }
+
+                gopCount++;
+                framesInGop = 0;
+                gopLevel = level;
+                isGopShed = gopLevel.compareTo(Level.SHED_GOPS) >= 0 && gopCount % 2 == 0;
+                if (isGopShed) {
+                    shedGopCount++;
+                }
+            }
+
+            framesInGop++;
+            if (isGopShed) {
+                return false;
+            }
+
+            switch (gopLevel) {
+                case SHED_NON_KEY_FRAMES:
+                case SHED_GOPS:
+                    // Shedding the tail of the GOP keeps the frames left decodable
+                    return lastGopLength == 0 || framesInGop <= 1 + (lastGopLength - 1) / 2;
+                case REDUCE_FRAME_RATE:
+                    return isKeyFrame;
+                default:
+                    return true;
+            }
+        }
+    }
+}
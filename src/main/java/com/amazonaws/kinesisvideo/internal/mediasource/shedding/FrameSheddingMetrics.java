@@ -0,0 +1,94 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Point-in-time snapshot of what a {@link FrameSheddingController} has shed for its stream.
+ */
+@Immutable
+public final class FrameSheddingMetrics {
+    private final String streamName;
+    private final FrameSheddingController.Level level;
+    private final long pressureCount;
+    private final long escalationCount;
+    private final long recoveryCount;
+    private final long deliveredFrameCount;
+    private final long shedFrameCount;
+    private final long shedByteCount;
+    private final long shedGopCount;
+
+    FrameSheddingMetrics(final String streamName,
+                         final FrameSheddingController.Level level,
+                         final long pressureCount,
+                         final long escalationCount,
+                         final long recoveryCount,
+                         final long deliveredFrameCount,
+                         final long shedFrameCount,
+                         final long shedByteCount,
+                         final long shedGopCount) {
+        this.streamName = streamName;
+        this.level = level;
+        this.pressureCount = pressureCount;
+        this.escalationCount = escalationCount;
+        this.recoveryCount = recoveryCount;
+        this.deliveredFrameCount = deliveredFrameCount;
+        this.shedFrameCount = shedFrameCount;
+        this.shedByteCount = shedByteCount;
+        this.shedGopCount = shedGopCount;
+    }
+
+    public String getStreamName() {
+        return streamName;
+    }
+
+    public FrameSheddingController.Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @return number of latency, buffer duration and storage pressure reports received
+     */
+    public long getPressureCount() {
+        return pressureCount;
+    }
+
+    public long getEscalationCount() {
+        return escalationCount;
+    }
+
+    public long getRecoveryCount() {
+        return recoveryCount;
+    }
+
+    public long getDeliveredFrameCount() {
+        return deliveredFrameCount;
+    }
+
+    public long getShedFrameCount() {
+        return shedFrameCount;
+    }
+
+    public long getShedByteCount() {
+        return shedByteCount;
+    }
+
+    /**
+     * @return number of GOPs shed whole
+     */
+    public long getShedGopCount() {
+        return shedGopCount;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameSheddingMetrics{stream=" + streamName
+                + ", level=" + level
+                + ", pressure=" + pressureCount
+                + ", escalations=" + escalationCount
+                + ", recoveries=" + recoveryCount
+                + ", delivered=" + deliveredFrameCount
+                + ", shedFrames=" + shedFrameCount
+                + ", shedBytes=" + shedByteCount
+                + ", shedGops=" + shedGopCount + '}';
+    }
+}
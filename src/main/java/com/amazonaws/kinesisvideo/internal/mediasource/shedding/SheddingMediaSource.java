@@ -0,0 +1,110 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * MediaSource opting any other media source into frame shedding: the frames it produces go through a
+ * {@link SheddingMediaSourceSink} and the pressure reported for its stream feeds the {@link FrameSheddingController}.
+ * <p>
+ * Register this media source with the client instead of the wrapped one. For the storage pressure to be taken into
+ * account too, the controller has to be added to the {@link SheddingStorageCallbacks} of the client.
+ */
+public class SheddingMediaSource implements MediaSource, PacedMediaSource {
+    private final MediaSource delegate;
+    private final FrameSheddingController controller;
+    private StreamCallbacks streamCallbacks;
+    private MediaSourceSink mediaSourceSink;
+
+    public SheddingMediaSource(@Nonnull final MediaSource delegate,
+                               @Nonnull final FrameSheddingController controller) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.controller = Preconditions.checkNotNull(controller);
+    }
+
+    public FrameSheddingController getController() {
+        return controller;
+    }
+
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        if (delegate instanceof PacedMediaSource) {
+            ((PacedMediaSource) delegate).setPacingClock(pacingClock);
+        }
+    }
+
+    @Override
+    public MediaSourceState getMediaSourceState() {
+        return delegate.getMediaSourceState();
+    }
+
+    @Override
+    public MediaSourceConfiguration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public StreamInfo getStreamInfo() throws KinesisVideoException {
+        return delegate.getStreamInfo();
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        this.mediaSourceSink = new SheddingMediaSourceSink(mediaSourceSink, controller);
+        delegate.initialize(this.mediaSourceSink);
+    }
+
+    @Override
+    public void configure(final MediaSourceConfiguration configuration) {
+        delegate.configure(configuration);
+    }
+
+    @Override
+    public void start() throws KinesisVideoException {
+        delegate.start();
+    }
+
+    @Override
+    public void stop() throws KinesisVideoException {
+        delegate.stop();
+    }
+
+    @Override
+    public boolean isStopped() {
+        return delegate.isStopped();
+    }
+
+    @Override
+    public void free() throws KinesisVideoException {
+        delegate.free();
+    }
+
+    @Override
+    public MediaSourceSink getMediaSourceSink() {
+        return mediaSourceSink;
+    }
+
+    @Nullable
+    @Override
+    public synchronized StreamCallbacks getStreamCallbacks() {
+        if (streamCallbacks == null) {
+            final StreamCallbacks delegateCallbacks = delegate.getStreamCallbacks();
+            streamCallbacks = new SheddingStreamCallbacks(
+                    delegateCallbacks == null ? new DefaultStreamCallbacks() : delegateCallbacks, controller);
+        }
+
+        return streamCallbacks;
+    }
+}
@@ -0,0 +1,54 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * MediaSourceSink letting through only the frames the {@link FrameSheddingController} does not shed.
+ */
+public class SheddingMediaSourceSink implements MediaSourceSink {
+    private final MediaSourceSink delegate;
+    private final FrameSheddingController controller;
+
+    public SheddingMediaSourceSink(@Nonnull final MediaSourceSink delegate,
+                                   @Nonnull final FrameSheddingController controller) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.controller = Preconditions.checkNotNull(controller);
+    }
+
+    @Override
+    public void onFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) throws KinesisVideoException {
+        if (controller.shouldDeliver(kinesisVideoFrame)) {
+            delegate.onFrame(kinesisVideoFrame);
+        }
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData) throws KinesisVideoException {
+        delegate.onCodecPrivateData(codecPrivateData);
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData, final int trackId)
+            throws KinesisVideoException {
+        delegate.onCodecPrivateData(codecPrivateData, trackId);
+    }
+
+    @Override
+    public void onFragmentMetadata(@Nonnull final String metadataName,
+                                   @Nonnull final String metadataValue,
+                                   final boolean persistent) throws KinesisVideoException {
+        delegate.onFragmentMetadata(metadataName, metadataValue, persistent);
+    }
+
+    @Override
+    public KinesisVideoProducerStream getProducerStream() {
+        return delegate.getProducerStream();
+    }
+}
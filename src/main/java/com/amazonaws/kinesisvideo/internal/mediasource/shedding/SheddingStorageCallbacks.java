@@ -0,0 +1,48 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.StorageCallbacks;
+import com.amazonaws.kinesisvideo.storage.DefaultStorageCallbacks;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * StorageCallbacks reporting the storage pressure to the {@link FrameSheddingController} of every stream, since the
+ * content store is shared by all of them, before handing it over to the wrapped callbacks.
+ * <p>
+ * Set on the client configuration with
+ * {@link com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration.Builder#withStorageCallbacks}.
+ */
+@ThreadSafe
+public class SheddingStorageCallbacks implements StorageCallbacks {
+    private final StorageCallbacks delegate;
+    private final List<FrameSheddingController> controllers = new CopyOnWriteArrayList<FrameSheddingController>();
+
+    public SheddingStorageCallbacks() {
+        this(new DefaultStorageCallbacks());
+    }
+
+    public SheddingStorageCallbacks(@Nonnull final StorageCallbacks delegate) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+    }
+
+    public void addController(@Nonnull final FrameSheddingController controller) {
+        controllers.add(Preconditions.checkNotNull(controller));
+    }
+
+    public void removeController(@Nonnull final FrameSheddingController controller) {
+        controllers.remove(controller);
+    }
+
+    @Override
+    public void storageOverflowPressure(final long remainingSize) {
+        for (final FrameSheddingController controller : controllers) {
+            controller.onPressure();
+        }
+
+        delegate.storageOverflowPressure(remainingSize);
+    }
+}
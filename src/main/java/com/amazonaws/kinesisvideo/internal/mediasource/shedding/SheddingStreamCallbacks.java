@@ -0,0 +1,41 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+
+import javax.annotation.Nonnull;
+
+/**
+ * StreamCallbacks reporting the latency and buffer duration pressure and the buffered duration of the stream to a
+ * {@link FrameSheddingController}, before handing every callback over to the wrapped callbacks.
+ */
+public class SheddingStreamCallbacks extends ForwardingStreamCallbacks {
+    private final FrameSheddingController controller;
+
+    public SheddingStreamCallbacks(@Nonnull final StreamCallbacks delegate,
+                                   @Nonnull final FrameSheddingController controller) {
+        super(delegate);
+        this.controller = Preconditions.checkNotNull(controller);
+    }
+
+    @Override
+    public void streamLatencyPressure(final long duration) throws ProducerException {
+        controller.onPressure();
+        super.streamLatencyPressure(duration);
+    }
+
+    @Override
+    public void streamDataAvailable(final long uploadHandle, final long duration, final long availableSize)
+            throws ProducerException {
+        controller.onBufferedDuration(duration);
+        super.streamDataAvailable(uploadHandle, duration, availableSize);
+    }
+
+    @Override
+    public void bufferDurationOverflowPressure(final long remainDuration) throws ProducerException {
+        controller.onPressure();
+        super.bufferDurationOverflowPressure(remainDuration);
+    }
+}
@@ -0,0 +1,265 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.spill;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords;
+import com.amazonaws.kinesisvideo.internal.mediasource.segment.SegmentDirectory;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords.RECORD_HEADER_SIZE;
+
+/**
+ * Append-only log of frames, split into memory-mapped segment files.
+ * <p>
+ * The frames are read back in the order they were appended, and a segment file is deleted once all of its frames have
+ * been read and acknowledged as persisted. The segments left by a previous run are picked up when the log is opened
+ * and their frames are read again, so nothing spilled is lost if the process goes away before it is acknowledged.
+ * <p>
+ * Every record is laid out as {@link FrameRecords}. The magic number of a record is written last, so that a record torn
+ * by a crash is not read back.
+ * <p>
+ * The mapping of a segment is released before its file is deleted, which requires the frames read from it to be done
+ * with: their fragments are persisted by then.
+ */
+@ThreadSafe
+public final class SpillLog {
+    static final int RECORD_MAGIC = 0x4b565346;
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private final Log log = LogFactory.getLog(SpillLog.class);
+    private final SegmentDirectory directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    /**
+     * Read position, the index of the segment in the list and the offset of the next record in it
+     */
+    private int readSegmentIndex;
+    private int readPosition;
+    private long unreadFrameCount;
+    private long unreadByteCount;
+
+    private SpillLog(final SegmentDirectory directory, final int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log in the directory, picking up the frames left there by a previous run.
+     *
+     * @param directory - directory of the segment files, created if needed
+     * @param segmentSize - size of the segment files, larger for the segments of frames which do not fit
+     */
+    @Nonnull
+    public static SpillLog open(@Nonnull final Path directory, final int segmentSize) throws IOException {
+        Preconditions.checkArgument(segmentSize > RECORD_HEADER_SIZE, "Segment size is too small");
+        final SpillLog spillLog = new SpillLog(new SegmentDirectory(directory, SEGMENT_PREFIX), segmentSize);
+        spillLog.recover();
+        return spillLog;
+    }
+
+    public synchronized void append(@Nonnull final KinesisVideoFrame frame) throws IOException {
+        final ByteBuffer data = frame.getData().duplicate();
+        final int recordSize = RECORD_HEADER_SIZE + data.remaining();
+
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.isSealed || segment.buffer.capacity() - segment.writePosition < recordSize) {
+            if (segment != null) {
+                segment.isSealed = true;
+            }
+
+            segment = createSegment(Math.max(segmentSize, recordSize));
+        }
+
+        final MappedByteBuffer buffer = segment.buffer;
+        final int position = segment.writePosition;
+        FrameRecords.putHeader(buffer, position, frame, data.remaining());
+        final ByteBuffer payload = buffer.duplicate();
+        payload.position(position + RECORD_HEADER_SIZE);
+        payload.put(data);
+        buffer.putInt(position + FrameRecords.MAGIC_OFFSET, RECORD_MAGIC);
+
+        segment.writePosition += recordSize;
+        segment.maxDecodingTs = Math.max(segment.maxDecodingTs, frame.getDecodingTs());
+        unreadFrameCount++;
+        unreadByteCount += recordSize;
+    }
+
+    /**
+     * @return the next frame to read, without moving past it, or null if all the frames have been read. The frame
+     * data is a view of the segment and stays valid until the frame is acknowledged.
+     */
+    @Nullable
+    public synchronized KinesisVideoFrame peek() {
+        if (!moveToNextRecord()) {
+            return null;
+        }
+
+        return FrameRecords.getFrame(segments.get(readSegmentIndex).buffer, readPosition);
+    }
+
+    /**
+     * Moves past the frame returned by {@link #peek()}.
+     */
+    public synchronized void advance() {
+        Preconditions.checkState(moveToNextRecord(), "No frame to move past");
+        final int recordSize = RECORD_HEADER_SIZE
+                + FrameRecords.getDataSize(segments.get(readSegmentIndex).buffer, readPosition);
+        readPosition += recordSize;
+        unreadFrameCount--;
+        unreadByteCount -= recordSize;
+    }
+
+    /**
+     * Deletes the segments of which every frame has been read and is older than the timestamp.
+     *
+     * @param persistedTimestamp - timestamp up to which the frames are persisted, in 100ns units
+     * @return number of segments deleted
+     */
+    public synchronized int reclaim(final long persistedTimestamp) {
+        int reclaimed = 0;
+        while (readSegmentIndex > 0 && segments.get(0).maxDecodingTs < persistedTimestamp) {
+            final Segment segment = segments.remove(0);
+            readSegmentIndex--;
+            reclaimed++;
+            SegmentDirectory.unmap(segment.buffer);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (final IOException e) {
+                log.warn("Unable to delete spill segment " + segment.path, e);
+            }
+        }
+
+        return reclaimed;
+    }
+
+    public synchronized boolean isEmpty() {
+        return unreadFrameCount == 0;
+    }
+
+    public synchronized long getUnreadFrameCount() {
+        return unreadFrameCount;
+    }
+
+    /**
+     * @return size of the records not read yet, headers included
+     */
+    public synchronized long getUnreadByteCount() {
+        return unreadByteCount;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes the segments to the disk. The segment files are kept for the log to be opened again.
+     */
+    public synchronized void close() {
+        for (final Segment segment : segments) {
+            segment.buffer.force();
+        }
+
+        segments.clear();
+        readSegmentIndex = 0;
+        readPosition = 0;
+    }
+
+    /**
+     * Moves the read position to the start of the next record, across segments if needed.
+     *
+     * @return whether there is a record to read
+     */
+    private boolean moveToNextRecord() {
+        while (readSegmentIndex < segments.size()) {
+            final Segment segment = segments.get(readSegmentIndex);
+            if (readPosition < segment.writePosition) {
+                return true;
+            }
+
+            if (readSegmentIndex == segments.size() - 1) {
+                return false;
+            }
+
+            readSegmentIndex++;
+            readPosition = 0;
+        }
+
+        return false;
+    }
+
+    private Segment createSegment(final int size) throws IOException {
+        final Path path = directory.nextSegmentPath();
+        final Segment segment = new Segment(path, map(path, size));
+        segments.add(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        for (final Path path : directory.listSegments()) {
+            final Segment segment = new Segment(path, map(path, (int) Files.size(path)));
+            segment.isSealed = true;
+            scan(segment);
+            if (segment.writePosition == 0) {
+                SegmentDirectory.unmap(segment.buffer);
+                Files.deleteIfExists(path);
+                continue;
+            }
+
+            segments.add(segment);
+        }
+
+        if (!segments.isEmpty()) {
+            log.info("Recovered " + unreadFrameCount + " spilled frames in " + segments.size() + " segments from "
+                    + directory.getDirectory());
+        }
+    }
+
+    private void scan(final Segment segment) {
+        segment.writePosition = FrameRecords.scan(segment.buffer, (buffer, position, magic, dataSize) -> {
+            if (magic != RECORD_MAGIC) {
+                return false;
+            }
+
+            segment.maxDecodingTs = Math.max(segment.maxDecodingTs, FrameRecords.getDecodingTs(buffer, position));
+            unreadFrameCount++;
+            unreadByteCount += RECORD_HEADER_SIZE + dataSize;
+            return true;
+        });
+    }
+
+    private static MappedByteBuffer map(final Path path, final int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long maxDecodingTs = Long.MIN_VALUE;
+        private boolean isSealed;
+
+        private Segment(final Path path, final MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
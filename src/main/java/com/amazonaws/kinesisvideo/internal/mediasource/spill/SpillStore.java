@@ -0,0 +1,112 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.spill;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.producer.StorageCallbacks;
+import com.amazonaws.kinesisvideo.producer.StorageInfo;
+import com.amazonaws.kinesisvideo.storage.DefaultStorageCallbacks;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Overflow tier of the content store on the disk, laid out under the root directory of the {@link StorageInfo}.
+ * <p>
+ * Every stream spills to a {@link SpillLog} of its own. When the storage overflow pressure reports the content store
+ * filled past the spill ratio, all the streams start spilling, and each of them resumes once the content it has
+ * buffered has drained under half the spill ratio of the content store.
+ * <p>
+ * Set on the client configuration with
+ * {@link com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration.Builder#withStorageCallbacks}, and opt the
+ * media sources in with {@link SpillingMediaSource}.
+ */
+@ThreadSafe
+public class SpillStore implements StorageCallbacks {
+    public static final String SPILL_DIRECTORY_NAME = "kvs-spill";
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int PERCENT = 100;
+
+    private final StorageCallbacks delegate;
+    private final Path directory;
+    private final long storageSize;
+    private final int spillRatio;
+    private final int segmentSize;
+    private final int replayBatchSize;
+    private final List<SpillingMediaSourceSink> sinks = new CopyOnWriteArrayList<SpillingMediaSourceSink>();
+
+    public SpillStore(@Nonnull final StorageInfo storageInfo) {
+        this(storageInfo, new DefaultStorageCallbacks(), DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SpillStore(@Nonnull final StorageInfo storageInfo,
+                      @Nonnull final StorageCallbacks delegate,
+                      final int segmentSize) {
+        this(storageInfo, delegate, segmentSize, SpillingMediaSourceSink.DEFAULT_REPLAY_BATCH_SIZE);
+    }
+
+    /**
+     * @param storageInfo - storage the content store is configured with
+     * @param delegate - storage callbacks to hand the storage pressure over to
+     * @param segmentSize - size of the segment files of the spill logs
+     * @param replayBatchSize - number of spilled frames first replayed along with every new frame, see
+     *                        {@link SpillingMediaSourceSink}
+     */
+    public SpillStore(@Nonnull final StorageInfo storageInfo,
+                      @Nonnull final StorageCallbacks delegate,
+                      final int segmentSize,
+                      final int replayBatchSize) {
+        Preconditions.checkNotNull(storageInfo);
+        Preconditions.checkArgument(storageInfo.getSpillRatio() > 0 && storageInfo.getSpillRatio() <= PERCENT,
+                "Spill ratio should be a percentage");
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.directory = Paths.get(storageInfo.getRootDirectory(), SPILL_DIRECTORY_NAME);
+        this.storageSize = storageInfo.getStorageSize();
+        this.spillRatio = storageInfo.getSpillRatio();
+        this.segmentSize = segmentSize;
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    /**
+     * Creates the sink spilling the frames of a stream, picking up the frames the stream left spilled on a previous
+     * run.
+     */
+    @Nonnull
+    public SpillingMediaSourceSink createSink(@Nonnull final String streamName,
+                                              @Nonnull final MediaSourceSink delegate) throws IOException {
+        final SpillLog spillLog = SpillLog.open(directory.resolve(streamName), segmentSize);
+        final SpillingMediaSourceSink sink = new SpillingMediaSourceSink(streamName,
+                delegate,
+                spillLog,
+                storageSize * spillRatio / PERCENT / 2,
+                replayBatchSize);
+        sinks.add(sink);
+        return sink;
+    }
+
+    public void releaseSink(@Nonnull final SpillingMediaSourceSink sink) {
+        if (sinks.remove(sink)) {
+            sink.close();
+        }
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void storageOverflowPressure(final long remainingSize) {
+        if ((storageSize - remainingSize) * PERCENT >= storageSize * spillRatio) {
+            for (final SpillingMediaSourceSink sink : sinks) {
+                sink.startSpilling();
+            }
+        }
+
+        delegate.storageOverflowPressure(remainingSize);
+    }
+}
@@ -0,0 +1,133 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.spill;
+
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * MediaSource opting any other media source into spilling to the disk: the frames it produces go through a
+ * {@link SpillingMediaSourceSink} of the {@link SpillStore}, which is told about the fragment acks of its stream to
+ * find out when the stream has drained and which of its fragments are persisted.
+ * <p>
+ * Register this media source with the client instead of the wrapped one, the client being configured with the
+ * {@link SpillStore} as its storage callbacks.
+ */
+public class SpillingMediaSource implements MediaSource, PacedMediaSource {
+    private final MediaSource delegate;
+    private final SpillStore spillStore;
+    private StreamCallbacks streamCallbacks;
+    private volatile SpillingMediaSourceSink mediaSourceSink;
+
+    public SpillingMediaSource(@Nonnull final MediaSource delegate,
+                               @Nonnull final SpillStore spillStore) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.spillStore = Preconditions.checkNotNull(spillStore);
+    }
+
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        if (delegate instanceof PacedMediaSource) {
+            ((PacedMediaSource) delegate).setPacingClock(pacingClock);
+        }
+    }
+
+    @Override
+    public MediaSourceState getMediaSourceState() {
+        return delegate.getMediaSourceState();
+    }
+
+    @Override
+    public MediaSourceConfiguration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public StreamInfo getStreamInfo() throws KinesisVideoException {
+        return delegate.getStreamInfo();
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        final String streamName = delegate.getStreamInfo().getName();
+        try {
+            this.mediaSourceSink = spillStore.createSink(streamName, mediaSourceSink);
+        } catch (final IOException e) {
+            throw new KinesisVideoException("Unable to open the spill log of stream " + streamName, e);
+        }
+
+        delegate.initialize(this.mediaSourceSink);
+    }
+
+    @Override
+    public void configure(final MediaSourceConfiguration configuration) {
+        delegate.configure(configuration);
+    }
+
+    @Override
+    public void start() throws KinesisVideoException {
+        delegate.start();
+    }
+
+    @Override
+    public void stop() throws KinesisVideoException {
+        delegate.stop();
+    }
+
+    @Override
+    public boolean isStopped() {
+        return delegate.isStopped();
+    }
+
+    @Override
+    public void free() throws KinesisVideoException {
+        delegate.free();
+        final SpillingMediaSourceSink sink = mediaSourceSink;
+        if (sink != null) {
+            spillStore.releaseSink(sink);
+        }
+    }
+
+    @Override
+    public MediaSourceSink getMediaSourceSink() {
+        return mediaSourceSink;
+    }
+
+    @Nullable
+    @Override
+    public synchronized StreamCallbacks getStreamCallbacks() {
+        if (streamCallbacks == null) {
+            final StreamCallbacks delegateCallbacks = delegate.getStreamCallbacks();
+            streamCallbacks = new ForwardingStreamCallbacks(
+                    delegateCallbacks == null ? new DefaultStreamCallbacks() : delegateCallbacks) {
+                @Override
+                public void fragmentAckReceived(final long uploadHandle,
+                                                @Nonnull final KinesisVideoFragmentAck fragmentAck)
+                        throws ProducerException {
+                    final SpillingMediaSourceSink sink = mediaSourceSink;
+                    if (sink != null) {
+                        sink.onFragmentAck(fragmentAck);
+                    }
+
+                    super.fragmentAckReceived(uploadHandle, fragmentAck);
+                }
+            };
+        }
+
+        return streamCallbacks;
+    }
+}
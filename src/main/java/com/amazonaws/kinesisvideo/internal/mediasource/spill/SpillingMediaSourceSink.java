@@ -0,0 +1,234 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.spill;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.producer.FragmentAckType;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+
+/**
+ * MediaSourceSink diverting the frames to a {@link SpillLog} on the disk while the content store is under pressure,
+ * rather than having the content store evict them.
+ * <p>
+ * The stream having nothing new put into it while spilling, whether it has drained is checked against the size of its
+ * content view on every fragment ack, which keep coming for as long as the stream has content to upload.
+ * <p>
+ * Once the stream has drained, the spilled frames are replayed into the stream in order, a batch of them along with
+ * every new frame, which is itself spilled behind them until the log has been caught up with. The batch doubles every
+ * time the stream takes a whole one, up to {@link #MAX_REPLAY_BATCH_SIZE}, so that a large backlog is caught up with
+ * at an increasing rate, and shrinks back when the stream comes under pressure again. The segments of the log are
+ * reclaimed as the fragments are acknowledged as persisted.
+ */
+@ThreadSafe
+public class SpillingMediaSourceSink implements MediaSourceSink {
+    /**
+     * Number of spilled frames first replayed along with every new frame
+     */
+    public static final int DEFAULT_REPLAY_BATCH_SIZE = 4;
+
+    /**
+     * Largest number of spilled frames replayed along with a new frame, bounding the time the frame is held up for
+     */
+    public static final int MAX_REPLAY_BATCH_SIZE = 256;
+
+    private final Log log = LogFactory.getLog(SpillingMediaSourceSink.class);
+    private final String streamName;
+    private final MediaSourceSink delegate;
+    private final SpillLog spillLog;
+    private final long resumeSize;
+    private final int replayBatchSize;
+
+    @GuardedBy("this")
+    private boolean isSpilling;
+    @GuardedBy("this")
+    private int currentReplayBatchSize;
+    @GuardedBy("this")
+    private long spilledFrameCount;
+    @GuardedBy("this")
+    private long replayedFrameCount;
+
+    /**
+     * @param streamName - name of the stream, for logging
+     * @param delegate - sink to put the frames into
+     * @param spillLog - log to spill the frames to
+     * @param resumeSize - size of the content buffered in the stream under which replaying starts, in bytes
+     * @param replayBatchSize - number of spilled frames first replayed along with every new frame
+     */
+    public SpillingMediaSourceSink(@Nonnull final String streamName,
+                                   @Nonnull final MediaSourceSink delegate,
+                                   @Nonnull final SpillLog spillLog,
+                                   final long resumeSize,
+                                   final int replayBatchSize) {
+        Preconditions.checkArgument(replayBatchSize > 0, "Replay batch size should be positive");
+        this.streamName = Preconditions.checkNotNull(streamName);
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.spillLog = Preconditions.checkNotNull(spillLog);
+        this.resumeSize = resumeSize;
+        this.replayBatchSize = replayBatchSize;
+        this.currentReplayBatchSize = replayBatchSize;
+    }
+
+    @Override
+    public synchronized void onFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) throws KinesisVideoException {
+        Preconditions.checkNotNull(kinesisVideoFrame);
+        if (!isSpilling && spillLog.isEmpty()) {
+            delegate.onFrame(kinesisVideoFrame);
+            return;
+        }
+
+        try {
+            spillLog.append(kinesisVideoFrame);
+        } catch (final IOException e) {
+            throw new KinesisVideoException("Unable to spill frame of stream " + streamName, e);
+        }
+
+        spilledFrameCount++;
+        if (!isSpilling && replay(currentReplayBatchSize) == currentReplayBatchSize) {
+            // The stream keeps up, catch up faster
+            currentReplayBatchSize = Math.max(replayBatchSize,
+                    Math.min(currentReplayBatchSize * 2, MAX_REPLAY_BATCH_SIZE));
+        }
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData) throws KinesisVideoException {
+        delegate.onCodecPrivateData(codecPrivateData);
+    }
+
+    @Override
+    public void onCodecPrivateData(@Nullable final byte[] codecPrivateData, final int trackId)
+            throws KinesisVideoException {
+        delegate.onCodecPrivateData(codecPrivateData, trackId);
+    }
+
+    @Override
+    public void onFragmentMetadata(@Nonnull final String metadataName,
+                                   @Nonnull final String metadataValue,
+                                   final boolean persistent) throws KinesisVideoException {
+        delegate.onFragmentMetadata(metadataName, metadataValue, persistent);
+    }
+
+    @Override
+    public KinesisVideoProducerStream getProducerStream() {
+        return delegate.getProducerStream();
+    }
+
+    /**
+     * Starts spilling the new frames, the content store being under pressure.
+     */
+    public synchronized void startSpilling() {
+        if (!isSpilling) {
+            log.info("Stream " + streamName + " under storage pressure, spilling frames to the disk");
+            isSpilling = true;
+            currentReplayBatchSize = replayBatchSize;
+        }
+    }
+
+    /**
+     * Reports the size of the content buffered in the stream, to resume once it has drained.
+     */
+    public synchronized void onBufferedSize(final long bufferedSize) {
+        if (isSpilling && bufferedSize <= resumeSize) {
+            log.info("Stream " + streamName + " drained, replaying " + spillLog.getUnreadFrameCount()
+                    + " spilled frames");
+            isSpilling = false;
+        }
+    }
+
+    /**
+     * Reclaims the spilled frames once their fragments are persisted, and checks whether the stream has drained.
+     */
+    public void onFragmentAck(@Nonnull final KinesisVideoFragmentAck fragmentAck) {
+        if (fragmentAck.getAckType().getIntType() == FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED) {
+            spillLog.reclaim(fragmentAck.getTimestamp());
+        }
+
+        if (isSpilling()) {
+            checkDrained();
+        }
+    }
+
+    /**
+     * Replays all the spilled frames, whether the stream has drained or not.
+     */
+    public synchronized void drain() throws KinesisVideoException {
+        replay(Integer.MAX_VALUE);
+    }
+
+    public synchronized boolean isSpilling() {
+        return isSpilling;
+    }
+
+    public synchronized long getSpilledFrameCount() {
+        return spilledFrameCount;
+    }
+
+    public synchronized long getReplayedFrameCount() {
+        return replayedFrameCount;
+    }
+
+    /**
+     * @return number of spilled frames replayed along with the next new frame
+     */
+    public synchronized int getReplayBatchSize() {
+        return currentReplayBatchSize;
+    }
+
+    /**
+     * @return number of spilled frames waiting to be replayed
+     */
+    public long getPendingFrameCount() {
+        return spillLog.getUnreadFrameCount();
+    }
+
+    /**
+     * Flushes the spill log, leaving the frames not replayed yet to the next run.
+     */
+    public void close() {
+        spillLog.close();
+    }
+
+    private void checkDrained() {
+        final KinesisVideoProducerStream stream = delegate.getProducerStream();
+        if (stream == null) {
+            return;
+        }
+
+        try {
+            onBufferedSize(stream.getMetrics().getOverallViewSize());
+        } catch (final ProducerException e) {
+            log.error("Unable to get the metrics of stream " + streamName + ", still spilling", e);
+        }
+    }
+
+    /**
+     * @return number of frames replayed
+     */
+    @GuardedBy("this")
+    private int replay(final int maxFrames) throws KinesisVideoException {
+        for (int i = 0; i < maxFrames; i++) {
+            final KinesisVideoFrame frame = spillLog.peek();
+            if (frame == null) {
+                return i;
+            }
+
+            // The frame stays in the log if the stream does not take it
+            delegate.onFrame(frame);
+            spillLog.advance();
+            replayedFrameCount++;
+        }
+
+        return maxFrames;
+    }
+}
@@ -0,0 +1,123 @@
+package com.amazonaws.kinesisvideo.internal.producer.client;
+
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentialsProvider;
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous flavor of the {@link KinesisVideoServiceClient}.
+ * <p>
+ * None of the calls block the calling thread on network I/O. The returned futures are completed with the result
+ * or exceptionally with a {@link com.amazonaws.kinesisvideo.common.exception.KinesisVideoException} wrapping the
+ * service error, so the status code can be extracted the same way as for the blocking calls.
+ */
+public interface KinesisVideoServiceAsyncClient extends KinesisVideoServiceClient {
+
+    /**
+     * Create a stream on KinesisVideo frontend
+     *
+     * @param streamName             - Name of stream to create
+     * @param deviceName             - Device name of stream to create
+     * @param contentType            - Content type of stream to create
+     * @param kmsKeyId               - KMS Key Id
+     * @param retentionPeriodInHours - Stream retention period in hours
+     * @param timeoutInMillis        - Timeout in milliseconds
+     * @param kinesisVideoCredentialsProvider - Credentials to use
+     * @return future of the StreamArn of stream just created
+     */
+    CompletableFuture<String> createStreamAsync(@Nonnull final String streamName,
+                                                @Nonnull final String deviceName,
+                                                @Nonnull final String contentType,
+                                                @Nullable final String kmsKeyId,
+                                                long retentionPeriodInHours,
+                                                long timeoutInMillis,
+                                                @Nullable final KinesisVideoCredentialsProvider
+                                                        kinesisVideoCredentialsProvider);
+
+    /**
+     * Describe the status of a stream
+     *
+     * @param streamName             - Name of stream to describe
+     * @param timeoutInMillis        - Timeout in milliseconds
+     * @param kinesisVideoCredentialsProvider - Credentials to use
+     * @return future of the stream description
+     */
+    CompletableFuture<StreamDescription> describeStreamAsync(@Nonnull final String streamName,
+                                                             long timeoutInMillis,
+                                                             @Nullable final KinesisVideoCredentialsProvider
+                                                                     kinesisVideoCredentialsProvider);
+
+    /**
+     * Tag a stream of a specified ARN with a list of tags.
+     *
+     * @param streamArn              - ARN of the stream to be tagged
+     * @param tags                   - Map of key-value pair
+     * @param timeoutInMillis        - Timeout in milliseconds
+     * @param kinesisVideoCredentialsProvider - Credentials to use
+     * @return future which completes when the stream has been tagged
+     */
+    CompletableFuture<Void> tagStreamAsync(@Nonnull final String streamArn,
+                                           @Nullable final Map<String, String> tags,
+                                           long timeoutInMillis,
+                                           @Nullable final KinesisVideoCredentialsProvider
+                                                   kinesisVideoCredentialsProvider);
+
+    /**
+     * Get data endpoint to be used by PutMedia for the specified stream.
+     *
+     * @param streamName             - Name of the stream
+     * @param apiName                - Api name to call
+     * @param timeoutInMillis        - Timeout in milliseconds
+     * @param kinesisVideoCredentialsProvider - Credentials to use
+     * @return future of the endpoint to which PutMedia API is sent
+     */
+    CompletableFuture<String> getDataEndpointAsync(@Nonnull final String streamName,
+                                                   @Nonnull final String apiName,
+                                                   long timeoutInMillis,
+                                                   @Nullable final KinesisVideoCredentialsProvider
+                                                           kinesisVideoCredentialsProvider);
+
+    /**
+     * Puts media as a long-running operation.
+     * <p>
+     * NOTE: The returned future completes once the connection has been established and the signed request has been
+     * sent. The response is delivered to the acks consumer, which is responsible for the response handshake.
+     *
+     * @param streamName                - Name of the stream
+     * @param containerType             - Container type
+     * @param streamStartTimeInMillis   - Stream start time
+     * @param absoluteFragmentTimes     - Whether to use absolute fragment times
+     * @param ackRequired               - Whether acks are required
+     * @param dataEndpoint              - The data endpoint to use
+     * @param timeoutInMillis           - Timeout in milliseconds
+     * @param kinesisVideoCredentialsProvider - Credentials to use
+     * @param dataStream                - Data {@link InputStream}
+     * @param acksConsumer              - Consumer of the ACK input stream
+     * @param completionCallback        - Consumer of an Exception for reporting stream termination
+     * @return future which completes when the request has been sent
+     */
+    // CHECKSTYLE:SUPPRESS:ParameterNumber
+    CompletableFuture<Void> putMediaAsync(@Nonnull final String streamName,
+                                          @Nonnull final String containerType,
+                                          final long streamStartTimeInMillis,
+                                          final boolean absoluteFragmentTimes,
+                                          final boolean ackRequired,
+                                          @Nonnull final String dataEndpoint,
+                                          long timeoutInMillis,
+                                          @Nullable final KinesisVideoCredentialsProvider
+                                                  kinesisVideoCredentialsProvider,
+                                          @Nonnull final InputStream dataStream,
+                                          @Nonnull final Consumer<InputStream> acksConsumer,
+                                          @Nullable final Consumer<Exception> completionCallback);
+
+    /**
+     * Releases the threads and the connections of the asynchronous calls. The client can not be used after that.
+     */
+    void free();
+}
@@ -69,6 +69,11 @@ public class NativeKinesisVideoProducerJni implements KinesisVideoProducer {
      */
     private boolean mLibraryInitialized = false;
 
+    /**
+     * Time it took to load the native library
+     */
+    private long mLibraryLoadTimeInNanos = 0;
+
     /**
      * Indicates whether the producer object is ready for creating streams, etc..
      */
@@ -243,6 +248,7 @@ public class NativeKinesisVideoProducerJni implements KinesisVideoProducer {
      */
     public void createSync(final @Nonnull DeviceInfo deviceInfo, final @Nonnull String nativeLibraryPath) throws ProducerException
     {
+        final long startTime = System.nanoTime();
         create(deviceInfo, nativeLibraryPath);
 
         // Block until client is ready or it times out.
@@ -253,6 +259,11 @@ public class NativeKinesisVideoProducerJni implements KinesisVideoProducer {
         } catch (final InterruptedException ex) {
             throw new ProducerException(ex);
         }
+
+        // The start-up time of the restarts, the library load included
+        mLog.info("Kinesis Video producer ready in {} ms, {} ms of which loading the native library",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                TimeUnit.NANOSECONDS.toMillis(mLibraryLoadTimeInNanos));
     }
 
     /**
@@ -1172,10 +1183,13 @@ public class NativeKinesisVideoProducerJni implements KinesisVideoProducer {
     private void initializeLibrary(final @Nonnull String nativeLibraryPath) throws ProducerException
     {
         // Load the native library
+        final long startTime = System.nanoTime();
         if (!mLibraryLoader.loadNativeLibrary(nativeLibraryPath, PRODUCER_NATIVE_LIBRARY_NAME)) {
             throw new ProducerException("Failed loading native library", STATUS_INVALID_OPERATION);
         }
 
+        mLibraryLoadTimeInNanos = System.nanoTime() - startTime;
+
         // Check the library version info
         final String libraryVersion = getNativeLibraryVersion();
 
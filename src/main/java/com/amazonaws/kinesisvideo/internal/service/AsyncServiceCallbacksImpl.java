@@ -0,0 +1,353 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentialsProvider;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.ServiceCallbacks;
+import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceAsyncClient;
+import com.amazonaws.kinesisvideo.internal.service.ServiceCallBulkheads.OperationClass;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import com.amazonaws.kinesisvideo.producer.Time;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_BAD_REQUEST;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_NOT_FOUND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_OK;
+
+/**
+ * Implementation of {@link ServiceCallbacks} on top of the {@link KinesisVideoServiceAsyncClient}.
+ * <p>
+ * The executor is only used to honor the call-after time and to report the results back to the producer.
+ * The service calls and the PutMedia response handshake complete asynchronously, so the executor threads
+ * are never tied up while waiting on the network, no matter how slow an endpoint is.
+ * <p>
+ * {@link #getStreamingToken} is the exception and stays the synchronous one of {@link DefaultServiceCallbacksImpl}:
+ * there is no streaming token service call, the token being the credentials of the
+ * {@link KinesisVideoCredentialsProvider}, whose refresh is blocking and has no asynchronous counterpart. A refresh
+ * ties up an executor thread for as long as the provider takes, which for a provider fetching its credentials over
+ * the network is the length of that fetch. With {@link ServiceCallBulkheads}, the token fetches run in a bulkhead of
+ * their own so that a slow provider can't hold up the other calls.
+ */
+public class AsyncServiceCallbacksImpl extends DefaultServiceCallbacksImpl {
+    /**
+     * Async service client to make the service calls with.
+     */
+    private final KinesisVideoServiceAsyncClient kinesisVideoServiceAsyncClient;
+
+    public AsyncServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceAsyncClient kinesisVideoServiceAsyncClient) {
+        this(log, executor, configuration, kinesisVideoServiceAsyncClient, createBulkheads(log, configuration));
+    }
+
+    public AsyncServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceAsyncClient kinesisVideoServiceAsyncClient,
+            @Nullable final ServiceCallBulkheads bulkheads) {
+        this(log, executor, configuration, kinesisVideoServiceAsyncClient, bulkheads,
+                createReconnectScheduler(log, executor, configuration));
+    }
+
+    public AsyncServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceAsyncClient kinesisVideoServiceAsyncClient,
+            @Nullable final ServiceCallBulkheads bulkheads,
+            @Nullable final ReconnectAdmissionScheduler reconnectScheduler) {
+        super(log, executor, configuration, kinesisVideoServiceAsyncClient, bulkheads, reconnectScheduler);
+        this.kinesisVideoServiceAsyncClient = Preconditions.checkNotNull(kinesisVideoServiceAsyncClient);
+    }
+
+    @Override
+    public synchronized void free() {
+        super.free();
+        kinesisVideoServiceAsyncClient.free();
+    }
+
+    @Override
+    public void createStream(@Nonnull final String deviceName,
+                             @Nonnull final String streamName,
+                             @Nonnull final String contentType,
+                             @Nullable final String kmsKeyId,
+                             final long retentionPeriod,
+                             final long callAfter,
+                             final long timeout,
+                             @Nullable final byte[] authData,
+                             final int authType,
+                             final long customData)
+            throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final long delay = calculateRelativeServiceCallAfter(callAfter);
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                final KinesisVideoCredentialsProvider credentialsProvider = getCredentialsProvider(authData, log);
+                final long retentionInHours = retentionPeriod / Time.HUNDREDS_OF_NANOS_IN_AN_HOUR;
+                final long timeoutInMillis = timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+
+                kinesisVideoServiceAsyncClient.createStreamAsync(
+                        streamName,
+                        deviceName,
+                        contentType,
+                        kmsKeyId,
+                        retentionInHours,
+                        timeoutInMillis,
+                        credentialsProvider)
+                        .whenCompleteAsync((streamArn, e) -> {
+                            final int statusCode = getStatusCode(e);
+                            try {
+                                kinesisVideoProducer.createStreamResult(customData, streamArn, statusCode);
+                            } catch (final ProducerException ex) {
+                                log.error("Reporting create stream result threw an exception", ex);
+                            }
+                        }, executor);
+            }
+        };
+
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.createStreamResult(customData, null, statusCode)),
+                delay);
+    }
+
+    @Override
+    public void describeStream(
+            @Nonnull final String streamName,
+            final long callAfter,
+            final long timeout,
+            @Nullable final byte[] authData,
+            final int authType,
+            final long streamHandle,
+            final KinesisVideoProducerStream stream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final long delay = calculateRelativeServiceCallAfter(callAfter);
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                final KinesisVideoCredentialsProvider credentialsProvider = getCredentialsProvider(authData, log);
+                final long timeoutInMillis = timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+
+                kinesisVideoServiceAsyncClient.describeStreamAsync(streamName, timeoutInMillis, credentialsProvider)
+                        .whenCompleteAsync((streamDescription, e) -> {
+                            final int statusCode = getStatusCode(e);
+                            try {
+                                kinesisVideoProducer.describeStreamResult(stream, streamHandle,
+                                        streamDescription, statusCode);
+                            } catch (final ProducerException ex) {
+                                log.error("Reporting describe stream result threw an exception", ex);
+                            }
+                        }, executor);
+            }
+        };
+
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.describeStreamResult(stream, streamHandle, null, statusCode)),
+                delay);
+    }
+
+    @Override
+    public void getStreamingEndpoint(
+            @Nonnull final String streamName,
+            @Nonnull final String apiName,
+            final long callAfter,
+            final long timeout,
+            @Nullable final byte[] authData,
+            final int authType,
+            final long streamHandle,
+            final KinesisVideoProducerStream stream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final long delay = calculateRelativeServiceCallAfter(callAfter);
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                final KinesisVideoCredentialsProvider credentialsProvider = getCredentialsProvider(authData, log);
+                final long timeoutInMillis = timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+
+                kinesisVideoServiceAsyncClient.getDataEndpointAsync(streamName, apiName, timeoutInMillis,
+                        credentialsProvider)
+                        .whenCompleteAsync((dataEndpoint, e) -> {
+                            int statusCode = getStatusCode(e);
+                            final String endpoint = dataEndpoint == null ? "" : dataEndpoint;
+                            if (statusCode != HTTP_OK && isBlank(endpoint)) {
+                                statusCode = HTTP_NOT_FOUND;
+                            }
+
+                            try {
+                                kinesisVideoProducer.getStreamingEndpointResult(stream, streamHandle, endpoint,
+                                        statusCode);
+                            } catch (final ProducerException ex) {
+                                log.error("Reporting streaming endpoint result threw an exception", ex);
+                            }
+                        }, executor);
+            }
+        };
+
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.getStreamingEndpointResult(stream, streamHandle, "", statusCode)),
+                delay);
+    }
+
+    @Override
+    public void putStream(
+            @Nonnull final String streamName,
+            @Nonnull final String containerType,
+            final long streamStartTime,
+            final boolean absoluteFragmentTimes,
+            final boolean ackRequired,
+            @Nonnull final String dataEndpoint,
+            final long callAfter,
+            final long timeout,
+            @Nullable final byte[] authData,
+            final int authType,
+            final KinesisVideoProducerStream kinesisVideoProducerStream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final long delay = calculateRelativeServiceCallAfter(callAfter);
+
+        // The rejection reports the result for the same upload handle the connect would have used
+        final long clientUploadHandle = getUploadHandle();
+
+        final ReconnectAdmissionScheduler.ConnectTask task = new ReconnectAdmissionScheduler.ConnectTask() {
+            @Override
+            public void run(@Nonnull final Runnable onConnected) {
+
+                if (kinesisVideoProducerStream == null) {
+                    throw new IllegalStateException("Couldn't find the correct stream");
+                }
+
+                final long timeoutInMillis = timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+                final long streamStartTimeInMillis = streamStartTime / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+                final KinesisVideoCredentialsProvider credentialsProvider = getCredentialsProvider(authData, log);
+
+                CompletableFuture<Void> handshake;
+                try {
+                    final InputStream dataStream = kinesisVideoProducerStream.getDataStream(clientUploadHandle);
+                    final AckConsumer ackConsumer = new AckConsumer(clientUploadHandle, kinesisVideoProducerStream,
+                            log);
+                    final BlockingAckConsumer blockingAckConsumer = new BlockingAckConsumer(ackConsumer, log,
+                            kinesisVideoProducerStream);
+                    final CompletionCallback completionCallback = new CompletionCallback(kinesisVideoProducerStream,
+                            clientUploadHandle);
+
+                    // Connect in the background and complete once the response status has been parsed
+                    handshake = kinesisVideoServiceAsyncClient.putMediaAsync(streamName,
+                            containerType,
+                            streamStartTimeInMillis,
+                            absoluteFragmentTimes,
+                            ackRequired,
+                            dataEndpoint,
+                            timeoutInMillis,
+                            credentialsProvider,
+                            dataStream,
+                            blockingAckConsumer,
+                            completionCallback)
+                            .thenCompose(connected -> blockingAckConsumer.awaitResponseAsync(executor));
+                } catch (final KinesisVideoException e) {
+                    handshake = new CompletableFuture<Void>();
+                    handshake.completeExceptionally(e);
+                }
+
+                handshake.whenCompleteAsync((result, e) -> {
+                    onConnected.run();
+                    final int statusCode = getStatusCode(e);
+                    try {
+                        log.info("putStreamResult uploadHandle {} {}", clientUploadHandle, statusCode);
+                        kinesisVideoProducer.putStreamResult(kinesisVideoProducerStream, clientUploadHandle,
+                                statusCode);
+                    } catch (final ProducerException ex) {
+                        log.error("Reporting put stream result threw an exception", ex);
+                    }
+                }, executor);
+            }
+        };
+
+        scheduleConnect(dataEndpoint, kinesisVideoProducerStream, task, reportRejection(statusCode ->
+                kinesisVideoProducer.putStreamResult(kinesisVideoProducerStream, clientUploadHandle, statusCode)),
+                delay);
+    }
+
+    @Override
+    public void tagResource(@Nonnull final String resourceArn,
+                            @Nullable final Tag[] tags,
+                            final long callAfter,
+                            final long timeout,
+                            @Nullable final byte[] authData,
+                            final int authType,
+                            final long streamHandle,
+                            final KinesisVideoProducerStream stream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final long delay = calculateRelativeServiceCallAfter(callAfter);
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                final KinesisVideoCredentialsProvider credentialsProvider = getCredentialsProvider(authData, log);
+                final long timeoutInMillis = timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+
+                Map<String, String> tagsMap = null;
+                if (null != tags) {
+                    // Convert the tags to map
+                    tagsMap = new HashMap<String, String>(tags.length);
+
+                    for (final Tag tag : tags) {
+                        tagsMap.put(tag.getName(), tag.getValue());
+                    }
+                }
+
+                kinesisVideoServiceAsyncClient.tagStreamAsync(resourceArn, tagsMap, timeoutInMillis,
+                        credentialsProvider)
+                        .whenCompleteAsync((result, e) -> {
+                            final int statusCode = getStatusCode(e) == HTTP_OK ? HTTP_OK : HTTP_BAD_REQUEST;
+                            try {
+                                kinesisVideoProducer.tagResourceResult(stream, streamHandle, statusCode);
+                            } catch (final ProducerException ex) {
+                                log.error("Reporting tag resource result threw an exception", ex);
+                            }
+                        }, executor);
+            }
+        };
+
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.tagResourceResult(stream, streamHandle, statusCode)),
+                delay);
+    }
+
+    /**
+     * Returns the status code to report for the outcome of an async call.
+     *
+     * @param e - exception the future has completed with or null on success
+     * @return status code corresponding to the outcome
+     */
+    private int getStatusCode(@Nullable final Throwable e) {
+        if (e == null) {
+            return HTTP_OK;
+        }
+
+        final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("Kinesis Video service client returned an error. Reporting to Kinesis Video PIC.", cause);
+        return getStatusCodeFromException(cause);
+    }
+}
@@ -15,7 +15,10 @@ import javax.annotation.Nonnull;
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
 
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 class BlockingAckConsumer implements Consumer<InputStream> {
@@ -26,6 +29,7 @@ class BlockingAckConsumer implements Consumer<InputStream> {
     private static final int HTTP_ACCESS_DENIED = 403;
     private final Consumer<InputStream> inputStreamConsumer;
     private final CountDownLatch responseLatch;
+    private final CompletableFuture<Void> responseFuture;
     private Exception storedException;
     private Logger log;
     private KinesisVideoProducerStream kinesisVideoProducerStream;
@@ -34,6 +38,7 @@ class BlockingAckConsumer implements Consumer<InputStream> {
                                @Nonnull final KinesisVideoProducerStream kinesisVideoProducerStream) {
         this.inputStreamConsumer = checkNotNull(inputStreamConsumer);
         this.responseLatch = new CountDownLatch(1);
+        this.responseFuture = new CompletableFuture<Void>();
         this.log = log;
         this.kinesisVideoProducerStream = kinesisVideoProducerStream;
     }
@@ -68,6 +73,7 @@ class BlockingAckConsumer implements Consumer<InputStream> {
         }
         finally {
             responseLatch.countDown();
+            completeResponseFuture();
         }
 
         // Forward to the origin if no exceptions have been thrown
@@ -76,6 +82,34 @@ class BlockingAckConsumer implements Consumer<InputStream> {
         }
     }
 
+    /**
+     * Non-blocking counterpart of {@link #awaitResponse()}.
+     *
+     * @param timer - executor used to time out the response
+     * @return future which completes when the response status has been parsed, or exceptionally with a
+     * {@link KinesisVideoException} if the call failed or the response has not arrived in time
+     */
+    public CompletableFuture<Void> awaitResponseAsync(@Nonnull final ScheduledExecutorService timer) {
+        final ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                responseFuture.completeExceptionally(new KinesisVideoException("Getting PutMedia Response timed out"));
+            }
+        }, RESPONSE_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+        return responseFuture.whenComplete((result, e) -> timeout.cancel(false));
+    }
+
+    private void completeResponseFuture() {
+        if (storedException == null) {
+            responseFuture.complete(null);
+        } else if (storedException instanceof KinesisVideoException) {
+            responseFuture.completeExceptionally(storedException);
+        } else {
+            responseFuture.completeExceptionally(new KinesisVideoException(storedException));
+        }
+    }
+
     public void awaitResponse() throws KinesisVideoException {
         // Block until loop finished of timed out.
         try {
@@ -17,6 +17,7 @@ import com.amazonaws.kinesisvideo.producer.Tag;
 import com.amazonaws.kinesisvideo.producer.Time;
 import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
 import com.amazonaws.kinesisvideo.internal.producer.jni.NativeKinesisVideoProducerJni;
+import com.amazonaws.kinesisvideo.internal.service.ServiceCallBulkheads.OperationClass;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -34,6 +35,7 @@ import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_BAD_REQUE
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_NOT_FOUND;
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_OK;
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_RESOURCE_IN_USE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_SERVICE_UNAVAILABLE;
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RESOURCE_IN_USE;
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RESOURCE_NOT_FOUND;
 
@@ -41,7 +43,7 @@ import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RESOURCE_NOT_F
  * Implementation of {@link ServiceCallbacks}
  */
 public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
-    private class CompletionCallback implements Consumer<Exception> {
+    protected class CompletionCallback implements Consumer<Exception> {
         private final KinesisVideoProducerStream stream;
         private final long uploadHandle;
 
@@ -75,6 +77,13 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
         }
     }
 
+    /**
+     * Reports the result of a service call to the producer.
+     */
+    protected interface ServiceCallResultReporter {
+        void report(int statusCode) throws ProducerException;
+    }
+
     /**
      * Internal class for storing the ongoing streams
      */
@@ -99,6 +108,16 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
         }
     }
 
+    /**
+     * Completion notification for the connects which are not under admission control.
+     */
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+            // Nothing to release
+        }
+    };
+
     /**
      * Task executor to schedule long-running tasks in an async way.
      */
@@ -119,6 +138,18 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
      */
     protected final KinesisVideoClientConfiguration configuration;
 
+    /**
+     * Optional per operation class executors. When not set, the service calls run on the executor.
+     */
+    @Nullable
+    protected final ServiceCallBulkheads bulkheads;
+
+    /**
+     * Optional admission control for the PutMedia connects. When not set, the connects fire at the call-after time.
+     */
+    @Nullable
+    protected final ReconnectAdmissionScheduler reconnectScheduler;
+
     /**
      * Implementation of the {@link KinesisVideoProducer} object.
      */
@@ -139,10 +170,42 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             @Nonnull final ScheduledExecutorService executor,
             @Nonnull final KinesisVideoClientConfiguration configuration,
             @Nonnull final KinesisVideoServiceClient kinesisVideoServiceClient) {
+        this(log, executor, configuration, kinesisVideoServiceClient, createBulkheads(log, configuration));
+    }
+
+    /**
+     * @param bulkheads - Executors isolating the classes of service calls from each other. The executor is then
+     *                  only used to wait for the call-after time and hand the calls over to the bulkheads.
+     */
+    public DefaultServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceClient kinesisVideoServiceClient,
+            @Nullable final ServiceCallBulkheads bulkheads) {
+        this(log, executor, configuration, kinesisVideoServiceClient, bulkheads,
+                createReconnectScheduler(log, executor, configuration));
+    }
+
+    /**
+     * @param bulkheads - Executors isolating the classes of service calls from each other. The executor is then
+     *                  only used to wait for the call-after time and hand the calls over to the bulkheads.
+     * @param reconnectScheduler - Spreads out the PutMedia connects and caps the number of them in flight per
+     *                           endpoint.
+     */
+    public DefaultServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceClient kinesisVideoServiceClient,
+            @Nullable final ServiceCallBulkheads bulkheads,
+            @Nullable final ReconnectAdmissionScheduler reconnectScheduler) {
         this.executor = Preconditions.checkNotNull(executor);
         this.kinesisVideoServiceClient = Preconditions.checkNotNull(kinesisVideoServiceClient);
         this.log = Preconditions.checkNotNull(log);
         this.configuration = Preconditions.checkNotNull(configuration);
+        this.bulkheads = bulkheads;
+        this.reconnectScheduler = reconnectScheduler;
 
         this.uploadHandle = 0;
 
@@ -219,7 +282,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.createStreamResult(customData, null, statusCode)), delay);
     }
 
     @Override
@@ -262,7 +326,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.describeStreamResult(stream, streamHandle, null, statusCode)), delay);
     }
 
     @Override
@@ -309,7 +374,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.getStreamingEndpointResult(stream, streamHandle, "", statusCode)), delay);
     }
 
     @Override
@@ -376,7 +442,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.TOKEN, task, reportRejection(statusCode ->
+                kinesisVideoProducer.getStreamingTokenResult(stream, streamHandle, null, 0, statusCode)), delay);
     }
 
     @Override
@@ -396,9 +463,12 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
         Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
         final long delay = calculateRelativeServiceCallAfter(callAfter);
 
-        final Runnable task = new Runnable() {
+        // The rejection reports the result for the same upload handle the connect would have used
+        final long clientUploadHandle = getUploadHandle();
+
+        final ReconnectAdmissionScheduler.ConnectTask task = new ReconnectAdmissionScheduler.ConnectTask() {
             @Override
-            public void run() {
+            public void run(@Nonnull final Runnable onConnected) {
 
                 if (kinesisVideoProducerStream == null) {
                     throw new IllegalStateException("Couldn't find the correct stream");
@@ -411,8 +481,6 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
 
                 final KinesisVideoCredentialsProvider credentialsProvider = getCredentialsProvider(authData, log);
 
-                final long clientUploadHandle = getUploadHandle();
-
                 try {
                     final InputStream dataStream = kinesisVideoProducerStream.getDataStream(clientUploadHandle);
                     final AckConsumer ackConsumer = new AckConsumer(clientUploadHandle, kinesisVideoProducerStream, log);
@@ -439,6 +507,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
                 } catch (final KinesisVideoException e) {
                     statusCode = getStatusCodeFromException(e);
                     log.error("Kinesis Video service client returned an error. Reporting to Kinesis Video PIC.", e);
+                } finally {
+                    onConnected.run();
                 }
 
                 try {
@@ -450,7 +520,9 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleConnect(dataEndpoint, kinesisVideoProducerStream, task, reportRejection(statusCode ->
+                kinesisVideoProducer.putStreamResult(kinesisVideoProducerStream, clientUploadHandle, statusCode)),
+                delay);
     }
 
     @Override
@@ -505,7 +577,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.tagResourceResult(stream, streamHandle, statusCode)), delay);
     }
 
     @Override
@@ -535,7 +608,8 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.createDeviceResult(customData, null, statusCode)), delay);
     }
 
     @Override
@@ -562,6 +636,9 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
         mStreams.clear();
 
         this.executor.shutdownNow();
+        if (bulkheads != null) {
+            bulkheads.shutdownNow();
+        }
     }
 
     @Override
@@ -584,12 +661,145 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
         }
     }
 
-    private long calculateRelativeServiceCallAfter(final long absoluteCallAfter) {
+    /**
+     * Schedules the service call at the call-after time.
+     * <p>
+     * With bulkheads the call is handed over to the bulkhead of its operation class once due. If that bulkhead is
+     * saturated, the rejection task reports a retriable {@code HTTP_SERVICE_UNAVAILABLE} status so the state machine
+     * retries the call later instead of it queueing up behind stuck calls.
+     *
+     * @param operationClass - Class of the service call
+     * @param task - Task making the service call and reporting the result
+     * @param rejection - Task reporting the rejection of the call
+     * @param delay - Delay in nanoseconds
+     */
+    protected void scheduleServiceCall(@Nonnull final OperationClass operationClass,
+                                       @Nonnull final Runnable task,
+                                       @Nonnull final Runnable rejection,
+                                       final long delay) {
+        if (bulkheads == null) {
+            executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                executeServiceCall(operationClass, task, rejection);
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Schedules a PutMedia connect through the reconnect scheduler, if any, then as a data plane service call.
+     *
+     * @param dataEndpoint - Endpoint to connect to
+     * @param stream - Stream which is connecting
+     * @param task - Connect to run
+     * @param rejection - Task reporting the connect has been rejected
+     * @param delay - Delay in nanoseconds
+     */
+    protected void scheduleConnect(@Nonnull final String dataEndpoint,
+                                   @Nullable final KinesisVideoProducerStream stream,
+                                   @Nonnull final ReconnectAdmissionScheduler.ConnectTask task,
+                                   @Nonnull final Runnable rejection,
+                                   final long delay) {
+        if (reconnectScheduler == null) {
+            scheduleServiceCall(OperationClass.DATA_PLANE_CONNECT, new Runnable() {
+                @Override
+                public void run() {
+                    task.run(NO_OP);
+                }
+            }, rejection, delay);
+            return;
+        }
+
+        reconnectScheduler.submit(dataEndpoint, stream, delay, new ReconnectAdmissionScheduler.ConnectTask() {
+            @Override
+            public void run(@Nonnull final Runnable onConnected) {
+                executeServiceCall(OperationClass.DATA_PLANE_CONNECT, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run(onConnected);
+                        } catch (final RuntimeException e) {
+                            onConnected.run();
+                            throw e;
+                        }
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        onConnected.run();
+                        rejection.run();
+                    }
+                });
+            }
+        });
+    }
+
+    private void executeServiceCall(@Nonnull final OperationClass operationClass,
+                                    @Nonnull final Runnable task,
+                                    @Nonnull final Runnable rejection) {
+        if (bulkheads == null) {
+            task.run();
+        } else {
+            bulkheads.get(operationClass).execute(task, rejection);
+        }
+    }
+
+    /**
+     * @return the bulkheads the configuration asks for, null to run the service calls on the executor
+     */
+    @Nullable
+    protected static ServiceCallBulkheads createBulkheads(@Nonnull final Logger log,
+                                                          @Nonnull final KinesisVideoClientConfiguration configuration) {
+        return configuration.isServiceCallBulkheadsEnabled() ? ServiceCallBulkheads.builder(log).build() : null;
+    }
+
+    /**
+     * @return the reconnect scheduler the configuration asks for, null to connect as soon as asked
+     */
+    @Nullable
+    protected static ReconnectAdmissionScheduler createReconnectScheduler(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration) {
+        if (configuration.getReconnectMaxConcurrentConnectsPerEndpoint() == 0) {
+            return null;
+        }
+
+        return new ReconnectAdmissionScheduler(executor,
+                TimeUnit.MILLISECONDS.toNanos(configuration.getReconnectMaxJitterInMillis()),
+                configuration.getReconnectMaxConcurrentConnectsPerEndpoint(),
+                log);
+    }
+
+    /**
+     * Creates the task reporting a rejected service call to the producer with a retriable status.
+     *
+     * @param reporter - Reports the result of the service call with the given status code
+     * @return rejection task
+     */
+    protected Runnable reportRejection(@Nonnull final ServiceCallResultReporter reporter) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reporter.report(HTTP_SERVICE_UNAVAILABLE);
+                } catch (final ProducerException e) {
+                    log.error("Reporting the rejected service call threw an exception", e);
+                }
+            }
+        };
+    }
+
+    protected long calculateRelativeServiceCallAfter(final long absoluteCallAfter) {
         return Math.max(0, absoluteCallAfter * Time.NANOS_IN_A_TIME_UNIT -
                 System.currentTimeMillis() * Time.NANOS_IN_A_MILLISECOND);
     }
 
-    private synchronized long getUploadHandle() {
+    protected synchronized long getUploadHandle() {
         return uploadHandle++;
     }
 
@@ -609,7 +819,7 @@ public class DefaultServiceCallbacksImpl implements ServiceCallbacks {
      * @since 2.0
      * @since 3.0 Changed signature from isBlank(String) to isBlank(CharSequence)
      */
-    private static boolean isBlank(final CharSequence cs) {
+    protected static boolean isBlank(final CharSequence cs) {
         int strLen;
         if (cs == null || (strLen = cs.length()) == 0) {
             return true;
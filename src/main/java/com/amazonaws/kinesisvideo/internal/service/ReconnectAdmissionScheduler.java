@@ -0,0 +1,250 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoStreamMetrics;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the PutMedia (re)connects.
+ * <p>
+ * When an endpoint blips, every stream asks to reconnect with nearly the same call-after time. Instead of firing all
+ * the connects at once, each one is delayed by a random jitter, at most a fixed number of connects per endpoint are
+ * in flight at any time and, among the connects waiting for admission, the streams with the largest buffered backlog
+ * go first.
+ */
+@ThreadSafe
+public final class ReconnectAdmissionScheduler {
+    /**
+     * Connect to run once admitted.
+     */
+    public interface ConnectTask {
+        /**
+         * Runs the connect.
+         *
+         * @param onConnected - Must be run once the connect has completed, successfully or not, to admit the next one.
+         *                    Running it more than once has no effect.
+         */
+        void run(@Nonnull Runnable onConnected);
+    }
+
+    private final ScheduledExecutorService executor;
+    private final long maxJitterInNanos;
+    private final int maxConcurrentConnectsPerEndpoint;
+    private final Random random;
+    private final Logger log;
+
+    @GuardedBy("this")
+    private final Map<String, EndpointState> endpoints = new HashMap<String, EndpointState>();
+
+    @GuardedBy("this")
+    private long sequenceNumber;
+
+    /**
+     * @param executor - Executor to wait out the delays and run the admitted connects on
+     * @param maxJitterInNanos - Upper bound of the random delay added to each connect
+     * @param maxConcurrentConnectsPerEndpoint - Number of connects to the same endpoint allowed in flight
+     * @param log - Logger to use
+     */
+    public ReconnectAdmissionScheduler(@Nonnull final ScheduledExecutorService executor,
+                                       final long maxJitterInNanos,
+                                       final int maxConcurrentConnectsPerEndpoint,
+                                       @Nonnull final Logger log) {
+        this(executor, maxJitterInNanos, maxConcurrentConnectsPerEndpoint, null, log);
+    }
+
+    ReconnectAdmissionScheduler(@Nonnull final ScheduledExecutorService executor,
+                                final long maxJitterInNanos,
+                                final int maxConcurrentConnectsPerEndpoint,
+                                @Nullable final Random random,
+                                @Nonnull final Logger log) {
+        Preconditions.checkArgument(maxJitterInNanos >= 0, "Max jitter can not be negative");
+        Preconditions.checkArgument(maxConcurrentConnectsPerEndpoint > 0,
+                "At least one concurrent connect per endpoint should be allowed");
+        this.executor = Preconditions.checkNotNull(executor);
+        this.maxJitterInNanos = maxJitterInNanos;
+        this.maxConcurrentConnectsPerEndpoint = maxConcurrentConnectsPerEndpoint;
+        this.random = random;
+        this.log = Preconditions.checkNotNull(log);
+    }
+
+    /**
+     * Submits a connect.
+     *
+     * @param endpoint - Endpoint the connect goes to
+     * @param stream - Stream to take the buffered backlog from to prioritize the connect, if any
+     * @param delayInNanos - Delay before the connect can be admitted, the jitter is added on top of it
+     * @param connectTask - Connect to run once admitted
+     */
+    public void submit(@Nonnull final String endpoint,
+                       @Nullable final KinesisVideoProducerStream stream,
+                       final long delayInNanos,
+                       @Nonnull final ConnectTask connectTask) {
+        Preconditions.checkNotNull(endpoint);
+        Preconditions.checkNotNull(connectTask);
+
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                enqueue(endpoint, getBacklogSize(stream), connectTask);
+            }
+        }, Math.max(0, delayInNanos) + nextJitter(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param endpoint - Endpoint the connects go to
+     * @return number of the admitted connects which have not completed yet
+     */
+    public synchronized int getActiveConnectCount(@Nonnull final String endpoint) {
+        final EndpointState state = endpoints.get(endpoint);
+        return state == null ? 0 : state.activeCount;
+    }
+
+    /**
+     * @param endpoint - Endpoint the connects go to
+     * @return number of the connects past their delay waiting to be admitted
+     */
+    public synchronized int getPendingConnectCount(@Nonnull final String endpoint) {
+        final EndpointState state = endpoints.get(endpoint);
+        return state == null ? 0 : state.pending.size();
+    }
+
+    private void enqueue(final String endpoint, final long backlogSize, final ConnectTask connectTask) {
+        synchronized (this) {
+            EndpointState state = endpoints.get(endpoint);
+            if (state == null) {
+                state = new EndpointState();
+                endpoints.put(endpoint, state);
+            }
+
+            state.pending.add(new PendingConnect(connectTask, backlogSize, sequenceNumber++));
+        }
+
+        admit(endpoint);
+    }
+
+    private void admit(final String endpoint) {
+        final List<PendingConnect> admitted = new ArrayList<PendingConnect>();
+        synchronized (this) {
+            final EndpointState state = endpoints.get(endpoint);
+            if (state == null) {
+                return;
+            }
+
+            while (state.activeCount < maxConcurrentConnectsPerEndpoint && !state.pending.isEmpty()) {
+                state.activeCount++;
+                admitted.add(state.pending.poll());
+            }
+
+            if (state.activeCount == 0 && state.pending.isEmpty()) {
+                endpoints.remove(endpoint);
+            }
+        }
+
+        for (final PendingConnect pendingConnect : admitted) {
+            final Runnable onConnected = new Runnable() {
+                private final AtomicBoolean released = new AtomicBoolean();
+
+                @Override
+                public void run() {
+                    if (released.compareAndSet(false, true)) {
+                        release(endpoint);
+                    }
+                }
+            };
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        pendingConnect.connectTask.run(onConnected);
+                    } catch (final RuntimeException e) {
+                        onConnected.run();
+                        throw e;
+                    }
+                }
+            });
+        }
+    }
+
+    private void release(final String endpoint) {
+        synchronized (this) {
+            final EndpointState state = endpoints.get(endpoint);
+            if (state == null) {
+                return;
+            }
+
+            state.activeCount--;
+        }
+
+        admit(endpoint);
+    }
+
+    private long getBacklogSize(@Nullable final KinesisVideoProducerStream stream) {
+        if (stream == null) {
+            return 0;
+        }
+
+        try {
+            final KinesisVideoStreamMetrics metrics = stream.getMetrics();
+            return metrics.getCurrentViewSize();
+        } catch (final ProducerException e) {
+            log.warn("Unable to get the stream metrics to prioritize the connect", e);
+            return 0;
+        }
+    }
+
+    private long nextJitter() {
+        if (maxJitterInNanos == 0) {
+            return 0;
+        }
+
+        final Random jitterRandom = random == null ? ThreadLocalRandom.current() : random;
+        return (long) (jitterRandom.nextDouble() * (maxJitterInNanos + 1));
+    }
+
+    private static final class EndpointState {
+        private final PriorityQueue<PendingConnect> pending = new PriorityQueue<PendingConnect>();
+        private int activeCount;
+    }
+
+    /**
+     * Pending connects are ordered by the largest backlog first, then in the order they became eligible.
+     */
+    private static final class PendingConnect implements Comparable<PendingConnect> {
+        private final ConnectTask connectTask;
+        private final long backlogSize;
+        private final long sequenceNumber;
+
+        PendingConnect(final ConnectTask connectTask, final long backlogSize, final long sequenceNumber) {
+            this.connectTask = connectTask;
+            this.backlogSize = backlogSize;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public int compareTo(@Nonnull final PendingConnect other) {
+            if (backlogSize != other.backlogSize) {
+                return backlogSize > other.backlogSize ? -1 : 1;
+            }
+
+            return Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isolated, bounded pool of threads for one class of service calls.
+ * <p>
+ * The pool has a fixed number of threads and a bounded queue. Once both are exhausted further calls are rejected
+ * right away instead of piling up behind the stuck ones, and the caller gets to report the rejection.
+ */
+@ThreadSafe
+public final class ServiceCallBulkhead {
+    private final String name;
+    private final ThreadPoolExecutor threadPool;
+    private final Logger log;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong totalWaitTimeInNanos = new AtomicLong();
+    private final AtomicLong maxWaitTimeInNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    /**
+     * @param name - Name of the bulkhead used for the thread names and the logs
+     * @param numberOfThreads - Number of service calls which can be executed concurrently
+     * @param queueCapacity - Number of service calls which can wait for a thread
+     * @param log - Logger to use
+     */
+    public ServiceCallBulkhead(@Nonnull final String name,
+                               final int numberOfThreads,
+                               final int queueCapacity,
+                               @Nonnull final Logger log) {
+        Preconditions.checkArgument(numberOfThreads > 0, "Bulkhead needs at least one thread");
+        Preconditions.checkArgument(queueCapacity > 0, "Bulkhead queue capacity should be positive");
+        this.name = Preconditions.checkNotNull(name);
+        this.log = Preconditions.checkNotNull(log);
+        this.threadPool = new ThreadPoolExecutor(numberOfThreads,
+                numberOfThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("KVS-" + name + "-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Executes the service call on one of the bulkhead threads.
+     *
+     * @param serviceCall - Task making the service call and reporting its result
+     * @param onRejected - Task reporting the rejection, executed on the calling thread if the bulkhead is full
+     */
+    public void execute(@Nonnull final Runnable serviceCall, @Nonnull final Runnable onRejected) {
+        Preconditions.checkNotNull(serviceCall);
+        Preconditions.checkNotNull(onRejected);
+
+        final long enqueueTime = System.nanoTime();
+        submittedCount.incrementAndGet();
+        try {
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    recordWaitTime(System.nanoTime() - enqueueTime);
+                    try {
+                        serviceCall.run();
+                    } finally {
+                        completedCount.incrementAndGet();
+                    }
+                }
+            });
+            updateMaxQueueDepth(threadPool.getQueue().size());
+        } catch (final RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            log.warn("Service call bulkhead {} is full, rejecting the call. {}", name, getMetrics());
+            onRejected.run();
+        }
+    }
+
+    @Nonnull
+    public ServiceCallBulkheadMetrics getMetrics() {
+        return new ServiceCallBulkheadMetrics(threadPool.getQueue().size(),
+                maxQueueDepth.get(),
+                threadPool.getActiveCount(),
+                submittedCount.get(),
+                rejectedCount.get(),
+                startedCount.get(),
+                completedCount.get(),
+                totalWaitTimeInNanos.get(),
+                maxWaitTimeInNanos.get());
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    public void shutdownNow() {
+        threadPool.shutdownNow();
+    }
+
+    private void recordWaitTime(final long waitTimeInNanos) {
+        startedCount.incrementAndGet();
+        totalWaitTimeInNanos.addAndGet(waitTimeInNanos);
+        long currentMax = maxWaitTimeInNanos.get();
+        while (waitTimeInNanos > currentMax && !maxWaitTimeInNanos.compareAndSet(currentMax, waitTimeInNanos)) {
+            currentMax = maxWaitTimeInNanos.get();
+        }
+    }
+
+    private void updateMaxQueueDepth(final int queueDepth) {
+        int currentMax = maxQueueDepth.get();
+        while (queueDepth > currentMax && !maxQueueDepth.compareAndSet(currentMax, queueDepth)) {
+            currentMax = maxQueueDepth.get();
+        }
+    }
+}
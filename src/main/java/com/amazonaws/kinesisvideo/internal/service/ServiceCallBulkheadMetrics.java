@@ -0,0 +1,105 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Point-in-time snapshot of the metrics of a {@link ServiceCallBulkhead}.
+ */
+@Immutable
+public final class ServiceCallBulkheadMetrics {
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final int activeCount;
+    private final long submittedCount;
+    private final long rejectedCount;
+    private final long startedCount;
+    private final long completedCount;
+    private final long totalWaitTimeInNanos;
+    private final long maxWaitTimeInNanos;
+
+    ServiceCallBulkheadMetrics(final int queueDepth,
+                               final int maxQueueDepth,
+                               final int activeCount,
+                               final long submittedCount,
+                               final long rejectedCount,
+                               final long startedCount,
+                               final long completedCount,
+                               final long totalWaitTimeInNanos,
+                               final long maxWaitTimeInNanos) {
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.activeCount = activeCount;
+        this.submittedCount = submittedCount;
+        this.rejectedCount = rejectedCount;
+        this.startedCount = startedCount;
+        this.completedCount = completedCount;
+        this.totalWaitTimeInNanos = totalWaitTimeInNanos;
+        this.maxWaitTimeInNanos = maxWaitTimeInNanos;
+    }
+
+    /**
+     * @return number of service calls waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return highest number of service calls seen waiting in the queue
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return number of service calls being executed
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return average time the service calls which have started have been waiting in the queue
+     */
+    public long getAverageWaitTimeInNanos() {
+        return startedCount > 0 ? totalWaitTimeInNanos / startedCount : 0;
+    }
+
+    /**
+     * @return longest time a service call has been waiting in the queue
+     */
+    public long getMaxWaitTimeInNanos() {
+        return maxWaitTimeInNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceCallBulkheadMetrics{"
+                + "queueDepth=" + queueDepth
+                + ", maxQueueDepth=" + maxQueueDepth
+                + ", activeCount=" + activeCount
+                + ", submittedCount=" + submittedCount
+                + ", rejectedCount=" + rejectedCount
+                + ", startedCount=" + startedCount
+                + ", completedCount=" + completedCount
+                + ", averageWaitTimeInNanos=" + getAverageWaitTimeInNanos()
+                + ", maxWaitTimeInNanos=" + maxWaitTimeInNanos
+                + '}';
+    }
+}
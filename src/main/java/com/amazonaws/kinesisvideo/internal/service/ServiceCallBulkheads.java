@@ -0,0 +1,111 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Set of {@link ServiceCallBulkhead}s, one per class of service calls.
+ * <p>
+ * Control plane calls, streaming token refreshes and data plane connects each get their own threads and queue,
+ * so a stuck endpoint in one class can not starve the others.
+ */
+public final class ServiceCallBulkheads {
+    /**
+     * Classes of the service calls isolated from each other.
+     */
+    public enum OperationClass {
+        /**
+         * CreateStream, DescribeStream, GetDataEndpoint, TagResource and CreateDevice
+         */
+        CONTROL_PLANE,
+
+        /**
+         * Streaming token refresh
+         */
+        TOKEN,
+
+        /**
+         * PutMedia connection establishment
+         */
+        DATA_PLANE_CONNECT
+    }
+
+    private static final int DEFAULT_CONTROL_PLANE_THREADS = 4;
+    private static final int DEFAULT_CONTROL_PLANE_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_TOKEN_THREADS = 1;
+    private static final int DEFAULT_TOKEN_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_DATA_PLANE_CONNECT_THREADS = 4;
+    private static final int DEFAULT_DATA_PLANE_CONNECT_QUEUE_CAPACITY = 256;
+
+    private final Map<OperationClass, ServiceCallBulkhead> bulkheads;
+
+    private ServiceCallBulkheads(final Builder builder) {
+        bulkheads = new EnumMap<OperationClass, ServiceCallBulkhead>(OperationClass.class);
+        bulkheads.put(OperationClass.CONTROL_PLANE, new ServiceCallBulkhead("ControlPlane",
+                builder.controlPlaneThreads, builder.controlPlaneQueueCapacity, builder.log));
+        bulkheads.put(OperationClass.TOKEN, new ServiceCallBulkhead("Token",
+                builder.tokenThreads, builder.tokenQueueCapacity, builder.log));
+        bulkheads.put(OperationClass.DATA_PLANE_CONNECT, new ServiceCallBulkhead("DataPlaneConnect",
+                builder.dataPlaneConnectThreads, builder.dataPlaneConnectQueueCapacity, builder.log));
+    }
+
+    public static Builder builder(@Nonnull final Logger log) {
+        return new Builder(log);
+    }
+
+    @Nonnull
+    public ServiceCallBulkhead get(@Nonnull final OperationClass operationClass) {
+        return bulkheads.get(Preconditions.checkNotNull(operationClass));
+    }
+
+    @Nonnull
+    public ServiceCallBulkheadMetrics getMetrics(@Nonnull final OperationClass operationClass) {
+        return get(operationClass).getMetrics();
+    }
+
+    public void shutdownNow() {
+        for (final ServiceCallBulkhead bulkhead : bulkheads.values()) {
+            bulkhead.shutdownNow();
+        }
+    }
+
+    public static final class Builder {
+        private final Logger log;
+        private int controlPlaneThreads = DEFAULT_CONTROL_PLANE_THREADS;
+        private int controlPlaneQueueCapacity = DEFAULT_CONTROL_PLANE_QUEUE_CAPACITY;
+        private int tokenThreads = DEFAULT_TOKEN_THREADS;
+        private int tokenQueueCapacity = DEFAULT_TOKEN_QUEUE_CAPACITY;
+        private int dataPlaneConnectThreads = DEFAULT_DATA_PLANE_CONNECT_THREADS;
+        private int dataPlaneConnectQueueCapacity = DEFAULT_DATA_PLANE_CONNECT_QUEUE_CAPACITY;
+
+        private Builder(@Nonnull final Logger log) {
+            this.log = Preconditions.checkNotNull(log);
+        }
+
+        public Builder withControlPlane(final int numberOfThreads, final int queueCapacity) {
+            controlPlaneThreads = numberOfThreads;
+            controlPlaneQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder withToken(final int numberOfThreads, final int queueCapacity) {
+            tokenThreads = numberOfThreads;
+            tokenQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder withDataPlaneConnect(final int numberOfThreads, final int queueCapacity) {
+            dataPlaneConnectThreads = numberOfThreads;
+            dataPlaneConnectQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        public ServiceCallBulkheads build() {
+            return new ServiceCallBulkheads(this);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+import com.amazonaws.kinesisvideo.producer.StreamStatus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Session state of the streams which the control plane calls return the same on every start: the stream
+ * descriptions, the data endpoints and the tags applied to the streams. It is kept in a compact binary file so that a
+ * restarting producer can skip those calls.
+ * <p>
+ * No credentials or streaming tokens are kept.
+ */
+@ThreadSafe
+public final class SessionSnapshot {
+    private static final int MAGIC = 0x4B565353; // KVSS
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Stream name -> description
+     */
+    private final Map<String, StreamDescription> descriptions = new HashMap<String, StreamDescription>();
+
+    /**
+     * API name and stream name -> data endpoint
+     */
+    private final Map<String, String> dataEndpoints = new HashMap<String, String>();
+
+    /**
+     * Stream ARN -> tags applied to the stream
+     */
+    private final Map<String, Map<String, String>> tags = new HashMap<String, Map<String, String>>();
+
+    private final Object fileLock = new Object();
+
+    private boolean isModified;
+
+    @Nullable
+    public synchronized StreamDescription getDescription(@Nonnull final String streamName) {
+        return descriptions.get(streamName);
+    }
+
+    public synchronized void putDescription(@Nonnull final StreamDescription description) {
+        Preconditions.checkNotNull(description.getStreamName());
+        descriptions.put(description.getStreamName(), description);
+        isModified = true;
+    }
+
+    @Nullable
+    public synchronized String getDataEndpoint(@Nonnull final String streamName, @Nonnull final String apiName) {
+        return dataEndpoints.get(endpointKey(streamName, apiName));
+    }
+
+    public synchronized void putDataEndpoint(@Nonnull final String streamName, @Nonnull final String apiName,
+                                             @Nonnull final String dataEndpoint) {
+        if (!dataEndpoint.equals(dataEndpoints.put(endpointKey(streamName, apiName), dataEndpoint))) {
+            isModified = true;
+        }
+    }
+
+    /**
+     * @return whether exactly these tags have been applied to the stream
+     */
+    public synchronized boolean hasTags(@Nonnull final String streamArn, @Nullable final Map<String, String> tags) {
+        final Map<String, String> appliedTags = this.tags.get(streamArn);
+        return appliedTags != null && appliedTags.equals(tags == null ? new HashMap<String, String>() : tags);
+    }
+
+    public synchronized void putTags(@Nonnull final String streamArn, @Nullable final Map<String, String> tags) {
+        this.tags.put(streamArn, tags == null ? new HashMap<String, String>() : new HashMap<String, String>(tags));
+        isModified = true;
+    }
+
+    /**
+     * Forgets the stream, for its next start to go through the control plane calls.
+     */
+    public synchronized void removeStream(@Nonnull final String streamName) {
+        final StreamDescription description = descriptions.remove(streamName);
+        if (description != null && description.getStreamArn() != null) {
+            tags.remove(description.getStreamArn());
+        }
+
+        dataEndpoints.keySet().removeIf(key -> key.endsWith(" " + streamName));
+        isModified = true;
+    }
+
+    /**
+     * Reads the snapshot written by {@link #write(Path)}.
+     *
+     * @param path - Snapshot file
+     * @return the snapshot, empty if there is no file yet
+     * @throws IOException if the file can not be read or is not a snapshot of this version
+     */
+    @Nonnull
+    public static SessionSnapshot read(@Nonnull final Path path) throws IOException {
+        final SessionSnapshot snapshot = new SessionSnapshot();
+        final InputStream inputStream;
+        try {
+            inputStream = Files.newInputStream(path);
+        } catch (final NoSuchFileException e) {
+            return snapshot;
+        }
+
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a session snapshot of version " + FORMAT_VERSION + ": " + path);
+            }
+
+            for (int i = input.readInt(); i > 0; i--) {
+                final StreamDescription description = readDescription(input);
+                snapshot.descriptions.put(description.getStreamName(), description);
+            }
+
+            for (int i = input.readInt(); i > 0; i--) {
+                snapshot.dataEndpoints.put(input.readUTF(), input.readUTF());
+            }
+
+            for (int i = input.readInt(); i > 0; i--) {
+                final String streamArn = input.readUTF();
+                final Map<String, String> streamTags = new HashMap<String, String>();
+                for (int j = input.readInt(); j > 0; j--) {
+                    streamTags.put(input.readUTF(), input.readUTF());
+                }
+
+                snapshot.tags.put(streamArn, streamTags);
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Writes the snapshot if it changed since the last write. The file is written aside and moved in place, so that
+     * a crash while writing leaves the previous snapshot intact.
+     *
+     * @param path - Snapshot file
+     * @return whether the snapshot was written
+     */
+    public boolean write(@Nonnull final Path path) throws IOException {
+        // Serialized, for an older content never to replace a newer one
+        synchronized (fileLock) {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            synchronized (this) {
+                if (!isModified) {
+                    return false;
+                }
+
+                try (final DataOutputStream output = new DataOutputStream(content)) {
+                    writeTo(output);
+                }
+
+                isModified = false;
+            }
+
+            try {
+                final Path directory = path.toAbsolutePath().getParent();
+                Files.createDirectories(directory);
+                final Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+                try {
+                    Files.write(temporaryPath, content.toByteArray());
+                    try {
+                        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (final AtomicMoveNotSupportedException e) {
+                        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(temporaryPath);
+                }
+            } catch (final IOException e) {
+                synchronized (this) {
+                    isModified = true;
+                }
+
+                throw e;
+            }
+
+            return true;
+        }
+    }
+
+    private void writeTo(@Nonnull final DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+
+        output.writeInt(descriptions.size());
+        for (final StreamDescription description : descriptions.values()) {
+            writeDescription(output, description);
+        }
+
+        output.writeInt(dataEndpoints.size());
+        for (final Map.Entry<String, String> dataEndpoint : dataEndpoints.entrySet()) {
+            output.writeUTF(dataEndpoint.getKey());
+            output.writeUTF(dataEndpoint.getValue());
+        }
+
+        output.writeInt(tags.size());
+        for (final Map.Entry<String, Map<String, String>> streamTags : tags.entrySet()) {
+            output.writeUTF(streamTags.getKey());
+            output.writeInt(streamTags.getValue().size());
+            for (final Map.Entry<String, String> tag : streamTags.getValue().entrySet()) {
+                output.writeUTF(tag.getKey());
+                output.writeUTF(tag.getValue());
+            }
+        }
+    }
+
+    private static void writeDescription(@Nonnull final DataOutputStream output,
+                                         @Nonnull final StreamDescription description) throws IOException {
+        output.writeInt(description.getVersion());
+        writeNullableString(output, description.getDeviceName());
+        output.writeUTF(description.getStreamName());
+        writeNullableString(output, description.getContentType());
+        writeNullableString(output, description.getUpdateVersion());
+        writeNullableString(output, description.getStreamArn());
+        output.writeInt(description.getStreamStatus());
+        output.writeLong(description.getCreationTime());
+        output.writeLong(description.getRetention());
+        writeNullableString(output, description.getKmsKeyId());
+    }
+
+    @Nonnull
+    private static StreamDescription readDescription(@Nonnull final DataInputStream input) throws IOException {
+        final int version = input.readInt();
+        final String deviceName = readNullableString(input);
+        final String streamName = input.readUTF();
+        final String contentType = readNullableString(input);
+        final String updateVersion = readNullableString(input);
+        final String streamArn = readNullableString(input);
+        final int streamStatus = input.readInt();
+        return new StreamDescription(version, deviceName, streamName, contentType, updateVersion, streamArn,
+                toStreamStatus(streamStatus), input.readLong(), input.readLong(), readNullableString(input));
+    }
+
+    private static void writeNullableString(@Nonnull final DataOutputStream output, @Nullable final String value)
+            throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readNullableString(@Nonnull final DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    @Nonnull
+    private static StreamStatus toStreamStatus(final int value) {
+        for (final StreamStatus streamStatus : StreamStatus.values()) {
+            if (streamStatus.intValue() == value) {
+                return streamStatus;
+            }
+        }
+
+        return StreamStatus.UNKNOWN;
+    }
+
+    @Nonnull
+    private static String endpointKey(@Nonnull final String streamName, @Nonnull final String apiName) {
+        // Stream names have no spaces
+        return apiName + " " + streamName;
+    }
+}
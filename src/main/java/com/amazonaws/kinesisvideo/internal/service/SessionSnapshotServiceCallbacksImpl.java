@@ -0,0 +1,365 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentialsProvider;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.internal.service.ServiceCallBulkheads.OperationClass;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+import com.amazonaws.kinesisvideo.producer.StreamStatus;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import com.amazonaws.kinesisvideo.producer.Time;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_NOT_FOUND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_OK;
+
+/**
+ * {@link DefaultServiceCallbacksImpl} warm-starting the streams from a {@link SessionSnapshot}.
+ * <p>
+ * The stream descriptions, data endpoints and tags the service calls return are recorded in the snapshot, which is
+ * written to the snapshot file periodically and when the callbacks are freed. On the next start, the streams found in
+ * the snapshot get their description and data endpoint from it right away, without waiting for the service, and the
+ * tags already applied are not applied again. The cached results are refreshed in the background for the following
+ * starts; a stream the service no longer knows is dropped from the snapshot.
+ * <p>
+ * The streaming tokens are fetched as usual, the credentials never being written to the snapshot.
+ */
+public class SessionSnapshotServiceCallbacksImpl extends DefaultServiceCallbacksImpl {
+    /**
+     * Period of the snapshot file updates
+     */
+    private static final long SNAPSHOT_WRITE_PERIOD_IN_SECONDS = 30;
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final SessionSnapshot snapshot;
+    private final Path snapshotPath;
+    private final ScheduledFuture<?> snapshotWrites;
+
+    public SessionSnapshotServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceClient kinesisVideoServiceClient,
+            @Nonnull final Path snapshotPath) {
+        this(log, executor, configuration, kinesisVideoServiceClient, createBulkheads(log, configuration),
+                createReconnectScheduler(log, executor, configuration), snapshotPath);
+    }
+
+    /**
+     * @param bulkheads - Executors isolating the classes of service calls from each other
+     * @param reconnectScheduler - Spreads out the PutMedia connects and caps the number of them in flight per
+     *                           endpoint
+     * @param snapshotPath - File of the snapshot, read when created
+     */
+    public SessionSnapshotServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceClient kinesisVideoServiceClient,
+            @Nullable final ServiceCallBulkheads bulkheads,
+            @Nullable final ReconnectAdmissionScheduler reconnectScheduler,
+            @Nonnull final Path snapshotPath) {
+        this(log, executor, configuration, kinesisVideoServiceClient, bulkheads, reconnectScheduler, snapshotPath,
+                readSnapshot(log, snapshotPath));
+    }
+
+    private SessionSnapshotServiceCallbacksImpl(
+            @Nonnull final Logger log,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final KinesisVideoServiceClient kinesisVideoServiceClient,
+            @Nullable final ServiceCallBulkheads bulkheads,
+            @Nullable final ReconnectAdmissionScheduler reconnectScheduler,
+            @Nonnull final Path snapshotPath,
+            @Nonnull final SessionSnapshot snapshot) {
+        super(log, executor, configuration, new RecordingServiceClient(kinesisVideoServiceClient, snapshot),
+                bulkheads, reconnectScheduler);
+        this.snapshot = snapshot;
+        this.snapshotPath = snapshotPath;
+
+        this.snapshotWrites = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                writeSnapshot();
+            }
+        }, SNAPSHOT_WRITE_PERIOD_IN_SECONDS, SNAPSHOT_WRITE_PERIOD_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the snapshot the results of the service calls are recorded in
+     */
+    @Nonnull
+    public SessionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public void describeStream(
+            @Nonnull final String streamName,
+            final long callAfter,
+            final long timeout,
+            @Nullable final byte[] authData,
+            final int authType,
+            final long streamHandle,
+            final KinesisVideoProducerStream stream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final StreamDescription streamDescription = snapshot.getDescription(streamName);
+        if (streamDescription == null || streamDescription.getStreamStatus() != StreamStatus.ACTIVE.intValue()) {
+            super.describeStream(streamName, callAfter, timeout, authData, authType, streamHandle, stream);
+            return;
+        }
+
+        log.debug("Describing stream {} from the session snapshot", streamName);
+        kinesisVideoProducer.describeStreamResult(stream, streamHandle, streamDescription, HTTP_OK);
+
+        refresh(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    kinesisVideoServiceClient.describeStream(streamName,
+                            timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                            getCredentialsProvider(authData, log));
+                } catch (final KinesisVideoException e) {
+                    onRefreshFailure(streamName, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void getStreamingEndpoint(
+            @Nonnull final String streamName,
+            @Nonnull final String apiName,
+            final long callAfter,
+            final long timeout,
+            @Nullable final byte[] authData,
+            final int authType,
+            final long streamHandle,
+            final KinesisVideoProducerStream stream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        final String dataEndpoint = snapshot.getDataEndpoint(streamName, apiName);
+        if (dataEndpoint == null) {
+            super.getStreamingEndpoint(streamName, apiName, callAfter, timeout, authData, authType, streamHandle,
+                    stream);
+            return;
+        }
+
+        log.debug("Getting the {} endpoint of stream {} from the session snapshot", apiName, streamName);
+        kinesisVideoProducer.getStreamingEndpointResult(stream, streamHandle, dataEndpoint, HTTP_OK);
+
+        refresh(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    kinesisVideoServiceClient.getDataEndpoint(streamName,
+                            apiName,
+                            timeout / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                            getCredentialsProvider(authData, log));
+                } catch (final KinesisVideoException e) {
+                    onRefreshFailure(streamName, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void tagResource(@Nonnull final String resourceArn,
+                            @Nullable final Tag[] tags,
+                            final long callAfter,
+                            final long timeout,
+                            @Nullable final byte[] authData,
+                            final int authType,
+                            final long streamHandle,
+                            final KinesisVideoProducerStream stream) throws ProducerException {
+
+        Preconditions.checkState(isInitialized(), "Service callbacks object should be initialized first");
+        if (!snapshot.hasTags(resourceArn, toMap(tags))) {
+            super.tagResource(resourceArn, tags, callAfter, timeout, authData, authType, streamHandle, stream);
+            return;
+        }
+
+        log.debug("Tags of {} already applied as of the session snapshot", resourceArn);
+        kinesisVideoProducer.tagResourceResult(stream, streamHandle, HTTP_OK);
+    }
+
+    @Override
+    public synchronized void free() {
+        // The snapshot writes are serialized, one in flight completes before the final one
+        snapshotWrites.cancel(false);
+        writeSnapshot();
+        super.free();
+    }
+
+    private void refresh(@Nonnull final Runnable task) {
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, NO_OP, 0);
+    }
+
+    private void onRefreshFailure(@Nonnull final String streamName, @Nonnull final KinesisVideoException e) {
+        if (getStatusCodeFromException(e) == HTTP_NOT_FOUND) {
+            log.warn("Stream {} no longer exists, dropping it from the session snapshot", streamName);
+            snapshot.removeStream(streamName);
+        } else {
+            log.warn("Unable to refresh the session snapshot of stream {}", streamName, e);
+        }
+    }
+
+    private void writeSnapshot() {
+        try {
+            if (snapshot.write(snapshotPath)) {
+                log.debug("Wrote the session snapshot to {}", snapshotPath);
+            }
+        } catch (final IOException e) {
+            log.warn("Unable to write the session snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    @Nonnull
+    private static SessionSnapshot readSnapshot(@Nonnull final Logger log, @Nonnull final Path snapshotPath) {
+        Preconditions.checkNotNull(snapshotPath);
+        try {
+            return SessionSnapshot.read(snapshotPath);
+        } catch (final IOException e) {
+            log.warn("Unable to read the session snapshot from {}, starting cold", snapshotPath, e);
+            return new SessionSnapshot();
+        }
+    }
+
+    @Nullable
+    private static Map<String, String> toMap(@Nullable final Tag[] tags) {
+        if (tags == null) {
+            return null;
+        }
+
+        final Map<String, String> tagsMap = new HashMap<String, String>(tags.length);
+        for (final Tag tag : tags) {
+            tagsMap.put(tag.getName(), tag.getValue());
+        }
+
+        return tagsMap;
+    }
+
+    /**
+     * Service client recording the results of the successful calls in the snapshot.
+     */
+    private static final class RecordingServiceClient implements KinesisVideoServiceClient {
+        private final KinesisVideoServiceClient serviceClient;
+        private final SessionSnapshot snapshot;
+
+        private RecordingServiceClient(@Nonnull final KinesisVideoServiceClient serviceClient,
+                                       @Nonnull final SessionSnapshot snapshot) {
+            this.serviceClient = Preconditions.checkNotNull(serviceClient);
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void initialize(@Nonnull final KinesisVideoClientConfiguration configuration)
+                throws KinesisVideoException {
+            serviceClient.initialize(configuration);
+        }
+
+        @Override
+        public String createStream(@Nonnull final String streamName,
+                                   @Nonnull final String deviceName,
+                                   @Nonnull final String contentType,
+                                   @Nullable final String kmsKeyId,
+                                   final long retentionPeriodInHours,
+                                   final long timeoutInMillis,
+                                   @Nullable final KinesisVideoCredentialsProvider credentialsProvider)
+                throws KinesisVideoException {
+            return serviceClient.createStream(streamName, deviceName, contentType, kmsKeyId, retentionPeriodInHours,
+                    timeoutInMillis, credentialsProvider);
+        }
+
+        @Override
+        public StreamDescription describeStream(@Nonnull final String streamName,
+                                                final long timeoutInMillis,
+                                                @Nullable final KinesisVideoCredentialsProvider credentialsProvider)
+                throws KinesisVideoException {
+            final StreamDescription streamDescription = serviceClient.describeStream(streamName, timeoutInMillis,
+                    credentialsProvider);
+            if (streamDescription != null) {
+                snapshot.putDescription(streamDescription);
+            }
+
+            return streamDescription;
+        }
+
+        @Override
+        public void deleteStream(@Nonnull final String streamName,
+                                 @Nonnull final String version,
+                                 final Date creationTime,
+                                 final long timeoutInMillis,
+                                 @Nullable final KinesisVideoCredentialsProvider credentialsProvider)
+                throws KinesisVideoException {
+            snapshot.removeStream(streamName);
+            serviceClient.deleteStream(streamName, version, creationTime, timeoutInMillis, credentialsProvider);
+        }
+
+        @Override
+        public void tagStream(@Nonnull final String streamArn,
+                              @Nullable final Map<String, String> tags,
+                              final long timeoutInMillis,
+                              @Nullable final KinesisVideoCredentialsProvider credentialsProvider)
+                throws KinesisVideoException {
+            serviceClient.tagStream(streamArn, tags, timeoutInMillis, credentialsProvider);
+            snapshot.putTags(streamArn, tags);
+        }
+
+        @Override
+        public String getDataEndpoint(@Nonnull final String streamName,
+                                      @Nonnull final String apiName,
+                                      final long timeoutInMillis,
+                                      @Nullable final KinesisVideoCredentialsProvider credentialsProvider)
+                throws KinesisVideoException {
+            final String dataEndpoint = serviceClient.getDataEndpoint(streamName, apiName, timeoutInMillis,
+                    credentialsProvider);
+            if (!isBlank(dataEndpoint)) {
+                snapshot.putDataEndpoint(streamName, apiName, dataEndpoint);
+            }
+
+            return dataEndpoint;
+        }
+
+        @Override
+        public void putMedia(@Nonnull final String streamName,
+                             @Nonnull final String containerType,
+                             final long streamStartTimeInMillis,
+                             final boolean absoluteFragmentTimes,
+                             final boolean ackRequired,
+                             @Nonnull final String dataEndpoint,
+                             final long timeoutInMillis,
+                             @Nullable final KinesisVideoCredentialsProvider credentialsProvider,
+                             @Nonnull final InputStream dataStream,
+                             @Nonnull final Consumer<InputStream> acksConsumer,
+                             @Nullable final Consumer<Exception> completionCallback)
+                throws KinesisVideoException {
+            serviceClient.putMedia(streamName, containerType, streamStartTimeInMillis, absoluteFragmentTimes,
+                    ackRequired, dataEndpoint, timeoutInMillis, credentialsProvider, dataStream, acksConsumer,
+                    completionCallback);
+        }
+    }
+}
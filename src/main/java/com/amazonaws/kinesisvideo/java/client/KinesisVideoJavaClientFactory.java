@@ -9,7 +9,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.internal.producer.ServiceCallbacks;
+import com.amazonaws.kinesisvideo.internal.service.AsyncServiceCallbacksImpl;
 import com.amazonaws.kinesisvideo.internal.service.DefaultServiceCallbacksImpl;
+import com.amazonaws.kinesisvideo.internal.service.SessionSnapshotServiceCallbacksImpl;
 import com.amazonaws.kinesisvideo.java.auth.JavaCredentialsProviderImpl;
 import com.amazonaws.kinesisvideo.java.service.JavaKinesisVideoServiceClient;
 import com.amazonaws.kinesisvideo.producer.DeviceInfo;
@@ -23,6 +25,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -86,6 +89,46 @@ public final class KinesisVideoJavaClientFactory {
                 executor);
     }
 
+    /**
+     * Create Kinesis Video client which makes the service calls asynchronously.
+     * <p>
+     * The executor threads only schedule the calls and report the results, so a few slow endpoints
+     * can not hold up the control plane progress of the other streams.
+     *
+     * @param regions Regions object
+     * @param awsCredentialsProvider Credentials provider
+     * @return Kinesis Video client, which frees the async service client when freed
+     * @throws KinesisVideoException
+     */
+    @Nonnull
+    public static KinesisVideoClient createKinesisVideoClientWithAsyncServiceCalls(
+            @Nonnull final Regions regions,
+            @Nonnull final AWSCredentialsProvider awsCredentialsProvider)
+            throws KinesisVideoException {
+        Preconditions.checkNotNull(regions);
+        Preconditions.checkNotNull(awsCredentialsProvider);
+
+        final KinesisVideoCredentialsProvider kinesisVideoCredentialsProvider =
+                new JavaCredentialsProviderImpl(awsCredentialsProvider);
+
+        final KinesisVideoClientConfiguration configuration = KinesisVideoClientConfiguration.builder()
+                .withRegion(regions.getName())
+                .withCredentialsProvider(kinesisVideoCredentialsProvider)
+                .withStorageCallbacks(new DefaultStorageCallbacks())
+                .build();
+
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(NUMBER_OF_THREADS_IN_POOL,
+                new ThreadFactoryBuilder().setNameFormat("KVS-JavaClientExecutor-%d").build());
+
+        final Logger log = LogManager.getLogger(KinesisVideoJavaClientFactory.class);
+
+        return createKinesisVideoClient(log,
+                configuration,
+                executor,
+                null,
+                new AsyncServiceCallbacksImpl(log, executor, configuration, new JavaKinesisVideoServiceClient(log)));
+    }
+
     /**
      * Create Kinesis Video client.
      */
@@ -142,6 +185,36 @@ public final class KinesisVideoJavaClientFactory {
         return kinesisVideoClient;
     }
 
+    /**
+     * Create Kinesis Video client warm-starting the streams from the session snapshot file, which the client keeps
+     * up to date with the stream descriptions, data endpoints and tags.
+     */
+    @Nonnull
+    public static KinesisVideoClient createKinesisVideoClientWithSessionSnapshot(
+            @Nonnull final KinesisVideoClientConfiguration configuration,
+            @Nonnull final DeviceInfo deviceInfo,
+            @Nonnull final ScheduledExecutorService executor,
+            @Nonnull final Path snapshotPath)
+            throws KinesisVideoException {
+        Preconditions.checkNotNull(configuration);
+        Preconditions.checkNotNull(deviceInfo);
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(snapshotPath);
+
+        final Logger log = LogManager.getLogger(KinesisVideoJavaClientFactory.class);
+
+        final KinesisVideoClient kinesisVideoClient = new JavaKinesisVideoClient(log,
+                configuration,
+                new SessionSnapshotServiceCallbacksImpl(log, executor, configuration,
+                        new JavaKinesisVideoServiceClient(log), snapshotPath),
+                executor,
+                new DefaultStreamCallbacks());
+
+        kinesisVideoClient.initialize(deviceInfo);
+
+        return kinesisVideoClient;
+    }
+
     @Nonnull
     public static KinesisVideoClient createKinesisVideoClient(
             @Nonnull final Logger log,
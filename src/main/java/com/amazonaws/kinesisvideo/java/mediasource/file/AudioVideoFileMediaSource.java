@@ -6,6 +6,8 @@ import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
 import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.multitrack.FrameInterleaver;
 import com.amazonaws.kinesisvideo.internal.mediasource.multitrack.MultiTrackMediaSource;
 import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
 
@@ -24,6 +26,7 @@ public class AudioVideoFileMediaSource extends MultiTrackMediaSource {
     private MediaSourceState mediaSourceState;
     private MediaSourceSink mediaSourceSink;
     private AudioVideoFrameSource audioVideoFrameSource;
+    private OnStreamDataAvailable streamDataAvailable;
     private CompletableFuture<Boolean> future;
 
     public AudioVideoFileMediaSource(@Nonnull final String streamName, CompletableFuture<Boolean> future) {
@@ -68,8 +71,9 @@ public class AudioVideoFileMediaSource extends MultiTrackMediaSource {
     @Override
     public void start() throws KinesisVideoException {
         mediaSourceState = MediaSourceState.RUNNING;
-        audioVideoFrameSource = new AudioVideoFrameSource(mediaSourceConfiguration);
-        audioVideoFrameSource.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        audioVideoFrameSource = new AudioVideoFrameSource(mediaSourceConfiguration, getPacingClock());
+        streamDataAvailable = mediaSourceConfiguration.interleave(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        audioVideoFrameSource.onStreamDataAvailable(streamDataAvailable);
         audioVideoFrameSource.start();
     }
 
@@ -78,6 +82,9 @@ public class AudioVideoFileMediaSource extends MultiTrackMediaSource {
         if (audioVideoFrameSource != null) {
             audioVideoFrameSource.stop();
         }
+        if (streamDataAvailable instanceof FrameInterleaver) {
+            ((FrameInterleaver) streamDataAvailable).flush();
+        }
 
         try {
             mediaSourceSink.getProducerStream().stopStreamSync();
@@ -0,0 +1,294 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.AUDIO_TRACK_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_TRACK_ID;
+
+/**
+ * One-time index of the frames replayed by an {@link AudioVideoFrameSource}.
+ * <p>
+ * The frames come either from a directory with one file per frame, named
+ * {@code timecode-mediaType-isKeyFrame-frame} like {@code 10999-video-true-frame}, or from a packed single-file
+ * container produced by {@link #pack(File, Path)}. The file names are parsed and sorted once, the frame data lives in
+ * a single read-only region: a direct buffer for a directory and a memory mapping of the container otherwise. Replaying
+ * a frame is then just an array lookup and a buffer duplicate.
+ */
+@Immutable
+public final class AudioVideoFrameIndex {
+    private static final String DELIMITER = "-";
+    private static final int INFO_LENGTH = 4;
+    private static final String VIDEO_TYPE = "video";
+
+    /**
+     * Packed container layout: magic, version, frame count, the frame headers then the frame data back to back.
+     */
+    private static final int PACKED_MAGIC = 0x4B564146; // KVAF
+    private static final int PACKED_VERSION = 1;
+    private static final int PACKED_FILE_HEADER_SIZE = 12;
+    private static final int PACKED_FRAME_HEADER_SIZE = 8 + 8 + 4 + 4;
+
+    private final long[] timecodesInNanos;
+    private final long[] trackIds;
+    private final int[] flags;
+    private final ByteBuffer[] frames;
+
+    private AudioVideoFrameIndex(final long[] timecodesInNanos,
+                                 final long[] trackIds,
+                                 final int[] flags,
+                                 final ByteBuffer[] frames) {
+        this.timecodesInNanos = timecodesInNanos;
+        this.trackIds = trackIds;
+        this.flags = flags;
+        this.frames = frames;
+    }
+
+    /**
+     * Indexes a directory or a packed container, whichever the path points to.
+     *
+     * @param path - directory with one file per frame or packed container
+     * @return index of the frames sorted by their timecode
+     * @throws IOException if the frames can not be read
+     */
+    @Nonnull
+    public static AudioVideoFrameIndex load(@Nonnull final File path) throws IOException {
+        return path.isDirectory() ? fromDirectory(path) : fromPackedFile(path.toPath());
+    }
+
+    /**
+     * Indexes a directory with one file per frame and loads the frames into a single direct buffer.
+     */
+    @Nonnull
+    public static AudioVideoFrameIndex fromDirectory(@Nonnull final File directory) throws IOException {
+        final List<FrameFile> frameFiles = listFrameFiles(directory);
+        final int numberOfFrames = frameFiles.size();
+        final long[] timecodes = new long[numberOfFrames];
+        final long[] trackIds = new long[numberOfFrames];
+        final int[] flags = new int[numberOfFrames];
+        final int[] sizes = new int[numberOfFrames];
+
+        long totalSize = 0;
+        for (int i = 0; i < numberOfFrames; i++) {
+            final FrameFile frameFile = frameFiles.get(i);
+            timecodes[i] = frameFile.timecodeInNanos;
+            trackIds[i] = frameFile.trackId;
+            flags[i] = frameFile.flags;
+            sizes[i] = getFrameSize(frameFile.path);
+            totalSize += sizes[i];
+        }
+
+        Preconditions.checkState(totalSize <= Integer.MAX_VALUE, "Frames do not fit in a single buffer, pack them");
+        final ByteBuffer data = ByteBuffer.allocateDirect((int) totalSize);
+        for (final FrameFile frameFile : frameFiles) {
+            try (FileChannel channel = FileChannel.open(frameFile.path, StandardOpenOption.READ)) {
+                while (channel.read(data) > 0) {
+                    // Keep reading until the end of the file
+                }
+            }
+        }
+
+        return new AudioVideoFrameIndex(timecodes, trackIds, flags, slice(data, sizes, 0));
+    }
+
+    /**
+     * Indexes a packed container and maps its frame data read-only.
+     */
+    @Nonnull
+    public static AudioVideoFrameIndex fromPackedFile(@Nonnull final Path packedFile) throws IOException {
+        final ByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(packedFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Packed frame container larger than 2 GB can not be mapped: " + packedFile);
+            }
+
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (mapping.remaining() < PACKED_FILE_HEADER_SIZE || mapping.getInt() != PACKED_MAGIC) {
+            throw new IOException("Not a packed frame container: " + packedFile);
+        }
+        if (mapping.getInt() != PACKED_VERSION) {
+            throw new IOException("Unsupported packed frame container version: " + packedFile);
+        }
+
+        final int numberOfFrames = mapping.getInt();
+        if (numberOfFrames < 0 || mapping.remaining() / PACKED_FRAME_HEADER_SIZE < numberOfFrames) {
+            throw new IOException("Truncated packed frame container: " + packedFile);
+        }
+
+        final long[] timecodes = new long[numberOfFrames];
+        final long[] trackIds = new long[numberOfFrames];
+        final int[] flags = new int[numberOfFrames];
+        final int[] sizes = new int[numberOfFrames];
+        long totalSize = 0;
+        for (int i = 0; i < numberOfFrames; i++) {
+            timecodes[i] = mapping.getLong();
+            trackIds[i] = mapping.getLong();
+            flags[i] = mapping.getInt();
+            sizes[i] = mapping.getInt();
+            if (sizes[i] < 0) {
+                throw new IOException("Corrupted packed frame container: " + packedFile);
+            }
+
+            totalSize += sizes[i];
+        }
+
+        if (mapping.remaining() < totalSize) {
+            throw new IOException("Truncated packed frame container: " + packedFile);
+        }
+
+        return new AudioVideoFrameIndex(timecodes, trackIds, flags,
+                slice(mapping.asReadOnlyBuffer(), sizes, mapping.position()));
+    }
+
+    /**
+     * Packs a directory with one file per frame into a single container which can be memory-mapped on replay.
+     *
+     * @param directory - directory with one file per frame
+     * @param packedFile - container to write
+     * @throws IOException if the frames can not be read or the container can not be written
+     */
+    public static void pack(@Nonnull final File directory, @Nonnull final Path packedFile) throws IOException {
+        final List<FrameFile> frameFiles = listFrameFiles(directory);
+        final int[] sizes = new int[frameFiles.size()];
+        long totalSize = PACKED_FILE_HEADER_SIZE + (long) PACKED_FRAME_HEADER_SIZE * frameFiles.size();
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = getFrameSize(frameFiles.get(i).path);
+            totalSize += sizes[i];
+        }
+
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IOException("Frames do not fit in a packed frame container of at most 2 GB: " + directory);
+        }
+
+        try (OutputStream fileStream = Files.newOutputStream(packedFile);
+             DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+            outputStream.writeInt(PACKED_MAGIC);
+            outputStream.writeInt(PACKED_VERSION);
+            outputStream.writeInt(frameFiles.size());
+            for (int i = 0; i < sizes.length; i++) {
+                final FrameFile frameFile = frameFiles.get(i);
+                outputStream.writeLong(frameFile.timecodeInNanos);
+                outputStream.writeLong(frameFile.trackId);
+                outputStream.writeInt(frameFile.flags);
+                outputStream.writeInt(sizes[i]);
+            }
+
+            for (final FrameFile frameFile : frameFiles) {
+                Files.copy(frameFile.path, outputStream);
+            }
+        }
+    }
+
+    private static int getFrameSize(@Nonnull final Path frameFile) throws IOException {
+        final long size = Files.size(frameFile);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Frame file larger than 2 GB: " + frameFile);
+        }
+
+        return (int) size;
+    }
+
+    public int getNumberOfFrames() {
+        return frames.length;
+    }
+
+    public long getTimecodeInNanos(final int index) {
+        return timecodesInNanos[index];
+    }
+
+    public long getTrackId(final int index) {
+        return trackIds[index];
+    }
+
+    public int getFlags(final int index) {
+        return flags[index];
+    }
+
+    /**
+     * @return read-only buffer with the frame data, independent from the buffers returned for the earlier replays
+     */
+    @Nonnull
+    public ByteBuffer getFrameData(final int index) {
+        return frames[index].duplicate();
+    }
+
+    private static ByteBuffer[] slice(final ByteBuffer data, final int[] sizes, final int dataOffset) {
+        final ByteBuffer readOnlyData = data.isReadOnly() ? data : data.asReadOnlyBuffer();
+        final ByteBuffer[] frames = new ByteBuffer[sizes.length];
+        int offset = dataOffset;
+        for (int i = 0; i < sizes.length; i++) {
+            final ByteBuffer frame = readOnlyData.duplicate();
+            frame.limit(offset + sizes[i]).position(offset);
+            frames[i] = frame.slice();
+            offset += sizes[i];
+        }
+
+        return frames;
+    }
+
+    private static List<FrameFile> listFrameFiles(final File directory) {
+        Preconditions.checkState(directory.isDirectory());
+
+        final String[] fileNameList = directory.list();
+        final List<FrameFile> frameFiles = new ArrayList<FrameFile>();
+        for (final String fileName : fileNameList == null ? new String[0] : fileNameList) {
+            frameFiles.add(FrameFile.parse(directory, fileName));
+        }
+
+        Collections.sort(frameFiles, new Comparator<FrameFile>() {
+            @Override
+            public int compare(final FrameFile frameFile1, final FrameFile frameFile2) {
+                return Long.compare(frameFile1.timecodeInNanos, frameFile2.timecodeInNanos);
+            }
+        });
+
+        return frameFiles;
+    }
+
+    private static final class FrameFile {
+        private final Path path;
+        private final long timecodeInNanos;
+        private final long trackId;
+        private final int flags;
+
+        private FrameFile(final Path path, final long timecodeInNanos, final long trackId, final int flags) {
+            this.path = path;
+            this.timecodeInNanos = timecodeInNanos;
+            this.trackId = trackId;
+            this.flags = flags;
+        }
+
+        static FrameFile parse(final File directory, final String fileName) {
+            // fileName format: timecode-mediaType-isKeyFrame-frame, timecode is offset from beginning
+            // 10000-audio-false-frame or 10999-video-true-frame
+            final String[] infos = fileName.split(DELIMITER);
+            Preconditions.checkState(infos.length == INFO_LENGTH, "Unexpected frame file name " + fileName);
+
+            final boolean isVideo = VIDEO_TYPE.equals(infos[1]);
+            return new FrameFile(new File(directory, fileName).toPath(),
+                    Long.parseLong(infos[0]),
+                    isVideo ? VIDEO_TRACK_ID : AUDIO_TRACK_ID,
+                    isVideo && Boolean.parseBoolean(infos[2]) ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE);
+        }
+    }
+}
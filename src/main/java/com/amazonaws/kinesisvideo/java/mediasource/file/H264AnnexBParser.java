@@ -0,0 +1,320 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming parser of an H264 Annex-B elementary stream.
+ * <p>
+ * The stream is split on the {@code 00 00 01} start codes and its NAL units are grouped into access units, one per
+ * frame. The start codes are looked for eight bytes at a time: a word without any zero byte can not hold the start
+ * of a start code, so only the words with a zero byte are looked at byte by byte. The access units are handed out as
+ * read-only slices of the stream, start codes included, and are never copied.
+ * <p>
+ * The SPS and PPS found in the stream are turned into the AVCC codec private data expected by the producer.
+ */
+@NotThreadSafe
+public final class H264AnnexBParser {
+    static final int NAL_TYPE_SLICE = 1;
+    static final int NAL_TYPE_IDR_SLICE = 5;
+    static final int NAL_TYPE_SEI = 6;
+    static final int NAL_TYPE_SPS = 7;
+    static final int NAL_TYPE_PPS = 8;
+    static final int NAL_TYPE_ACCESS_UNIT_DELIMITER = 9;
+
+    private static final int NAL_TYPE_MASK = 0x1F;
+    private static final int NAL_HEADER_SIZE = 1;
+    private static final int SPS_PROFILE_LEVEL_SIZE = 3;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final ByteBuffer data;
+    private final int limit;
+
+    /**
+     * Position of the start code of the next NAL unit to parse and, once known, the end of that NAL unit.
+     */
+    private int cursor;
+    private int cursorNalEnd = -1;
+
+    private byte[] sps;
+    private byte[] pps;
+    private boolean isParameterSetChanged;
+
+    /**
+     * @param data - Annex-B stream, parsed from its position to its limit
+     */
+    public H264AnnexBParser(@Nonnull final ByteBuffer data) {
+        final ByteBuffer readOnlyData = Preconditions.checkNotNull(data).isReadOnly() ? data : data.asReadOnlyBuffer();
+        this.data = readOnlyData.slice().order(ByteOrder.BIG_ENDIAN);
+        this.limit = this.data.limit();
+        rewind();
+    }
+
+    /**
+     * Memory-maps an Annex-B file read-only and parses it.
+     *
+     * @param path - raw .h264 file
+     * @return parser of the file
+     * @throws IOException if the file can not be mapped
+     */
+    @Nonnull
+    public static H264AnnexBParser open(@Nonnull final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new H264AnnexBParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the next access unit of the stream.
+     *
+     * @return the next access unit or null at the end of the stream
+     */
+    @Nullable
+    public AccessUnit nextAccessUnit() {
+        final int accessUnitStart = cursor;
+        boolean hasSlice = false;
+        boolean isIdr = false;
+
+        while (cursor < limit) {
+            final int payload = skipStartCode(cursor);
+            if (cursorNalEnd < 0) {
+                cursorNalEnd = findNalEnd(payload);
+            }
+
+            final int nalEnd = cursorNalEnd;
+            final int nalType = payload < nalEnd ? data.get(payload) & NAL_TYPE_MASK : 0;
+            if (hasSlice && isFirstNalOfAccessUnit(nalType, payload, nalEnd)) {
+                break;
+            }
+
+            if (nalType == NAL_TYPE_SLICE || nalType == NAL_TYPE_IDR_SLICE) {
+                hasSlice = true;
+                isIdr |= nalType == NAL_TYPE_IDR_SLICE;
+            } else if (nalType == NAL_TYPE_SPS) {
+                sps = updateParameterSet(sps, payload, nalEnd);
+            } else if (nalType == NAL_TYPE_PPS) {
+                pps = updateParameterSet(pps, payload, nalEnd);
+            }
+
+            cursor = nalEnd;
+            cursorNalEnd = -1;
+        }
+
+        if (cursor == accessUnitStart) {
+            return null;
+        }
+
+        byte[] codecPrivateData = null;
+        if (isParameterSetChanged && sps != null && pps != null) {
+            codecPrivateData = buildCodecPrivateData(sps, pps);
+            isParameterSetChanged = false;
+        }
+
+        final ByteBuffer accessUnitData = data.duplicate();
+        accessUnitData.limit(cursor).position(accessUnitStart);
+        return new AccessUnit(accessUnitData.slice(), isIdr, codecPrivateData);
+    }
+
+    /**
+     * Returns the codec private data of the stream without consuming it.
+     *
+     * @return AVCC codec private data built from the last SPS and PPS seen, or from the first ones of the stream if
+     * none have been seen yet, null if the stream has none
+     */
+    @Nullable
+    public byte[] readCodecPrivateData() {
+        if (sps != null && pps != null) {
+            return buildCodecPrivateData(sps, pps);
+        }
+
+        final int savedCursor = cursor;
+        final int savedCursorNalEnd = cursorNalEnd;
+        rewind();
+
+        byte[] codecPrivateData = null;
+        AccessUnit accessUnit;
+        while (codecPrivateData == null && (accessUnit = nextAccessUnit()) != null) {
+            codecPrivateData = accessUnit.getCodecPrivateData();
+        }
+
+        cursor = savedCursor;
+        cursorNalEnd = savedCursorNalEnd;
+        return codecPrivateData;
+    }
+
+    /**
+     * Goes back to the start of the stream. The parameter sets seen so far are kept, so replaying the stream does not
+     * report the same codec private data again.
+     */
+    public void rewind() {
+        final int firstStartCode = findStartCode(data, 0, limit);
+        cursor = firstStartCode < 0 ? limit : firstStartCode;
+        // Keep the leading zero of a four byte start code with the first access unit
+        while (cursor > 0 && cursor < limit && data.get(cursor - 1) == 0) {
+            cursor--;
+        }
+
+        cursorNalEnd = -1;
+    }
+
+    /**
+     * Finds the first {@code 00 00 01} start code at or after a position.
+     *
+     * @param buffer - big-endian buffer to search
+     * @param from - absolute position to search from
+     * @param to - absolute position to search to, exclusive
+     * @return absolute position of the first zero of the start code or -1 if there is none
+     */
+    static int findStartCode(final ByteBuffer buffer, final int from, final int to) {
+        int i = from;
+        // Word at a time: (v - 0x01..01) & ~v & 0x80..80 is non-zero only if v has a zero byte
+        while (i + Long.BYTES <= to) {
+            final long word = buffer.getLong(i);
+            if (((word - ONES) & ~word & HIGH_BITS) != 0) {
+                for (int j = i; j < i + Long.BYTES; j++) {
+                    if (isStartCode(buffer, j, to)) {
+                        return j;
+                    }
+                }
+            }
+
+            i += Long.BYTES;
+        }
+
+        for (; i < to; i++) {
+            if (isStartCode(buffer, i, to)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isStartCode(final ByteBuffer buffer, final int position, final int to) {
+        return position + 2 < to
+                && buffer.get(position) == 0
+                && buffer.get(position + 1) == 0
+                && buffer.get(position + 2) == 1;
+    }
+
+    /**
+     * Whether a NAL unit following a slice starts a new access unit, see 7.4.1.2.3 of the H264 specification. A slice
+     * starts a new access unit when its first_mb_in_slice is zero, that is when the first bit of its header is set.
+     */
+    private boolean isFirstNalOfAccessUnit(final int nalType, final int payload, final int nalEnd) {
+        switch (nalType) {
+            case NAL_TYPE_SLICE:
+            case NAL_TYPE_IDR_SLICE:
+                return payload + NAL_HEADER_SIZE < nalEnd && (data.get(payload + NAL_HEADER_SIZE) & 0x80) != 0;
+            case NAL_TYPE_SEI:
+            case NAL_TYPE_SPS:
+            case NAL_TYPE_PPS:
+            case NAL_TYPE_ACCESS_UNIT_DELIMITER:
+                return true;
+            default:
+                return nalType >= 14 && nalType <= 18;
+        }
+    }
+
+    private int skipStartCode(final int startCode) {
+        int position = startCode;
+        while (position < limit && data.get(position) == 0) {
+            position++;
+        }
+
+        return Math.min(position + 1, limit);
+    }
+
+    /**
+     * End of the NAL unit, the trailing zeros and the leading zero of a four byte start code are left to the next one.
+     */
+    private int findNalEnd(final int payload) {
+        final int nextStartCode = findStartCode(data, payload, limit);
+        int end = nextStartCode < 0 ? limit : nextStartCode;
+        while (end > payload && data.get(end - 1) == 0) {
+            end--;
+        }
+
+        return nextStartCode < 0 ? limit : end;
+    }
+
+    private byte[] updateParameterSet(final byte[] current, final int payload, final int nalEnd) {
+        final byte[] parameterSet = new byte[nalEnd - payload];
+        final ByteBuffer nal = data.duplicate();
+        nal.position(payload);
+        nal.get(parameterSet);
+        if (Arrays.equals(current, parameterSet)) {
+            return current;
+        }
+
+        isParameterSetChanged = true;
+        return parameterSet;
+    }
+
+    /**
+     * AVCDecoderConfigurationRecord with a single SPS and PPS and four byte NAL unit lengths.
+     */
+    static byte[] buildCodecPrivateData(@Nonnull final byte[] sps, @Nonnull final byte[] pps) {
+        Preconditions.checkArgument(sps.length > SPS_PROFILE_LEVEL_SIZE, "SPS is too short");
+        final ByteBuffer codecPrivateData = ByteBuffer.allocate(11 + sps.length + pps.length);
+        codecPrivateData.put((byte) 0x01)
+                .put(sps, NAL_HEADER_SIZE, SPS_PROFILE_LEVEL_SIZE)
+                .put((byte) 0xFF)
+                .put((byte) 0xE1)
+                .putShort((short) sps.length)
+                .put(sps)
+                .put((byte) 0x01)
+                .putShort((short) pps.length)
+                .put(pps);
+        return codecPrivateData.array();
+    }
+
+    /**
+     * Access unit of the stream.
+     */
+    public static final class AccessUnit {
+        private final ByteBuffer data;
+        private final boolean isKeyFrame;
+        private final byte[] codecPrivateData;
+
+        private AccessUnit(final ByteBuffer data, final boolean isKeyFrame, final byte[] codecPrivateData) {
+            this.data = data;
+            this.isKeyFrame = isKeyFrame;
+            this.codecPrivateData = codecPrivateData;
+        }
+
+        /**
+         * @return read-only slice of the stream with the NAL units of the access unit
+         */
+        @Nonnull
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        /**
+         * @return whether the access unit holds an IDR picture
+         */
+        public boolean isKeyFrame() {
+            return isKeyFrame;
+        }
+
+        /**
+         * @return new codec private data if the access unit changed the SPS or PPS, null otherwise
+         */
+        @Nullable
+        public byte[] getCodecPrivateData() {
+            return codecPrivateData;
+        }
+    }
+}
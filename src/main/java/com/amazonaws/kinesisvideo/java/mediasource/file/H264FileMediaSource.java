@@ -0,0 +1,190 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import static com.amazonaws.kinesisvideo.producer.StreamInfo.NalAdaptationFlags.NAL_ADAPTATION_ANNEXB_NALS;
+import static com.amazonaws.kinesisvideo.producer.StreamInfo.codecIdFromContentType;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BITRATE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BUFFER_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_GOP_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_REPLAY_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_STALENESS_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_TIMESCALE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.KEYFRAME_FRAGMENTATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.MAX_LATENCY_ZERO;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NOT_ADAPTIVE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NO_KMS_KEY_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECALCULATE_METRICS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECOVER_ON_FAILURE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RELATIVE_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.REQUEST_FRAGMENT_ACKS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RETENTION_ONE_HOUR;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.USE_FRAME_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VERSION_TWO;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.Tag;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * MediaSource based on a local raw H264 Annex-B elementary stream file. The file is memory-mapped and replayed in a
+ * loop, one access unit per frame, the codec private data is extracted from its SPS and PPS.
+ */
+public class H264FileMediaSource implements MediaSource, PacedMediaSource {
+    private final String streamName;
+    private final CompletableFuture<Boolean> future;
+
+    private H264FileMediaSourceConfiguration h264FileMediaSourceConfiguration;
+    private MediaSourceState mediaSourceState;
+    private MediaSourceSink mediaSourceSink;
+    private H264AnnexBParser parser;
+    private H264FrameSource h264FrameSource;
+    private PacingClock pacingClock;
+
+    public H264FileMediaSource(@Nonnull final String streamName) {
+        this(streamName, new CompletableFuture<>());
+    }
+
+    public H264FileMediaSource(@Nonnull final String streamName, final CompletableFuture<Boolean> future) {
+        this.streamName = streamName;
+        this.future = future;
+    }
+
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+    }
+
+    @Override
+    public MediaSourceState getMediaSourceState() {
+        return mediaSourceState;
+    }
+
+    @Override
+    public MediaSourceConfiguration getConfiguration() {
+        return h264FileMediaSourceConfiguration;
+    }
+
+    @Override
+    public StreamInfo getStreamInfo() throws KinesisVideoException {
+        return new StreamInfo(VERSION_TWO,
+                streamName,
+                StreamInfo.StreamingType.STREAMING_TYPE_REALTIME,
+                h264FileMediaSourceConfiguration.getContentType(),
+                NO_KMS_KEY_ID,
+                RETENTION_ONE_HOUR,
+                NOT_ADAPTIVE,
+                MAX_LATENCY_ZERO,
+                DEFAULT_GOP_DURATION,
+                KEYFRAME_FRAGMENTATION,
+                USE_FRAME_TIMECODES,
+                RELATIVE_TIMECODES,
+                REQUEST_FRAGMENT_ACKS,
+                RECOVER_ON_FAILURE,
+                codecIdFromContentType(h264FileMediaSourceConfiguration.getContentType()),
+                "test-track",
+                DEFAULT_BITRATE,
+                h264FileMediaSourceConfiguration.getFps(),
+                DEFAULT_BUFFER_DURATION,
+                DEFAULT_REPLAY_DURATION,
+                DEFAULT_STALENESS_DURATION,
+                DEFAULT_TIMESCALE,
+                RECALCULATE_METRICS,
+                getParser().readCodecPrivateData(),
+                new Tag[] {
+                        new Tag("device", "Test Device"),
+                        new Tag("stream", "Test Stream") },
+                NAL_ADAPTATION_ANNEXB_NALS);
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        this.mediaSourceSink = mediaSourceSink;
+    }
+
+    @Override
+    public void configure(final MediaSourceConfiguration configuration) {
+        Preconditions.checkState(this.h264FileMediaSourceConfiguration == null);
+
+        if (!(configuration instanceof H264FileMediaSourceConfiguration)) {
+            throw new IllegalStateException("Configuration must be an instance of H264FileMediaSourceConfiguration");
+        }
+
+        this.h264FileMediaSourceConfiguration = (H264FileMediaSourceConfiguration) configuration;
+    }
+
+    @Override
+    public void start() throws KinesisVideoException {
+        mediaSourceState = MediaSourceState.RUNNING;
+        h264FrameSource = new H264FrameSource(getParser(), h264FileMediaSourceConfiguration.getFps(),
+                PacingClock.orDefault(pacingClock));
+        h264FrameSource.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        h264FrameSource.start();
+    }
+
+    @Override
+    public void stop() throws KinesisVideoException {
+        if (h264FrameSource != null) {
+            h264FrameSource.stop();
+        }
+
+        try {
+            if (null != mediaSourceSink && null != mediaSourceSink.getProducerStream()) {
+                mediaSourceSink.getProducerStream().stopStreamSync();
+            }
+        } finally {
+            mediaSourceState = MediaSourceState.STOPPED;
+            future.complete(true);
+        }
+    }
+
+    @Override
+    public boolean isStopped() {
+        return mediaSourceState == MediaSourceState.STOPPED;
+    }
+
+    @Override
+    public void free() throws KinesisVideoException {
+        // No-op
+    }
+
+    @Override
+    public MediaSourceSink getMediaSourceSink() {
+        return mediaSourceSink;
+    }
+
+    @Nullable
+    @Override
+    public StreamCallbacks getStreamCallbacks() {
+        return null;
+    }
+
+    private H264AnnexBParser getParser() throws KinesisVideoException {
+        Preconditions.checkState(h264FileMediaSourceConfiguration != null, "Media source has not been configured");
+        if (parser == null) {
+            try {
+                parser = H264AnnexBParser.open(Paths.get(h264FileMediaSourceConfiguration.getFilePath()));
+            } catch (final IOException e) {
+                throw new KinesisVideoException("Unable to map the H264 file "
+                        + h264FileMediaSourceConfiguration.getFilePath(), e);
+            }
+        }
+
+        return parser;
+    }
+}
@@ -0,0 +1,73 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_CONTENT_TYPE;
+
+public class H264FileMediaSourceConfiguration implements MediaSourceConfiguration {
+    private final int fps;
+    private final String filePath;
+    private final String contentType;
+
+    public H264FileMediaSourceConfiguration(final Builder builder) {
+        this.fps = builder.fps;
+        this.filePath = builder.filePath;
+        this.contentType = builder.contentType;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    /**
+     * @return path of the raw Annex-B .h264 file
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getMediaSourceType() {
+        return null;
+    }
+
+    @Override
+    public String getMediaSourceDescription() {
+        return null;
+    }
+
+    public static class Builder implements MediaSourceConfiguration.Builder<H264FileMediaSourceConfiguration> {
+        private int fps;
+        private String filePath;
+        private String contentType = VIDEO_CONTENT_TYPE;
+
+        public Builder fps(final int fps) {
+            this.fps = fps;
+            if (fps <= 0) {
+                throw new IllegalArgumentException("Fps should not be negative or zero.");
+            }
+            return this;
+        }
+
+        public Builder filePath(final String filePath) {
+            this.filePath = filePath;
+            return this;
+        }
+
+        public Builder contentType(final String contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        @Override
+        public H264FileMediaSourceConfiguration build() {
+            return new H264FileMediaSourceConfiguration(this);
+        }
+    }
+
+}
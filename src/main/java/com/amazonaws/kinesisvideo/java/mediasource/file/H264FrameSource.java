@@ -0,0 +1,114 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.time.Duration;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_TRACK_ID;
+
+/**
+ * Frame source replaying a raw H264 Annex-B file in a loop, one access unit per frame.
+ */
+@NotThreadSafe
+public class H264FrameSource {
+    private final PacingClock pacingClock;
+    private final int fps;
+    private final H264AnnexBParser parser;
+    private PacingClock.Registration pacing;
+
+    private OnStreamDataAvailable mkvDataAvailableCallback;
+    private boolean isRunning = false;
+    private int frameCounter;
+    private final Log log = LogFactory.getLog(H264FrameSource.class);
+
+    public H264FrameSource(@Nonnull final H264AnnexBParser parser, final int fps) {
+        this(parser, fps, PacingClock.getDefault());
+    }
+
+    public H264FrameSource(@Nonnull final H264AnnexBParser parser, final int fps, final PacingClock pacingClock) {
+        this.parser = parser;
+        this.fps = fps;
+        this.pacingClock = pacingClock;
+    }
+
+    public void start() {
+        if (isRunning) {
+            throw new IllegalStateException("Frame source is already running");
+        }
+
+        isRunning = true;
+        startFrameGenerator();
+    }
+
+    public void stop() {
+        isRunning = false;
+        stopFrameGenerator();
+    }
+
+    public void onStreamDataAvailable(final OnStreamDataAvailable onMkvDataAvailable) {
+        this.mkvDataAvailableCallback = onMkvDataAvailable;
+    }
+
+    private void startFrameGenerator() {
+        pacing = pacingClock.schedule(0, Duration.ofSeconds(1L).toNanos() / fps, PacingClock.Policy.SKIP,
+                new PacingClock.Listener() {
+                    @Override
+                    public void onDeadline(final long deadlineInNanos) throws KinesisVideoException {
+                        generateFrameAndNotifyListener();
+                    }
+                });
+    }
+
+    private void generateFrameAndNotifyListener() throws KinesisVideoException {
+        H264AnnexBParser.AccessUnit accessUnit = parser.nextAccessUnit();
+        if (accessUnit == null) {
+            // End of the file, loop
+            parser.rewind();
+            accessUnit = parser.nextAccessUnit();
+            if (accessUnit == null) {
+                throw new KinesisVideoException("No access unit found in the H264 file");
+            }
+        }
+
+        if (mkvDataAvailableCallback != null) {
+            if (accessUnit.getCodecPrivateData() != null) {
+                mkvDataAvailableCallback.onCodecPrivateData(accessUnit.getCodecPrivateData(), VIDEO_TRACK_ID);
+            }
+
+            mkvDataAvailableCallback.onFrameDataAvailable(createKinesisVideoFrame(accessUnit));
+        }
+
+        frameCounter++;
+    }
+
+    private KinesisVideoFrame createKinesisVideoFrame(final H264AnnexBParser.AccessUnit accessUnit) {
+        final long currentTimeMs = System.currentTimeMillis();
+        final long frameDurationMs = Duration.ofSeconds(1L).toMillis() / fps;
+        return new KinesisVideoFrame(
+                frameCounter,
+                accessUnit.isKeyFrame() ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE,
+                currentTimeMs * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                currentTimeMs * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                frameDurationMs * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                accessUnit.getData());
+    }
+
+    private void stopFrameGenerator() {
+        if (pacing != null) {
+            pacing.cancel();
+            log.info("Stopped generating frames, " + pacing.getStats());
+            pacing = null;
+        }
+    }
+}
@@ -25,6 +25,8 @@ import javax.annotation.Nullable;
 
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
 import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
 
 import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
@@ -41,7 +43,7 @@ import java.util.concurrent.CompletableFuture;
  * MediaSource based on local image files. Currently, this MediaSource expects
  * a series of H264 frames.
  */
-public class ImageFileMediaSource implements MediaSource {
+public class ImageFileMediaSource implements MediaSource, PacedMediaSource {
     // Codec private data could be extracted using gstreamer plugin
     // CHECKSTYLE:SUPPRESS:LineLength
     // GST_DEBUG=4 gst-launch-1.0 rtspsrc location="YourRtspUrl" short-header=TRUE protocols=tcp ! rtph264depay ! decodebin ! videorate ! videoscale ! vtenc_h264_hw allow-frame-reordering=FALSE max-keyframe-interval=25 bitrate=1024 realtime=TRUE ! video/x-h264,stream-format=avc,alignment=au,profile=baseline,width=640,height=480,framerate=1/25 ! multifilesink location=./frame%03d.h264 index=1 | grep codec_data
@@ -61,6 +63,7 @@ public class ImageFileMediaSource implements MediaSource {
     private MediaSourceState mediaSourceState;
     private MediaSourceSink mediaSourceSink;
     private ImageFrameSource imageFrameSource;
+    private PacingClock pacingClock;
 
     public ImageFileMediaSource(@Nonnull final String streamName) {
         this(streamName, new CompletableFuture<>());
@@ -71,6 +74,11 @@ public class ImageFileMediaSource implements MediaSource {
         this.future = future;
     }
 
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+    }
+
     @Override
     public MediaSourceState getMediaSourceState() {
         return mediaSourceState;
@@ -132,7 +140,8 @@ public class ImageFileMediaSource implements MediaSource {
     @Override
     public void start() throws KinesisVideoException {
         mediaSourceState = MediaSourceState.RUNNING;
-        imageFrameSource = new ImageFrameSource(imageFileMediaSourceConfiguration);
+        imageFrameSource = new ImageFrameSource(imageFileMediaSourceConfiguration,
+                PacingClock.orDefault(pacingClock));
         imageFrameSource.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
         imageFrameSource.start();
     }
@@ -6,6 +6,10 @@ import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfigu
 import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_CONTENT_TYPE;
 
 public class ImageFileMediaSourceConfiguration implements MediaSourceConfiguration {
+    /**
+     * Default upper bound of the image bytes kept mapped in memory
+     */
+    public static final long DEFAULT_FRAME_CACHE_SIZE_IN_BYTES = 64L * 1024 * 1024;
 
     private final int fps;
     private final String dir;
@@ -13,6 +17,7 @@ public class ImageFileMediaSourceConfiguration implements MediaSourceConfigurati
     private final int startFileIndex;
     private final int endFileIndex;
     private final String contentType;
+    private final long frameCacheSizeInBytes;
 
     public ImageFileMediaSourceConfiguration(final Builder builder) {
         this.fps = builder.fps;
@@ -21,6 +26,7 @@ public class ImageFileMediaSourceConfiguration implements MediaSourceConfigurati
         this.startFileIndex = builder.startFileIndex;
         this.endFileIndex = builder.endFileIndex;
         this.contentType = builder.contentType;
+        this.frameCacheSizeInBytes = builder.frameCacheSizeInBytes;
     }
 
     public int getFps() {
@@ -47,6 +53,10 @@ public class ImageFileMediaSourceConfiguration implements MediaSourceConfigurati
         return contentType;
     }
 
+    public long getFrameCacheSizeInBytes() {
+        return frameCacheSizeInBytes;
+    }
+
     @Override
     public String getMediaSourceType() {
         return null;
@@ -64,6 +74,7 @@ public class ImageFileMediaSourceConfiguration implements MediaSourceConfigurati
         private int startFileIndex;
         private int endFileIndex;
         private String contentType = VIDEO_CONTENT_TYPE;
+        private long frameCacheSizeInBytes = DEFAULT_FRAME_CACHE_SIZE_IN_BYTES;
 
         public Builder fps(final int fps) {
             this.fps = fps;
@@ -98,6 +109,14 @@ public class ImageFileMediaSourceConfiguration implements MediaSourceConfigurati
             return this;
         }
 
+        public Builder frameCacheSizeInBytes(final long frameCacheSizeInBytes) {
+            if (frameCacheSizeInBytes < 0) {
+                throw new IllegalArgumentException("Frame cache size should not be negative.");
+            }
+            this.frameCacheSizeInBytes = frameCacheSizeInBytes;
+            return this;
+        }
+
         @Override
         public ImageFileMediaSourceConfiguration build() {
             return new ImageFileMediaSourceConfiguration(this);
@@ -0,0 +1,158 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the memory-mapped image files of an {@link ImageFrameSource}.
+ * <p>
+ * The files are mapped read-only and handed out as read-only slices, so serving a frame neither touches the
+ * file system nor copies the image. The total size of the mapped files is bounded, the least recently used ones
+ * are dropped first when an image set does not fit. A file larger than the whole cache is mapped once and pinned
+ * outside of the bound, since it could never stay in it and mapping it again on every frame is what the cache is
+ * there to avoid.
+ */
+@NotThreadSafe
+public class ImageFrameCache {
+    private final Path[] paths;
+    private final long maxSizeInBytes;
+    private final Map<Integer, ByteBuffer> mappedFiles = new LinkedHashMap<Integer, ByteBuffer>(16, 0.75f, true);
+    private final Map<Integer, ByteBuffer> pinnedFiles = new HashMap<Integer, ByteBuffer>();
+    private long sizeInBytes;
+
+    /**
+     * @param configuration - configuration of the image file media source
+     */
+    public ImageFrameCache(@Nonnull final ImageFileMediaSourceConfiguration configuration) {
+        this(configuration, configuration.getFrameCacheSizeInBytes());
+    }
+
+    /**
+     * @param configuration - configuration of the image file media source
+     * @param maxSizeInBytes - upper bound of the size of the mapped files
+     */
+    public ImageFrameCache(@Nonnull final ImageFileMediaSourceConfiguration configuration,
+                           final long maxSizeInBytes) {
+        Preconditions.checkNotNull(configuration);
+        Preconditions.checkArgument(maxSizeInBytes >= 0);
+        final int startIndex = configuration.getStartFileIndex();
+        final int endIndex = configuration.getEndFileIndex();
+        Preconditions.checkState(endIndex >= startIndex);
+
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.paths = new Path[endIndex - startIndex + 1];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = Paths.get(configuration.getDir() + String.format(configuration.getFilenameFormat(),
+                    startIndex + i));
+        }
+    }
+
+    /**
+     * Maps the files in the configured range until the cache is full. The files larger than the whole cache are
+     * pinned and don't count towards it.
+     *
+     * @throws IOException if any of the files can not be mapped
+     */
+    public void preload() throws IOException {
+        for (int i = 0; i < paths.length; i++) {
+            final int numberOfCachedFiles = mappedFiles.size();
+            getFrameData(i);
+            if (pinnedFiles.containsKey(i)) {
+                continue;
+            }
+
+            if (mappedFiles.size() <= numberOfCachedFiles) {
+                // Full, mapping the rest would only evict the files mapped so far
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the data of a frame.
+     *
+     * @param frameIndex - index of the frame, wraps around the configured file range
+     * @return read-only buffer with the contents of the image file, positioned at its start
+     * @throws IOException if the image file can not be mapped
+     */
+    @Nonnull
+    public ByteBuffer getFrameData(final long frameIndex) throws IOException {
+        final int fileIndex = (int) (frameIndex % paths.length);
+        ByteBuffer mappedFile = mappedFiles.get(fileIndex);
+        if (mappedFile == null) {
+            mappedFile = pinnedFiles.get(fileIndex);
+        }
+
+        if (mappedFile == null) {
+            mappedFile = map(paths[fileIndex]);
+            if (mappedFile.capacity() > maxSizeInBytes) {
+                pinnedFiles.put(fileIndex, mappedFile);
+            } else {
+                mappedFiles.put(fileIndex, mappedFile);
+                sizeInBytes += mappedFile.capacity();
+                evict();
+            }
+        }
+
+        return mappedFile.duplicate();
+    }
+
+    public int getNumberOfFiles() {
+        return paths.length;
+    }
+
+    public int getNumberOfCachedFiles() {
+        return mappedFiles.size();
+    }
+
+    /**
+     * @return number of the files larger than the whole cache, mapped outside of its bound
+     */
+    public int getNumberOfPinnedFiles() {
+        return pinnedFiles.size();
+    }
+
+    /**
+     * @return size of the cached files, the pinned ones excluded
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Drops all the mapped files. The mappings are released once the handed out buffers are collected.
+     */
+    public void clear() {
+        mappedFiles.clear();
+        pinnedFiles.clear();
+        sizeInBytes = 0;
+    }
+
+    private void evict() {
+        final Iterator<ByteBuffer> iterator = mappedFiles.values().iterator();
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            sizeInBytes -= iterator.next().capacity();
+            iterator.remove();
+        }
+    }
+
+    private static ByteBuffer map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return mappedFile.asReadOnlyBuffer();
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.amazonaws.kinesisvideo.java.mediasource.file;
 
 import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
-import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
 
 import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
 import org.apache.commons.logging.Log;
@@ -11,12 +11,7 @@ import org.apache.commons.logging.LogFactory;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
 import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
@@ -29,11 +24,12 @@ import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MI
 public class ImageFrameSource {
     public static final int METADATA_INTERVAL = 8;
     private static final long FRAME_DURATION_20_MS = 20L;
-    private final ExecutorService executor = Executors.newFixedThreadPool(1);
+    private final PacingClock pacingClock;
     private final int fps;
     private final ImageFileMediaSourceConfiguration configuration;
+    private final ImageFrameCache frameCache;
+    private PacingClock.Registration pacing;
 
-    private final int totalFiles;
     private OnStreamDataAvailable mkvDataAvailableCallback;
     private boolean isRunning = false;
     private int frameCounter;
@@ -42,14 +38,14 @@ public class ImageFrameSource {
     private int metadataCount = 0;
 
     public ImageFrameSource(final ImageFileMediaSourceConfiguration configuration) {
-        this.configuration = configuration;
-        this.totalFiles = getTotalFiles(configuration.getStartFileIndex(), configuration.getEndFileIndex());
-        this.fps = configuration.getFps();
+        this(configuration, PacingClock.getDefault());
     }
 
-    private int getTotalFiles(final int startIndex, final int endIndex) {
-        Preconditions.checkState(endIndex >= startIndex);
-        return endIndex - startIndex + 1;
+    public ImageFrameSource(final ImageFileMediaSourceConfiguration configuration, final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+        this.configuration = configuration;
+        this.frameCache = new ImageFrameCache(configuration);
+        this.fps = configuration.getFps();
     }
 
     public void start() {
@@ -58,6 +54,12 @@ public class ImageFrameSource {
         }
 
         isRunning = true;
+        try {
+            frameCache.preload();
+        } catch (final IOException e) {
+            log.error("Preloading image files failed with Exception ", e);
+        }
+
         startFrameGenerator();
     }
 
@@ -71,35 +73,25 @@ public class ImageFrameSource {
     }
 
     private void startFrameGenerator() {
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    generateFrameAndNotifyListener();
-                } catch (final KinesisVideoException e) {
-                    log.error("Failed to keep generating frames with Exception", e);
-                }
-            }
-        });
+        pacing = pacingClock.schedule(0, Duration.ofSeconds(1L).toNanos() / fps, PacingClock.Policy.SKIP,
+                new PacingClock.Listener() {
+                    @Override
+                    public void onDeadline(final long deadlineInNanos) throws KinesisVideoException {
+                        generateFrameAndNotifyListener();
+                    }
+                });
     }
 
     private void generateFrameAndNotifyListener() throws KinesisVideoException {
-        while (isRunning) {
-            if (mkvDataAvailableCallback != null) {
-                mkvDataAvailableCallback.onFrameDataAvailable(createKinesisVideoFrameFromImage(frameCounter));
-                if (isMetadataReady()) {
-                    mkvDataAvailableCallback.onFragmentMetadataAvailable(metadataName + metadataCount,
-                            Integer.toString(metadataCount++), false);
-                }
-            }
-
-            frameCounter++;
-            try {
-                Thread.sleep(Duration.ofSeconds(1L).toMillis() / fps);
-            } catch (final InterruptedException e) {
-                log.error("Frame interval wait interrupted by Exception ", e);
+        if (mkvDataAvailableCallback != null) {
+            mkvDataAvailableCallback.onFrameDataAvailable(createKinesisVideoFrameFromImage(frameCounter));
+            if (isMetadataReady()) {
+                mkvDataAvailableCallback.onFragmentMetadataAvailable(metadataName + metadataCount,
+                        Integer.toString(metadataCount++), false);
             }
         }
+
+        frameCounter++;
     }
 
     private boolean isMetadataReady() {
@@ -107,23 +99,19 @@ public class ImageFrameSource {
     }
 
     private KinesisVideoFrame createKinesisVideoFrameFromImage(final long index) {
-        final String filename = String.format(
-                configuration.getFilenameFormat(),
-                index % totalFiles + configuration.getStartFileIndex());
-        final Path path = Paths.get(configuration.getDir() + filename);
         final long currentTimeMs = System.currentTimeMillis();
 
         final int flags = isKeyFrame() ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE;
 
         try {
-            final byte[] data = Files.readAllBytes(path);
+            final ByteBuffer data = frameCache.getFrameData(index);
             return new KinesisVideoFrame(
                     frameCounter,
                     flags,
                     currentTimeMs * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
                     currentTimeMs * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
                     FRAME_DURATION_20_MS * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
-                    ByteBuffer.wrap(data));
+                    data);
         } catch (final IOException e) {
             log.error("Read file failed with Exception ", e);
         }
@@ -137,6 +125,10 @@ public class ImageFrameSource {
 
 
     private void stopFrameGenerator() {
-        executor.shutdown();
+        if (pacing != null) {
+            pacing.cancel();
+            log.info("Stopped generating frames, " + pacing.getStats());
+            pacing = null;
+        }
     }
 }
@@ -0,0 +1,465 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming demuxer of a Matroska file.
+ * <p>
+ * The file is memory-mapped and walked element by element: the EBML header and the elements which are not needed are
+ * skipped over, the Segment, Cluster and BlockGroup are stepped into without reading them as a whole, so unknown-sized
+ * Segments and Clusters are supported and several Segments can follow each other. Walking the Clusters allocates
+ * nothing, the current frame is kept in primitive fields and its data is only sliced out of the mapping on demand.
+ * <p>
+ * Laced blocks are skipped.
+ */
+@NotThreadSafe
+public final class MkvDemuxer {
+    static final int EBML_ID = 0x1A45DFA3;
+    static final int SEGMENT_ID = 0x18538067;
+    static final int INFO_ID = 0x1549A966;
+    static final int TIMECODE_SCALE_ID = 0x2AD7B1;
+    static final int TRACKS_ID = 0x1654AE6B;
+    static final int TRACK_ENTRY_ID = 0xAE;
+    static final int TRACK_NUMBER_ID = 0xD7;
+    static final int TRACK_TYPE_ID = 0x83;
+    static final int CODEC_ID_ID = 0x86;
+    static final int CODEC_PRIVATE_ID = 0x63A2;
+    static final int NAME_ID = 0x536E;
+    static final int CLUSTER_ID = 0x1F43B675;
+    static final int TIMECODE_ID = 0xE7;
+    static final int SIMPLE_BLOCK_ID = 0xA3;
+    static final int BLOCK_GROUP_ID = 0xA0;
+    static final int BLOCK_ID = 0xA1;
+    static final int REFERENCE_BLOCK_ID = 0xFB;
+
+    static final long UNKNOWN_SIZE = -1;
+    private static final long DEFAULT_TIMECODE_SCALE_IN_NANOS = 1000000;
+    private static final int MKV_TRACK_TYPE_VIDEO = 1;
+    private static final int MKV_TRACK_TYPE_AUDIO = 2;
+    private static final int BLOCK_FLAG_KEY_FRAME = 0x80;
+    private static final int BLOCK_FLAG_LACING = 0x06;
+
+    private final ByteBuffer data;
+    private final int limit;
+    private final int firstClusterPosition;
+    private List<Track> tracks = Collections.emptyList();
+    private long timecodeScaleInNanos = DEFAULT_TIMECODE_SCALE_IN_NANOS;
+
+    /**
+     * Walk state, the element header fields are set by {@link #readElementHeader()}
+     */
+    private int position;
+    private int elementId;
+    private long elementSize;
+    private long clusterTimecode;
+    private int blockGroupEnd = -1;
+    private boolean isBlockGroupKeyFrame;
+    private long skippedLacedBlockCount;
+
+    /**
+     * Current frame
+     */
+    private long frameTrackNumber;
+    private long frameTimecodeInNanos;
+    private boolean isFrameKeyFrame;
+    private int frameDataStart;
+    private int frameDataEnd;
+
+    /**
+     * @param data - Matroska file, demuxed from its position to its limit
+     */
+    public MkvDemuxer(@Nonnull final ByteBuffer data) {
+        final ByteBuffer readOnlyData = Preconditions.checkNotNull(data).isReadOnly() ? data : data.asReadOnlyBuffer();
+        this.data = readOnlyData.slice();
+        this.limit = this.data.limit();
+        this.firstClusterPosition = readHeaders();
+        this.position = firstClusterPosition;
+    }
+
+    /**
+     * Memory-maps a Matroska file read-only and demuxes it.
+     *
+     * @param path - .mkv file
+     * @return demuxer of the file, with the tracks of the first Segment read
+     * @throws IOException if the file can not be mapped
+     */
+    @Nonnull
+    public static MkvDemuxer open(@Nonnull final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Preconditions.checkState(channel.size() <= Integer.MAX_VALUE, "File is too large to be mapped at once");
+            return new MkvDemuxer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return tracks of the last Segment walked through
+     */
+    @Nonnull
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * Moves to the next frame.
+     *
+     * @return whether there is a next frame, false at the end of the file or of its last complete element
+     * @throws IllegalStateException if the file is malformed
+     */
+    public boolean nextFrame() {
+        while (position < limit) {
+            if (blockGroupEnd >= 0 && position >= blockGroupEnd) {
+                blockGroupEnd = -1;
+            }
+
+            if (!readElementHeader()) {
+                return false;
+            }
+
+            final int payload = position;
+            switch (elementId) {
+                case SEGMENT_ID:
+                case CLUSTER_ID:
+                case INFO_ID:
+                    // Step into the master element
+                    break;
+                case TRACKS_ID:
+                    final int tracksEnd = payload + knownSize();
+                    tracks = readTracks(payload, tracksEnd);
+                    position = tracksEnd;
+                    break;
+                case BLOCK_GROUP_ID:
+                    blockGroupEnd = payload + knownSize();
+                    isBlockGroupKeyFrame = findChild(payload, blockGroupEnd, REFERENCE_BLOCK_ID) < 0;
+                    break;
+                case TIMECODE_ID:
+                    clusterTimecode = readUnsigned(payload, knownSize());
+                    position = payload + knownSize();
+                    break;
+                case TIMECODE_SCALE_ID:
+                    timecodeScaleInNanos = readUnsigned(payload, knownSize());
+                    position = payload + knownSize();
+                    break;
+                case SIMPLE_BLOCK_ID:
+                case BLOCK_ID:
+                    position = payload + knownSize();
+                    if (readBlock(payload, position)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    position = payload + knownSize();
+                    break;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Goes back to the first Cluster.
+     */
+    public void rewind() {
+        position = firstClusterPosition;
+        blockGroupEnd = -1;
+        clusterTimecode = 0;
+    }
+
+    public long getFrameTrackNumber() {
+        return frameTrackNumber;
+    }
+
+    /**
+     * @return presentation timecode of the frame, cluster timecode plus block offset, in nanoseconds
+     */
+    public long getFrameTimecodeInNanos() {
+        return frameTimecodeInNanos;
+    }
+
+    public boolean isFrameKeyFrame() {
+        return isFrameKeyFrame;
+    }
+
+    /**
+     * @return read-only slice of the file with the data of the current frame
+     */
+    @Nonnull
+    public ByteBuffer getFrameData() {
+        final ByteBuffer frameData = data.duplicate();
+        frameData.limit(frameDataEnd).position(frameDataStart);
+        return frameData.slice();
+    }
+
+    /**
+     * @return number of laced blocks which have been skipped
+     */
+    public long getSkippedLacedBlockCount() {
+        return skippedLacedBlockCount;
+    }
+
+    private int readHeaders() {
+        while (position < limit) {
+            final int elementStart = position;
+            if (!readElementHeader()) {
+                break;
+            }
+
+            switch (elementId) {
+                case SEGMENT_ID:
+                case INFO_ID:
+                    break;
+                case CLUSTER_ID:
+                    return elementStart;
+                case TRACKS_ID:
+                    final int tracksEnd = position + knownSize();
+                    tracks = readTracks(position, tracksEnd);
+                    position = tracksEnd;
+                    break;
+                case TIMECODE_SCALE_ID:
+                    timecodeScaleInNanos = readUnsigned(position, knownSize());
+                    position += knownSize();
+                    break;
+                default:
+                    position += knownSize();
+                    break;
+            }
+        }
+
+        return limit;
+    }
+
+    /**
+     * Reads the id and size of the element at the current position and moves to its payload.
+     *
+     * @return false if the header or the payload of the element is cut off by the end of the file
+     */
+    private boolean readElementHeader() {
+        final int idLength = vintLength(position);
+        Preconditions.checkState(idLength <= 4, "Invalid element id at " + position);
+        if (position + idLength >= limit) {
+            return false;
+        }
+
+        int id = 0;
+        for (int i = 0; i < idLength; i++) {
+            id = (id << 8) | (data.get(position + i) & 0xFF);
+        }
+
+        final int sizePosition = position + idLength;
+        final int sizeLength = vintLength(sizePosition);
+        Preconditions.checkState(sizeLength <= 8, "Invalid element size at " + sizePosition);
+        if (sizePosition + sizeLength > limit) {
+            return false;
+        }
+
+        final long size = readVint(sizePosition, sizeLength);
+        final long payload = sizePosition + sizeLength;
+        if (size != UNKNOWN_SIZE && payload + size > limit) {
+            return false;
+        }
+
+        elementId = id;
+        elementSize = size;
+        position = (int) payload;
+        return true;
+    }
+
+    private int knownSize() {
+        Preconditions.checkState(elementSize != UNKNOWN_SIZE,
+                "Unexpected unknown-sized element " + Integer.toHexString(elementId));
+        return (int) elementSize;
+    }
+
+    private boolean readBlock(final int blockStart, final int blockEnd) {
+        final int trackNumberLength = vintLength(blockStart);
+        final int headerEnd = blockStart + trackNumberLength + 3;
+        Preconditions.checkState(trackNumberLength <= 8 && headerEnd <= blockEnd, "Invalid block at " + blockStart);
+
+        final int flags = data.get(headerEnd - 1) & 0xFF;
+        if ((flags & BLOCK_FLAG_LACING) != 0) {
+            skippedLacedBlockCount++;
+            return false;
+        }
+
+        final short relativeTimecode = data.getShort(blockStart + trackNumberLength);
+        frameTrackNumber = readVint(blockStart, trackNumberLength);
+        frameTimecodeInNanos = (clusterTimecode + relativeTimecode) * timecodeScaleInNanos;
+        isFrameKeyFrame = elementId == SIMPLE_BLOCK_ID
+                ? (flags & BLOCK_FLAG_KEY_FRAME) != 0
+                : blockGroupEnd >= 0 && isBlockGroupKeyFrame;
+        frameDataStart = headerEnd;
+        frameDataEnd = blockEnd;
+        return true;
+    }
+
+    private List<Track> readTracks(final int start, final int end) {
+        final List<Track> trackList = new ArrayList<Track>();
+        position = start;
+        while (position < end && readElementHeader()) {
+            final int entryEnd = position + knownSize();
+            if (elementId == TRACK_ENTRY_ID) {
+                trackList.add(readTrackEntry(position, entryEnd));
+            }
+
+            position = entryEnd;
+        }
+
+        return Collections.unmodifiableList(trackList);
+    }
+
+    private Track readTrackEntry(final int start, final int end) {
+        long trackNumber = 0;
+        int trackType = 0;
+        String codecId = null;
+        String name = null;
+        byte[] codecPrivateData = null;
+
+        position = start;
+        while (position < end && readElementHeader()) {
+            final int size = knownSize();
+            switch (elementId) {
+                case TRACK_NUMBER_ID:
+                    trackNumber = readUnsigned(position, size);
+                    break;
+                case TRACK_TYPE_ID:
+                    trackType = (int) readUnsigned(position, size);
+                    break;
+                case CODEC_ID_ID:
+                    codecId = new String(readBytes(position, size), StandardCharsets.US_ASCII).trim();
+                    break;
+                case NAME_ID:
+                    name = new String(readBytes(position, size), StandardCharsets.UTF_8).trim();
+                    break;
+                case CODEC_PRIVATE_ID:
+                    codecPrivateData = readBytes(position, size);
+                    break;
+                default:
+                    break;
+            }
+
+            position += size;
+        }
+
+        final MkvTrackInfoType type = trackType == MKV_TRACK_TYPE_VIDEO ? MkvTrackInfoType.VIDEO
+                : trackType == MKV_TRACK_TYPE_AUDIO ? MkvTrackInfoType.AUDIO : MkvTrackInfoType.UNKNOWN;
+        return new Track(trackNumber, type, codecId, name, codecPrivateData);
+    }
+
+    private int findChild(final int start, final int end, final int childId) {
+        final int savedPosition = position;
+        final int savedElementId = elementId;
+        final long savedElementSize = elementSize;
+        int found = -1;
+
+        position = start;
+        while (found < 0 && position < end && readElementHeader()) {
+            if (elementId == childId) {
+                found = position;
+            }
+
+            position += knownSize();
+        }
+
+        position = savedPosition;
+        elementId = savedElementId;
+        elementSize = savedElementSize;
+        return found;
+    }
+
+    private int vintLength(final int vintPosition) {
+        final int firstByte = data.get(vintPosition) & 0xFF;
+        return firstByte == 0 ? 9 : Integer.numberOfLeadingZeros(firstByte) - 23;
+    }
+
+    /**
+     * @return value of the vint with its length marker cleared, {@link #UNKNOWN_SIZE} if all its value bits are set
+     */
+    private long readVint(final int vintPosition, final int length) {
+        final long valueBits = 7L * length;
+        long value = data.get(vintPosition) & (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (data.get(vintPosition + i) & 0xFF);
+        }
+
+        return value == (1L << valueBits) - 1 ? UNKNOWN_SIZE : value;
+    }
+
+    private long readUnsigned(final int valuePosition, final int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (data.get(valuePosition + i) & 0xFF);
+        }
+
+        return value;
+    }
+
+    private byte[] readBytes(final int bytesPosition, final int size) {
+        final byte[] bytes = new byte[size];
+        final ByteBuffer source = data.duplicate();
+        source.position(bytesPosition);
+        source.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Track of the file.
+     */
+    @Immutable
+    public static final class Track {
+        private final long trackNumber;
+        private final MkvTrackInfoType trackType;
+        private final String codecId;
+        private final String name;
+        private final byte[] codecPrivateData;
+
+        Track(final long trackNumber,
+              @Nonnull final MkvTrackInfoType trackType,
+              @Nullable final String codecId,
+              @Nullable final String name,
+              @Nullable final byte[] codecPrivateData) {
+            this.trackNumber = trackNumber;
+            this.trackType = trackType;
+            this.codecId = codecId;
+            this.name = name;
+            this.codecPrivateData = codecPrivateData;
+        }
+
+        public long getTrackNumber() {
+            return trackNumber;
+        }
+
+        @Nonnull
+        public MkvTrackInfoType getTrackType() {
+            return trackType;
+        }
+
+        @Nullable
+        public String getCodecId() {
+            return codecId;
+        }
+
+        @Nullable
+        public String getName() {
+            return name;
+        }
+
+        @Nullable
+        public byte[] getCodecPrivateData() {
+            return codecPrivateData == null ? null : codecPrivateData.clone();
+        }
+    }
+}
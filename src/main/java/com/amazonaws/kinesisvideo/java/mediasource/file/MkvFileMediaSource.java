@@ -0,0 +1,227 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import static com.amazonaws.kinesisvideo.producer.StreamInfo.NalAdaptationFlags.NAL_ADAPTATION_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.AUDIO_VIDEO_CONTENT_TYPE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BITRATE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BUFFER_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_GOP_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_REPLAY_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_STALENESS_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_TIMESCALE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.KEYFRAME_FRAGMENTATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.MAX_LATENCY_ZERO;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NOT_ADAPTIVE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NO_KMS_KEY_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECALCULATE_METRICS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECOVER_ON_FAILURE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RELATIVE_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.REQUEST_FRAGMENT_ACKS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RETENTION_ONE_HOUR;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.USE_FRAME_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VERSION_TWO;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_CONTENT_TYPE;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.mediasource.DefaultOnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacedMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.client.mediasource.MediaSourceState;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import com.amazonaws.kinesisvideo.producer.TrackInfo;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * MediaSource based on a local Matroska file. The file is demuxed and its frames are re-emitted in a loop through the
+ * producer path, rebased on the replay start and keeping the track numbers of the file as track ids.
+ */
+public class MkvFileMediaSource implements MediaSource, PacedMediaSource {
+    private final String streamName;
+    private final CompletableFuture<Boolean> future;
+
+    private MkvFileMediaSourceConfiguration mkvFileMediaSourceConfiguration;
+    private MediaSourceState mediaSourceState;
+    private MediaSourceSink mediaSourceSink;
+    private MkvDemuxer demuxer;
+    private MkvFrameSource mkvFrameSource;
+    private PacingClock pacingClock;
+
+    public MkvFileMediaSource(@Nonnull final String streamName) {
+        this(streamName, new CompletableFuture<>());
+    }
+
+    public MkvFileMediaSource(@Nonnull final String streamName, final CompletableFuture<Boolean> future) {
+        this.streamName = streamName;
+        this.future = future;
+    }
+
+    @Override
+    public void setPacingClock(@Nonnull final PacingClock pacingClock) {
+        this.pacingClock = pacingClock;
+    }
+
+    @Override
+    public MediaSourceState getMediaSourceState() {
+        return mediaSourceState;
+    }
+
+    @Override
+    public MediaSourceConfiguration getConfiguration() {
+        return mkvFileMediaSourceConfiguration;
+    }
+
+    @Override
+    public StreamInfo getStreamInfo() throws KinesisVideoException {
+        final TrackInfo[] trackInfoList = getTrackInfoList();
+        return new StreamInfo(VERSION_TWO,
+                streamName,
+                StreamInfo.StreamingType.STREAMING_TYPE_REALTIME,
+                getContentType(),
+                NO_KMS_KEY_ID,
+                RETENTION_ONE_HOUR,
+                NOT_ADAPTIVE,
+                MAX_LATENCY_ZERO,
+                DEFAULT_GOP_DURATION,
+                KEYFRAME_FRAGMENTATION,
+                USE_FRAME_TIMECODES,
+                RELATIVE_TIMECODES,
+                REQUEST_FRAGMENT_ACKS,
+                RECOVER_ON_FAILURE,
+                DEFAULT_BITRATE,
+                mkvFileMediaSourceConfiguration.getFps(),
+                DEFAULT_BUFFER_DURATION,
+                DEFAULT_REPLAY_DURATION,
+                DEFAULT_STALENESS_DURATION,
+                DEFAULT_TIMESCALE,
+                RECALCULATE_METRICS,
+                new Tag[] {
+                        new Tag("device", "Test Device"),
+                        new Tag("stream", "Test Stream") },
+                NAL_ADAPTATION_FLAG_NONE,
+                null,
+                trackInfoList);
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        this.mediaSourceSink = mediaSourceSink;
+    }
+
+    @Override
+    public void configure(final MediaSourceConfiguration configuration) {
+        Preconditions.checkState(this.mkvFileMediaSourceConfiguration == null);
+
+        if (!(configuration instanceof MkvFileMediaSourceConfiguration)) {
+            throw new IllegalStateException("Configuration must be an instance of MkvFileMediaSourceConfiguration");
+        }
+
+        this.mkvFileMediaSourceConfiguration = (MkvFileMediaSourceConfiguration) configuration;
+    }
+
+    @Override
+    public void start() throws KinesisVideoException {
+        mkvFrameSource = new MkvFrameSource(getDemuxer(), PacingClock.orDefault(pacingClock));
+        mkvFrameSource.onStreamDataAvailable(new DefaultOnStreamDataAvailable(mediaSourceSink));
+        mkvFrameSource.start();
+        mediaSourceState = MediaSourceState.RUNNING;
+    }
+
+    @Override
+    public void stop() throws KinesisVideoException {
+        if (mkvFrameSource != null) {
+            mkvFrameSource.stop();
+        }
+
+        try {
+            if (null != mediaSourceSink && null != mediaSourceSink.getProducerStream()) {
+                mediaSourceSink.getProducerStream().stopStreamSync();
+            }
+        } finally {
+            mediaSourceState = MediaSourceState.STOPPED;
+            future.complete(true);
+        }
+    }
+
+    @Override
+    public boolean isStopped() {
+        return mediaSourceState == MediaSourceState.STOPPED;
+    }
+
+    @Override
+    public void free() throws KinesisVideoException {
+        // No-op
+    }
+
+    @Override
+    public MediaSourceSink getMediaSourceSink() {
+        return mediaSourceSink;
+    }
+
+    @Nullable
+    @Override
+    public StreamCallbacks getStreamCallbacks() {
+        return null;
+    }
+
+    private TrackInfo[] getTrackInfoList() throws KinesisVideoException {
+        final List<MkvDemuxer.Track> tracks = getDemuxer().getTracks();
+        if (tracks.isEmpty()) {
+            throw new KinesisVideoException("No tracks found in the mkv file "
+                    + mkvFileMediaSourceConfiguration.getFilePath());
+        }
+
+        final TrackInfo[] trackInfoList = new TrackInfo[tracks.size()];
+        for (int i = 0; i < trackInfoList.length; i++) {
+            final MkvDemuxer.Track track = tracks.get(i);
+            trackInfoList[i] = new TrackInfo(track.getTrackNumber(),
+                    track.getCodecId(),
+                    track.getName() == null ? "track-" + track.getTrackNumber() : track.getName(),
+                    track.getCodecPrivateData(),
+                    track.getTrackType());
+        }
+
+        return trackInfoList;
+    }
+
+    private String getContentType() throws KinesisVideoException {
+        if (mkvFileMediaSourceConfiguration.getContentType() != null) {
+            return mkvFileMediaSourceConfiguration.getContentType();
+        }
+
+        for (final MkvDemuxer.Track track : getDemuxer().getTracks()) {
+            if (track.getTrackType() == MkvTrackInfoType.AUDIO) {
+                return AUDIO_VIDEO_CONTENT_TYPE;
+            }
+        }
+
+        return VIDEO_CONTENT_TYPE;
+    }
+
+    private MkvDemuxer getDemuxer() throws KinesisVideoException {
+        Preconditions.checkState(mkvFileMediaSourceConfiguration != null, "Media source has not been configured");
+        if (demuxer == null) {
+            try {
+                demuxer = MkvDemuxer.open(Paths.get(mkvFileMediaSourceConfiguration.getFilePath()));
+            } catch (final IOException e) {
+                throw new KinesisVideoException("Unable to map the mkv file "
+                        + mkvFileMediaSourceConfiguration.getFilePath(), e);
+            }
+        }
+
+        return demuxer;
+    }
+}
@@ -0,0 +1,79 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceConfiguration;
+
+public class MkvFileMediaSourceConfiguration implements MediaSourceConfiguration {
+    /**
+     * Frame rate advertised in the stream info when none is configured
+     */
+    public static final int DEFAULT_FPS = 25;
+
+    private final int fps;
+    private final String filePath;
+    private final String contentType;
+
+    public MkvFileMediaSourceConfiguration(final Builder builder) {
+        this.fps = builder.fps;
+        this.filePath = builder.filePath;
+        this.contentType = builder.contentType;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    /**
+     * @return path of the .mkv file
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return content type of the stream, null to derive it from the tracks of the file
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getMediaSourceType() {
+        return null;
+    }
+
+    @Override
+    public String getMediaSourceDescription() {
+        return null;
+    }
+
+    public static class Builder implements MediaSourceConfiguration.Builder<MkvFileMediaSourceConfiguration> {
+        private int fps = DEFAULT_FPS;
+        private String filePath;
+        private String contentType;
+
+        public Builder fps(final int fps) {
+            this.fps = fps;
+            if (fps <= 0) {
+                throw new IllegalArgumentException("Fps should not be negative or zero.");
+            }
+            return this;
+        }
+
+        public Builder filePath(final String filePath) {
+            this.filePath = filePath;
+            return this;
+        }
+
+        public Builder contentType(final String contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        @Override
+        public MkvFileMediaSourceConfiguration build() {
+            return new MkvFileMediaSourceConfiguration(this);
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.producer.Time.NANOS_IN_A_TIME_UNIT;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.FRAME_DURATION_0_MS;
+
+/**
+ * Frame source replaying the frames of a Matroska file in a loop.
+ * <p>
+ * The frames are emitted when their timecode, relative to the first frame of the file, is reached and are timestamped
+ * relative to the start of the replay, each loop following the previous one.
+ * <p>
+ * The block timecodes are presentation timestamps and the frames are emitted in file order with the same decoding
+ * timestamp. Files with B-frames, whose frames are stored out of presentation order, would give non-monotonic decoding
+ * timestamps and are rejected when the source starts.
+ */
+@NotThreadSafe
+public class MkvFrameSource {
+    private static final long REPLAY_PERIOD_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long MIN_FRAME_GAP_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PacingClock pacingClock;
+    private final MkvDemuxer demuxer;
+    private PacingClock.Registration pacing;
+
+    private OnStreamDataAvailable mkvDataAvailableCallback;
+    private volatile boolean isRunning = false;
+    private final Log log = LogFactory.getLog(MkvFrameSource.class);
+    private int frameCounter;
+
+    /**
+     * Replay state, in nanoseconds relative to the first frame of the file
+     */
+    private long replayStartInNanos;
+    private long startTimestamp;
+    private boolean hasPendingFrame;
+    private long firstTimecodeInNanos = -1;
+    private long lastTimecodeInNanos;
+    private long maxTimecodeInNanos;
+    private long lastFrameGapInNanos = MIN_FRAME_GAP_IN_NANOS;
+    private long loopOffsetInNanos;
+    private int framesInLoop;
+
+    public MkvFrameSource(@Nonnull final MkvDemuxer demuxer) {
+        this(demuxer, PacingClock.getDefault());
+    }
+
+    public MkvFrameSource(@Nonnull final MkvDemuxer demuxer, final PacingClock pacingClock) {
+        this.demuxer = demuxer;
+        this.pacingClock = pacingClock;
+    }
+
+    public void start() throws KinesisVideoException {
+        if (isRunning) {
+            throw new IllegalStateException("Frame source is already running");
+        }
+
+        checkPresentationOrder();
+        isRunning = true;
+        startFrameGenerator();
+    }
+
+    public void stop() {
+        isRunning = false;
+        stopFrameGenerator();
+    }
+
+    public void onStreamDataAvailable(final OnStreamDataAvailable onMkvDataAvailable) {
+        this.mkvDataAvailableCallback = onMkvDataAvailable;
+    }
+
+    private void startFrameGenerator() {
+        replayStartInNanos = System.nanoTime();
+        startTimestamp = System.currentTimeMillis() * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        pacing = pacingClock.schedule(0, REPLAY_PERIOD_IN_NANOS, PacingClock.Policy.SKIP,
+                new PacingClock.Listener() {
+                    @Override
+                    public void onDeadline(final long deadlineInNanos) throws KinesisVideoException {
+                        generateFramesAndNotifyListener(deadlineInNanos - replayStartInNanos);
+                    }
+                });
+    }
+
+    private void generateFramesAndNotifyListener(final long elapsedTimeInNanos) throws KinesisVideoException {
+        while (isRunning) {
+            if (!hasPendingFrame) {
+                readNextFrame();
+            }
+
+            final long relativeTimeInNanos = loopOffsetInNanos + demuxer.getFrameTimecodeInNanos()
+                    - firstTimecodeInNanos;
+            if (relativeTimeInNanos > elapsedTimeInNanos) {
+                return;
+            }
+
+            hasPendingFrame = false;
+            if (mkvDataAvailableCallback != null) {
+                mkvDataAvailableCallback.onFrameDataAvailable(createKinesisVideoFrame(relativeTimeInNanos));
+            }
+
+            frameCounter++;
+        }
+    }
+
+    /**
+     * Walks the file once to check that the frames of each track are stored in presentation order.
+     *
+     * @throws KinesisVideoException if a frame of a track comes before the previous frame of the track
+     */
+    private void checkPresentationOrder() throws KinesisVideoException {
+        final Map<Long, Long> lastTimecodesInNanos = new HashMap<Long, Long>();
+        demuxer.rewind();
+        try {
+            while (demuxer.nextFrame()) {
+                final Long lastTimecodeInNanos = lastTimecodesInNanos.put(demuxer.getFrameTrackNumber(),
+                        demuxer.getFrameTimecodeInNanos());
+                if (lastTimecodeInNanos != null && demuxer.getFrameTimecodeInNanos() < lastTimecodeInNanos) {
+                    throw new KinesisVideoException("Frames of track " + demuxer.getFrameTrackNumber()
+                            + " are not in presentation order, mkv files with B-frames are not supported");
+                }
+            }
+        } finally {
+            demuxer.rewind();
+        }
+    }
+
+    private void readNextFrame() throws KinesisVideoException {
+        if (!demuxer.nextFrame()) {
+            if (framesInLoop == 0) {
+                throw new KinesisVideoException("No frames found in the mkv file");
+            }
+
+            // End of the file, the next loop starts one frame gap after the last frame
+            demuxer.rewind();
+            loopOffsetInNanos += maxTimecodeInNanos - firstTimecodeInNanos + lastFrameGapInNanos;
+            framesInLoop = 0;
+            if (!demuxer.nextFrame()) {
+                throw new KinesisVideoException("No frames found in the mkv file");
+            }
+        }
+
+        final long timecode = demuxer.getFrameTimecodeInNanos();
+        if (firstTimecodeInNanos < 0) {
+            firstTimecodeInNanos = timecode;
+            maxTimecodeInNanos = timecode;
+        } else if (framesInLoop > 0 && timecode > lastTimecodeInNanos) {
+            lastFrameGapInNanos = timecode - lastTimecodeInNanos;
+        }
+
+        lastTimecodeInNanos = timecode;
+        maxTimecodeInNanos = Math.max(maxTimecodeInNanos, timecode);
+        framesInLoop++;
+        hasPendingFrame = true;
+    }
+
+    private KinesisVideoFrame createKinesisVideoFrame(final long relativeTimeInNanos) {
+        final long timestamp = startTimestamp + relativeTimeInNanos / NANOS_IN_A_TIME_UNIT;
+        return new KinesisVideoFrame(frameCounter,
+                demuxer.isFrameKeyFrame() ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE,
+                timestamp,
+                timestamp,
+                FRAME_DURATION_0_MS * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                demuxer.getFrameData(),
+                demuxer.getFrameTrackNumber());
+    }
+
+    private void stopFrameGenerator() {
+        if (pacing != null) {
+            pacing.cancel();
+            log.info("Stopped replaying frames, " + pacing.getStats());
+            if (demuxer.getSkippedLacedBlockCount() > 0) {
+                log.warn("Skipped " + demuxer.getSkippedLacedBlockCount() + " laced blocks");
+            }
+            pacing = null;
+        }
+    }
+}
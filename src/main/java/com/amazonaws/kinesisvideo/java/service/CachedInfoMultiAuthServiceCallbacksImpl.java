@@ -11,6 +11,9 @@ import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducer;
 import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
 import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
 import com.amazonaws.kinesisvideo.internal.service.DefaultServiceCallbacksImpl;
+import com.amazonaws.kinesisvideo.internal.service.ReconnectAdmissionScheduler;
+import com.amazonaws.kinesisvideo.internal.service.ServiceCallBulkheads;
+import com.amazonaws.kinesisvideo.internal.service.ServiceCallBulkheads.OperationClass;
 import com.amazonaws.kinesisvideo.java.auth.JavaCredentialsProviderImpl;
 import com.amazonaws.kinesisvideo.producer.ProducerException;
 import com.amazonaws.kinesisvideo.producer.StreamDescription;
@@ -29,7 +32,6 @@ import java.io.ObjectOutputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
 import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_AN_HOUR;
@@ -43,6 +45,21 @@ public class CachedInfoMultiAuthServiceCallbacksImpl extends DefaultServiceCallb
         super(log, executor, configuration, kinesisVideoServiceClient);
     }
 
+    public CachedInfoMultiAuthServiceCallbacksImpl(@Nonnull Logger log, @Nonnull ScheduledExecutorService executor,
+                                                   @Nonnull KinesisVideoClientConfiguration configuration,
+                                                   @Nonnull KinesisVideoServiceClient kinesisVideoServiceClient,
+                                                   @Nullable ServiceCallBulkheads bulkheads) {
+        super(log, executor, configuration, kinesisVideoServiceClient, bulkheads);
+    }
+
+    public CachedInfoMultiAuthServiceCallbacksImpl(@Nonnull Logger log, @Nonnull ScheduledExecutorService executor,
+                                                   @Nonnull KinesisVideoClientConfiguration configuration,
+                                                   @Nonnull KinesisVideoServiceClient kinesisVideoServiceClient,
+                                                   @Nullable ServiceCallBulkheads bulkheads,
+                                                   @Nullable ReconnectAdmissionScheduler reconnectScheduler) {
+        super(log, executor, configuration, kinesisVideoServiceClient, bulkheads, reconnectScheduler);
+    }
+
     /**
      * StreamArn -> Credentials Provider
      */
@@ -267,7 +284,8 @@ public class CachedInfoMultiAuthServiceCallbacksImpl extends DefaultServiceCallb
             }
         };
 
-        executor.schedule(task, delay, TimeUnit.NANOSECONDS);
+        scheduleServiceCall(OperationClass.CONTROL_PLANE, task, reportRejection(statusCode ->
+                kinesisVideoProducer.tagResourceResult(stream, streamHandle, statusCode)), delay);
     }
 
     public void addStreamInfoToCache(String streamName, DescribeStreamResult streamInfo) {
@@ -299,11 +317,6 @@ public class CachedInfoMultiAuthServiceCallbacksImpl extends DefaultServiceCallb
         tagInfoMap.remove(streamName);
     }
 
-    private long calculateRelativeServiceCallAfter(final long absoluteCallAfter) {
-        return Math.max(0, absoluteCallAfter * Time.NANOS_IN_A_TIME_UNIT
-                - System.currentTimeMillis() * Time.NANOS_IN_A_MILLISECOND);
-    }
-
     private static StreamDescription toStreamDescription(final @NonNull DescribeStreamResult result) {
         checkNotNull(result);
         return new StreamDescription(
@@ -1,12 +1,17 @@
 package com.amazonaws.kinesisvideo.java.service;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Protocol;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.AnonymousAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.client.builder.ExecutorFactory;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentials;
 import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentialsProvider;
 import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
@@ -18,11 +23,13 @@ import org.apache.logging.log4j.Logger;
 import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.producer.StreamDescription;
 import com.amazonaws.kinesisvideo.producer.StreamStatus;
-import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceAsyncClient;
 import com.amazonaws.kinesisvideo.util.VersionUtil;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.kinesisvideo.AmazonKinesisVideo;
+import com.amazonaws.services.kinesisvideo.AmazonKinesisVideoAsync;
+import com.amazonaws.services.kinesisvideo.AmazonKinesisVideoAsyncClientBuilder;
 import com.amazonaws.services.kinesisvideo.AmazonKinesisVideoClient;
 import com.amazonaws.services.kinesisvideo.model.CreateStreamRequest;
 import com.amazonaws.services.kinesisvideo.model.CreateStreamResult;
@@ -34,6 +41,7 @@ import com.amazonaws.services.kinesisvideo.model.GetDataEndpointRequest;
 import com.amazonaws.services.kinesisvideo.model.GetDataEndpointResult;
 import com.amazonaws.services.kinesisvideo.model.TagStreamRequest;
 import com.amazonaws.services.kinesisvideo.model.TagStreamResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -41,19 +49,49 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static com.amazonaws.ClientConfiguration.DEFAULT_MAX_CONNECTIONS;
 import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_AN_HOUR;
 import static com.amazonaws.util.StringUtils.isNullOrEmpty;
 
-public final class JavaKinesisVideoServiceClient implements KinesisVideoServiceClient {
+public final class JavaKinesisVideoServiceClient implements KinesisVideoServiceAsyncClient {
     private static final int RECEIVE_TIMEOUT_1HR = 60 * 60 * 1000;
     private static final String ABSOLUTE_TIMECODE = "ABSOLUTE";
     private static final String RELATIVE_TIMECODE = "RELATIVE";
 
+    /**
+     * Bounds of the I/O executor. The calls beyond the queue capacity fail with a
+     * {@link RejectedExecutionException} wrapped into the returned future.
+     */
+    private static final int MAX_IO_THREADS = DEFAULT_MAX_CONNECTIONS;
+    private static final int IO_QUEUE_CAPACITY = 1024;
+    private static final long IO_THREAD_KEEP_ALIVE_IN_SECONDS = 60;
+
     private final Logger log;
     private KinesisVideoClientConfiguration configuration;
 
+    /**
+     * Executor running the network I/O of the asynchronous calls. The SDK async clients and the PutMedia connection
+     * setup run on it instead of on the caller's thread. The threads are daemon and time out when idle.
+     */
+    private final ThreadPoolExecutor ioExecutor = createIoExecutor();
+
+    /**
+     * SDK async clients keyed by the timeout they have been configured with. The credentials are set per request,
+     * so the clients can be shared across the streams.
+     */
+    private final ConcurrentMap<Integer, AmazonKinesisVideoAsync> asyncClients =
+            new ConcurrentHashMap<Integer, AmazonKinesisVideoAsync>();
+
     private static AmazonKinesisVideo createAmazonKinesisVideoClient(
             final KinesisVideoCredentialsProvider credentialsProvider,
             final Region region,
@@ -225,6 +263,18 @@ public final class JavaKinesisVideoServiceClient implements KinesisVideoServiceC
                 .withUserAgentPrefix(VersionUtil.getUserAgent());
     }
 
+    private static ThreadPoolExecutor createIoExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_IO_THREADS,
+                MAX_IO_THREADS,
+                IO_THREAD_KEEP_ALIVE_IN_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(IO_QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("KVS-ServiceClientIO-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public JavaKinesisVideoServiceClient(@Nonnull final Logger log) {
         this.log = Preconditions.checkNotNull(log);
     }
@@ -450,6 +500,238 @@ public final class JavaKinesisVideoServiceClient implements KinesisVideoServiceC
         putMediaClient.putMediaInBackground();
     }
 
+    @Override
+    public CompletableFuture<String> createStreamAsync(@Nonnull final String streamName,
+            @Nonnull final String deviceName,
+            @Nonnull final String contentType,
+            @Nullable final String kmsKeyId,
+            final long retentionPeriodInHours,
+            final long timeoutInMillis,
+            @Nullable final KinesisVideoCredentialsProvider credentialsProvider) {
+        final CompletableFuture<CreateStreamResult> future = new CompletableFuture<CreateStreamResult>();
+        try {
+            final CreateStreamRequest createStreamRequest = withRequestCredentials(new CreateStreamRequest()
+                    .withStreamName(streamName)
+                    .withDeviceName(deviceName)
+                    .withMediaType(contentType)
+                    .withKmsKeyId(isNullOrEmpty(kmsKeyId) ? null : kmsKeyId)
+                    .withDataRetentionInHours((int) retentionPeriodInHours)
+                    .withTags(null), credentialsProvider);
+
+            log.debug("calling create stream async: {}", createStreamRequest.toString());
+            getAsyncClient(timeoutInMillis).createStreamAsync(createStreamRequest,
+                    this.<CreateStreamRequest, CreateStreamResult>completing(future));
+        } catch (final KinesisVideoException e) {
+            future.completeExceptionally(e);
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(new KinesisVideoException(e));
+        }
+
+        return future.thenApply(createStreamResult -> {
+            log.debug("create stream result: {}", createStreamResult.toString());
+            return createStreamResult.getStreamARN();
+        });
+    }
+
+    @Override
+    public CompletableFuture<StreamDescription> describeStreamAsync(@Nonnull final String streamName,
+            final long timeoutInMillis,
+            @Nullable final KinesisVideoCredentialsProvider credentialsProvider) {
+        final CompletableFuture<DescribeStreamResult> future = new CompletableFuture<DescribeStreamResult>();
+        try {
+            final DescribeStreamRequest describeStreamRequest = withRequestCredentials(new DescribeStreamRequest()
+                    .withStreamName(streamName), credentialsProvider);
+
+            log.debug("calling describe stream async: {}", describeStreamRequest.toString());
+            getAsyncClient(timeoutInMillis).describeStreamAsync(describeStreamRequest,
+                    this.<DescribeStreamRequest, DescribeStreamResult>completing(future));
+        } catch (final KinesisVideoException e) {
+            future.completeExceptionally(e);
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(new KinesisVideoException(e));
+        }
+
+        return future.thenApply(describeStreamResult -> {
+            if (null == describeStreamResult) {
+                log.debug("describe stream returned null");
+                return null;
+            }
+
+            log.debug("describe stream result: {}", describeStreamResult.toString());
+            return toStreamDescription(describeStreamResult);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> tagStreamAsync(@Nonnull final String streamArn,
+            @Nullable final Map<String, String> tags,
+            final long timeoutInMillis,
+            @Nullable final KinesisVideoCredentialsProvider credentialsProvider) {
+        final CompletableFuture<TagStreamResult> future = new CompletableFuture<TagStreamResult>();
+        try {
+            final TagStreamRequest tagStreamRequest = withRequestCredentials(new TagStreamRequest()
+                    .withStreamARN(streamArn)
+                    .withTags(tags), credentialsProvider);
+
+            log.debug("calling tag resource async: {}", tagStreamRequest.toString());
+            getAsyncClient(timeoutInMillis).tagStreamAsync(tagStreamRequest,
+                    this.<TagStreamRequest, TagStreamResult>completing(future));
+        } catch (final KinesisVideoException e) {
+            future.completeExceptionally(e);
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(new KinesisVideoException(e));
+        }
+
+        return future.thenAccept(tagStreamResult ->
+                log.debug("tag resource result: {}", tagStreamResult.toString()));
+    }
+
+    @Override
+    public CompletableFuture<String> getDataEndpointAsync(@Nonnull final String streamName,
+            @Nonnull final String apiName,
+            final long timeoutInMillis,
+            @Nullable final KinesisVideoCredentialsProvider credentialsProvider) {
+        final CompletableFuture<GetDataEndpointResult> future = new CompletableFuture<GetDataEndpointResult>();
+        try {
+            final GetDataEndpointRequest getDataEndpointRequest = withRequestCredentials(new GetDataEndpointRequest()
+                    .withStreamName(streamName)
+                    .withAPIName(apiName), credentialsProvider);
+
+            log.debug("calling get data endpoint async: {}", getDataEndpointRequest.toString());
+            getAsyncClient(timeoutInMillis).getDataEndpointAsync(getDataEndpointRequest,
+                    this.<GetDataEndpointRequest, GetDataEndpointResult>completing(future));
+        } catch (final KinesisVideoException e) {
+            future.completeExceptionally(e);
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(new KinesisVideoException(e));
+        }
+
+        return future.thenApply(getDataEndpointResult -> {
+            log.debug("get data endpoint result: {}", getDataEndpointResult.toString());
+            return getDataEndpointResult.getDataEndpoint();
+        });
+    }
+
+    // CHECKSTYLE:SUPPRESS:ParameterNumber
+    @Override
+    public CompletableFuture<Void> putMediaAsync(@Nonnull final String streamName,
+            @Nonnull final String containerType,
+            final long streamStartTimeInMillis,
+            final boolean absoluteFragmentTimes,
+            final boolean ackRequired,
+            @Nonnull final String dataEndpoint,
+            final long timeoutInMillis,
+            @Nullable final KinesisVideoCredentialsProvider credentialsProvider,
+            @Nonnull final InputStream dataInputStream,
+            @Nonnull final Consumer<InputStream> acksConsumer,
+            @Nullable final Consumer<Exception> completionCallback) {
+        // Connecting, TLS handshake and sending the signed request are the only blocking parts of PutMedia.
+        // The rest of the session runs on the sender and receiver threads of the HTTP client.
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    putMedia(streamName,
+                            containerType,
+                            streamStartTimeInMillis,
+                            absoluteFragmentTimes,
+                            ackRequired,
+                            dataEndpoint,
+                            timeoutInMillis,
+                            credentialsProvider,
+                            dataInputStream,
+                            acksConsumer,
+                            completionCallback);
+                } catch (final KinesisVideoException e) {
+                    throw new CompletionException(e);
+                }
+            }, ioExecutor);
+        } catch (final RejectedExecutionException e) {
+            final CompletableFuture<Void> future = new CompletableFuture<Void>();
+            future.completeExceptionally(new KinesisVideoException(e));
+            return future;
+        }
+    }
+
+    /**
+     * Shuts down the async clients and the I/O threads. The asynchronous calls fail after that.
+     */
+    @Override
+    public void free() {
+        ioExecutor.shutdownNow();
+        for (final AmazonKinesisVideoAsync asyncClient : asyncClients.values()) {
+            asyncClient.shutdown();
+        }
+
+        asyncClients.clear();
+    }
+
+    private AmazonKinesisVideoAsync getAsyncClient(final long timeoutInMillis) {
+        if (ioExecutor.isShutdown()) {
+            throw new RejectedExecutionException("Service client has been freed");
+        }
+
+        final Integer timeout = (int) timeoutInMillis;
+        AmazonKinesisVideoAsync asyncClient = asyncClients.get(timeout);
+        if (asyncClient == null) {
+            asyncClient = AmazonKinesisVideoAsyncClientBuilder.standard()
+                    .withClientConfiguration(createClientConfiguration(timeout))
+                    // Every request carries its own credentials
+                    .withCredentials(new AWSStaticCredentialsProvider(new AnonymousAWSCredentials()))
+                    .withEndpointConfiguration(new EndpointConfiguration(configuration.getEndpoint(),
+                            Region.getRegion(Regions.fromName(configuration.getRegion())).getName()))
+                    .withExecutorFactory(new ExecutorFactory() {
+                        @Override
+                        public ExecutorService newExecutor() {
+                            return ioExecutor;
+                        }
+                    })
+                    .build();
+
+            final AmazonKinesisVideoAsync existingClient = asyncClients.putIfAbsent(timeout, asyncClient);
+            if (existingClient != null) {
+                asyncClient = existingClient;
+            }
+        }
+
+        return asyncClient;
+    }
+
+    private static <T extends AmazonWebServiceRequest> T withRequestCredentials(
+            @Nonnull final T request,
+            @Nullable final KinesisVideoCredentialsProvider credentialsProvider) throws KinesisVideoException {
+        final AWSCredentials credentials = createAwsCredentials(credentialsProvider);
+        request.setRequestCredentialsProvider(new AWSCredentialsProvider() {
+            @Override
+            public AWSCredentials getCredentials() {
+                return credentials;
+            }
+
+            @Override
+            public void refresh() {
+                // Do nothing
+            }
+        });
+
+        return request;
+    }
+
+    private <REQUEST extends AmazonWebServiceRequest, RESULT> AsyncHandler<REQUEST, RESULT> completing(
+            @Nonnull final CompletableFuture<RESULT> future) {
+        return new AsyncHandler<REQUEST, RESULT>() {
+            @Override
+            public void onError(final Exception e) {
+                // Wrap into an KinesisVideoException object
+                log.error("Service call failed.", e);
+                future.completeExceptionally(new KinesisVideoException(e));
+            }
+
+            @Override
+            public void onSuccess(final REQUEST request, final RESULT result) {
+                future.complete(result);
+            }
+        };
+    }
+
     private static StreamDescription toStreamDescription(@Nonnull final DescribeStreamResult result) {
         Preconditions.checkNotNull(result);
         return new StreamDescription(
@@ -120,6 +120,14 @@ public class KinesisVideoFrame {
         return byteBuffer;
     }
 
+    /**
+     * @return view of the frame data, sharing it without the copy of {@link #getData()} for the Java packaging
+     */
+    @Nonnull
+    public ByteBuffer getDataView() {
+        return mData.duplicate();
+    }
+
     public long getTrackId() {
         return mTrackId;
     }
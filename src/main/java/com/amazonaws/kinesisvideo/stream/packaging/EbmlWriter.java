@@ -0,0 +1,179 @@
+package com.amazonaws.kinesisvideo.stream.packaging;
+
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.TrackInfo;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Element ids and writers of the EBML elements of the Matroska streams packaged in Java.
+ * <p>
+ * The sizes are all written on 8 bytes, the way the native producer writes them, so that the size of an element is
+ * known before its payload is. Timecodes are in milliseconds.
+ */
+public final class EbmlWriter {
+    public static final int EBML = 0x1A45DFA3;
+    public static final int EBML_VERSION = 0x4286;
+    public static final int EBML_READ_VERSION = 0x42F7;
+    public static final int EBML_MAX_ID_LENGTH = 0x42F2;
+    public static final int EBML_MAX_SIZE_LENGTH = 0x42F3;
+    public static final int DOC_TYPE = 0x4282;
+    public static final int DOC_TYPE_VERSION = 0x4287;
+    public static final int DOC_TYPE_READ_VERSION = 0x4285;
+    public static final int SEGMENT = 0x18538067;
+    public static final int INFO = 0x1549A966;
+    public static final int SEGMENT_UID = 0x73A4;
+    public static final int TIMECODE_SCALE = 0x2AD7B1;
+    public static final int MUXING_APP = 0x4D80;
+    public static final int WRITING_APP = 0x5741;
+    public static final int TRACKS = 0x1654AE6B;
+    public static final int TRACK_ENTRY = 0xAE;
+    public static final int TRACK_NUMBER = 0xD7;
+    public static final int TRACK_UID = 0x73C5;
+    public static final int TRACK_TYPE = 0x83;
+    public static final int CODEC_ID = 0x86;
+    public static final int NAME = 0x536E;
+    public static final int CODEC_PRIVATE = 0x63A2;
+    public static final int CLUSTER = 0x1F43B675;
+    public static final int TIMECODE = 0xE7;
+    public static final int SIMPLE_BLOCK = 0xA3;
+    public static final int TAGS = 0x1254C367;
+    public static final int TAG = 0x7373;
+    public static final int SIMPLE_TAG = 0x67C8;
+    public static final int TAG_NAME = 0x45A3;
+    public static final int TAG_STRING = 0x4487;
+
+    public static final int SIZE_LENGTH = 8;
+    public static final long UNKNOWN_SIZE = 0x00FFFFFFFFFFFFFFL;
+    public static final int KEY_FRAME_FLAG = 0x80;
+
+    private static final long NANOS_IN_A_MILLISECOND = 1000000;
+    private static final int MKV_TRACK_TYPE_VIDEO = 1;
+    private static final int MKV_TRACK_TYPE_AUDIO = 2;
+
+    private EbmlWriter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param streamInfo - stream to write the tracks of
+     * @param codecPrivateData - codec private data of the tracks, by track id, in place of the one of their
+     *                         {@link TrackInfo}
+     * @param applicationName - muxing and writing application of the Segment
+     * @return EBML header and Segment start up to the first Cluster, the Segment being unknown sized
+     */
+    @Nonnull
+    public static byte[] segmentHeader(@Nonnull final StreamInfo streamInfo,
+                                       @Nonnull final Map<Long, byte[]> codecPrivateData,
+                                       @Nonnull final String applicationName) {
+        final ByteArrayOutputStream ebml = new ByteArrayOutputStream();
+        writeUnsigned(ebml, EBML_VERSION, 1);
+        writeUnsigned(ebml, EBML_READ_VERSION, 1);
+        writeUnsigned(ebml, EBML_MAX_ID_LENGTH, 4);
+        writeUnsigned(ebml, EBML_MAX_SIZE_LENGTH, SIZE_LENGTH);
+        writeString(ebml, DOC_TYPE, "matroska");
+        writeUnsigned(ebml, DOC_TYPE_VERSION, 2);
+        writeUnsigned(ebml, DOC_TYPE_READ_VERSION, 2);
+
+        final ByteArrayOutputStream info = new ByteArrayOutputStream();
+        writeBinary(info, SEGMENT_UID, streamInfo.getSegmentUuidBytes());
+        writeUnsigned(info, TIMECODE_SCALE, NANOS_IN_A_MILLISECOND);
+        writeString(info, MUXING_APP, applicationName);
+        writeString(info, WRITING_APP, applicationName);
+
+        final ByteArrayOutputStream tracks = new ByteArrayOutputStream();
+        for (final TrackInfo trackInfo : streamInfo.getTrackInfoList()) {
+            final ByteArrayOutputStream trackEntry = new ByteArrayOutputStream();
+            writeUnsigned(trackEntry, TRACK_NUMBER, trackInfo.getTrackId());
+            writeUnsigned(trackEntry, TRACK_UID, trackInfo.getTrackId());
+            writeUnsigned(trackEntry, TRACK_TYPE, trackInfo.getTrackType() == MkvTrackInfoType.AUDIO
+                    ? MKV_TRACK_TYPE_AUDIO : MKV_TRACK_TYPE_VIDEO);
+            writeString(trackEntry, CODEC_ID, trackInfo.getCodecId());
+            writeString(trackEntry, NAME, trackInfo.getTrackName());
+            writeBinary(trackEntry, CODEC_PRIVATE, codecPrivateData.containsKey(trackInfo.getTrackId())
+                    ? codecPrivateData.get(trackInfo.getTrackId()) : trackInfo.getCodecPrivateData());
+            writeMaster(tracks, TRACK_ENTRY, trackEntry);
+        }
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeMaster(header, EBML, ebml);
+        writeElementHeader(header, SEGMENT, UNKNOWN_SIZE);
+        writeMaster(header, INFO, info);
+        writeMaster(header, TRACKS, tracks);
+        return header.toByteArray();
+    }
+
+    /**
+     * @return number of bytes of the element id
+     */
+    public static int idLength(final int id) {
+        return id > 0xFFFFFF || id < 0 ? 4 : id > 0xFFFF ? 3 : id > 0xFF ? 2 : 1;
+    }
+
+    /**
+     * Writes a master element with its children, already written to the payload.
+     */
+    public static void writeMaster(@Nonnull final ByteArrayOutputStream out,
+                                   final int id,
+                                   @Nonnull final ByteArrayOutputStream payload) {
+        writeElementHeader(out, id, payload.size());
+        out.write(payload.toByteArray(), 0, payload.size());
+    }
+
+    /**
+     * Writes an unsigned integer element on as few bytes as the value takes.
+     */
+    public static void writeUnsigned(@Nonnull final ByteArrayOutputStream out, final int id, final long value) {
+        int length = 1;
+        while (length < 8 && value >>> (8 * length) != 0) {
+            length++;
+        }
+
+        writeElementHeader(out, id, length);
+        for (int i = length - 1; i >= 0; i--) {
+            out.write((int) (value >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Writes a UTF-8 string element, nothing if the value is null.
+     */
+    public static void writeString(@Nonnull final ByteArrayOutputStream out,
+                                   final int id,
+                                   @Nullable final String value) {
+        if (value != null) {
+            writeBinary(out, id, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes a binary element, nothing if the value is null.
+     */
+    public static void writeBinary(@Nonnull final ByteArrayOutputStream out,
+                                   final int id,
+                                   @Nullable final byte[] value) {
+        if (value != null) {
+            writeElementHeader(out, id, value.length);
+            out.write(value, 0, value.length);
+        }
+    }
+
+    /**
+     * Writes the id and size of an element, {@link #UNKNOWN_SIZE} for an element whose end is not known yet.
+     */
+    public static void writeElementHeader(@Nonnull final ByteArrayOutputStream out, final int id, final long size) {
+        for (int i = idLength(id) - 1; i >= 0; i--) {
+            out.write(id >>> (8 * i));
+        }
+
+        out.write(0x01);
+        for (int i = SIZE_LENGTH - 2; i >= 0; i--) {
+            out.write((int) (size >>> (8 * i)));
+        }
+    }
+}
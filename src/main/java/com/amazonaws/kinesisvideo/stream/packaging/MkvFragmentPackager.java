@@ -0,0 +1,584 @@
+package com.amazonaws.kinesisvideo.stream.packaging;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.Time;
+import com.amazonaws.kinesisvideo.producer.TrackInfo;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.CLUSTER;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.KEY_FRAME_FLAG;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.SIMPLE_BLOCK;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.SIMPLE_TAG;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.SIZE_LENGTH;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAG;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAGS;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAG_NAME;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAG_STRING;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TIMECODE;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.UNKNOWN_SIZE;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.idLength;
+
+/**
+ * Packages the frames of a stream into Matroska in Java, for streaming them with the {@link
+ * com.amazonaws.kinesisvideo.client.PutMediaClient} without the native producer.
+ * <p>
+ * The EBML header, Segment info and tracks are built from the {@link TrackInfo} of the stream and the codec private
+ * data when the first frame is put. A key frame then starts a new unknown sized Cluster, at every key frame with key
+ * frame fragmentation or once the fragment duration has elapsed otherwise, preceded by the Tags of the fragment
+ * metadata. Timecodes are in milliseconds, absolute or relative to the stream start time. Frames are written as
+ * SimpleBlocks; a frame put before the first key frame, or which could not be buffered, is dropped along with the
+ * frames depending on it.
+ * <p>
+ * The timecode of a Cluster is the decoding timestamp of its first frame and the timecodes of its SimpleBlocks are the
+ * presentation timestamps of their frames, relative to it on 16 bits. Frames being put in decoding order, with their
+ * presentation timestamp no earlier than their decoding one, the relative timecodes are never negative. A key frame too
+ * far past the start of its Cluster for its relative timecode to fit starts a new Cluster, any other such frame is
+ * dropped along with the frames up to the next key frame.
+ * <p>
+ * The packaged bytes go straight into chunks of a pool of direct buffers allocated up front, which {@link
+ * #getMkvStream()} hands back to the pool as it reads them, so packaging a frame copies its data once and allocates
+ * nothing past the first frame. There is a single reader of the stream.
+ */
+@ThreadSafe
+public final class MkvFragmentPackager {
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 8 * 1024 * 1024;
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    private static final String APPLICATION_NAME = "kvs-java-packager";
+    private static final int CLUSTER_HEADER_SIZE = 4 + SIZE_LENGTH + 1 + SIZE_LENGTH + 8;
+    private static final int SIMPLE_BLOCK_HEADER_SIZE = 1 + SIZE_LENGTH + 2 + 1;
+    private static final int TAG_ELEMENT_OVERHEAD = 2 + SIZE_LENGTH;
+    private static final int TAGS_ELEMENT_OVERHEAD = 4 + SIZE_LENGTH;
+    private static final long MAX_ONE_BYTE_TRACK_NUMBER = 0x7E;
+    private static final long MAX_TWO_BYTES_TRACK_NUMBER = 0x3FFE;
+
+    /**
+     * Chunk of the pool, written at the position of its buffer and read at the position of its reader view.
+     */
+    private static final class Chunk {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        private final ByteBuffer reader = buffer.duplicate();
+
+        private int readable() {
+            return buffer.position() - reader.position();
+        }
+
+        private void reset() {
+            buffer.clear();
+            reader.clear();
+        }
+    }
+
+    private final StreamInfo streamInfo;
+    private final long streamStartTime;
+    private final int chunkCount;
+    private final MkvStream mkvStream = new MkvStream();
+
+    @GuardedBy("this")
+    private final ArrayDeque<Chunk> freeChunks;
+    @GuardedBy("this")
+    private final ArrayDeque<Chunk> filledChunks;
+    @GuardedBy("this")
+    private final Map<Long, byte[]> codecPrivateData = new HashMap<Long, byte[]>();
+    @GuardedBy("this")
+    private final List<byte[][]> pendingMetadata = new ArrayList<byte[][]>();
+    @GuardedBy("this")
+    private final Map<String, byte[][]> persistentMetadata = new LinkedHashMap<String, byte[][]>();
+    @GuardedBy("this")
+    private boolean isHeaderWritten;
+    @GuardedBy("this")
+    private boolean isAwaitingKeyFrame = true;
+    @GuardedBy("this")
+    private boolean hasCluster;
+    @GuardedBy("this")
+    private long clusterStartTimestamp;
+    @GuardedBy("this")
+    private long clusterTimecodeInMillis;
+    @GuardedBy("this")
+    private boolean isClosed;
+
+    private volatile long packagedByteCount;
+    private volatile long readByteCount;
+    private volatile long droppedFrameCount;
+    private volatile long fragmentCount;
+
+    private MkvFragmentPackager(final Builder builder) {
+        this.streamInfo = builder.streamInfo;
+        this.streamStartTime = builder.streamStartTime;
+        this.chunkCount = Math.max(1, builder.maxBufferedBytes / CHUNK_SIZE);
+        this.freeChunks = new ArrayDeque<Chunk>(chunkCount);
+        this.filledChunks = new ArrayDeque<Chunk>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            freeChunks.add(new Chunk());
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Packages a frame, waiting for the reader of the stream to free up enough buffer for it.
+     *
+     * @param frame - frame of one of the tracks of the stream, in decoding order, presented at most
+     *              {@link Short#MAX_VALUE} milliseconds after it is decoded
+     * @param timeout - time to wait for the buffer, 0 to drop the frame right away when it does not fit
+     * @return false if the frame was dropped, not being a key frame after a drop or too far past the start of its
+     * Cluster, or not fitting in time
+     * @throws IllegalStateException if the packager is closed
+     */
+    public boolean putFrame(@Nonnull final KinesisVideoFrame frame, final long timeout, @Nonnull final TimeUnit unit)
+            throws InterruptedException {
+        Preconditions.checkNotNull(frame);
+        final boolean isKeyFrame = FrameFlags.isKeyFrame(frame.getFlags());
+        final ByteBuffer data = frame.getDataView();
+        final long trackId = frame.getTrackId();
+        Preconditions.checkArgument(trackId > 0 && trackId <= MAX_TWO_BYTES_TRACK_NUMBER,
+                "Track id should be between 1 and " + MAX_TWO_BYTES_TRACK_NUMBER);
+        final long decodingTs = frame.getDecodingTs();
+        final long decodingTimecode = toTimecodeInMillis(decodingTs);
+        final long presentationTimecode = toTimecodeInMillis(frame.getPresentationTs());
+        Preconditions.checkArgument(frame.getPresentationTs() >= decodingTs
+                        && presentationTimecode - decodingTimecode <= Short.MAX_VALUE,
+                "Presentation timestamp should be at most " + Short.MAX_VALUE
+                        + " ms after the decoding timestamp and not before it");
+
+        synchronized (this) {
+            Preconditions.checkState(!isClosed, "Packager is closed");
+            if (isAwaitingKeyFrame && !isKeyFrame) {
+                droppedFrameCount++;
+                return false;
+            }
+
+            final long clusterOffset = presentationTimecode - clusterTimecodeInMillis;
+            final boolean isClusterOverflowing = hasCluster && (clusterOffset < 0 || clusterOffset > Short.MAX_VALUE);
+            if (isClusterOverflowing && !isKeyFrame) {
+                // Only a key frame can start a Cluster
+                droppedFrameCount++;
+                isAwaitingKeyFrame = true;
+                return false;
+            }
+
+            final boolean isNewCluster = isClusterOverflowing
+                    || isKeyFrame && (!hasCluster || streamInfo.isKeyFrameFragmentation()
+                    || decodingTs - clusterStartTimestamp >= streamInfo.getFragmentDuration());
+            final byte[] header = isHeaderWritten ? null : buildHeader();
+            final long size = (header == null ? 0 : header.length)
+                    + (isNewCluster ? tagsSize() + CLUSTER_HEADER_SIZE : 0)
+                    + blockSize(trackId, data.remaining());
+            if (!reserve(size, System.nanoTime() + unit.toNanos(timeout))) {
+                droppedFrameCount++;
+                isAwaitingKeyFrame = true;
+                return false;
+            }
+
+            if (header != null) {
+                writeBytes(header);
+                isHeaderWritten = true;
+            }
+
+            if (isNewCluster) {
+                writeTags();
+                clusterStartTimestamp = decodingTs;
+                clusterTimecodeInMillis = decodingTimecode;
+                writeId(CLUSTER);
+                writeSize(UNKNOWN_SIZE);
+                writeId(TIMECODE);
+                writeSize(8);
+                writeLong(clusterTimecodeInMillis);
+                hasCluster = true;
+                fragmentCount++;
+            }
+
+            final int relativeTimecode = (int) (presentationTimecode - clusterTimecodeInMillis);
+            writeId(SIMPLE_BLOCK);
+            writeSize(blockSize(trackId, data.remaining()) - 1 - SIZE_LENGTH);
+            if (trackId <= MAX_ONE_BYTE_TRACK_NUMBER) {
+                writeByte(0x80 | (int) trackId);
+            } else {
+                writeByte(0x40 | (int) (trackId >>> 8));
+                writeByte((int) trackId);
+            }
+
+            writeByte(relativeTimecode >> 8);
+            writeByte(relativeTimecode);
+            writeByte(isKeyFrame ? KEY_FRAME_FLAG : 0);
+            writeBuffer(data);
+
+            isAwaitingKeyFrame = false;
+            packagedByteCount += size;
+            notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Adds metadata to the Tags of the next fragment, or of every fragment from the next one when persistent. An
+     * empty value removes a persistent metadata.
+     */
+    public synchronized void putFragmentMetadata(@Nonnull final String name,
+                                                 @Nonnull final String value,
+                                                 final boolean persistent) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(value);
+        final byte[][] nameAndValue = {name.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8)};
+        if (!persistent) {
+            pendingMetadata.add(nameAndValue);
+        } else if (value.isEmpty()) {
+            persistentMetadata.remove(name);
+        } else {
+            persistentMetadata.put(name, nameAndValue);
+        }
+    }
+
+    /**
+     * Sets the codec private data of a track, in place of the one of its {@link TrackInfo}. Only taken before the
+     * first frame, which the tracks are written with.
+     *
+     * @throws IllegalStateException after the first frame
+     */
+    public synchronized void setCodecPrivateData(final long trackId, @Nullable final byte[] codecPrivateData) {
+        Preconditions.checkState(!isHeaderWritten, "Tracks have already been written");
+        this.codecPrivateData.put(trackId, codecPrivateData);
+    }
+
+    /**
+     * Ends the stream: the reader gets the end of the stream once it has read all the frames put.
+     */
+    public synchronized void close() {
+        isClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return MKV stream of the frames, handing the buffers back to the pool as they are read
+     */
+    @Nonnull
+    public InputStream getMkvStream() {
+        return mkvStream;
+    }
+
+    /**
+     * @return start time of the stream in milliseconds, which relative timecodes are relative to
+     */
+    public long getStreamStartTimeInMillis() {
+        return streamStartTime / HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+    }
+
+    public boolean isAbsoluteFragmentTimes() {
+        return streamInfo.isAbsoluteFragmentTimes();
+    }
+
+    public long getPackagedByteCount() {
+        return packagedByteCount;
+    }
+
+    public long getReadByteCount() {
+        return readByteCount;
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
+    public long getFragmentCount() {
+        return fragmentCount;
+    }
+
+    /**
+     * Waits until the chunks missing for the size are free, the tail chunk being filled up first.
+     */
+    @GuardedBy("this")
+    private boolean reserve(final long size, final long deadlineInNanos) throws InterruptedException {
+        while (true) {
+            final Chunk tail = filledChunks.peekLast();
+            final long missing = size - (tail == null ? 0 : tail.buffer.remaining());
+            final long neededChunks = missing <= 0 ? 0 : (missing + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            if (neededChunks > chunkCount) {
+                return false;
+            }
+
+            if (neededChunks <= freeChunks.size()) {
+                return true;
+            }
+
+            final long remainingNanos = deadlineInNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+    }
+
+    @GuardedBy("this")
+    private Chunk writableChunk() {
+        Chunk tail = filledChunks.peekLast();
+        if (tail == null || !tail.buffer.hasRemaining()) {
+            tail = freeChunks.pollFirst();
+            Preconditions.checkState(tail != null, "Chunks should have been reserved");
+            filledChunks.addLast(tail);
+        }
+
+        return tail;
+    }
+
+    @GuardedBy("this")
+    private void writeByte(final int value) {
+        writableChunk().buffer.put((byte) value);
+    }
+
+    @GuardedBy("this")
+    private void writeLong(final long value) {
+        for (int i = 7; i >= 0; i--) {
+            writeByte((int) (value >>> (8 * i)));
+        }
+    }
+
+    @GuardedBy("this")
+    private void writeId(final int id) {
+        for (int i = idLength(id) - 1; i >= 0; i--) {
+            writeByte(id >>> (8 * i));
+        }
+    }
+
+    @GuardedBy("this")
+    private void writeSize(final long size) {
+        writeByte(0x01);
+        for (int i = SIZE_LENGTH - 2; i >= 0; i--) {
+            writeByte((int) (size >>> (8 * i)));
+        }
+    }
+
+    @GuardedBy("this")
+    private void writeBytes(final byte[] bytes) {
+        for (int offset = 0; offset < bytes.length; ) {
+            final ByteBuffer buffer = writableChunk().buffer;
+            final int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    @GuardedBy("this")
+    private void writeBuffer(final ByteBuffer data) {
+        while (data.hasRemaining()) {
+            final ByteBuffer buffer = writableChunk().buffer;
+            final int length = Math.min(buffer.remaining(), data.remaining());
+            if (data.hasArray()) {
+                buffer.put(data.array(), data.arrayOffset() + data.position(), length);
+                data.position(data.position() + length);
+            } else {
+                final int limit = data.limit();
+                data.limit(data.position() + length);
+                buffer.put(data);
+                data.limit(limit);
+            }
+        }
+    }
+
+    /**
+     * Writes the Tags of the fragment metadata ahead of the next Cluster.
+     */
+    @GuardedBy("this")
+    private void writeTags() {
+        final long tagsSize = tagsSize();
+        if (tagsSize == 0) {
+            return;
+        }
+
+        writeId(TAGS);
+        writeSize(tagsSize - TAGS_ELEMENT_OVERHEAD);
+        writeId(TAG);
+        writeSize(tagsSize - TAGS_ELEMENT_OVERHEAD - TAG_ELEMENT_OVERHEAD);
+        for (final byte[][] nameAndValue : pendingMetadata) {
+            writeSimpleTag(nameAndValue);
+        }
+
+        for (final byte[][] nameAndValue : persistentMetadata.values()) {
+            writeSimpleTag(nameAndValue);
+        }
+
+        pendingMetadata.clear();
+    }
+
+    @GuardedBy("this")
+    private void writeSimpleTag(final byte[][] nameAndValue) {
+        writeId(SIMPLE_TAG);
+        writeSize(simpleTagSize(nameAndValue) - TAG_ELEMENT_OVERHEAD);
+        writeId(TAG_NAME);
+        writeSize(nameAndValue[0].length);
+        writeBytes(nameAndValue[0]);
+        writeId(TAG_STRING);
+        writeSize(nameAndValue[1].length);
+        writeBytes(nameAndValue[1]);
+    }
+
+    @GuardedBy("this")
+    private long tagsSize() {
+        if (pendingMetadata.isEmpty() && persistentMetadata.isEmpty()) {
+            return 0;
+        }
+
+        long size = TAGS_ELEMENT_OVERHEAD + TAG_ELEMENT_OVERHEAD;
+        for (final byte[][] nameAndValue : pendingMetadata) {
+            size += simpleTagSize(nameAndValue);
+        }
+
+        for (final byte[][] nameAndValue : persistentMetadata.values()) {
+            size += simpleTagSize(nameAndValue);
+        }
+
+        return size;
+    }
+
+    private long toTimecodeInMillis(final long timestamp) {
+        final long base = streamInfo.isAbsoluteFragmentTimes() ? 0 : streamStartTime;
+        return Math.max(0, timestamp - base) / HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+    }
+
+    /**
+     * @return EBML header and Segment start up to the first Cluster, built once
+     */
+    @GuardedBy("this")
+    private byte[] buildHeader() {
+        return EbmlWriter.segmentHeader(streamInfo, codecPrivateData, APPLICATION_NAME);
+    }
+
+    private static long blockSize(final long trackId, final int dataSize) {
+        return SIMPLE_BLOCK_HEADER_SIZE + (trackId <= MAX_ONE_BYTE_TRACK_NUMBER ? 1 : 2) + dataSize;
+    }
+
+    private static long simpleTagSize(final byte[][] nameAndValue) {
+        return 3 * TAG_ELEMENT_OVERHEAD + nameAndValue[0].length + nameAndValue[1].length;
+    }
+
+    /**
+     * Reader of the packaged stream, blocking until frames are put or the packager is closed.
+     */
+    private final class MkvStream extends InputStream {
+        private final byte[] singleByte = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+            Preconditions.checkNotNull(b);
+            if (len == 0) {
+                return 0;
+            }
+
+            synchronized (MkvFragmentPackager.this) {
+                while (true) {
+                    final Chunk head = filledChunks.peekFirst();
+                    if (head != null && head.readable() > 0) {
+                        final int length = Math.min(len, head.readable());
+                        head.reader.limit(head.buffer.position());
+                        head.reader.get(b, off, length);
+                        readByteCount += length;
+                        releaseIfRead(head);
+                        return length;
+                    }
+
+                    if (isClosed) {
+                        return -1;
+                    }
+
+                    try {
+                        MkvFragmentPackager.this.wait();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for frames");
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (MkvFragmentPackager.this) {
+                final Chunk head = filledChunks.peekFirst();
+                return head == null ? 0 : head.readable();
+            }
+        }
+
+        /**
+         * Hands the chunk back to the pool once read, unless it is still being filled.
+         */
+        @GuardedBy("MkvFragmentPackager.this")
+        private void releaseIfRead(final Chunk head) {
+            if (head.readable() > 0 || (head == filledChunks.peekLast() && head.buffer.hasRemaining())) {
+                return;
+            }
+
+            filledChunks.pollFirst();
+            head.reset();
+            freeChunks.addLast(head);
+            MkvFragmentPackager.this.notifyAll();
+        }
+    }
+
+    public static final class Builder {
+        private StreamInfo streamInfo;
+        private int maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+        private long streamStartTime = -1;
+
+        /**
+         * @param streamInfo - stream of the frames, with its tracks and fragmentation settings
+         */
+        public Builder streamInfo(@Nonnull final StreamInfo streamInfo) {
+            this.streamInfo = streamInfo;
+            return this;
+        }
+
+        /**
+         * @param maxBufferedBytes - memory of the pool of direct buffers the stream is packaged into
+         */
+        public Builder maxBufferedBytes(final int maxBufferedBytes) {
+            this.maxBufferedBytes = maxBufferedBytes;
+            return this;
+        }
+
+        /**
+         * @param streamStartTime - start time of the stream in 100ns, which relative timecodes are relative to. The
+         *                        build time by default.
+         */
+        public Builder streamStartTime(final long streamStartTime) {
+            this.streamStartTime = streamStartTime;
+            return this;
+        }
+
+        public MkvFragmentPackager build() {
+            Preconditions.checkNotNull(streamInfo);
+            Preconditions.checkArgument(maxBufferedBytes > 0, "Max buffered bytes should be positive");
+            if (streamStartTime < 0) {
+                streamStartTime = Time.getCurrentTime();
+            }
+
+            return new MkvFragmentPackager(this);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.amazonaws.kinesisvideo.stream.recording;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental walker of a Matroska byte stream, finding where the EBML headers and the Clusters start.
+ * <p>
+ * The stream is fed in pieces of any size. The Segment and the Clusters are stepped into, every other element is
+ * skipped over as a whole, so the frame data is never mistaken for element ids. After a gap in the stream, the walk
+ * has lost its place and {@link #resync()} makes it look for the next Cluster or EBML header id byte by byte instead.
+ */
+@NotThreadSafe
+final class ClusterBoundaryScanner {
+    static final int EBML_ID = 0x1A45DFA3;
+    static final int SEGMENT_ID = 0x18538067;
+    static final int CLUSTER_ID = 0x1F43B675;
+
+    private static final int MAX_ID_LENGTH = 4;
+    private static final int MAX_SIZE_LENGTH = 8;
+    private static final long UNKNOWN_SIZE = -1;
+
+    private final byte[] header = new byte[MAX_ID_LENGTH + MAX_SIZE_LENGTH];
+    private int headerLength;
+    private long elementStart;
+    private long offset;
+    private long skipRemaining;
+    private boolean isResyncing;
+    private int resyncWindow;
+    private int resyncWindowLength;
+
+    private int boundaryId;
+    private long boundaryOffset;
+
+    /**
+     * Walks the data from its position, up to its limit or just past the header of the next EBML header or Cluster.
+     *
+     * @return whether the walk stopped at a boundary, described by {@link #getBoundaryId()} and
+     * {@link #getBoundaryOffset()}
+     */
+    boolean scan(@Nonnull final ByteBuffer data) {
+        while (data.hasRemaining()) {
+            if (skipRemaining > 0) {
+                final int skipped = (int) Math.min(skipRemaining, data.remaining());
+                data.position(data.position() + skipped);
+                skipRemaining -= skipped;
+                offset += skipped;
+                continue;
+            }
+
+            final byte value = data.get();
+            offset++;
+            if (isResyncing) {
+                resyncWindow = (resyncWindow << 8) | (value & 0xFF);
+                resyncWindowLength = Math.min(resyncWindowLength + 1, MAX_ID_LENGTH);
+                if (resyncWindowLength == MAX_ID_LENGTH && (resyncWindow == CLUSTER_ID || resyncWindow == EBML_ID)) {
+                    isResyncing = false;
+                    elementStart = offset - MAX_ID_LENGTH;
+                    for (int i = 0; i < MAX_ID_LENGTH; i++) {
+                        header[i] = (byte) (resyncWindow >>> (8 * (MAX_ID_LENGTH - 1 - i)));
+                    }
+                    headerLength = MAX_ID_LENGTH;
+                }
+
+                continue;
+            }
+
+            if (headerLength == 0) {
+                elementStart = offset - 1;
+            }
+
+            header[headerLength++] = value;
+            if (readElementHeader()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Loses the place in the stream, to look for the next Cluster or EBML header.
+     */
+    void resync() {
+        isResyncing = true;
+        resyncWindow = 0;
+        resyncWindowLength = 0;
+        headerLength = 0;
+        skipRemaining = 0;
+    }
+
+    /**
+     * @return id of the element at the boundary, {@link #EBML_ID} or {@link #CLUSTER_ID}
+     */
+    int getBoundaryId() {
+        return boundaryId;
+    }
+
+    /**
+     * @return offset in the stream of the start of the element at the boundary
+     */
+    long getBoundaryOffset() {
+        return boundaryOffset;
+    }
+
+    /**
+     * @return offset in the stream up to which the bytes do not belong to an element header yet to be completed
+     */
+    long getSafeOffset() {
+        if (isResyncing) {
+            return offset - resyncWindowLength;
+        }
+
+        return headerLength > 0 ? elementStart : offset;
+    }
+
+    /**
+     * @return whether the header accumulated so far is complete, handling the element if it is
+     */
+    private boolean readElementHeader() {
+        final int idLength = vintLength(header[0]);
+        if (idLength > MAX_ID_LENGTH) {
+            resync();
+            return false;
+        }
+
+        if (headerLength <= idLength) {
+            return false;
+        }
+
+        final int sizeLength = vintLength(header[idLength]);
+        if (sizeLength > MAX_SIZE_LENGTH) {
+            resync();
+            return false;
+        }
+
+        if (headerLength < idLength + sizeLength) {
+            return false;
+        }
+
+        int id = 0;
+        for (int i = 0; i < idLength; i++) {
+            id = (id << 8) | (header[i] & 0xFF);
+        }
+
+        final long size = readVint(idLength, sizeLength);
+        headerLength = 0;
+        switch (id) {
+            case EBML_ID:
+                skipRemaining = size == UNKNOWN_SIZE ? 0 : size;
+                return boundary(id);
+            case CLUSTER_ID:
+                // Stepped into whatever its size
+                return boundary(id);
+            case SEGMENT_ID:
+                return false;
+            default:
+                // An unknown-sized element other than those can only be stepped into
+                skipRemaining = size == UNKNOWN_SIZE ? 0 : size;
+                return false;
+        }
+    }
+
+    private boolean boundary(final int id) {
+        boundaryId = id;
+        boundaryOffset = elementStart;
+        return true;
+    }
+
+    private long readVint(final int start, final int length) {
+        long value = header[start] & (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (header[start + i] & 0xFF);
+        }
+
+        return value == (1L << (7L * length)) - 1 ? UNKNOWN_SIZE : value;
+    }
+
+    private static int vintLength(final byte firstByte) {
+        final int value = firstByte & 0xFF;
+        return value == 0 ? MAX_SIZE_LENGTH + 1 : Integer.numberOfLeadingZeros(value) - 23;
+    }
+}
@@ -0,0 +1,493 @@
+package com.amazonaws.kinesisvideo.stream.recording;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a Matroska stream to local files asynchronously, for teeing an upload to the disk without slowing it down.
+ * <p>
+ * {@link #record(byte[], int, int)} only copies the bytes into a chunk of a preallocated pool and never waits: when
+ * the pool is exhausted, the bytes are dropped and the recording picks up again at the next Cluster. A dedicated I/O
+ * thread writes the chunks out in batches.
+ * <p>
+ * The files are rotated by size or by age, on Cluster boundaries, and every file after the first starts with a copy
+ * of the EBML header, Segment info and tracks of the stream so that each of them can be played on its own.
+ */
+@ThreadSafe
+public final class MkvRecorder {
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 2 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int BATCH_SIZE = 256 * 1024;
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    private final Logger log = LogManager.getLogger(MkvRecorder.class);
+    private final Path outputPath;
+    private final long maxFileSize;
+    private final long maxFileDurationInNanos;
+    private final Ticker ticker;
+    private final BlockingQueue<Chunk> freeChunks;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final Chunk endOfStream = new Chunk(0);
+    private final ExecutorService ioThread;
+
+    private final AtomicLong recordedByteCount = new AtomicLong();
+    private final AtomicLong droppedByteCount = new AtomicLong();
+    private final AtomicLong queuedByteCount = new AtomicLong();
+    @GuardedBy("this")
+    private boolean isAfterGap;
+    @GuardedBy("this")
+    private boolean isClosed;
+
+    /**
+     * Written by the I/O thread only
+     */
+    private volatile long writtenByteCount;
+    private volatile long discardedByteCount;
+    private volatile long lastWriteLagInNanos;
+    private volatile long maxWriteLagInNanos;
+    private volatile int fileCount;
+    private volatile long writeErrorCount;
+
+    /**
+     * State of the I/O thread
+     */
+    private final ClusterBoundaryScanner scanner = new ClusterBoundaryScanner();
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE);
+    private final byte[] header = new byte[MAX_HEADER_SIZE];
+    private long batchStart;
+    private FileChannel channel;
+    private int fileIndex;
+    private long fileByteCount;
+    private long fileOpenedNanos;
+    private long headerStart;
+    private int headerLength;
+    private boolean isCapturingHeader;
+    private boolean isHeaderKnown;
+    private boolean isHeaderPending;
+    private boolean isClusterInFile;
+    private boolean isDiscarding;
+
+    private MkvRecorder(final Builder builder) {
+        this.outputPath = builder.outputPath;
+        this.maxFileSize = builder.maxFileSize;
+        this.maxFileDurationInNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxFileDurationInMillis);
+        this.ticker = builder.ticker;
+
+        final int chunkCount = Math.max(1, builder.maxBufferedBytes / CHUNK_SIZE);
+        this.freeChunks = new ArrayBlockingQueue<Chunk>(chunkCount);
+        this.filledChunks = new ArrayBlockingQueue<Chunk>(chunkCount + 1);
+        for (int i = 0; i < chunkCount; i++) {
+            freeChunks.add(new Chunk(CHUNK_SIZE));
+        }
+
+        this.ioThread = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("KVS-MkvRecorder-%d").setDaemon(true).build());
+        this.ioThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeChunks();
+            }
+        });
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Hands bytes of the stream over to be recorded. Never blocks, the bytes which do not fit in the buffer memory
+     * are dropped.
+     */
+    public synchronized void record(@Nonnull final byte[] data, final int offset, final int length) {
+        if (isClosed || length <= 0) {
+            return;
+        }
+
+        recordedByteCount.addAndGet(length);
+        final int end = offset + length;
+        for (int position = offset; position < end; ) {
+            final Chunk chunk = freeChunks.poll();
+            if (chunk == null) {
+                droppedByteCount.addAndGet(end - position);
+                isAfterGap = true;
+                return;
+            }
+
+            chunk.length = Math.min(CHUNK_SIZE, end - position);
+            System.arraycopy(data, position, chunk.data, 0, chunk.length);
+            chunk.recordedNanos = ticker.read();
+            chunk.isAfterGap = isAfterGap;
+            isAfterGap = false;
+            queuedByteCount.addAndGet(chunk.length);
+            filledChunks.add(chunk);
+            position += chunk.length;
+        }
+    }
+
+    /**
+     * Stops recording. The bytes already handed over are written out by the I/O thread, which then closes the file and
+     * terminates; this does not wait for it.
+     */
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        filledChunks.add(endOfStream);
+        ioThread.shutdown();
+    }
+
+    /**
+     * Waits for the I/O thread to terminate after {@link #close()}.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit) throws InterruptedException {
+        return ioThread.awaitTermination(timeout, unit);
+    }
+
+    @Nonnull
+    public MkvRecorderMetrics getMetrics() {
+        return new MkvRecorderMetrics(recordedByteCount.get(),
+                writtenByteCount,
+                droppedByteCount.get(),
+                discardedByteCount,
+                queuedByteCount.get(),
+                lastWriteLagInNanos,
+                maxWriteLagInNanos,
+                fileCount,
+                writeErrorCount);
+    }
+
+    private void writeChunks() {
+        try {
+            while (true) {
+                Chunk chunk = filledChunks.take();
+                while (chunk != null && chunk != endOfStream) {
+                    writeChunk(chunk);
+                    chunk = filledChunks.poll();
+                }
+
+                if (chunk == endOfStream) {
+                    break;
+                }
+
+                flush(scanner.getSafeOffset());
+            }
+
+            flush(batchStart + batch.position());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void writeChunk(final Chunk chunk) {
+        final long lag = ticker.read() - chunk.recordedNanos;
+        lastWriteLagInNanos = lag;
+        maxWriteLagInNanos = Math.max(maxWriteLagInNanos, lag);
+
+        if (chunk.isAfterGap) {
+            // Whatever follows is cut off from the stream until the next Cluster
+            flush(batchStart + batch.position());
+            isDiscarding = true;
+            isCapturingHeader = false;
+            scanner.resync();
+        }
+
+        if (channel == null && !isDiscarding) {
+            openFile();
+        }
+
+        final ByteBuffer source = ByteBuffer.wrap(chunk.data, 0, chunk.length);
+        while (source.hasRemaining()) {
+            if (!batch.hasRemaining()) {
+                flush(scanner.getSafeOffset());
+            }
+
+            final int start = source.position();
+            final ByteBuffer piece = source.duplicate();
+            piece.limit(Math.min(source.limit(), start + batch.remaining()));
+            final boolean isBoundary = scanner.scan(piece);
+            final int end = piece.position();
+            batch.put(chunk.data, start, end - start);
+            if (isCapturingHeader) {
+                captureHeader(chunk.data, start, end - start);
+            }
+
+            source.position(end);
+            if (isBoundary) {
+                onBoundary(scanner.getBoundaryId(), scanner.getBoundaryOffset());
+            }
+        }
+
+        queuedByteCount.addAndGet(-chunk.length);
+        freeChunks.add(chunk);
+    }
+
+    private void onBoundary(final int id, final long boundaryOffset) {
+        if (id == ClusterBoundaryScanner.EBML_ID) {
+            // A new stream, with a header of its own which starts the next file by itself
+            startHeaderCapture(boundaryOffset);
+            if (isDiscarding || isRotationDue(boundaryOffset)) {
+                rotate(boundaryOffset, false);
+            }
+
+            return;
+        }
+
+        if (isCapturingHeader) {
+            isCapturingHeader = false;
+            headerLength = (int) (boundaryOffset - headerStart);
+            isHeaderKnown = true;
+        }
+
+        if (isDiscarding || isRotationDue(boundaryOffset)) {
+            rotate(boundaryOffset, true);
+        }
+
+        isClusterInFile = true;
+    }
+
+    private boolean isRotationDue(final long boundaryOffset) {
+        if (channel == null || !isClusterInFile) {
+            return false;
+        }
+
+        final long size = fileByteCount + boundaryOffset - batchStart;
+        return maxFileSize > 0 && size >= maxFileSize
+                || maxFileDurationInNanos > 0 && ticker.read() - fileOpenedNanos >= maxFileDurationInNanos;
+    }
+
+    /**
+     * Ends the file at the boundary, the next file being opened with the next bytes.
+     */
+    private void rotate(final long boundaryOffset, final boolean isHeaderNeeded) {
+        flush(boundaryOffset);
+        isDiscarding = false;
+        if (!isRotating()) {
+            // A single recording carries on past the gap, reopened if a write error closed it
+            if (channel == null) {
+                openFile();
+            }
+
+            return;
+        }
+
+        closeFile();
+        isHeaderPending = isHeaderNeeded && isHeaderKnown;
+        openFile();
+    }
+
+    private void startHeaderCapture(final long boundaryOffset) {
+        headerStart = boundaryOffset;
+        headerLength = 0;
+        isCapturingHeader = true;
+        isHeaderKnown = false;
+
+        // The start of the EBML header is already in the batch
+        final ByteBuffer captured = batch.duplicate();
+        captured.limit(batch.position()).position((int) (boundaryOffset - batchStart));
+        final int length = captured.remaining();
+        captured.get(header, 0, length);
+        headerLength = length;
+    }
+
+    private void captureHeader(final byte[] data, final int offset, final int length) {
+        if (headerLength + length > MAX_HEADER_SIZE) {
+            log.warn("Stream header larger than {} bytes, the rotated files will not start with it", MAX_HEADER_SIZE);
+            isCapturingHeader = false;
+            headerLength = 0;
+            return;
+        }
+
+        System.arraycopy(data, offset, header, headerLength, length);
+        headerLength += length;
+    }
+
+    /**
+     * Writes the batch out up to the offset and keeps the rest of it.
+     */
+    private void flush(final long upTo) {
+        final int length = (int) (upTo - batchStart);
+        if (length <= 0) {
+            return;
+        }
+
+        final int end = batch.position();
+        batch.flip().limit(length);
+        if (isDiscarding || channel == null) {
+            discardedByteCount += length;
+        } else {
+            try {
+                writeFully(batch);
+                writtenByteCount += length;
+                fileByteCount += length;
+            } catch (final IOException e) {
+                onWriteError("Unable to write the recording", e);
+                discardedByteCount += length;
+            }
+        }
+
+        batch.limit(end).position(length);
+        batch.compact();
+        batchStart = upTo;
+    }
+
+    private boolean isRotating() {
+        return maxFileSize > 0 || maxFileDurationInNanos > 0;
+    }
+
+    private void openFile() {
+        final Path path = isRotating() ? rotatedPath(fileIndex) : outputPath;
+        // Reopening the single recording after a write error appends to what it already holds
+        final StandardOpenOption mode = !isRotating() && fileIndex > 0
+                ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        fileIndex++;
+        fileByteCount = 0;
+        isClusterInFile = false;
+        fileOpenedNanos = ticker.read();
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+            fileCount++;
+            if (isHeaderPending) {
+                isHeaderPending = false;
+                writeFully(ByteBuffer.wrap(header, 0, headerLength));
+                writtenByteCount += headerLength;
+                fileByteCount += headerLength;
+            }
+        } catch (final IOException e) {
+            onWriteError("Unable to open the recording " + path, e);
+        }
+    }
+
+    /**
+     * Gives up on the file, the recording picking up again at the next Cluster, in a new file when rotating.
+     */
+    private void onWriteError(final String message, final IOException e) {
+        writeErrorCount++;
+        log.error(message + ", skipping to the next Cluster", e);
+        closeFile();
+        isDiscarding = true;
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (final IOException e) {
+            writeErrorCount++;
+            log.error("Unable to close the recording", e);
+        }
+
+        channel = null;
+    }
+
+    private void writeFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return output path with the index of the file inserted before its extension
+     */
+    private Path rotatedPath(final int index) {
+        final String fileName = outputPath.getFileName().toString();
+        final int extension = fileName.lastIndexOf('.');
+        final String rotatedName = extension > 0
+                ? String.format("%s-%05d%s", fileName.substring(0, extension), index, fileName.substring(extension))
+                : String.format("%s-%05d", fileName, index);
+        return outputPath.resolveSibling(rotatedName);
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+        private int length;
+        private long recordedNanos;
+        private boolean isAfterGap;
+
+        private Chunk(final int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    public static final class Builder {
+        private Path outputPath;
+        private long maxFileSize;
+        private long maxFileDurationInMillis;
+        private int maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+        private Ticker ticker = Ticker.systemTicker();
+
+        /**
+         * @param outputPath - file to record to. When the files are rotated, their index is inserted before the
+         *                   extension: recording.mkv is rotated to recording-00000.mkv, recording-00001.mkv...
+         */
+        public Builder outputPath(@Nonnull final Path outputPath) {
+            this.outputPath = outputPath;
+            return this;
+        }
+
+        /**
+         * @param maxFileSize - size past which the file is rotated at the next Cluster, 0 not to rotate by size
+         */
+        public Builder maxFileSize(final long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+            return this;
+        }
+
+        /**
+         * @param maxFileDurationInMillis - age past which the file is rotated at the next Cluster, 0 not to rotate by
+         *                                age
+         */
+        public Builder maxFileDurationInMillis(final long maxFileDurationInMillis) {
+            this.maxFileDurationInMillis = maxFileDurationInMillis;
+            return this;
+        }
+
+        /**
+         * @param maxBufferedBytes - memory of the buffer between the recording thread and the I/O thread
+         */
+        public Builder maxBufferedBytes(final int maxBufferedBytes) {
+            this.maxBufferedBytes = maxBufferedBytes;
+            return this;
+        }
+
+        Builder ticker(@Nonnull final Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public MkvRecorder build() {
+            Preconditions.checkNotNull(outputPath);
+            Preconditions.checkArgument(maxFileSize >= 0, "Max file size should not be negative");
+            Preconditions.checkArgument(maxFileDurationInMillis >= 0, "Max file duration should not be negative");
+            Preconditions.checkArgument(maxBufferedBytes > 0, "Max buffered bytes should be positive");
+            return new MkvRecorder(this);
+        }
+    }
+}
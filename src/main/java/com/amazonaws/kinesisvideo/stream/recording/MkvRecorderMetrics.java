@@ -0,0 +1,112 @@
+package com.amazonaws.kinesisvideo.stream.recording;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Point-in-time snapshot of the metrics of an {@link MkvRecorder}.
+ */
+@Immutable
+public final class MkvRecorderMetrics {
+    private final long recordedByteCount;
+    private final long writtenByteCount;
+    private final long droppedByteCount;
+    private final long discardedByteCount;
+    private final long queuedByteCount;
+    private final long lastWriteLagInNanos;
+    private final long maxWriteLagInNanos;
+    private final int fileCount;
+    private final long writeErrorCount;
+
+    MkvRecorderMetrics(final long recordedByteCount,
+                       final long writtenByteCount,
+                       final long droppedByteCount,
+                       final long discardedByteCount,
+                       final long queuedByteCount,
+                       final long lastWriteLagInNanos,
+                       final long maxWriteLagInNanos,
+                       final int fileCount,
+                       final long writeErrorCount) {
+        this.recordedByteCount = recordedByteCount;
+        this.writtenByteCount = writtenByteCount;
+        this.droppedByteCount = droppedByteCount;
+        this.discardedByteCount = discardedByteCount;
+        this.queuedByteCount = queuedByteCount;
+        this.lastWriteLagInNanos = lastWriteLagInNanos;
+        this.maxWriteLagInNanos = maxWriteLagInNanos;
+        this.fileCount = fileCount;
+        this.writeErrorCount = writeErrorCount;
+    }
+
+    /**
+     * @return number of bytes handed over to be recorded
+     */
+    public long getRecordedByteCount() {
+        return recordedByteCount;
+    }
+
+    /**
+     * @return number of bytes written to the files, the headers repeated at the start of the files included
+     */
+    public long getWrittenByteCount() {
+        return writtenByteCount;
+    }
+
+    /**
+     * @return number of bytes dropped for lack of buffer memory
+     */
+    public long getDroppedByteCount() {
+        return droppedByteCount;
+    }
+
+    /**
+     * @return number of bytes not written after a gap or a write error, until the next Cluster
+     */
+    public long getDiscardedByteCount() {
+        return discardedByteCount;
+    }
+
+    /**
+     * @return number of bytes waiting for the I/O thread
+     */
+    public long getQueuedByteCount() {
+        return queuedByteCount;
+    }
+
+    /**
+     * @return time the last bytes written waited for the I/O thread
+     */
+    public long getLastWriteLagInNanos() {
+        return lastWriteLagInNanos;
+    }
+
+    /**
+     * @return longest time bytes waited for the I/O thread
+     */
+    public long getMaxWriteLagInNanos() {
+        return maxWriteLagInNanos;
+    }
+
+    /**
+     * @return number of files opened
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getWriteErrorCount() {
+        return writeErrorCount;
+    }
+
+    @Override
+    public String toString() {
+        return "MkvRecorderMetrics{recorded=" + recordedByteCount
+                + ", written=" + writtenByteCount
+                + ", dropped=" + droppedByteCount
+                + ", discarded=" + discardedByteCount
+                + ", queued=" + queuedByteCount
+                + ", lastWriteLagNanos=" + lastWriteLagInNanos
+                + ", maxWriteLagNanos=" + maxWriteLagInNanos
+                + ", files=" + fileCount
+                + ", writeErrors=" + writeErrorCount + '}';
+    }
+}
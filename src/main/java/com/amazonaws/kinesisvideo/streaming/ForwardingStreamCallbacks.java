@@ -0,0 +1,78 @@
+package com.amazonaws.kinesisvideo.streaming;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+
+import javax.annotation.Nonnull;
+
+/**
+ * StreamCallbacks handing every callback over to wrapped callbacks, for the callbacks which only need to look at some
+ * of them to override.
+ */
+public class ForwardingStreamCallbacks implements StreamCallbacks {
+    private final StreamCallbacks delegate;
+
+    public ForwardingStreamCallbacks(@Nonnull final StreamCallbacks delegate) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+    }
+
+    @Override
+    public void streamUnderflowReport() throws ProducerException {
+        delegate.streamUnderflowReport();
+    }
+
+    @Override
+    public void streamLatencyPressure(final long duration) throws ProducerException {
+        delegate.streamLatencyPressure(duration);
+    }
+
+    @Override
+    public void streamConnectionStale(final long lastAckDuration) throws ProducerException {
+        delegate.streamConnectionStale(lastAckDuration);
+    }
+
+    @Override
+    public void fragmentAckReceived(final long uploadHandle, @Nonnull final KinesisVideoFragmentAck fragmentAck)
+            throws ProducerException {
+        delegate.fragmentAckReceived(uploadHandle, fragmentAck);
+    }
+
+    @Override
+    public void droppedFrameReport(final long frameTimecode) throws ProducerException {
+        delegate.droppedFrameReport(frameTimecode);
+    }
+
+    @Override
+    public void droppedFragmentReport(final long fragmentTimecode) throws ProducerException {
+        delegate.droppedFragmentReport(fragmentTimecode);
+    }
+
+    @Override
+    public void streamErrorReport(final long uploadHandle, final long fragmentTimecode, final long statusCode)
+            throws ProducerException {
+        delegate.streamErrorReport(uploadHandle, fragmentTimecode, statusCode);
+    }
+
+    @Override
+    public void streamDataAvailable(final long uploadHandle, final long duration, final long availableSize)
+            throws ProducerException {
+        delegate.streamDataAvailable(uploadHandle, duration, availableSize);
+    }
+
+    @Override
+    public void streamReady() throws ProducerException {
+        delegate.streamReady();
+    }
+
+    @Override
+    public void streamClosed(final long uploadHandle) throws ProducerException {
+        delegate.streamClosed(uploadHandle);
+    }
+
+    @Override
+    public void bufferDurationOverflowPressure(final long remainDuration) throws ProducerException {
+        delegate.bufferDurationOverflowPressure(remainDuration);
+    }
+}
@@ -0,0 +1,92 @@
+package com.amazonaws.kinesisvideo.client.signing;
+
+import com.amazonaws.SignableRequest;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.kinesisvideo.config.ClientConfiguration;
+import com.amazonaws.kinesisvideo.http.HttpClient;
+import com.amazonaws.kinesisvideo.http.ParallelSimpleHttpClient;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Date;
+
+import static com.amazonaws.kinesisvideo.http.HttpMethodName.POST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KinesisVideoAWS4SignerTest {
+    private static final String REGION = "us-west-2";
+    private static final String SERVICE_NAME = "kinesisvideo";
+    private static final URI PUT_MEDIA_URI = URI.create("https://s-1234abcd.kinesisvideo.us-west-2.amazonaws.com/putMedia");
+    private static final Date SIGNING_DATE = new Date(1580000000000L);
+
+    @Test
+    public void test_sign_matchesSdkSignerForBasicCredentials() {
+        final AWSCredentials credentials = new BasicAWSCredentials("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY");
+
+        assertSignedLikeSdkSigner(credentials, "1580000000.000");
+        // Second round hits the cached signing key and canonical request template
+        assertSignedLikeSdkSigner(credentials, "1580000001.500");
+    }
+
+    @Test
+    public void test_sign_matchesSdkSignerForSessionCredentials() {
+        final AWSCredentials credentials = new BasicSessionCredentials("ASIAEXAMPLE",
+                "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "session-token-1");
+
+        assertSignedLikeSdkSigner(credentials, "1580000000.000");
+        assertSignedLikeSdkSigner(new BasicSessionCredentials("ASIAEXAMPLE",
+                "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "session-token-2"), "1580000002.000");
+    }
+
+    private static void assertSignedLikeSdkSigner(final AWSCredentials credentials, final String startTimestamp) {
+        final HttpClient httpClient = createPutMediaClient(startTimestamp);
+        final SignableRequest<?> expected = signWithSdkSigner(httpClient, credentials);
+
+        final KinesisVideoAWS4Signer signer = new KinesisVideoAWS4Signer(
+                new AWSStaticCredentialsProvider(credentials),
+                ClientConfiguration.builder().serviceName(SERVICE_NAME).region(REGION).build());
+        signer.setOverrideDate(SIGNING_DATE);
+        signer.sign(httpClient);
+
+        assertEquals(expected.getHeaders().get("Authorization"), httpClient.getHeaders().get("Authorization"));
+        assertEquals(expected.getHeaders().get("X-Amz-Date"), httpClient.getHeaders().get("X-Amz-Date"));
+        assertEquals(expected.getHeaders().get("X-Amz-Security-Token"),
+                httpClient.getHeaders().get("X-Amz-Security-Token"));
+        assertEquals("UNSIGNED-PAYLOAD", httpClient.getHeaders().get("x-amz-content-sha256"));
+    }
+
+    private static SignableRequest<?> signWithSdkSigner(final HttpClient httpClient, final AWSCredentials credentials) {
+        final AWS4Signer sdkSigner = new AWS4Signer() {
+            @Override
+            protected String calculateContentHash(final SignableRequest<?> request) {
+                return "UNSIGNED-PAYLOAD";
+            }
+        };
+        sdkSigner.setServiceName(SERVICE_NAME);
+        sdkSigner.setRegionName(REGION);
+        sdkSigner.setOverrideDate(SIGNING_DATE);
+
+        final SignableRequest<?> request = new KinesisVideoAWS4Signer(null, null).toSignableRequest(httpClient);
+        assertNull(request.getHeaders().get("Authorization"));
+        sdkSigner.sign(request, credentials);
+        return request;
+    }
+
+    private static HttpClient createPutMediaClient(final String startTimestamp) {
+        return ParallelSimpleHttpClient.builder()
+                .uri(PUT_MEDIA_URI)
+                .method(POST)
+                .header("x-amzn-stream-name", "test-stream")
+                .header("Transfer-Encoding", "chunked")
+                .header("connection", "keep-alive")
+                .header("user-agent", "test-agent   with  spaces")
+                .header("x-amzn-producer-start-timestamp", startTimestamp)
+                .header("x-amzn-fragment-timecode-type", "RELATIVE")
+                .build();
+    }
+}
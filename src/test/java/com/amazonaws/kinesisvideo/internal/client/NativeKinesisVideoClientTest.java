@@ -0,0 +1,149 @@
+package com.amazonaws.kinesisvideo.internal.client;
+
+import com.amazonaws.kinesisvideo.client.RegisterMediaSourcesResult;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.bytes.LoadGeneratorMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.bytes.LoadGeneratorMediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducer;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.ServiceCallbacks;
+import com.amazonaws.kinesisvideo.producer.AuthCallbacks;
+import com.amazonaws.kinesisvideo.producer.DeviceInfo;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StorageCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import org.apache.logging.log4j.LogManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NativeKinesisVideoClientTest {
+    private static final int NUMBER_OF_SOURCES = 20;
+    private static final int MAX_CONCURRENT_REGISTRATIONS = 10;
+    private static final long STREAM_READY_TIME_IN_MILLIS = 100;
+    private static final String FAILING_STREAM_NAME = "stream-7";
+    private static final int NUMBER_OF_LOAD_SOURCES = 100;
+
+    private final AtomicInteger concurrentCreates = new AtomicInteger();
+    private final AtomicInteger maxConcurrentCreates = new AtomicInteger();
+    /**
+     * Released once as many stream creations as the registrations may run at once are in flight
+     */
+    private final CountDownLatch concurrentCreatesReached = new CountDownLatch(MAX_CONCURRENT_REGISTRATIONS);
+    private final AtomicBoolean isConcurrencyReached = new AtomicBoolean(true);
+    private KinesisVideoProducer producer;
+    private ServiceCallbacks serviceCallbacks;
+    private NativeKinesisVideoClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        producer = mock(KinesisVideoProducer.class);
+        when(producer.createStreamSync(any(StreamInfo.class), any(StreamCallbacks.class))).thenAnswer(invocation -> {
+            final StreamInfo streamInfo = invocation.getArgument(0);
+            final int concurrent = concurrentCreates.incrementAndGet();
+            maxConcurrentCreates.accumulateAndGet(concurrent, Math::max);
+            try {
+                concurrentCreatesReached.countDown();
+                if (!concurrentCreatesReached.await(5, TimeUnit.SECONDS)) {
+                    isConcurrencyReached.set(false);
+                }
+            } finally {
+                concurrentCreates.decrementAndGet();
+            }
+
+            if (FAILING_STREAM_NAME.equals(streamInfo.getName())) {
+                throw new ProducerException("Stream failed to become ready", 0x52000000);
+            }
+
+            return mock(KinesisVideoProducerStream.class);
+        });
+
+        serviceCallbacks = mock(ServiceCallbacks.class);
+        client = new NativeKinesisVideoClient(LogManager.getLogger(NativeKinesisVideoClientTest.class),
+                mock(AuthCallbacks.class),
+                mock(StorageCallbacks.class),
+                serviceCallbacks,
+                mock(StreamCallbacks.class)) {
+            @Override
+            public KinesisVideoProducer initializeNewKinesisVideoProducer(final DeviceInfo deviceInfo) {
+                return producer;
+            }
+        };
+        client.initialize(mock(DeviceInfo.class));
+    }
+
+    @Test
+    public void test_registerMediaSources_createsStreamsConcurrentlyAndReportsPartialFailure() throws Exception {
+        final List<MediaSource> mediaSources = new ArrayList<MediaSource>();
+        for (int i = 0; i < NUMBER_OF_SOURCES; i++) {
+            final StreamInfo streamInfo = mock(StreamInfo.class);
+            when(streamInfo.getName()).thenReturn("stream-" + i);
+            final MediaSource mediaSource = mock(MediaSource.class);
+            when(mediaSource.getStreamInfo()).thenReturn(streamInfo);
+            mediaSources.add(mediaSource);
+        }
+
+        final RegisterMediaSourcesResult result = client.registerMediaSources(mediaSources,
+                MAX_CONCURRENT_REGISTRATIONS).get(30, TimeUnit.SECONDS);
+
+        assertFalse(result.isAllRegistered());
+        assertEquals(NUMBER_OF_SOURCES - 1, result.getRegisteredMediaSources().size());
+        assertEquals(1, result.getFailedMediaSources().size());
+        assertTrue(result.getFailedMediaSources().containsKey(mediaSources.get(7)));
+        assertEquals(mediaSources.get(8), result.getRegisteredMediaSources().get(7));
+
+        assertTrue("Stream creations did not overlap", isConcurrencyReached.get());
+        assertEquals(MAX_CONCURRENT_REGISTRATIONS, maxConcurrentCreates.get());
+        verify(serviceCallbacks, times(NUMBER_OF_SOURCES - 1)).addStream(any(KinesisVideoProducerStream.class));
+        assertEquals(NUMBER_OF_SOURCES - 1, client.mMediaSources.size());
+    }
+
+    @Test
+    public void test_free_releasesFrameSourceThreadsSharedByAllMediaSources() throws Exception {
+        final List<MediaSource> mediaSources = LoadGeneratorMediaSource.createFanOut("load",
+                new LoadGeneratorMediaSourceConfiguration.Builder()
+                        .withStreamCount(NUMBER_OF_LOAD_SOURCES)
+                        .build());
+        assertTrue(client.registerMediaSources(mediaSources, NUMBER_OF_LOAD_SOURCES)
+                .get(10, TimeUnit.SECONDS).isAllRegistered());
+
+        client.startAllMediaSources();
+        Thread.sleep(STREAM_READY_TIME_IN_MILLIS);
+        assertEquals(AbstractKinesisVideoClient.FRAME_SOURCE_DISPATCH_THREADS + 1, countFrameSourceThreads());
+
+        client.free();
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (countFrameSourceThreads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, countFrameSourceThreads());
+    }
+
+    private static int countFrameSourceThreads() {
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("KVS-FrameSources") && thread.isAlive()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
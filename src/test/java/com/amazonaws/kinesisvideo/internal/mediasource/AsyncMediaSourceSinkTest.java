@@ -0,0 +1,170 @@
+package com.amazonaws.kinesisvideo.internal.mediasource;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class AsyncMediaSourceSinkTest {
+    private static final int CAPACITY = 4;
+    private static final int CODEC_PRIVATE_DATA = -1;
+
+    private final CountDownLatch firstDeliveryStarted = new CountDownLatch(1);
+    private final CountDownLatch deliveryReleased = new CountDownLatch(1);
+    private final List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+    private MediaSourceSink delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        // Downstream sink stalled on the first frame until released
+        delegate = mock(MediaSourceSink.class);
+        doAnswer(invocation -> {
+            final KinesisVideoFrame frame = invocation.getArgument(0);
+            firstDeliveryStarted.countDown();
+            deliveryReleased.await();
+            delivered.add(frame.getIndex());
+            return null;
+        }).when(delegate).onFrame(any(KinesisVideoFrame.class));
+        doAnswer(invocation -> {
+            delivered.add(CODEC_PRIVATE_DATA);
+            return null;
+        }).when(delegate).onCodecPrivateData(any(byte[].class), anyInt());
+    }
+
+    @Test
+    public void test_onFrame_dropOldestNonKeyFrame_keepsKeyFramesWithoutBlocking() throws Exception {
+        final AsyncMediaSourceSink sink = new AsyncMediaSourceSink(delegate, CAPACITY,
+                AsyncMediaSourceSink.OverflowPolicy.DROP_OLDEST_NON_KEY_FRAME);
+        sink.onFrame(frame(0, true));
+        assertTrue(firstDeliveryStarted.await(5, TimeUnit.SECONDS));
+
+        for (final int index : new int[] {1, 2, 3, 4, 5, 6}) {
+            sink.onFrame(frame(index, index == 1 || index == 6));
+        }
+        assertEquals(CAPACITY, sink.getMetrics().getQueueDepth());
+
+        deliveryReleased.countDown();
+        assertTrue(sink.awaitDrained(5, TimeUnit.SECONDS));
+        sink.close();
+
+        assertEquals(Arrays.asList(0, 1, 4, 5, 6), delivered);
+        final AsyncMediaSourceSinkMetrics metrics = sink.getMetrics();
+        assertEquals(2, metrics.getDroppedFrameCount());
+        assertEquals(5, metrics.getDeliveredFrameCount());
+        assertEquals(0, metrics.getBlockedCount());
+        assertEquals(CAPACITY, metrics.getMaxQueueDepth());
+    }
+
+    @Test
+    public void test_onFrame_dropToNextKeyFrame_resumesOnKeyFrame() throws Exception {
+        final AsyncMediaSourceSink sink = new AsyncMediaSourceSink(delegate, CAPACITY,
+                AsyncMediaSourceSink.OverflowPolicy.DROP_TO_NEXT_KEY_FRAME);
+        sink.onFrame(frame(0, true));
+        assertTrue(firstDeliveryStarted.await(5, TimeUnit.SECONDS));
+
+        // Overflowing on 5 drops 1 and 2 up to the key frame 3, overflowing on 7 leaves no key frame to resume from
+        for (final int index : new int[] {1, 2, 3, 4, 5, 6, 7, 8}) {
+            sink.onFrame(frame(index, index == 3));
+        }
+        sink.onCodecPrivateData(new byte[] {1}, 1);
+        sink.onFrame(frame(9, true));
+        sink.onFrame(frame(10, false));
+
+        deliveryReleased.countDown();
+        assertTrue(sink.awaitDrained(5, TimeUnit.SECONDS));
+        sink.close();
+
+        assertEquals(Arrays.asList(0, CODEC_PRIVATE_DATA, 9, 10), delivered);
+        assertEquals(8, sink.getMetrics().getDroppedFrameCount());
+    }
+
+    @Test(timeout = 10000)
+    public void test_onFrame_block_waitsForRoomAndKeepsAllFrames() throws Exception {
+        final AsyncMediaSourceSink sink = new AsyncMediaSourceSink(delegate, CAPACITY,
+                AsyncMediaSourceSink.OverflowPolicy.BLOCK);
+        sink.onFrame(frame(0, true));
+        assertTrue(firstDeliveryStarted.await(5, TimeUnit.SECONDS));
+        for (final int index : new int[] {1, 2, 3, 4}) {
+            sink.onFrame(frame(index, false));
+        }
+
+        final CompletableFuture<Void> blockedFrame = CompletableFuture.runAsync(() -> {
+            try {
+                sink.onFrame(frame(5, false));
+            } catch (final KinesisVideoException e) {
+                throw new CompletionException(e);
+            }
+        });
+        while (sink.getMetrics().getBlockedCount() == 0) {
+            Thread.yield();
+        }
+        assertFalse(blockedFrame.isDone());
+
+        deliveryReleased.countDown();
+        blockedFrame.get(5, TimeUnit.SECONDS);
+        assertTrue(sink.awaitDrained(5, TimeUnit.SECONDS));
+        sink.close();
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), delivered);
+        final AsyncMediaSourceSinkMetrics metrics = sink.getMetrics();
+        assertEquals(0, metrics.getDroppedFrameCount());
+        assertEquals(1, metrics.getBlockedCount());
+    }
+
+    @Test(expected = KinesisVideoException.class)
+    public void test_onFrame_afterClose_throws() throws Exception {
+        final AsyncMediaSourceSink sink = new AsyncMediaSourceSink(delegate, CAPACITY,
+                AsyncMediaSourceSink.OverflowPolicy.BLOCK);
+        sink.close();
+        sink.onFrame(frame(0, true));
+    }
+
+    @Test
+    public void test_onFrame_rejectedByDrainer_takesTheFrameBack() throws Exception {
+        final ExecutorService drainer = Executors.newSingleThreadExecutor();
+        drainer.shutdown();
+        final AsyncMediaSourceSink sink = new AsyncMediaSourceSink(delegate, CAPACITY,
+                AsyncMediaSourceSink.OverflowPolicy.BLOCK, drainer);
+        try {
+            sink.onFrame(frame(0, true));
+            fail("Expected the frame to be rejected");
+        } catch (final KinesisVideoException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        // Nothing left queued or draining
+        assertEquals(0, sink.getMetrics().getQueueDepth());
+        assertEquals(0, sink.getMetrics().getEnqueuedFrameCount());
+        assertTrue(sink.awaitDrained(0, TimeUnit.SECONDS));
+    }
+
+    private static KinesisVideoFrame frame(final int index, final boolean isKeyFrame) {
+        return new KinesisVideoFrame(index, isKeyFrame ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE, index, index, 1,
+                ByteBuffer.allocateDirect(1));
+    }
+}
@@ -0,0 +1,89 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.bytes;
+
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.util.StreamInfoConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class LoadGeneratorTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_forBitrate_averagesTargetBitrate() {
+        final FrameSizeDistribution distribution = FrameSizeDistribution.forBitrate(4_000_000, 30, 60, 10);
+
+        assertEquals(60, distribution.getLength());
+        assertTrue(distribution.isKeyFrame(0));
+        assertFalse(distribution.isKeyFrame(1));
+        assertEquals(10.0, (double) distribution.getFrameSize(0) / distribution.getFrameSize(1), 0.01);
+        assertEquals(4_000_000, distribution.getBitrate(30), 4_000_000 / 1000);
+    }
+
+    @Test
+    public void test_build_shapesBitrateAtTheFinalFrameRate() {
+        final LoadGeneratorMediaSourceConfiguration configuration = new LoadGeneratorMediaSourceConfiguration.Builder()
+                .withBitrate(4_000_000, 60, 10)
+                .withFps(60)
+                .build();
+
+        final FrameSizeDistribution distribution = configuration.getFrameSizeDistribution();
+        assertEquals(4_000_000, distribution.getBitrate(60), 4_000_000 / 1000);
+        assertEquals(StreamInfoConstants.VIDEO_CODEC_ID, configuration.getCodecId());
+    }
+
+    @Test
+    public void test_readTrace_parsesSizesAndKeyFrames() throws Exception {
+        final Path trace = temporaryFolder.newFile("trace.txt").toPath();
+        Files.write(trace, Arrays.asList("# size key", "5000 K", "800", "", "900,k"), StandardCharsets.US_ASCII);
+
+        final FrameSizeDistribution distribution = FrameSizeDistribution.readTrace(trace);
+
+        assertEquals(3, distribution.getLength());
+        assertEquals(5000, distribution.getMaxFrameSize());
+        assertEquals(800, distribution.getFrameSize(1));
+        assertTrue(distribution.isKeyFrame(0));
+        assertFalse(distribution.isKeyFrame(1));
+        assertTrue(distribution.isKeyFrame(2));
+    }
+
+    @Test
+    public void test_generateFrames_emitsOneFramePerTrackFollowingDistribution() throws Exception {
+        final List<KinesisVideoFrame> frames = new ArrayList<KinesisVideoFrame>();
+        final OnStreamDataAvailable listener = mock(OnStreamDataAvailable.class);
+        doAnswer(invocation -> frames.add(invocation.getArgument(0)))
+                .when(listener).onFrameDataAvailable(any(KinesisVideoFrame.class));
+
+        final LoadGenerator generator = new LoadGenerator(FrameSizeDistribution.gop(3000, 200, 2), 30, 2);
+        generator.onStreamDataAvailable(listener);
+        for (int i = 0; i < 3; i++) {
+            generator.generateFramesAndNotifyListener();
+        }
+
+        assertEquals(6, frames.size());
+        final int[] expectedSizes = {3000, 3000, 200, 200, 3000, 3000};
+        for (int i = 0; i < frames.size(); i++) {
+            final KinesisVideoFrame frame = frames.get(i);
+            assertEquals(i % 2 + 1, frame.getTrackId());
+            assertEquals(expectedSizes[i], frame.getSize());
+            assertEquals(expectedSizes[i] == 3000, FrameFlags.isKeyFrame(frame.getFlags()));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.journal;
+
+import com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameJournalTest {
+    private static final int FRAME_SIZE = 100;
+    private static final int FRAMES_PER_FRAGMENT = 3;
+    private static final long SEGMENT_SIZE = FRAMES_PER_FRAGMENT * (FrameRecords.RECORD_HEADER_SIZE + FRAME_SIZE);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_open_afterPersistedFragment_recoversFramesFromNextFragment() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        FrameJournal journal = FrameJournal.open(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 9; i++) {
+            journal.append(frame(i));
+        }
+
+        // The fragments starting at 0 and 3 are persisted, the one starting at 6 is not
+        assertEquals(1, journal.onPersisted(3));
+        journal.close();
+
+        journal = FrameJournal.open(directory, SEGMENT_SIZE);
+        final List<KinesisVideoFrame> frames = journal.takeRecoveredFrames();
+        assertEquals(3, frames.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(6 + i, frames.get(i).getDecodingTs());
+            assertEquals(FRAME_SIZE, frames.get(i).getData().remaining());
+            assertEquals((byte) (6 + i), frames.get(i).getData().get(0));
+        }
+        assertTrue(journal.takeRecoveredFrames().isEmpty());
+
+        // Persisting the fragments of the new run releases the recovered segments
+        journal.append(frame(9));
+        assertEquals(2, journal.onPersisted(9));
+        assertEquals(1, journal.getSegmentCount());
+        journal.close();
+    }
+
+    @Test
+    public void test_open_tornRecord_recoversFramesBeforeIt() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final FrameJournal journal = FrameJournal.open(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 3; i++) {
+            journal.append(frame(i));
+        }
+        journal.close();
+
+        final File[] segments = directory.toFile().listFiles();
+        assertEquals(1, segments.length);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            final long lastFrameData = 3 * FrameRecords.RECORD_HEADER_SIZE + 2 * FRAME_SIZE;
+            file.seek(lastFrameData);
+            file.write(0xFF);
+        }
+
+        final List<KinesisVideoFrame> frames = FrameJournal.open(directory, SEGMENT_SIZE).takeRecoveredFrames();
+        assertEquals(2, frames.size());
+        assertEquals(1, frames.get(1).getDecodingTs());
+    }
+
+    private static KinesisVideoFrame frame(final int index) {
+        final ByteBuffer data = ByteBuffer.allocate(FRAME_SIZE);
+        data.put(0, (byte) index);
+        return new KinesisVideoFrame(index,
+                index % FRAMES_PER_FRAGMENT == 0 ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE,
+                index,
+                index,
+                1,
+                data);
+    }
+}
@@ -0,0 +1,79 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.multitrack;
+
+import com.amazonaws.kinesisvideo.internal.mediasource.OnStreamDataAvailable;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class FrameInterleaverTest {
+    private static final long VIDEO = 1;
+    private static final long AUDIO = 2;
+    private static final long MAX_DELAY = 100;
+
+    private final List<Long> emitted = new ArrayList<Long>();
+    private OnStreamDataAvailable downstream;
+
+    @Before
+    public void setUp() throws Exception {
+        downstream = mock(OnStreamDataAvailable.class);
+        doAnswer(invocation -> {
+            final KinesisVideoFrame frame = invocation.getArgument(0);
+            emitted.add(frame.getDecodingTs());
+            return null;
+        }).when(downstream).onFrameDataAvailable(any(KinesisVideoFrame.class));
+    }
+
+    @Test
+    public void test_onFrameDataAvailable_twoTracks_emitsInDecodingOrder() throws Exception {
+        final FrameInterleaver interleaver = new FrameInterleaver(downstream, MAX_DELAY, VIDEO, AUDIO);
+        interleaver.onFrameDataAvailable(frame(VIDEO, 0));
+        interleaver.onFrameDataAvailable(frame(VIDEO, 40));
+        interleaver.onFrameDataAvailable(frame(VIDEO, 80));
+        assertEquals(0, emitted.size());
+
+        interleaver.onFrameDataAvailable(frame(AUDIO, 10));
+        interleaver.onFrameDataAvailable(frame(AUDIO, 30));
+        interleaver.onFrameDataAvailable(frame(AUDIO, 50));
+        assertEquals(Arrays.asList(0L, 10L, 30L, 40L, 50L), emitted);
+
+        interleaver.flush();
+        assertEquals(Arrays.asList(0L, 10L, 30L, 40L, 50L, 80L), emitted);
+        assertEquals(0, interleaver.getQueuedFrameCount());
+        assertEquals(6, interleaver.getEmittedFrameCount());
+    }
+
+    @Test
+    public void test_onFrameDataAvailable_stalledTrack_releasesAfterMaxDelayAndDropsLateFrames() throws Exception {
+        final FrameInterleaver interleaver = new FrameInterleaver(downstream, MAX_DELAY, VIDEO, AUDIO);
+        interleaver.onFrameDataAvailable(frame(VIDEO, 20));
+        interleaver.onFrameDataAvailable(frame(VIDEO, 50));
+        interleaver.onFrameDataAvailable(frame(VIDEO, 100));
+        assertEquals(0, emitted.size());
+
+        interleaver.onFrameDataAvailable(frame(VIDEO, 150));
+        assertEquals(Arrays.asList(20L), emitted);
+        assertEquals(3, interleaver.getQueuedFrameCount());
+
+        // The stalled track catches up with a frame older than what has been emitted already
+        interleaver.onFrameDataAvailable(frame(AUDIO, 0));
+        assertEquals(1, interleaver.getLateFrameCount());
+
+        interleaver.onFrameDataAvailable(frame(AUDIO, 60));
+        assertEquals(Arrays.asList(20L, 50L, 60L), emitted);
+    }
+
+    private static KinesisVideoFrame frame(final long trackId, final long decodingTs) {
+        return new KinesisVideoFrame(0, FRAME_FLAG_NONE, decodingTs, decodingTs, 0, ByteBuffer.allocate(1), trackId);
+    }
+}
@@ -0,0 +1,160 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.pacing;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PacingClockTest {
+    private static final long TICK_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long PERIOD_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long STALL_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(110);
+
+    private final long startTimeInNanos = TimeUnit.HOURS.toNanos(1);
+    private long nowInNanos = startTimeInNanos;
+    private long nextTickTimeInNanos = startTimeInNanos + TICK_IN_NANOS;
+    private PacingClock clock;
+
+    @Before
+    public void setUp() {
+        // Driven by the test, the sources run on the test thread and take time by moving the ticker forward
+        clock = new PacingClock(TICK_IN_NANOS, new Ticker() {
+            @Override
+            public long read() {
+                return nowInNanos;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        clock.shutdown();
+    }
+
+    @Test
+    public void test_schedule_slowSource_doesNotDrift() {
+        final List<Long> deadlines = new ArrayList<Long>();
+        final PacingClock.Registration registration = clock.schedule(0, PERIOD_IN_NANOS, PacingClock.Policy.SKIP,
+                deadlineInNanos -> {
+                    deadlines.add(deadlineInNanos);
+                    nowInNanos += TimeUnit.MILLISECONDS.toNanos(5);
+                });
+
+        runFor(TimeUnit.SECONDS.toNanos(1));
+
+        // 5ms of work per 20ms period does not push the deadlines out
+        assertEquals(51, deadlines.size());
+        for (int i = 0; i < deadlines.size(); i++) {
+            assertEquals(startTimeInNanos + i * PERIOD_IN_NANOS, (long) deadlines.get(i));
+        }
+
+        final PacingStats stats = registration.getStats();
+        assertEquals(deadlines.size(), stats.getDeadlineCount());
+        assertEquals(0, stats.getSkippedDeadlineCount());
+        assertEquals(TICK_IN_NANOS, stats.getMaxLatenessInNanos());
+    }
+
+    @Test
+    public void test_schedule_stalledSource_skipsMissedDeadlines() {
+        final List<Long> deadlines = new ArrayList<Long>();
+        final PacingClock.Registration registration = clock.schedule(0, PERIOD_IN_NANOS, PacingClock.Policy.SKIP,
+                deadlineInNanos -> {
+                    deadlines.add(deadlineInNanos);
+                    if (deadlines.size() == 2) {
+                        nowInNanos += STALL_IN_NANOS;
+                    }
+                });
+
+        runFor(TimeUnit.MILLISECONDS.toNanos(400));
+
+        // Stalled from 20ms to 130ms, the deadlines from 40ms to 120ms are skipped
+        final PacingStats stats = registration.getStats();
+        assertEquals(5, stats.getSkippedDeadlineCount());
+        assertEquals(TICK_IN_NANOS, stats.getMaxLatenessInNanos());
+        assertEquals(16, deadlines.size());
+        assertEquals(startTimeInNanos + 7 * PERIOD_IN_NANOS, (long) deadlines.get(2));
+        for (int i = 1; i < deadlines.size(); i++) {
+            assertEquals(0, (deadlines.get(i) - deadlines.get(0)) % PERIOD_IN_NANOS);
+        }
+    }
+
+    @Test
+    public void test_schedule_stalledSource_catchesUpMissedDeadlines() {
+        final List<Long> deadlines = new ArrayList<Long>();
+        final PacingClock.Registration registration = clock.schedule(0, PERIOD_IN_NANOS,
+                PacingClock.Policy.CATCH_UP, deadlineInNanos -> {
+                    deadlines.add(deadlineInNanos);
+                    if (deadlines.size() == 2) {
+                        nowInNanos += STALL_IN_NANOS;
+                    }
+                });
+
+        runFor(TimeUnit.MILLISECONDS.toNanos(400));
+
+        // The 40ms deadline is run right after the stall, at 130ms
+        final PacingStats stats = registration.getStats();
+        assertEquals(0, stats.getSkippedDeadlineCount());
+        assertEquals(STALL_IN_NANOS - PERIOD_IN_NANOS, stats.getMaxLatenessInNanos());
+        assertEquals(21, deadlines.size());
+        for (int i = 1; i < deadlines.size(); i++) {
+            assertEquals(PERIOD_IN_NANOS, deadlines.get(i) - deadlines.get(i - 1));
+        }
+    }
+
+    @Test
+    public void test_cancelAndAwait_waitsForTheRunningDeadline() throws Exception {
+        final PacingClock threadedClock = new PacingClock("Test", 1);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger deadlineCount = new AtomicInteger();
+        try {
+            final PacingClock.Registration registration = threadedClock.schedule(0, PERIOD_IN_NANOS,
+                    PacingClock.Policy.SKIP, deadlineInNanos -> {
+                        deadlineCount.incrementAndGet();
+                        running.countDown();
+                        Uninterruptibles.awaitUninterruptibly(release);
+                    });
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            final Thread canceller = new Thread(registration::cancelAndAwait);
+            canceller.start();
+            canceller.join(100);
+            assertTrue(canceller.isAlive());
+
+            release.countDown();
+            canceller.join(5000);
+            assertFalse(canceller.isAlive());
+
+            // Not run anymore once cancelled
+            Thread.sleep(3 * TimeUnit.NANOSECONDS.toMillis(PERIOD_IN_NANOS));
+            assertEquals(1, deadlineCount.get());
+        } finally {
+            release.countDown();
+            threadedClock.shutdown();
+        }
+    }
+
+    /**
+     * Advances the wheel tick by tick the way its thread does: waiting for the tick time unless the sources have
+     * already taken the time past it.
+     */
+    private void runFor(final long durationInNanos) {
+        final long endTimeInNanos = startTimeInNanos + durationInNanos;
+        while (nextTickTimeInNanos <= endTimeInNanos) {
+            nowInNanos = Math.max(nowInNanos, nextTickTimeInNanos);
+            clock.advanceTick();
+            nextTickTimeInNanos += TICK_IN_NANOS;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.shedding;
+
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.internal.mediasource.shedding.FrameSheddingController.Level;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_SECOND;
+import static org.junit.Assert.assertEquals;
+
+public class FrameSheddingControllerTest {
+    private static final int GOP_LENGTH = 8;
+    private static final int FRAME_SIZE = 100;
+
+    private long nowInNanos = TimeUnit.HOURS.toNanos(1);
+    private FrameSheddingController controller;
+
+    @Before
+    public void setUp() {
+        controller = new FrameSheddingController("stream",
+                HUNDREDS_OF_NANOS_IN_A_SECOND,
+                HUNDREDS_OF_NANOS_IN_A_SECOND,
+                5 * HUNDREDS_OF_NANOS_IN_A_SECOND,
+                new Ticker() {
+                    @Override
+                    public long read() {
+                        return nowInNanos;
+                    }
+                });
+    }
+
+    @Test
+    public void test_onPressure_escalatesOncePerIntervalAndShedsMoreAtEveryLevel() {
+        assertEquals(GOP_LENGTH, deliverGop());
+
+        controller.onPressure();
+        controller.onPressure();
+        assertEquals(Level.SHED_NON_KEY_FRAMES, controller.getLevel());
+        assertEquals(1 + (GOP_LENGTH - 1) / 2, deliverGop());
+
+        advanceSeconds(1);
+        controller.onPressure();
+        assertEquals(Level.SHED_GOPS, controller.getLevel());
+        assertEquals(1 + (GOP_LENGTH - 1) / 2, deliverGop());
+        assertEquals(0, deliverGop());
+
+        advanceSeconds(1);
+        controller.onPressure();
+        assertEquals(Level.REDUCE_FRAME_RATE, controller.getLevel());
+        assertEquals(1, deliverGop());
+        assertEquals(0, deliverGop());
+
+        final FrameSheddingMetrics metrics = controller.getMetrics();
+        assertEquals(4, metrics.getPressureCount());
+        assertEquals(3, metrics.getEscalationCount());
+        assertEquals(2, metrics.getShedGopCount());
+        assertEquals(GOP_LENGTH + 4 + 4 + 1, metrics.getDeliveredFrameCount());
+        assertEquals(6 * GOP_LENGTH - metrics.getDeliveredFrameCount(), metrics.getShedFrameCount());
+        assertEquals(metrics.getShedFrameCount() * FRAME_SIZE, metrics.getShedByteCount());
+    }
+
+    @Test
+    public void test_onBufferedDuration_recoversOneLevelPerHoldTimeOnceDrained() {
+        controller.onPressure();
+        advanceSeconds(1);
+        controller.onPressure();
+        assertEquals(Level.SHED_GOPS, controller.getLevel());
+
+        // Still backed up
+        controller.onBufferedDuration(3 * HUNDREDS_OF_NANOS_IN_A_SECOND);
+        advanceSeconds(10);
+        controller.onBufferedDuration(3 * HUNDREDS_OF_NANOS_IN_A_SECOND);
+        assertEquals(Level.SHED_GOPS, controller.getLevel());
+
+        // Drained, but not for long enough yet
+        controller.onBufferedDuration(0);
+        advanceSeconds(4);
+        controller.onBufferedDuration(0);
+        assertEquals(Level.SHED_GOPS, controller.getLevel());
+
+        advanceSeconds(1);
+        controller.onBufferedDuration(0);
+        assertEquals(Level.SHED_NON_KEY_FRAMES, controller.getLevel());
+
+        advanceSeconds(1);
+        controller.onBufferedDuration(0);
+        assertEquals(Level.SHED_NON_KEY_FRAMES, controller.getLevel());
+
+        advanceSeconds(4);
+        controller.onBufferedDuration(0);
+        assertEquals(Level.NONE, controller.getLevel());
+        assertEquals(2, controller.getMetrics().getRecoveryCount());
+    }
+
+    private int deliverGop() {
+        int delivered = 0;
+        for (int i = 0; i < GOP_LENGTH; i++) {
+            final KinesisVideoFrame frame = new KinesisVideoFrame(i,
+                    i == 0 ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE,
+                    0, 0, 0, ByteBuffer.allocate(FRAME_SIZE));
+            if (controller.shouldDeliver(frame)) {
+                delivered++;
+            }
+        }
+
+        return delivered;
+    }
+
+    private void advanceSeconds(final long seconds) {
+        nowInNanos += TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
@@ -0,0 +1,108 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.spill;
+
+import com.amazonaws.kinesisvideo.internal.mediasource.segment.FrameRecords;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpillLogTest {
+    private static final int FRAME_SIZE = 100;
+    private static final int SEGMENT_SIZE = 2 * (FrameRecords.RECORD_HEADER_SIZE + FRAME_SIZE);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_append_acrossSegments_readsBackFramesInOrder() throws Exception {
+        final SpillLog spillLog = SpillLog.open(folder.getRoot().toPath(), SEGMENT_SIZE);
+        for (int i = 0; i < 5; i++) {
+            spillLog.append(frame(i));
+        }
+
+        assertEquals(3, spillLog.getSegmentCount());
+        assertEquals(5, spillLog.getUnreadFrameCount());
+        for (int i = 0; i < 5; i++) {
+            assertFrame(i, spillLog.peek());
+            spillLog.advance();
+        }
+
+        assertNull(spillLog.peek());
+        assertTrue(spillLog.isEmpty());
+        assertEquals(0, spillLog.getUnreadByteCount());
+    }
+
+    @Test
+    public void test_open_afterClose_recoversUnreadFrames() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        SpillLog spillLog = SpillLog.open(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 3; i++) {
+            spillLog.append(frame(i));
+        }
+        spillLog.close();
+
+        spillLog = SpillLog.open(directory, SEGMENT_SIZE);
+        assertEquals(3, spillLog.getUnreadFrameCount());
+        assertFrame(0, spillLog.peek());
+
+        // New frames go to a new segment, after the recovered ones
+        spillLog.append(frame(3));
+        assertEquals(3, spillLog.getSegmentCount());
+        for (int i = 0; i < 4; i++) {
+            assertFrame(i, spillLog.peek());
+            spillLog.advance();
+        }
+        assertNull(spillLog.peek());
+    }
+
+    @Test
+    public void test_reclaim_persistedSegments_deletesSegmentFiles() throws Exception {
+        final File directory = folder.getRoot();
+        final SpillLog spillLog = SpillLog.open(directory.toPath(), SEGMENT_SIZE);
+        for (int i = 0; i < 6; i++) {
+            spillLog.append(frame(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            spillLog.advance();
+        }
+
+        // Frames 0-1 and 2-3 are read, but only the first segment is persisted
+        assertEquals(1, spillLog.reclaim(2));
+        assertEquals(2, directory.list().length);
+
+        // The segment being read is kept whatever the timestamp
+        assertEquals(1, spillLog.reclaim(Long.MAX_VALUE));
+        assertEquals(1, directory.list().length);
+        assertFrame(5, spillLog.peek());
+    }
+
+    private static KinesisVideoFrame frame(final int index) {
+        final ByteBuffer data = ByteBuffer.allocate(FRAME_SIZE);
+        data.put(0, (byte) index);
+        return new KinesisVideoFrame(index,
+                index % 2 == 0 ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE,
+                index,
+                index,
+                1,
+                data,
+                1);
+    }
+
+    private static void assertFrame(final int index, final KinesisVideoFrame frame) {
+        assertEquals(index, frame.getIndex());
+        assertEquals(index, frame.getDecodingTs());
+        assertEquals(index % 2 == 0 ? FRAME_FLAG_KEY_FRAME : FRAME_FLAG_NONE, frame.getFlags());
+        assertEquals(FRAME_SIZE, frame.getData().remaining());
+        assertEquals((byte) index, frame.getData().get(0));
+    }
+}
@@ -0,0 +1,127 @@
+package com.amazonaws.kinesisvideo.internal.mediasource.spill;
+
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSource;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoStreamMetrics;
+import com.amazonaws.kinesisvideo.producer.FragmentAckType;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.StorageInfo;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.storage.DefaultStorageCallbacks;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SpillingMediaSourceSinkTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final int REPLAY_BATCH_SIZE = 4;
+    private static final int SPILLED_FRAMES = 1000;
+    private static final long STORAGE_SIZE = 1024 * 1024;
+    private static final int SPILL_RATIO = 90;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final KinesisVideoStreamMetrics streamMetrics = new KinesisVideoStreamMetrics();
+    private MediaSourceSink delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        final KinesisVideoProducerStream stream = mock(KinesisVideoProducerStream.class);
+        when(stream.getMetrics()).thenReturn(streamMetrics);
+        delegate = mock(MediaSourceSink.class);
+        when(delegate.getProducerStream()).thenReturn(stream);
+    }
+
+    @Test
+    public void test_onFrame_afterDrain_growsTheReplayBatchUntilCaughtUp() throws Exception {
+        final SpillingMediaSourceSink sink = new SpillingMediaSourceSink("stream", delegate,
+                SpillLog.open(folder.getRoot().toPath(), SEGMENT_SIZE), 0, REPLAY_BATCH_SIZE);
+
+        sink.startSpilling();
+        int index = 0;
+        while (index < SPILLED_FRAMES) {
+            sink.onFrame(frame(index++));
+        }
+        sink.onFragmentAck(ack(FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED));
+
+        // 4 + 8 + ... + 256 frames along with the first 7 new frames, then up to 256 along with each of the next ones
+        int newFrames = 0;
+        while (sink.getPendingFrameCount() > 0) {
+            sink.onFrame(frame(index++));
+            newFrames++;
+        }
+        assertEquals(9, newFrames);
+        assertEquals(SpillingMediaSourceSink.MAX_REPLAY_BATCH_SIZE, sink.getReplayBatchSize());
+        verify(delegate, times(index)).onFrame(any(KinesisVideoFrame.class));
+
+        sink.startSpilling();
+        assertEquals(REPLAY_BATCH_SIZE, sink.getReplayBatchSize());
+        sink.close();
+    }
+
+    @Test
+    public void test_spillingMediaSource_spillsUnderPressureAndRecoversOnTheAcksOnceDrained() throws Exception {
+        final SpillStore spillStore = new SpillStore(new StorageInfo(0,
+                StorageInfo.DeviceStorageType.DEVICE_STORAGE_TYPE_IN_MEM, STORAGE_SIZE, SPILL_RATIO,
+                folder.getRoot().getAbsolutePath()), new DefaultStorageCallbacks(), SEGMENT_SIZE);
+        final StreamInfo streamInfo = mock(StreamInfo.class);
+        when(streamInfo.getName()).thenReturn("stream");
+        final MediaSource source = mock(MediaSource.class);
+        when(source.getStreamInfo()).thenReturn(streamInfo);
+
+        final SpillingMediaSource spillingSource = new SpillingMediaSource(source, spillStore);
+        spillingSource.initialize(delegate);
+        final SpillingMediaSourceSink sink = (SpillingMediaSourceSink) spillingSource.getMediaSourceSink();
+        final StreamCallbacks streamCallbacks = spillingSource.getStreamCallbacks();
+
+        // Content store filled past the spill ratio
+        setOverallViewSize(STORAGE_SIZE * SPILL_RATIO / 100);
+        spillStore.storageOverflowPressure(STORAGE_SIZE / 20);
+        assertTrue(sink.isSpilling());
+        for (int index = 0; index < 10; index++) {
+            sink.onFrame(frame(index));
+        }
+        verify(delegate, times(0)).onFrame(any(KinesisVideoFrame.class));
+
+        // Still above the resume size
+        streamCallbacks.fragmentAckReceived(0, ack(FragmentAckType.FRAGMENT_ACK_TYPE_RECEIVED));
+        assertTrue(sink.isSpilling());
+
+        setOverallViewSize(STORAGE_SIZE / 10);
+        streamCallbacks.fragmentAckReceived(0, ack(FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED));
+        assertFalse(sink.isSpilling());
+
+        sink.onFrame(frame(10));
+        verify(delegate, times(REPLAY_BATCH_SIZE)).onFrame(any(KinesisVideoFrame.class));
+        spillStore.releaseSink(sink);
+    }
+
+    private void setOverallViewSize(final long overallViewSize) {
+        streamMetrics.setMetrics(overallViewSize, 0, 0, 0, 0, 0);
+    }
+
+    private static KinesisVideoFragmentAck ack(final int ackType) {
+        return new KinesisVideoFragmentAck(ackType, 0, "0", 0);
+    }
+
+    private static KinesisVideoFrame frame(final int index) {
+        return new KinesisVideoFrame(index, FRAME_FLAG_KEY_FRAME, index, index, 1, ByteBuffer.allocate(16), 1);
+    }
+}
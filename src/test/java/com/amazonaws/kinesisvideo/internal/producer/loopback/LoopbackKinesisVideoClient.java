@@ -0,0 +1,62 @@
+package com.amazonaws.kinesisvideo.internal.producer.loopback;
+
+import com.amazonaws.kinesisvideo.auth.DefaultAuthCallbacks;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.client.NativeKinesisVideoClient;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducer;
+import com.amazonaws.kinesisvideo.internal.producer.ServiceCallbacks;
+import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.internal.service.DefaultServiceCallbacksImpl;
+import com.amazonaws.kinesisvideo.producer.AuthCallbacks;
+import com.amazonaws.kinesisvideo.producer.DeviceInfo;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StorageCallbacks;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Kinesis Video client running on the {@link LoopbackKinesisVideoProducer} in place of the native producer.
+ */
+public class LoopbackKinesisVideoClient extends NativeKinesisVideoClient {
+    private final AuthCallbacks authCallbacks;
+    private final StorageCallbacks storageCallbacks;
+    private final ServiceCallbacks serviceCallbacks;
+
+    public LoopbackKinesisVideoClient(@Nonnull final Logger log,
+                                      @Nonnull final KinesisVideoClientConfiguration configuration,
+                                      @Nonnull final KinesisVideoServiceClient serviceClient,
+                                      @Nonnull final ScheduledExecutorService executor) {
+        this(log,
+                new DefaultAuthCallbacks(configuration.getCredentialsProvider(),
+                        executor,
+                        log),
+                configuration.getStorageCallbacks(),
+                new DefaultServiceCallbacksImpl(log, executor, configuration, serviceClient));
+    }
+
+    private LoopbackKinesisVideoClient(@Nonnull final Logger log,
+                                       @Nonnull final AuthCallbacks authCallbacks,
+                                       @Nonnull final StorageCallbacks storageCallbacks,
+                                       @Nonnull final ServiceCallbacks serviceCallbacks) {
+        super(log, authCallbacks, storageCallbacks, serviceCallbacks, new DefaultStreamCallbacks());
+        this.authCallbacks = Preconditions.checkNotNull(authCallbacks);
+        this.storageCallbacks = Preconditions.checkNotNull(storageCallbacks);
+        this.serviceCallbacks = Preconditions.checkNotNull(serviceCallbacks);
+    }
+
+    @Nonnull
+    @Override
+    public KinesisVideoProducer initializeNewKinesisVideoProducer(final DeviceInfo deviceInfo)
+            throws ProducerException {
+        final KinesisVideoProducer kinesisVideoProducer = new LoopbackKinesisVideoProducer(authCallbacks,
+                storageCallbacks,
+                serviceCallbacks,
+                mLog);
+        kinesisVideoProducer.createSync(deviceInfo);
+        return kinesisVideoProducer;
+    }
+}
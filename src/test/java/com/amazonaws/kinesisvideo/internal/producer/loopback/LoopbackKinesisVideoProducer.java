@@ -0,0 +1,327 @@
+package com.amazonaws.kinesisvideo.internal.producer.loopback;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoMetrics;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducer;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoStreamMetrics;
+import com.amazonaws.kinesisvideo.internal.producer.ServiceCallbacks;
+import com.amazonaws.kinesisvideo.producer.AuthCallbacks;
+import com.amazonaws.kinesisvideo.producer.AuthInfo;
+import com.amazonaws.kinesisvideo.producer.AuthInfoType;
+import com.amazonaws.kinesisvideo.producer.DeviceInfo;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StorageCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.Time;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.kinesisvideo.producer.ProducerException.STATUS_INVALID_OPERATION;
+import static com.amazonaws.kinesisvideo.producer.ProducerException.STATUS_OPERATION_TIMED_OUT;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_OK;
+
+/**
+ * Kinesis Video producer written in Java, standing in for the native one where the native library can't be loaded.
+ * <p>
+ * It drives the same {@link ServiceCallbacks} and raises the same callbacks as the native producer, keeping the
+ * frames in a Java content store sized like the native one, so the Java side of the SDK can be run and profiled end
+ * to end, against the service or its local stand-in. It does not rotate the streaming tokens, nor spill the storage
+ * to disk.
+ */
+public class LoopbackKinesisVideoProducer implements KinesisVideoProducer {
+    /**
+     * Handle of a stream which has been freed
+     */
+    public static final long INVALID_STREAM_HANDLE_VALUE = 0;
+
+    private static final long SERVICE_CALL_TIMEOUT = 5 * Time.HUNDREDS_OF_NANOS_IN_A_SECOND;
+    private static final long STOPPED_TIMEOUT_IN_MILLISECONDS = 15000;
+
+    private final AuthCallbacks authCallbacks;
+    private final StorageCallbacks storageCallbacks;
+    private final ServiceCallbacks serviceCallbacks;
+    private final Logger log;
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private final AtomicLong nextStreamHandle = new AtomicLong(1);
+    private final AtomicLong allocatedStorageSize = new AtomicLong();
+    private final Map<Long, LoopbackKinesisVideoProducerStream> streams =
+            new ConcurrentHashMap<Long, LoopbackKinesisVideoProducerStream>();
+    private final KinesisVideoMetrics metrics = new KinesisVideoMetrics();
+
+    private volatile DeviceInfo deviceInfo;
+    private volatile AuthInfo authInfo;
+    private volatile boolean isReady;
+
+    public LoopbackKinesisVideoProducer(@Nonnull final AuthCallbacks authCallbacks,
+                                        @Nonnull final StorageCallbacks storageCallbacks,
+                                        @Nonnull final ServiceCallbacks serviceCallbacks,
+                                        @Nonnull final Logger log) throws ProducerException {
+        this.authCallbacks = Preconditions.checkNotNull(authCallbacks);
+        this.storageCallbacks = Preconditions.checkNotNull(storageCallbacks);
+        this.serviceCallbacks = Preconditions.checkNotNull(serviceCallbacks);
+        this.log = Preconditions.checkNotNull(log);
+
+        serviceCallbacks.initialize(this);
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return deviceInfo != null;
+    }
+
+    @Override
+    public boolean isReady() {
+        return isReady;
+    }
+
+    @Override
+    public void create(@Nonnull final DeviceInfo deviceInfo) throws ProducerException {
+        Preconditions.checkNotNull(deviceInfo);
+        Preconditions.checkState(!isInitialized(), "Loopback producer has already been created");
+        this.deviceInfo = deviceInfo;
+        refreshAuthInfo();
+
+        serviceCallbacks.createDevice(getDeviceName(),
+                Time.getCurrentTime(),
+                SERVICE_CALL_TIMEOUT,
+                authInfo == null ? null : authInfo.getData(),
+                authInfo == null ? AuthInfoType.NONE.getIntType() : authInfo.getIntAuthType(),
+                0);
+    }
+
+    @Override
+    public void createSync(@Nonnull final DeviceInfo deviceInfo) throws ProducerException {
+        create(deviceInfo);
+
+        try {
+            if (!readyLatch.await(READY_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                throw new ProducerException("Kinesis Video producer creation time out", STATUS_OPERATION_TIMED_OUT);
+            }
+        } catch (final InterruptedException e) {
+            throw new ProducerException(e);
+        }
+    }
+
+    @Override
+    public void free() throws ProducerException {
+        freeStreams();
+        deviceInfo = null;
+        isReady = false;
+    }
+
+    @Override
+    public void freeStreams() throws ProducerException {
+        for (final LoopbackKinesisVideoProducerStream stream
+                : new ArrayList<LoopbackKinesisVideoProducerStream>(streams.values())) {
+            freeStream(stream);
+        }
+    }
+
+    @Override
+    public void stopStreams() throws ProducerException {
+        for (final LoopbackKinesisVideoProducerStream stream : streams.values()) {
+            stream.stopStream();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public KinesisVideoProducerStream createStream(@Nonnull final StreamInfo streamInfo,
+                                                   @Nullable final StreamCallbacks streamCallbacks)
+            throws ProducerException {
+        Preconditions.checkNotNull(streamInfo);
+        Preconditions.checkState(isInitialized());
+        // Refreshed here rather than from the service calls, which can't block on the executor they run on
+        refreshAuthInfo();
+
+        final long streamHandle = nextStreamHandle.getAndIncrement();
+        final LoopbackKinesisVideoProducerStream stream = new LoopbackKinesisVideoProducerStream(this,
+                streamInfo,
+                streamHandle,
+                log,
+                streamCallbacks,
+                getStopTimeoutInMillis());
+        streams.put(streamHandle, stream);
+        stream.start();
+        return stream;
+    }
+
+    @Nonnull
+    @Override
+    public KinesisVideoProducerStream createStreamSync(@Nonnull final StreamInfo streamInfo,
+                                                       @Nullable final StreamCallbacks streamCallbacks)
+            throws ProducerException {
+        final LoopbackKinesisVideoProducerStream stream =
+                (LoopbackKinesisVideoProducerStream) createStream(streamInfo, streamCallbacks);
+        try {
+            stream.awaitReady();
+        } catch (final ProducerException e) {
+            freeStream(stream);
+            throw e;
+        }
+
+        return stream;
+    }
+
+    @Override
+    public void freeStream(@Nonnull final KinesisVideoProducerStream stream) throws ProducerException {
+        Preconditions.checkNotNull(stream);
+        final long streamHandle = stream.getStreamHandle();
+        stream.streamFreed();
+        streams.remove(streamHandle);
+    }
+
+    @Override
+    public void createStreamResult(final long customData,
+                                   @Nullable final String streamArn,
+                                   final int httpStatusCode) throws ProducerException {
+        getStream(customData).onCreateStreamResult(streamArn, httpStatusCode);
+    }
+
+    @Override
+    public void describeStreamResult(final KinesisVideoProducerStream stream,
+                                     final long streamHandle,
+                                     @Nullable final StreamDescription streamDescription,
+                                     final int httpStatusCode) throws ProducerException {
+        getStream(streamHandle).onDescribeStreamResult(streamDescription, httpStatusCode);
+    }
+
+    @Override
+    public void getStreamingEndpointResult(final KinesisVideoProducerStream stream,
+                                           final long streamHandle,
+                                           @Nullable final String endpoint,
+                                           final int httpStatusCode) throws ProducerException {
+        getStream(streamHandle).onStreamingEndpointResult(endpoint, httpStatusCode);
+    }
+
+    @Override
+    public void getStreamingTokenResult(final KinesisVideoProducerStream stream,
+                                        final long streamHandle,
+                                        @Nullable final byte[] token,
+                                        final long expiration,
+                                        final int httpStatusCode) throws ProducerException {
+        getStream(streamHandle).onStreamingTokenResult(token, httpStatusCode);
+    }
+
+    @Override
+    public void putStreamResult(final KinesisVideoProducerStream stream,
+                                final long uploadHandle,
+                                final int httpStatusCode) throws ProducerException {
+        getStream(stream.getStreamHandle()).onPutStreamResult(uploadHandle, httpStatusCode);
+    }
+
+    @Override
+    public void tagResourceResult(final KinesisVideoProducerStream stream,
+                                  final long streamHandle,
+                                  final int httpStatusCode) throws ProducerException {
+        getStream(streamHandle).onTagResourceResult(httpStatusCode);
+    }
+
+    @Override
+    public void createDeviceResult(final long customData,
+                                   @Nullable final String deviceArn,
+                                   final int httpStatusCode) throws ProducerException {
+        if (httpStatusCode != HTTP_OK) {
+            log.error("Creating the device failed with status {}", httpStatusCode);
+            return;
+        }
+
+        isReady = true;
+        readyLatch.countDown();
+    }
+
+    @Override
+    public void deviceCertToTokenResult(final long customData,
+                                        @Nullable final byte[] token,
+                                        final long expiration,
+                                        final int httpStatusCode) throws ProducerException {
+        // Only the security token authentication is supported
+    }
+
+    @Nonnull
+    @Override
+    public KinesisVideoMetrics getMetrics() throws ProducerException {
+        Preconditions.checkState(isInitialized());
+        long totalViewSize = 0;
+        long totalFrameRate = 0;
+        long totalTransferRate = 0;
+        for (final LoopbackKinesisVideoProducerStream stream : streams.values()) {
+            final KinesisVideoStreamMetrics streamMetrics = stream.getMetrics();
+            totalViewSize += streamMetrics.getOverallViewSize();
+            totalFrameRate += (long) streamMetrics.getCurrentFrameRate();
+            totalTransferRate += streamMetrics.getCurrentTransferRate();
+        }
+
+        final long storageSize = deviceInfo.getStorageSize();
+        final long allocated = allocatedStorageSize.get();
+        metrics.setMetrics(storageSize, allocated, storageSize - allocated, totalViewSize, totalFrameRate,
+                totalTransferRate);
+        return metrics;
+    }
+
+    @Nonnull
+    ServiceCallbacks getServiceCallbacks() {
+        return serviceCallbacks;
+    }
+
+    @Nullable
+    AuthInfo getAuthInfo() {
+        return authInfo;
+    }
+
+    @Nonnull
+    String getDeviceName() {
+        final String name = deviceInfo.getName();
+        return name == null ? "" : name;
+    }
+
+    long getAvailableStorageSize() {
+        return deviceInfo.getStorageSize() - allocatedStorageSize.get();
+    }
+
+    void allocateStorage(final long size) {
+        allocatedStorageSize.addAndGet(size);
+    }
+
+    void releaseStorage(final long size) {
+        allocatedStorageSize.addAndGet(-size);
+    }
+
+    void storageOverflowPressure() {
+        storageCallbacks.storageOverflowPressure(getAvailableStorageSize());
+    }
+
+    @Nonnull
+    private LoopbackKinesisVideoProducerStream getStream(final long streamHandle) throws ProducerException {
+        final LoopbackKinesisVideoProducerStream stream = streams.get(streamHandle);
+        if (stream == null) {
+            throw new ProducerException("No stream with handle " + streamHandle, STATUS_INVALID_OPERATION);
+        }
+
+        return stream;
+    }
+
+    private long getStopTimeoutInMillis() {
+        final long timeout = deviceInfo.getClientInfo().getStopStreamTimeout() / Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        return timeout == 0 ? STOPPED_TIMEOUT_IN_MILLISECONDS : timeout;
+    }
+
+    private void refreshAuthInfo() {
+        final AuthInfo current = authInfo;
+        if (current == null || current.getExpiration() <= Time.getCurrentTime()) {
+            authInfo = authCallbacks.getSecurityToken();
+        }
+    }
+}
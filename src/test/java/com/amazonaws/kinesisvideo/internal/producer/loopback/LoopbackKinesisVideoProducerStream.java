@@ -0,0 +1,966 @@
+package com.amazonaws.kinesisvideo.internal.producer.loopback;
+
+import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoStreamMetrics;
+import com.amazonaws.kinesisvideo.internal.producer.ReadResult;
+import com.amazonaws.kinesisvideo.producer.AuthInfo;
+import com.amazonaws.kinesisvideo.producer.AuthInfoType;
+import com.amazonaws.kinesisvideo.producer.FragmentAckType;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.StreamStatus;
+import com.amazonaws.kinesisvideo.producer.Time;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.amazonaws.kinesisvideo.internal.producer.ReadResult.INVALID_UPLOAD_HANDLE_VALUE;
+import static com.amazonaws.kinesisvideo.producer.ProducerException.STATUS_INVALID_OPERATION;
+import static com.amazonaws.kinesisvideo.producer.ProducerException.STATUS_OPERATION_TIMED_OUT;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_NOT_FOUND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_OK;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_RESOURCE_IN_USE;
+
+/**
+ * Stream of the {@link LoopbackKinesisVideoProducer}, running the state machine of the native streams in Java.
+ * <p>
+ * The stream describes itself, creates itself when it does not exist, tags itself when it was created with tags,
+ * then gets its PutMedia endpoint and streaming token before it is ready. Its frames are packaged into MKV fragments,
+ * a Cluster per key frame, which are kept until their PERSISTED ACK, or until they are read when no ACKs are
+ * required. Every upload session starts over with the MKV header and the oldest fragment kept, so the fragments of
+ * a connection that failed or got an ERROR ACK are sent again by the next one.
+ * <p>
+ * The frames put before the stream is ready are buffered. A frame which does not fit in the storage of the producer
+ * is dropped along with the frames depending on it, and the oldest fragments are dropped past the buffer duration.
+ * The stream raises the ready, data available, ACK, error, dropped frame and fragment, latency pressure and closed
+ * callbacks, and the storage overflow pressure one through the producer. The streaming token is not rotated.
+ */
+public class LoopbackKinesisVideoProducerStream extends ForwardingStreamCallbacks
+        implements KinesisVideoProducerStream {
+    private static final String CONTAINER_TYPE = "MKV";
+    private static final String PUT_MEDIA_API = "PUT_MEDIA";
+    private static final long SERVICE_CALL_TIMEOUT = 5 * Time.HUNDREDS_OF_NANOS_IN_A_SECOND;
+    private static final long RETRY_DELAY_IN_MILLIS = 1000;
+    private static final long CREATING_DESCRIBE_DELAY_IN_MILLIS = 200;
+    private static final int MAX_CONTROL_PLANE_RETRIES = 5;
+    private static final int CLUSTER_OVERHEAD = 32;
+    private static final int BLOCK_OVERHEAD = 16;
+    private static final int INITIAL_FRAGMENT_CAPACITY = 64 * 1024;
+    private static final long READ_WAIT_IN_MILLIS = 1000;
+    private static final Pattern EVENT_TYPE = Pattern.compile("\"EventType\"\\s*:\\s*\"(\\w+)\"");
+    private static final Pattern FRAGMENT_TIMECODE = Pattern.compile("\"FragmentTimecode\"\\s*:\\s*(\\d+)");
+    private static final Pattern FRAGMENT_NUMBER = Pattern.compile("\"FragmentNumber\"\\s*:\\s*\"(\\w+)\"");
+    private static final Pattern ERROR_ID = Pattern.compile("\"ErrorId\"\\s*:\\s*(\\d+)");
+
+    /**
+     * Control plane steps of the stream, before it gets ready
+     */
+    private enum State {
+        NEW, DESCRIBING, CREATING, TAGGING, GETTING_ENDPOINT, GETTING_TOKEN, READY
+    }
+
+    /**
+     * Cluster of the stream, and the Tags before it.
+     */
+    private static final class Fragment extends ByteArrayOutputStream {
+        private final long sequence;
+        private final long timecodeInMillis;
+        private final long startTimestamp;
+        private long endTimestamp;
+        private boolean isComplete;
+        private boolean isSent;
+
+        private Fragment(final long sequence, final long timecodeInMillis, final long startTimestamp) {
+            super(INITIAL_FRAGMENT_CAPACITY);
+            this.sequence = sequence;
+            this.timecodeInMillis = timecodeInMillis;
+            this.startTimestamp = startTimestamp;
+            this.endTimestamp = startTimestamp;
+        }
+
+        private void copy(final int offset, final byte[] target, final int targetOffset, final int length) {
+            System.arraycopy(buf, offset, target, targetOffset, length);
+        }
+    }
+
+    /**
+     * Body of one PutMedia connection: the MKV header followed by the fragments from the oldest one kept.
+     */
+    private final class UploadSession extends InputStream {
+        private final long uploadHandle;
+        private final byte[] header;
+        private int headerOffset;
+        private long fragmentSequence;
+        private int fragmentOffset;
+        private boolean isClosed;
+        private boolean isDrained;
+
+        private UploadSession(final long uploadHandle, final byte[] header, final long fragmentSequence) {
+            this.uploadHandle = uploadHandle;
+            this.header = header;
+            this.fragmentSequence = fragmentSequence;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw new IOException("Can't call byte-by-byte");
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            int read = -1;
+            synchronized (lock) {
+                while (!isClosed) {
+                    read = readAvailable(b, off, len);
+                    if (read != 0) {
+                        break;
+                    }
+
+                    try {
+                        lock.wait(READ_WAIT_IN_MILLIS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the stream data");
+                    }
+                }
+            }
+
+            if (read > 0) {
+                transferRate.add(read);
+            } else if (isDrained) {
+                log.debug("Stream {} with uploadHandle {} is drained", getStreamName(), uploadHandle);
+                try {
+                    closeWhenDone();
+                } catch (final ProducerException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            return read;
+        }
+
+        @Override
+        public void close() {
+            synchronized (lock) {
+                isClosed = true;
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * @return bytes read, 0 when there is no data available yet, -1 at the end of the stream
+         */
+        private int readAvailable(final byte[] b, final int off, final int len) {
+            if (headerOffset < header.length) {
+                final int read = Math.min(len, header.length - headerOffset);
+                System.arraycopy(header, headerOffset, b, off, read);
+                headerOffset += read;
+                return read;
+            }
+
+            while (true) {
+                if (!fragments.isEmpty() && fragmentSequence < fragments.get(0).sequence) {
+                    // Dropped past the buffer duration while waiting to be sent
+                    fragmentSequence = fragments.get(0).sequence;
+                    fragmentOffset = 0;
+                }
+
+                final Fragment fragment = fragmentAt(fragmentSequence);
+                if (fragment == null) {
+                    if (isStopping) {
+                        isDrained = true;
+                        return -1;
+                    }
+
+                    return 0;
+                }
+
+                if (fragmentOffset < fragment.size()) {
+                    final int read = Math.min(len, fragment.size() - fragmentOffset);
+                    fragment.copy(fragmentOffset, b, off, read);
+                    fragmentOffset += read;
+                    return read;
+                }
+
+                if (!fragment.isComplete) {
+                    return 0;
+                }
+
+                fragment.isSent = true;
+                fragmentSequence++;
+                fragmentOffset = 0;
+                if (!streamInfo.isFragmentAcks()) {
+                    releaseSentFragments(Long.MAX_VALUE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rate of events over the last full second.
+     */
+    private static final class RateWindow {
+        private long windowStart = System.nanoTime();
+        private long count;
+        private double rate;
+
+        private synchronized void add(final long amount) {
+            roll();
+            count += amount;
+        }
+
+        private synchronized double getRate() {
+            roll();
+            return rate;
+        }
+
+        private void roll() {
+            final long now = System.nanoTime();
+            final long elapsed = now - windowStart;
+            if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+                rate = count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                count = 0;
+                windowStart = now;
+            }
+        }
+    }
+
+    private final LoopbackKinesisVideoProducer producer;
+    private final StreamInfo streamInfo;
+    private final Logger log;
+    private final long stopTimeoutInMillis;
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private final CountDownLatch stoppedLatch = new CountDownLatch(1);
+    private final KinesisVideoStreamMetrics streamMetrics = new KinesisVideoStreamMetrics();
+    private final RateWindow frameRate = new RateWindow();
+    private final RateWindow transferRate = new RateWindow();
+    private final Object lock = new Object();
+
+    // Guarded by the lock
+    private final List<Fragment> fragments = new ArrayList<Fragment>();
+    private final Map<Long, byte[]> codecPrivateData = new HashMap<Long, byte[]>();
+    private final List<String[]> pendingMetadata = new ArrayList<String[]>();
+    private final Map<String, String> persistentMetadata = new LinkedHashMap<String, String>();
+    private final Map<Long, StringBuilder> partialAcks = new HashMap<Long, StringBuilder>();
+    private long nextFragmentSequence;
+    private long streamStartTimestamp = -1;
+    private long lastTimestamp;
+    private boolean isAwaitingKeyFrame = true;
+    private boolean isLatencyPressureReported;
+    private UploadSession session;
+    private boolean isPutStreamPending;
+    private boolean isStopping;
+    private boolean isClosedReported;
+
+    // Control plane state, only changed by the service call results
+    private volatile State state = State.NEW;
+    private volatile long streamHandle;
+    private volatile String streamArn;
+    private volatile String dataEndpoint;
+    private volatile byte[] streamingToken;
+    private boolean isCreatedByStream;
+    private int retryCount;
+
+    LoopbackKinesisVideoProducerStream(@Nonnull final LoopbackKinesisVideoProducer producer,
+                                       @Nonnull final StreamInfo streamInfo,
+                                       final long streamHandle,
+                                       @Nonnull final Logger log,
+                                       @Nullable final StreamCallbacks streamCallbacks,
+                                       final long stopTimeoutInMillis) {
+        super(streamCallbacks == null ? new DefaultStreamCallbacks() : streamCallbacks);
+        this.producer = Preconditions.checkNotNull(producer);
+        this.streamInfo = Preconditions.checkNotNull(streamInfo);
+        this.streamHandle = streamHandle;
+        this.log = Preconditions.checkNotNull(log);
+        this.stopTimeoutInMillis = stopTimeoutInMillis;
+    }
+
+    @Nonnull
+    @Override
+    public InputStream getDataStream(final long uploadHandle) throws ProducerException {
+        synchronized (lock) {
+            Preconditions.checkState(streamHandle != LoopbackKinesisVideoProducer.INVALID_STREAM_HANDLE_VALUE);
+            if (session != null) {
+                session.close();
+            }
+
+            // Starts over with the oldest fragment kept
+            session = new UploadSession(uploadHandle, LoopbackMkvWriter.header(streamInfo, codecPrivateData),
+                    fragments.isEmpty() ? nextFragmentSequence : fragments.get(0).sequence);
+            isPutStreamPending = false;
+            return session;
+        }
+    }
+
+    @Override
+    public void getStreamData(final long uploadHandle,
+                              @Nonnull final byte[] fillBuffer,
+                              final int offset,
+                              final int length,
+                              @Nonnull final ReadResult readResult) throws ProducerException {
+        synchronized (lock) {
+            if (session == null || session.uploadHandle != uploadHandle) {
+                readResult.setReadResult(0, true);
+                return;
+            }
+
+            final int read = session.readAvailable(fillBuffer, offset, length);
+            readResult.setReadResult(Math.max(0, read), read == -1);
+        }
+    }
+
+    @Override
+    public void putFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) throws ProducerException {
+        Preconditions.checkNotNull(kinesisVideoFrame);
+        Preconditions.checkState(streamHandle != LoopbackKinesisVideoProducer.INVALID_STREAM_HANDLE_VALUE);
+
+        final boolean isKeyFrame = FrameFlags.isKeyFrame(kinesisVideoFrame.getFlags());
+        final ByteBuffer data = kinesisVideoFrame.getData();
+        final List<Long> droppedFragments = new ArrayList<Long>();
+        boolean isDropped = false;
+        boolean isOverflowing = false;
+        long latencyPressure = -1;
+        long uploadHandle = INVALID_UPLOAD_HANDLE_VALUE;
+        long availableDuration = 0;
+        long availableSize = 0;
+        synchronized (lock) {
+            if (isStopping) {
+                throw new ProducerException("Stream " + getStreamName() + " is stopped", STATUS_INVALID_OPERATION);
+            }
+
+            if (streamStartTimestamp < 0) {
+                streamStartTimestamp = kinesisVideoFrame.getDecodingTs();
+            }
+
+            final int reservedSize = kinesisVideoFrame.getSize() + CLUSTER_OVERHEAD + BLOCK_OVERHEAD;
+            if (isAwaitingKeyFrame && !isKeyFrame) {
+                isDropped = true;
+            } else if (producer.getAvailableStorageSize() < reservedSize) {
+                // The frames following it until the next key frame could not be decoded
+                isDropped = true;
+                isOverflowing = true;
+                isAwaitingKeyFrame = true;
+            } else {
+                isAwaitingKeyFrame = false;
+                writeFrame(kinesisVideoFrame, isKeyFrame, data);
+                dropFragmentsPastBufferDuration(droppedFragments);
+                latencyPressure = checkLatencyPressure();
+                lock.notifyAll();
+
+                if (session != null) {
+                    uploadHandle = session.uploadHandle;
+                    availableDuration = lastTimestamp - unsentStartTimestamp();
+                    availableSize = unsentSize();
+                }
+            }
+        }
+
+        if (isDropped) {
+            if (isOverflowing) {
+                producer.storageOverflowPressure();
+            }
+
+            droppedFrameReport(kinesisVideoFrame.getPresentationTs());
+            return;
+        }
+
+        frameRate.add(1);
+        for (final long fragmentTimecode : droppedFragments) {
+            droppedFragmentReport(fragmentTimecode);
+        }
+
+        if (latencyPressure >= 0) {
+            streamLatencyPressure(latencyPressure);
+        }
+
+        if (uploadHandle != INVALID_UPLOAD_HANDLE_VALUE) {
+            streamDataAvailable(uploadHandle, availableDuration, availableSize);
+        } else {
+            startSession(0);
+        }
+    }
+
+    @Override
+    public void putFragmentMetadata(@Nonnull final String metadataName,
+                                    @Nonnull final String metadataValue,
+                                    final boolean persistent) throws ProducerException {
+        Preconditions.checkNotNull(metadataName);
+        Preconditions.checkNotNull(metadataValue);
+        synchronized (lock) {
+            if (persistent) {
+                persistentMetadata.put(metadataName, metadataValue);
+            } else {
+                pendingMetadata.add(new String[] {metadataName, metadataValue});
+            }
+        }
+    }
+
+    @Override
+    public void fragmentAck(final long uploadHandle, @Nonnull final KinesisVideoFragmentAck kinesisVideoFragmentAck)
+            throws ProducerException {
+        Preconditions.checkNotNull(kinesisVideoFragmentAck);
+        fragmentAckReceived(uploadHandle, kinesisVideoFragmentAck);
+
+        final long timecodeInMillis = kinesisVideoFragmentAck.getTimestamp() / HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        switch (kinesisVideoFragmentAck.getAckType().getIntType()) {
+            case FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED:
+                synchronized (lock) {
+                    releaseSentFragments(timecodeInMillis);
+                }
+
+                closeWhenDone();
+                break;
+            case FragmentAckType.FRAGMENT_ACK_TYPE_ERROR:
+                streamErrorReport(uploadHandle, kinesisVideoFragmentAck.getTimestamp(),
+                        kinesisVideoFragmentAck.getResult());
+                // The next session sends the fragment again
+                restartSession(uploadHandle, RETRY_DELAY_IN_MILLIS);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void parseFragmentAck(final long uploadHandle, @Nonnull final String kinesisVideoFragmentAck)
+            throws ProducerException {
+        Preconditions.checkNotNull(kinesisVideoFragmentAck);
+        final List<String> acks = new ArrayList<String>();
+        synchronized (lock) {
+            StringBuilder partialAck = partialAcks.get(uploadHandle);
+            if (partialAck == null) {
+                partialAck = new StringBuilder();
+                partialAcks.put(uploadHandle, partialAck);
+            }
+
+            partialAck.append(kinesisVideoFragmentAck);
+            int start = partialAck.indexOf("{");
+            int end = start < 0 ? -1 : partialAck.indexOf("}", start);
+            while (end >= 0) {
+                acks.add(partialAck.substring(start, end + 1));
+                partialAck.delete(0, end + 1);
+                start = partialAck.indexOf("{");
+                end = start < 0 ? -1 : partialAck.indexOf("}", start);
+            }
+        }
+
+        for (final String ack : acks) {
+            final KinesisVideoFragmentAck fragmentAck = toFragmentAck(ack);
+            if (fragmentAck != null) {
+                fragmentAck(uploadHandle, fragmentAck);
+            }
+        }
+    }
+
+    @Override
+    public void streamFormatChanged(@Nullable final byte[] codecPrivateData, final int trackId)
+            throws ProducerException {
+        synchronized (lock) {
+            // Taken by the next upload session
+            this.codecPrivateData.put((long) trackId, codecPrivateData);
+        }
+    }
+
+    @Override
+    public long getStreamHandle() {
+        return streamHandle;
+    }
+
+    @Nonnull
+    @Override
+    public String getStreamName() {
+        return streamInfo.getName();
+    }
+
+    @Override
+    public void stopStream() throws ProducerException {
+        synchronized (lock) {
+            if (isStopping) {
+                return;
+            }
+
+            isStopping = true;
+            if (!fragments.isEmpty()) {
+                fragments.get(fragments.size() - 1).isComplete = true;
+            }
+
+            lock.notifyAll();
+        }
+
+        startSession(0);
+        closeWhenDone();
+    }
+
+    @Override
+    public void stopStreamSync() throws ProducerException {
+        stopStream();
+        try {
+            if (!stoppedLatch.await(stopTimeoutInMillis, TimeUnit.MILLISECONDS)) {
+                log.error("Stopping stream {} timed out. Force stopping the upload session.", getStreamName());
+                closeSession();
+            }
+        } catch (final InterruptedException e) {
+            throw new ProducerException(e);
+        }
+    }
+
+    @Override
+    public void streamTerminated(final long uploadHandle, final int statusCode) throws ProducerException {
+        if (statusCode != HTTP_OK) {
+            log.warn("Upload session {} of stream {} terminated with status {}", uploadHandle, getStreamName(),
+                    statusCode);
+        }
+
+        restartSession(uploadHandle, statusCode == HTTP_OK ? 0 : RETRY_DELAY_IN_MILLIS);
+    }
+
+    @Nonnull
+    @Override
+    public KinesisVideoStreamMetrics getMetrics() throws ProducerException {
+        synchronized (lock) {
+            long overallViewSize = 0;
+            for (final Fragment fragment : fragments) {
+                overallViewSize += fragment.size();
+            }
+
+            streamMetrics.setMetrics(overallViewSize,
+                    unsentSize(),
+                    fragments.isEmpty() ? 0 : lastTimestamp - fragments.get(0).startTimestamp,
+                    fragments.isEmpty() ? 0 : lastTimestamp - unsentStartTimestamp(),
+                    frameRate.getRate(),
+                    (long) transferRate.getRate());
+        }
+
+        return streamMetrics;
+    }
+
+    @Override
+    public void streamFreed() throws ProducerException {
+        final boolean isClosePending;
+        synchronized (lock) {
+            isStopping = true;
+            isClosePending = !isClosedReported;
+            isClosedReported = true;
+            for (final Fragment fragment : fragments) {
+                producer.releaseStorage(fragment.size());
+            }
+
+            fragments.clear();
+            lock.notifyAll();
+        }
+
+        if (isClosePending) {
+            streamClosed(INVALID_UPLOAD_HANDLE_VALUE);
+        }
+
+        streamHandle = LoopbackKinesisVideoProducer.INVALID_STREAM_HANDLE_VALUE;
+    }
+
+    @Override
+    public void resetConnection() throws ProducerException {
+        log.debug("Current connection of stream {} is being reset", getStreamName());
+        streamTerminated(INVALID_UPLOAD_HANDLE_VALUE, HTTP_OK);
+    }
+
+    @Override
+    public void streamReady() throws ProducerException {
+        log.debug("Stream {} is ready", getStreamName());
+        readyLatch.countDown();
+        super.streamReady();
+    }
+
+    @Override
+    public void streamClosed(final long uploadHandle) throws ProducerException {
+        log.debug("Stream {} is closed", getStreamName());
+        closeSession();
+        stoppedLatch.countDown();
+        super.streamClosed(uploadHandle);
+    }
+
+    void awaitReady() throws ProducerException {
+        try {
+            if (!readyLatch.await(READY_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                throw new ProducerException("KinesisVideo producer stream creation time out",
+                        STATUS_OPERATION_TIMED_OUT);
+            }
+        } catch (final InterruptedException e) {
+            throw new ProducerException(e);
+        }
+    }
+
+    /**
+     * Starts the control plane calls, from the describe of the stream.
+     */
+    void start() throws ProducerException {
+        callService(State.DESCRIBING, 0);
+    }
+
+    void onDescribeStreamResult(@Nullable final StreamDescription streamDescription, final int httpStatusCode)
+            throws ProducerException {
+        if (httpStatusCode == HTTP_NOT_FOUND) {
+            retryCount = 0;
+            callService(State.CREATING, 0);
+        } else if (httpStatusCode != HTTP_OK || streamDescription == null) {
+            retry(httpStatusCode);
+        } else if (streamDescription.getStreamStatus() != StreamStatus.ACTIVE.intValue()) {
+            callService(State.DESCRIBING, CREATING_DESCRIBE_DELAY_IN_MILLIS);
+        } else {
+            retryCount = 0;
+            streamArn = streamDescription.getStreamArn();
+            final boolean isTagging = isCreatedByStream && streamInfo.getTags() != null
+                    && streamInfo.getTags().length > 0;
+            callService(isTagging ? State.TAGGING : State.GETTING_ENDPOINT, 0);
+        }
+    }
+
+    void onCreateStreamResult(@Nullable final String streamArn, final int httpStatusCode) throws ProducerException {
+        if (httpStatusCode == HTTP_OK || httpStatusCode == HTTP_RESOURCE_IN_USE) {
+            retryCount = 0;
+            this.streamArn = streamArn;
+            isCreatedByStream = httpStatusCode == HTTP_OK;
+            // Described again until active
+            callService(State.DESCRIBING, 0);
+        } else {
+            retry(httpStatusCode);
+        }
+    }
+
+    void onTagResourceResult(final int httpStatusCode) throws ProducerException {
+        if (httpStatusCode != HTTP_OK) {
+            // Tags are not worth holding the stream back
+            log.warn("Tagging stream {} failed with status {}", getStreamName(), httpStatusCode);
+        }
+
+        retryCount = 0;
+        callService(State.GETTING_ENDPOINT, 0);
+    }
+
+    void onStreamingEndpointResult(@Nullable final String endpoint, final int httpStatusCode)
+            throws ProducerException {
+        if (httpStatusCode != HTTP_OK || endpoint == null || endpoint.isEmpty()) {
+            retry(httpStatusCode);
+            return;
+        }
+
+        retryCount = 0;
+        dataEndpoint = endpoint;
+        callService(State.GETTING_TOKEN, 0);
+    }
+
+    void onStreamingTokenResult(@Nullable final byte[] token, final int httpStatusCode) throws ProducerException {
+        if (httpStatusCode != HTTP_OK) {
+            retry(httpStatusCode);
+            return;
+        }
+
+        retryCount = 0;
+        streamingToken = token;
+        state = State.READY;
+        streamReady();
+        startSession(0);
+    }
+
+    void onPutStreamResult(final long uploadHandle, final int httpStatusCode) throws ProducerException {
+        if (httpStatusCode == HTTP_OK) {
+            return;
+        }
+
+        log.warn("PutMedia of stream {} failed with status {}", getStreamName(), httpStatusCode);
+        streamErrorReport(uploadHandle, 0, httpStatusCode);
+        synchronized (lock) {
+            isPutStreamPending = false;
+        }
+
+        restartSession(uploadHandle, RETRY_DELAY_IN_MILLIS);
+    }
+
+    private void retry(final int httpStatusCode) throws ProducerException {
+        if (++retryCount > MAX_CONTROL_PLANE_RETRIES) {
+            log.error("Stream {} failed in state {} with status {}, giving up", getStreamName(), state,
+                    httpStatusCode);
+            streamErrorReport(INVALID_UPLOAD_HANDLE_VALUE, 0, httpStatusCode);
+            return;
+        }
+
+        log.warn("Stream {} failed in state {} with status {}, retrying", getStreamName(), state, httpStatusCode);
+        callService(state, RETRY_DELAY_IN_MILLIS * retryCount);
+    }
+
+    private void callService(final State nextState, final long delayInMillis) throws ProducerException {
+        state = nextState;
+        final long callAfter = Time.getCurrentTime() + delayInMillis * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        final AuthInfo authInfo = producer.getAuthInfo();
+        final byte[] authData = authInfo == null ? null : authInfo.getData();
+        final int authType = authInfo == null ? AuthInfoType.NONE.getIntType() : authInfo.getIntAuthType();
+        switch (nextState) {
+            case DESCRIBING:
+                producer.getServiceCallbacks().describeStream(getStreamName(), callAfter, SERVICE_CALL_TIMEOUT,
+                        authData, authType, streamHandle, this);
+                break;
+            case CREATING:
+                producer.getServiceCallbacks().createStream(producer.getDeviceName(), getStreamName(),
+                        streamInfo.getContentType(), streamInfo.getKmsKeyId(), streamInfo.getRetentionPeriod(),
+                        callAfter, SERVICE_CALL_TIMEOUT, authData, authType, streamHandle);
+                break;
+            case TAGGING:
+                producer.getServiceCallbacks().tagResource(streamArn, streamInfo.getTags(), callAfter,
+                        SERVICE_CALL_TIMEOUT, authData, authType, streamHandle, this);
+                break;
+            case GETTING_ENDPOINT:
+                producer.getServiceCallbacks().getStreamingEndpoint(getStreamName(), PUT_MEDIA_API, callAfter,
+                        SERVICE_CALL_TIMEOUT, authData, authType, streamHandle, this);
+                break;
+            case GETTING_TOKEN:
+                producer.getServiceCallbacks().getStreamingToken(getStreamName(), callAfter, SERVICE_CALL_TIMEOUT,
+                        authData, authType, streamHandle, this);
+                break;
+            default:
+                throw new IllegalStateException("No service call in state " + nextState);
+        }
+    }
+
+    /**
+     * Starts an upload session once the stream is ready and has data to send, unless one is already going on.
+     */
+    private void startSession(final long delayInMillis) throws ProducerException {
+        final long startTimestamp;
+        synchronized (lock) {
+            if (state != State.READY || session != null || isPutStreamPending || isClosedReported
+                    || fragments.isEmpty()) {
+                return;
+            }
+
+            isPutStreamPending = true;
+            startTimestamp = streamStartTimestamp;
+        }
+
+        producer.getServiceCallbacks().putStream(getStreamName(),
+                CONTAINER_TYPE,
+                startTimestamp,
+                streamInfo.isAbsoluteFragmentTimes(),
+                streamInfo.isFragmentAcks(),
+                dataEndpoint,
+                Time.getCurrentTime() + delayInMillis * HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                SERVICE_CALL_TIMEOUT,
+                streamingToken,
+                AuthInfoType.SECURITY_TOKEN.getIntType(),
+                this);
+    }
+
+    /**
+     * Ends the upload session, or the current one for an invalid upload handle, and starts another one.
+     */
+    private void restartSession(final long uploadHandle, final long delayInMillis) throws ProducerException {
+        synchronized (lock) {
+            if (session != null
+                    && (uploadHandle == INVALID_UPLOAD_HANDLE_VALUE || session.uploadHandle == uploadHandle)) {
+                session.close();
+                session = null;
+            }
+        }
+
+        startSession(delayInMillis);
+    }
+
+    private void closeSession() {
+        synchronized (lock) {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Reports the stream closed once it is stopping, sent everything and got the ACKs of everything it sent.
+     */
+    private void closeWhenDone() throws ProducerException {
+        final long uploadHandle;
+        synchronized (lock) {
+            if (!isStopping || isClosedReported || !fragments.isEmpty() || isPutStreamPending
+                    || (session != null && !session.isDrained)) {
+                return;
+            }
+
+            isClosedReported = true;
+            uploadHandle = session == null ? INVALID_UPLOAD_HANDLE_VALUE : session.uploadHandle;
+        }
+
+        streamClosed(uploadHandle);
+    }
+
+    private void writeFrame(final KinesisVideoFrame frame, final boolean isKeyFrame, final ByteBuffer data) {
+        final long decodingTs = frame.getDecodingTs();
+        final long timestampBase = streamInfo.isAbsoluteFragmentTimes() ? 0 : streamStartTimestamp;
+        Fragment fragment = fragments.isEmpty() ? null : fragments.get(fragments.size() - 1);
+        if (isKeyFrame && (fragment == null || fragment.isComplete || streamInfo.isKeyFrameFragmentation()
+                || decodingTs - fragment.startTimestamp >= streamInfo.getFragmentDuration())) {
+            if (fragment != null) {
+                fragment.isComplete = true;
+            }
+
+            fragment = new Fragment(nextFragmentSequence++,
+                    (decodingTs - timestampBase) / HUNDREDS_OF_NANOS_IN_A_MILLISECOND, decodingTs);
+            final List<String[]> metadata = new ArrayList<String[]>(pendingMetadata);
+            for (final Map.Entry<String, String> entry : persistentMetadata.entrySet()) {
+                metadata.add(new String[] {entry.getKey(), entry.getValue()});
+            }
+
+            if (!metadata.isEmpty()) {
+                LoopbackMkvWriter.tags(fragment, metadata);
+                pendingMetadata.clear();
+            }
+
+            LoopbackMkvWriter.cluster(fragment, fragment.timecodeInMillis);
+            fragments.add(fragment);
+            isLatencyPressureReported = false;
+        }
+
+        final int sizeBefore = fragment.size();
+        final long relativeTimecode = (frame.getPresentationTs() - timestampBase) / HUNDREDS_OF_NANOS_IN_A_MILLISECOND
+                - fragment.timecodeInMillis;
+        LoopbackMkvWriter.simpleBlock(fragment, frame.getTrackId(),
+                (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, relativeTimecode)), isKeyFrame, data);
+        producer.allocateStorage(fragment.size() - sizeBefore);
+        fragment.endTimestamp = decodingTs + frame.getDuration();
+        lastTimestamp = Math.max(lastTimestamp, fragment.endTimestamp);
+    }
+
+    private void dropFragmentsPastBufferDuration(final List<Long> droppedFragments) {
+        final long bufferDuration = streamInfo.getBufferDuration();
+        while (bufferDuration > 0 && fragments.size() > 1
+                && lastTimestamp - fragments.get(0).startTimestamp > bufferDuration) {
+            final Fragment oldest = fragments.get(0);
+            if (session != null && session.fragmentSequence == oldest.sequence && session.fragmentOffset > 0) {
+                // Partly sent, dropping it would cut the MKV stream
+                return;
+            }
+
+            fragments.remove(0);
+            producer.releaseStorage(oldest.size());
+            droppedFragments.add(oldest.startTimestamp);
+        }
+    }
+
+    private long checkLatencyPressure() {
+        final long maxLatency = streamInfo.getMaxLatency();
+        if (maxLatency <= 0 || isLatencyPressureReported) {
+            return -1;
+        }
+
+        final long latency = lastTimestamp - unsentStartTimestamp();
+        if (latency <= maxLatency) {
+            return -1;
+        }
+
+        isLatencyPressureReported = true;
+        return latency;
+    }
+
+    /**
+     * Frees the fragments sent up to the timecode, in order.
+     */
+    private void releaseSentFragments(final long timecodeInMillis) {
+        while (!fragments.isEmpty() && fragments.get(0).isSent
+                && fragments.get(0).timecodeInMillis <= timecodeInMillis) {
+            producer.releaseStorage(fragments.remove(0).size());
+        }
+
+        lock.notifyAll();
+    }
+
+    @Nullable
+    private Fragment fragmentAt(final long sequence) {
+        if (fragments.isEmpty()) {
+            return null;
+        }
+
+        final long index = sequence - fragments.get(0).sequence;
+        return index >= 0 && index < fragments.size() ? fragments.get((int) index) : null;
+    }
+
+    private long unsentStartTimestamp() {
+        for (final Fragment fragment : fragments) {
+            if (!fragment.isSent) {
+                return fragment.startTimestamp;
+            }
+        }
+
+        return lastTimestamp;
+    }
+
+    private long unsentSize() {
+        long size = 0;
+        for (final Fragment fragment : fragments) {
+            if (session != null && fragment.sequence == session.fragmentSequence) {
+                size += fragment.size() - session.fragmentOffset;
+            } else if (session == null || fragment.sequence > session.fragmentSequence) {
+                size += fragment.size();
+            }
+        }
+
+        return size;
+    }
+
+    @Nullable
+    private KinesisVideoFragmentAck toFragmentAck(final String ack) {
+        final Matcher eventType = EVENT_TYPE.matcher(ack);
+        if (!eventType.find()) {
+            log.warn("Ignoring ACK without event type {}", ack);
+            return null;
+        }
+
+        final int ackType;
+        switch (eventType.group(1)) {
+            case "BUFFERING":
+                ackType = FragmentAckType.FRAGMENT_ACK_TYPE_BUFFERING;
+                break;
+            case "RECEIVED":
+                ackType = FragmentAckType.FRAGMENT_ACK_TYPE_RECEIVED;
+                break;
+            case "PERSISTED":
+                ackType = FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED;
+                break;
+            case "ERROR":
+                ackType = FragmentAckType.FRAGMENT_ACK_TYPE_ERROR;
+                break;
+            case "IDLE":
+                ackType = FragmentAckType.FRAGMENT_ACK_TYPE_IDLE;
+                break;
+            default:
+                ackType = FragmentAckType.FRAGMENT_ACK_TYPE_UNDEFINED;
+                break;
+        }
+
+        final Matcher timecode = FRAGMENT_TIMECODE.matcher(ack);
+        final Matcher fragmentNumber = FRAGMENT_NUMBER.matcher(ack);
+        final Matcher errorId = ERROR_ID.matcher(ack);
+        return new KinesisVideoFragmentAck(ackType,
+                timecode.find() ? Long.parseLong(timecode.group(1)) * HUNDREDS_OF_NANOS_IN_A_MILLISECOND : 0,
+                fragmentNumber.find() ? fragmentNumber.group(1) : "",
+                errorId.find() ? Integer.parseInt(errorId.group(1)) : 0);
+    }
+}
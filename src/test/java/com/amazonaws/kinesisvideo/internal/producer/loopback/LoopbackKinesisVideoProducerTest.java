@@ -0,0 +1,143 @@
+package com.amazonaws.kinesisvideo.internal.producer.loopback;
+
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentials;
+import com.amazonaws.kinesisvideo.auth.StaticCredentialsProvider;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.internal.mediasource.bytes.LoadGeneratorMediaSource;
+import com.amazonaws.kinesisvideo.internal.mediasource.bytes.LoadGeneratorMediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.java.service.JavaKinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.java.service.local.LocalKinesisVideoService;
+import com.amazonaws.kinesisvideo.producer.DeviceInfo;
+import com.amazonaws.kinesisvideo.producer.FragmentAckType;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StorageInfo;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.storage.DefaultStorageCallbacks;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoopbackKinesisVideoProducerTest {
+    private static final Logger LOG = LogManager.getLogger(LoopbackKinesisVideoProducerTest.class);
+    private static final String STREAM_NAME = "loopback-stream";
+    private static final long STORAGE_SIZE = 16L * 1024 * 1024;
+    private static final int PERSISTED_ACK_COUNT = 4;
+    private static final int ACK_ERROR = 4000;
+
+    private LocalKinesisVideoService service;
+    private ScheduledExecutorService executor;
+    private LoopbackKinesisVideoClient client;
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.free();
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    public void test_putFrame_getsEveryFragmentPersisted() throws Exception {
+        start(LocalKinesisVideoService.builder());
+        final AckCountingMediaSource mediaSource = new AckCountingMediaSource();
+        client.registerMediaSource(mediaSource);
+        mediaSource.start();
+
+        assertTrue(mediaSource.persisted.await(10, TimeUnit.SECONDS));
+        client.unregisterMediaSource(mediaSource);
+
+        assertTrue(service.getFragmentCount(STREAM_NAME) >= PERSISTED_ACK_COUNT);
+        assertEquals(0, mediaSource.errorCount.get());
+    }
+
+    @Test
+    public void test_ackError_sendsTheFragmentAgain() throws Exception {
+        start(LocalKinesisVideoService.builder().ackError(1, ACK_ERROR));
+        final AckCountingMediaSource mediaSource = new AckCountingMediaSource();
+        client.registerMediaSource(mediaSource);
+        mediaSource.start();
+
+        assertTrue(mediaSource.persisted.await(15, TimeUnit.SECONDS));
+        client.unregisterMediaSource(mediaSource);
+
+        assertEquals(ACK_ERROR, mediaSource.lastError.get());
+    }
+
+    private void start(final LocalKinesisVideoService.Builder serviceBuilder) throws Exception {
+        // Created up front, the AWS SDK failing to unmarshall the ResourceNotFoundException on recent JDKs
+        service = serviceBuilder.stream(STREAM_NAME).start();
+        executor = Executors.newScheduledThreadPool(4);
+        final KinesisVideoClientConfiguration configuration = KinesisVideoClientConfiguration.builder()
+                .withRegion("us-west-2")
+                .withEndpoint(service.getEndpoint())
+                .withCredentialsProvider(new StaticCredentialsProvider(
+                        new KinesisVideoCredentials("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY")))
+                .withStorageCallbacks(new DefaultStorageCallbacks())
+                .build();
+        client = new LoopbackKinesisVideoClient(LOG, configuration, new JavaKinesisVideoServiceClient(LOG),
+                executor);
+        client.initialize(new DeviceInfo(0, "loopback-device",
+                new StorageInfo(0, StorageInfo.DeviceStorageType.DEVICE_STORAGE_TYPE_IN_MEM, STORAGE_SIZE, 90,
+                        System.getProperty("java.io.tmpdir")),
+                1, null));
+    }
+
+    /**
+     * Load generator of half second fragments, counting down the PERSISTED ACKs.
+     */
+    private static final class AckCountingMediaSource extends LoadGeneratorMediaSource {
+        private final CountDownLatch persisted = new CountDownLatch(PERSISTED_ACK_COUNT);
+        private final AtomicInteger errorCount = new AtomicInteger();
+        private final AtomicInteger lastError = new AtomicInteger();
+
+        private AckCountingMediaSource() {
+            super(STREAM_NAME);
+            configure(new LoadGeneratorMediaSourceConfiguration.Builder()
+                    .withFps(30)
+                    .withBitrate(512 * 1024, 15, 4.0)
+                    .build());
+        }
+
+        @Override
+        public StreamCallbacks getStreamCallbacks() {
+            return new ForwardingStreamCallbacks(new DefaultStreamCallbacks()) {
+                @Override
+                public void fragmentAckReceived(final long uploadHandle,
+                                                @Nonnull final KinesisVideoFragmentAck fragmentAck)
+                        throws ProducerException {
+                    if (fragmentAck.getAckType().getIntType() == FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED) {
+                        persisted.countDown();
+                    }
+                }
+
+                @Override
+                public void streamErrorReport(final long uploadHandle, final long fragmentTimecode,
+                                              final long statusCode) throws ProducerException {
+                    errorCount.incrementAndGet();
+                    lastError.set((int) statusCode);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.amazonaws.kinesisvideo.internal.producer.loopback;
+
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.CLUSTER;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.KEY_FRAME_FLAG;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.SIMPLE_BLOCK;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.SIMPLE_TAG;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAG;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAGS;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAG_NAME;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TAG_STRING;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.TIMECODE;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.UNKNOWN_SIZE;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.writeElementHeader;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.writeMaster;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.writeString;
+import static com.amazonaws.kinesisvideo.stream.packaging.EbmlWriter.writeUnsigned;
+
+/**
+ * Bare MKV writer of the loopback producer, on the {@link EbmlWriter} of the Java packager: the EBML header, an
+ * unknown sized Segment with its Info and Tracks, and then unknown sized Clusters of SimpleBlocks, with the Tags of the
+ * fragment metadata ahead of their Cluster.
+ */
+final class LoopbackMkvWriter {
+    private static final int SIMPLE_BLOCK_HEADER_LENGTH = 4;
+    private static final String APPLICATION_NAME = "kvs-java-loopback";
+
+    private LoopbackMkvWriter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param streamInfo Stream to write the tracks of
+     * @param codecPrivateData Codec private data set after the stream creation, by track id
+     * @return EBML header and Segment start up to the first Cluster, which every upload session starts with
+     */
+    @Nonnull
+    static byte[] header(@Nonnull final StreamInfo streamInfo, @Nonnull final Map<Long, byte[]> codecPrivateData) {
+        return EbmlWriter.segmentHeader(streamInfo, codecPrivateData, APPLICATION_NAME);
+    }
+
+    /**
+     * Starts an unknown sized Cluster.
+     */
+    static void cluster(@Nonnull final ByteArrayOutputStream out, final long timecodeInMillis) {
+        writeElementHeader(out, CLUSTER, UNKNOWN_SIZE);
+        writeUnsigned(out, TIMECODE, timecodeInMillis);
+    }
+
+    /**
+     * Writes a frame as a SimpleBlock of the Cluster.
+     *
+     * @param relativeTimecodeInMillis Timecode of the frame relative to the one of its Cluster
+     */
+    static void simpleBlock(@Nonnull final ByteArrayOutputStream out,
+                            final long trackNumber,
+                            final int relativeTimecodeInMillis,
+                            final boolean isKeyFrame,
+                            @Nonnull final ByteBuffer data) {
+        final int size = data.remaining();
+        writeElementHeader(out, SIMPLE_BLOCK, SIMPLE_BLOCK_HEADER_LENGTH + size);
+        out.write(0x80 | (int) trackNumber);
+        out.write(relativeTimecodeInMillis >> 8);
+        out.write(relativeTimecodeInMillis);
+        out.write(isKeyFrame ? KEY_FRAME_FLAG : 0);
+        if (data.hasArray()) {
+            out.write(data.array(), data.arrayOffset() + data.position(), size);
+        } else {
+            final byte[] bytes = new byte[size];
+            data.duplicate().get(bytes);
+            out.write(bytes, 0, size);
+        }
+    }
+
+    /**
+     * Writes the fragment metadata as the Tags of the following Cluster.
+     *
+     * @param metadata Name and value pairs
+     */
+    static void tags(@Nonnull final ByteArrayOutputStream out, @Nonnull final List<String[]> metadata) {
+        final ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        for (final String[] nameAndValue : metadata) {
+            final ByteArrayOutputStream simpleTag = new ByteArrayOutputStream();
+            writeString(simpleTag, TAG_NAME, nameAndValue[0]);
+            writeString(simpleTag, TAG_STRING, nameAndValue[1]);
+            writeMaster(tag, SIMPLE_TAG, simpleTag);
+        }
+
+        final ByteArrayOutputStream tags = new ByteArrayOutputStream();
+        writeMaster(tags, TAG, tag);
+        writeMaster(out, TAGS, tags);
+    }
+}
@@ -0,0 +1,89 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.service.exception.ResourceNotFoundException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class BlockingAckConsumerTest {
+    private final Logger log = LogManager.getLogger(BlockingAckConsumerTest.class);
+    private ScheduledExecutorService timer;
+    private KinesisVideoProducerStream stream;
+
+    @Before
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        stream = mock(KinesisVideoProducerStream.class);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void test_awaitResponseAsync_completesAndForwardsOnOk() throws Exception {
+        final AtomicBoolean forwarded = new AtomicBoolean();
+        final BlockingAckConsumer consumer = new BlockingAckConsumer(new Consumer<InputStream>() {
+            @Override
+            public void accept(final InputStream inputStream) {
+                forwarded.set(true);
+            }
+        }, log, stream);
+
+        final CompletableFuture<Void> response = consumer.awaitResponseAsync(timer);
+        assertFalse(response.isDone());
+
+        consumer.accept(response("HTTP/1.1 200 OK\r\nx-amzn-RequestId: abc\r\n\r\n"));
+
+        response.get(1, TimeUnit.SECONDS);
+        assertTrue(forwarded.get());
+    }
+
+    @Test
+    public void test_awaitResponseAsync_failsWithMappedException() throws Exception {
+        final AtomicBoolean forwarded = new AtomicBoolean();
+        final BlockingAckConsumer consumer = new BlockingAckConsumer(new Consumer<InputStream>() {
+            @Override
+            public void accept(final InputStream inputStream) {
+                forwarded.set(true);
+            }
+        }, log, stream);
+
+        final CompletableFuture<Void> response = consumer.awaitResponseAsync(timer);
+        consumer.accept(response("HTTP/1.1 404 Not Found\r\n\r\n"));
+
+        try {
+            response.get(1, TimeUnit.SECONDS);
+            fail("Expected the response future to fail");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof KinesisVideoException);
+            assertTrue(e.getCause().getCause() instanceof ResourceNotFoundException);
+        }
+        assertFalse(forwarded.get());
+    }
+
+    private static InputStream response(final String response) {
+        return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,101 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducer;
+import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_SERVICE_UNAVAILABLE;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultServiceCallbacksImplTest {
+    private static final long TEST_TIMEOUT_IN_MILLIS = 5000;
+
+    // More calls than the default control plane bulkhead has threads and queue for
+    private static final int NUMBER_OF_CALLS = 300;
+
+    private final Logger log = LogManager.getLogger(DefaultServiceCallbacksImplTest.class);
+    private final CountDownLatch stuck = new CountDownLatch(1);
+    private KinesisVideoServiceClient serviceClient;
+    private KinesisVideoProducer producer;
+    private DefaultServiceCallbacksImpl serviceCallbacks;
+
+    @Before
+    public void setUp() throws Exception {
+        serviceClient = mock(KinesisVideoServiceClient.class);
+        when(serviceClient.createStream(anyString(), anyString(), anyString(), any(), anyLong(), anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    stuck.await();
+                    return "arn";
+                });
+        producer = mock(KinesisVideoProducer.class);
+    }
+
+    @After
+    public void tearDown() {
+        stuck.countDown();
+        if (serviceCallbacks != null) {
+            serviceCallbacks.free();
+        }
+    }
+
+    @Test
+    public void test_createStream_whenTheConfiguredBulkheadIsFull_reportsTheRejectionToTheProducer()
+            throws Exception {
+        final KinesisVideoClientConfiguration configuration = KinesisVideoClientConfiguration.builder()
+                .withRegion("us-west-2")
+                .withServiceCallBulkheads(true)
+                .build();
+        serviceCallbacks = new DefaultServiceCallbacksImpl(log, Executors.newSingleThreadScheduledExecutor(),
+                configuration, serviceClient);
+        serviceCallbacks.initialize(producer);
+
+        for (int i = 0; i < NUMBER_OF_CALLS; i++) {
+            serviceCallbacks.createStream("device", "stream-" + i, "video/h264", null, 0, 0, 0, null, 0, i);
+        }
+
+        verify(producer, timeout(TEST_TIMEOUT_IN_MILLIS).atLeastOnce())
+                .createStreamResult(anyLong(), isNull(), eq(HTTP_SERVICE_UNAVAILABLE));
+        verify(serviceClient, atLeastOnce())
+                .createStream(anyString(), anyString(), anyString(), any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void test_constructor_admissionControlsTheReconnectsByDefault() {
+        serviceCallbacks = new DefaultServiceCallbacksImpl(log, Executors.newSingleThreadScheduledExecutor(),
+                KinesisVideoClientConfiguration.builder().withRegion("us-west-2").build(), serviceClient);
+
+        assertNotNull(serviceCallbacks.reconnectScheduler);
+    }
+
+    @Test
+    public void test_constructor_whenReconnectAdmissionIsOff_connectsDirectly() {
+        final KinesisVideoClientConfiguration configuration = KinesisVideoClientConfiguration.builder()
+                .withRegion("us-west-2")
+                .withReconnectAdmission(0, 0)
+                .build();
+        serviceCallbacks = new DefaultServiceCallbacksImpl(log, Executors.newSingleThreadScheduledExecutor(),
+                configuration, serviceClient);
+
+        assertNull(serviceCallbacks.reconnectScheduler);
+    }
+}
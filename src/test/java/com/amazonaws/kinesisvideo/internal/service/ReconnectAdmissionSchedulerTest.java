@@ -0,0 +1,237 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoStreamMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReconnectAdmissionSchedulerTest {
+    private static final String ENDPOINT = "https://localhost";
+    private static final int NUMBER_OF_STREAMS = 60;
+    private static final long HANDSHAKE_TIME_IN_MILLIS = 20;
+
+    private final Logger log = LogManager.getLogger(ReconnectAdmissionSchedulerTest.class);
+    private ScheduledExecutorService executor;
+    private StandInEndpoint endpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newScheduledThreadPool(NUMBER_OF_STREAMS + 4);
+        endpoint = new StandInEndpoint();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        endpoint.close();
+    }
+
+    @Test
+    public void test_submit_reconnectStorm_capsConcurrentConnectsPerEndpoint() throws Exception {
+        final ReconnectAdmissionScheduler scheduler = new ReconnectAdmissionScheduler(executor,
+                TimeUnit.MILLISECONDS.toNanos(50), 3, new Random(42), log);
+
+        simulateReconnectStorm(scheduler);
+
+        assertEquals(NUMBER_OF_STREAMS, endpoint.handshakes.get());
+        assertTrue("Max concurrent connects " + endpoint.maxConcurrentConnects.get(),
+                endpoint.maxConcurrentConnects.get() <= 3);
+        assertEquals(0, scheduler.getActiveConnectCount(ENDPOINT));
+        assertEquals(0, scheduler.getPendingConnectCount(ENDPOINT));
+    }
+
+    @Test
+    public void test_submit_reconnectStorm_jitterSpreadsConnects() throws Exception {
+        final ReconnectAdmissionScheduler scheduler = new ReconnectAdmissionScheduler(executor,
+                TimeUnit.MILLISECONDS.toNanos(600), NUMBER_OF_STREAMS, new Random(42), log);
+
+        simulateReconnectStorm(scheduler);
+
+        assertEquals(NUMBER_OF_STREAMS, endpoint.handshakes.get());
+        assertTrue("Max concurrent connects " + endpoint.maxConcurrentConnects.get(),
+                endpoint.maxConcurrentConnects.get() < NUMBER_OF_STREAMS / 3);
+    }
+
+    @Test
+    public void test_submit_contendedEndpoint_admitsLargestBacklogFirst() throws Exception {
+        final ReconnectAdmissionScheduler scheduler = new ReconnectAdmissionScheduler(executor, 0, 1, log);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<Long> admissionOrder = Collections.synchronizedList(new ArrayList<Long>());
+
+        scheduler.submit(ENDPOINT, null, 0, new ReconnectAdmissionScheduler.ConnectTask() {
+            @Override
+            public void run(final Runnable onConnected) {
+                blocked.countDown();
+                awaitQuietly(unblock);
+                onConnected.run();
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        for (final long backlogSize : new long[] {10, 1000, 100}) {
+            scheduler.submit(ENDPOINT, streamWithBacklog(backlogSize), 0,
+                    new ReconnectAdmissionScheduler.ConnectTask() {
+                        @Override
+                        public void run(final Runnable onConnected) {
+                            admissionOrder.add(backlogSize);
+                            onConnected.run();
+                            done.countDown();
+                        }
+                    });
+        }
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getPendingConnectCount(ENDPOINT) < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        unblock.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(1000), admissionOrder.get(0));
+        assertEquals(Long.valueOf(100), admissionOrder.get(1));
+        assertEquals(Long.valueOf(10), admissionOrder.get(2));
+    }
+
+    private void simulateReconnectStorm(final ReconnectAdmissionScheduler scheduler) throws Exception {
+        final CountDownLatch done = new CountDownLatch(NUMBER_OF_STREAMS);
+        for (int i = 0; i < NUMBER_OF_STREAMS; i++) {
+            scheduler.submit(ENDPOINT, streamWithBacklog(i), 0, new ReconnectAdmissionScheduler.ConnectTask() {
+                @Override
+                public void run(final Runnable onConnected) {
+                    try {
+                        endpoint.connect();
+                    } catch (final IOException e) {
+                        log.error("Stand-in endpoint connect failed", e);
+                    } finally {
+                        onConnected.run();
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+    }
+
+    private static KinesisVideoProducerStream streamWithBacklog(final long backlogSize) throws Exception {
+        final KinesisVideoStreamMetrics metrics = new KinesisVideoStreamMetrics();
+        metrics.setMetrics(backlogSize, backlogSize, 0, 0, 0, 0);
+        final KinesisVideoProducerStream stream = mock(KinesisVideoProducerStream.class);
+        when(stream.getMetrics()).thenReturn(metrics);
+        return stream;
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loopback endpoint standing in for the PutMedia endpoint. Each connection takes a while to be answered,
+     * like a TLS handshake would, and the endpoint tracks how many of them are in flight.
+     */
+    private static final class StandInEndpoint implements Runnable {
+        private final ServerSocket serverSocket;
+        private final Thread acceptThread;
+        private final AtomicInteger concurrentConnects = new AtomicInteger();
+        private final AtomicInteger maxConcurrentConnects = new AtomicInteger();
+        private final AtomicInteger handshakes = new AtomicInteger();
+
+        StandInEndpoint() throws IOException {
+            serverSocket = new ServerSocket(0, NUMBER_OF_STREAMS, InetAddress.getLoopbackAddress());
+            acceptThread = new Thread(this, "StandInEndpoint");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        void connect() throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+                final OutputStream outputStream = socket.getOutputStream();
+                outputStream.write(1);
+                outputStream.flush();
+                final InputStream inputStream = socket.getInputStream();
+                if (inputStream.read() != 1) {
+                    throw new IOException("Handshake failed");
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    final Thread handler = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            handshake(socket);
+                        }
+                    });
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (final IOException e) {
+                    // Closed
+                }
+            }
+        }
+
+        private void handshake(final Socket socket) {
+            try (Socket connection = socket) {
+                if (connection.getInputStream().read() != 1) {
+                    return;
+                }
+
+                final int concurrent = concurrentConnects.incrementAndGet();
+                int currentMax = maxConcurrentConnects.get();
+                while (concurrent > currentMax && !maxConcurrentConnects.compareAndSet(currentMax, concurrent)) {
+                    currentMax = maxConcurrentConnects.get();
+                }
+
+                try {
+                    Thread.sleep(HANDSHAKE_TIME_IN_MILLIS);
+                } finally {
+                    concurrentConnects.decrementAndGet();
+                }
+
+                handshakes.incrementAndGet();
+                connection.getOutputStream().write(1);
+                connection.getOutputStream().flush();
+            } catch (final IOException | InterruptedException e) {
+                // Client went away
+            }
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
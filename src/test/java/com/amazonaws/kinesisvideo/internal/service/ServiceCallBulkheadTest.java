@@ -0,0 +1,88 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceCallBulkheadTest {
+    private final Logger log = LogManager.getLogger(ServiceCallBulkheadTest.class);
+    private ServiceCallBulkhead bulkhead;
+
+    @Before
+    public void setUp() {
+        bulkhead = new ServiceCallBulkhead("Test", 1, 1, log);
+    }
+
+    @After
+    public void tearDown() {
+        bulkhead.shutdownNow();
+    }
+
+    @Test
+    public void test_execute_whenFull_rejectsOnCallingThread() throws Exception {
+        final CountDownLatch stuck = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicInteger rejections = new AtomicInteger();
+        final Runnable rejection = new Runnable() {
+            @Override
+            public void run() {
+                rejections.incrementAndGet();
+            }
+        };
+
+        bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                awaitQuietly(stuck);
+                done.countDown();
+            }
+        }, rejection);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, rejection);
+        bulkhead.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, rejection);
+
+        assertEquals(1, rejections.get());
+        final ServiceCallBulkheadMetrics stuckMetrics = bulkhead.getMetrics();
+        assertEquals(1, stuckMetrics.getQueueDepth());
+        assertEquals(1, stuckMetrics.getActiveCount());
+
+        stuck.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        final ServiceCallBulkheadMetrics metrics = bulkhead.getMetrics();
+        assertEquals(3, metrics.getSubmittedCount());
+        assertEquals(1, metrics.getRejectedCount());
+        assertEquals(2, metrics.getStartedCount());
+        assertEquals(1, metrics.getMaxQueueDepth());
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
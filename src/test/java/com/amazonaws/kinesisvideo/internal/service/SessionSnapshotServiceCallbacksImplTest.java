@@ -0,0 +1,163 @@
+package com.amazonaws.kinesisvideo.internal.service;
+
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducer;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.internal.producer.client.KinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.internal.service.exception.ResourceNotFoundException;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+import com.amazonaws.kinesisvideo.producer.StreamStatus;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionSnapshotServiceCallbacksImplTest {
+    private static final String STREAM_NAME = "snapshot-test-stream";
+    private static final String STREAM_ARN = "arn:aws:kinesisvideo:us-west-2:123456789012:stream/" + STREAM_NAME;
+    private static final String PUT_MEDIA = "PUT_MEDIA";
+    private static final String DATA_ENDPOINT = "https://s-1234abcd.kinesisvideo.us-west-2.amazonaws.com";
+    private static final long STREAM_HANDLE = 1;
+    private static final long TIMEOUT = 50000000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Logger log = LogManager.getLogger(SessionSnapshotServiceCallbacksImplTest.class);
+    private final KinesisVideoClientConfiguration configuration = KinesisVideoClientConfiguration.builder()
+            .withRegion("us-west-2")
+            .build();
+    private ScheduledExecutorService executor;
+    private KinesisVideoServiceClient serviceClient;
+    private KinesisVideoProducer producer;
+    private KinesisVideoProducerStream stream;
+    private Path snapshotPath;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        serviceClient = mock(KinesisVideoServiceClient.class);
+        producer = mock(KinesisVideoProducer.class);
+        stream = mock(KinesisVideoProducerStream.class);
+        snapshotPath = folder.getRoot().toPath().resolve("session.snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_read_returnsTheWrittenSnapshot() throws Exception {
+        final SessionSnapshot snapshot = new SessionSnapshot();
+        assertFalse(snapshot.write(snapshotPath));
+
+        snapshot.putDescription(activeDescription());
+        snapshot.putDataEndpoint(STREAM_NAME, PUT_MEDIA, DATA_ENDPOINT);
+        snapshot.putTags(STREAM_ARN, Collections.singletonMap("owner", "snapshot-test"));
+        assertTrue(snapshot.write(snapshotPath));
+        assertFalse(snapshot.write(snapshotPath));
+
+        final SessionSnapshot readSnapshot = SessionSnapshot.read(snapshotPath);
+        final StreamDescription description = readSnapshot.getDescription(STREAM_NAME);
+        assertEquals(STREAM_ARN, description.getStreamArn());
+        assertEquals(StreamStatus.ACTIVE.intValue(), description.getStreamStatus());
+        assertEquals(DATA_ENDPOINT, readSnapshot.getDataEndpoint(STREAM_NAME, PUT_MEDIA));
+        assertTrue(readSnapshot.hasTags(STREAM_ARN, Collections.singletonMap("owner", "snapshot-test")));
+
+        readSnapshot.removeStream(STREAM_NAME);
+        assertNull(readSnapshot.getDescription(STREAM_NAME));
+        assertNull(readSnapshot.getDataEndpoint(STREAM_NAME, PUT_MEDIA));
+        assertFalse(readSnapshot.hasTags(STREAM_ARN, Collections.singletonMap("owner", "snapshot-test")));
+    }
+
+    @Test
+    public void test_describeStream_reportsTheSnapshotBeforeTheServiceAnswers() throws Exception {
+        final SessionSnapshot snapshot = new SessionSnapshot();
+        snapshot.putDescription(activeDescription());
+        snapshot.putDataEndpoint(STREAM_NAME, PUT_MEDIA, DATA_ENDPOINT);
+        snapshot.putTags(STREAM_ARN, null);
+        snapshot.write(snapshotPath);
+
+        when(serviceClient.describeStream(eq(STREAM_NAME), anyLong(), any())).thenReturn(activeDescription());
+        when(serviceClient.getDataEndpoint(eq(STREAM_NAME), eq(PUT_MEDIA), anyLong(), any()))
+                .thenThrow(new KinesisVideoException(new ResourceNotFoundException(STREAM_NAME)));
+
+        final SessionSnapshotServiceCallbacksImpl callbacks = createCallbacks();
+        callbacks.describeStream(STREAM_NAME, 0, TIMEOUT, null, 0, STREAM_HANDLE, stream);
+        callbacks.tagResource(STREAM_ARN, null, 0, TIMEOUT, null, 0, STREAM_HANDLE, stream);
+        callbacks.getStreamingEndpoint(STREAM_NAME, PUT_MEDIA, 0, TIMEOUT, null, 0, STREAM_HANDLE, stream);
+
+        verify(producer).describeStreamResult(eq(stream), eq(STREAM_HANDLE), any(StreamDescription.class),
+                eq(HTTP_OK));
+        verify(producer).getStreamingEndpointResult(stream, STREAM_HANDLE, DATA_ENDPOINT, HTTP_OK);
+        verify(producer).tagResourceResult(stream, STREAM_HANDLE, HTTP_OK);
+        verify(serviceClient, never()).tagStream(any(), any(), anyLong(), any());
+
+        // The background refresh finds the stream deleted, the next start goes to the service
+        verify(serviceClient, timeout(1000)).getDataEndpoint(eq(STREAM_NAME), eq(PUT_MEDIA), anyLong(), any());
+        executor.submit(() -> { }).get();
+        callbacks.free();
+
+        assertNull(SessionSnapshot.read(snapshotPath).getDescription(STREAM_NAME));
+    }
+
+    @Test
+    public void test_free_writesTheResultsOfTheServiceCalls() throws Exception {
+        when(serviceClient.describeStream(eq(STREAM_NAME), anyLong(), any())).thenReturn(activeDescription());
+        when(serviceClient.getDataEndpoint(eq(STREAM_NAME), eq(PUT_MEDIA), anyLong(), any()))
+                .thenReturn(DATA_ENDPOINT);
+
+        final SessionSnapshotServiceCallbacksImpl callbacks = createCallbacks();
+        callbacks.describeStream(STREAM_NAME, 0, TIMEOUT, null, 0, STREAM_HANDLE, stream);
+        callbacks.getStreamingEndpoint(STREAM_NAME, PUT_MEDIA, 0, TIMEOUT, null, 0, STREAM_HANDLE, stream);
+        callbacks.tagResource(STREAM_ARN, new Tag[] {new Tag("owner", "snapshot-test")}, 0, TIMEOUT, null, 0,
+                STREAM_HANDLE, stream);
+
+        verify(producer, timeout(1000)).tagResourceResult(stream, STREAM_HANDLE, HTTP_OK);
+        verify(producer).describeStreamResult(eq(stream), eq(STREAM_HANDLE),
+                any(StreamDescription.class), eq(HTTP_OK));
+        callbacks.free();
+
+        final SessionSnapshot snapshot = SessionSnapshot.read(snapshotPath);
+        assertEquals(STREAM_ARN, snapshot.getDescription(STREAM_NAME).getStreamArn());
+        assertEquals(DATA_ENDPOINT, snapshot.getDataEndpoint(STREAM_NAME, PUT_MEDIA));
+        assertTrue(snapshot.hasTags(STREAM_ARN, Collections.singletonMap("owner", "snapshot-test")));
+    }
+
+    private SessionSnapshotServiceCallbacksImpl createCallbacks() {
+        final SessionSnapshotServiceCallbacksImpl callbacks = new SessionSnapshotServiceCallbacksImpl(log, executor,
+                configuration, serviceClient, snapshotPath);
+        callbacks.initialize(producer);
+        return callbacks;
+    }
+
+    private static StreamDescription activeDescription() {
+        return new StreamDescription(0, "snapshot-test-device", STREAM_NAME, "video/h264", "1", STREAM_ARN,
+                StreamStatus.ACTIVE, 1500000000000L);
+    }
+}
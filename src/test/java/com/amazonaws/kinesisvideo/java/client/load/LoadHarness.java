@@ -0,0 +1,412 @@
+package com.amazonaws.kinesisvideo.java.client.load;
+
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentials;
+import com.amazonaws.kinesisvideo.auth.StaticCredentialsProvider;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClient;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.producer.loopback.LoopbackKinesisVideoClient;
+import com.amazonaws.kinesisvideo.internal.mediasource.bytes.LoadGeneratorMediaSourceConfiguration;
+import com.amazonaws.kinesisvideo.java.client.KinesisVideoJavaClientFactory;
+import com.amazonaws.kinesisvideo.java.service.JavaKinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.java.service.local.LocalKinesisVideoService;
+import com.amazonaws.kinesisvideo.producer.DeviceInfo;
+import com.amazonaws.kinesisvideo.producer.StorageInfo;
+import com.amazonaws.kinesisvideo.storage.DefaultStorageCallbacks;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.OperatingSystemMXBean;
+
+import javax.annotation.Nullable;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkArgument;
+
+/**
+ * Load harness running clients of several streams of synthetic media for a fixed time, to size hosts and find how
+ * many streams they sustain.
+ * <p>
+ * Every client gets a native producer of its own with streams of {@link MeasuredLoadGeneratorMediaSource}, uploading
+ * to a {@link LocalKinesisVideoService} started in the process unless an endpoint is given. The report covers the
+ * measurement window following the warm-up: the throughput, the CPU time of the whole process per stream, which
+ * includes the stand-in when it runs in the process and the native threads of the producers, the peak thread count, heap and direct memory, the GC pauses, the dropped frames and the
+ * ACK latency percentiles. The frames buffered by the producers are in native memory, which is not reported.
+ * <p>
+ * With the loopback producer, or -Dloopback=true from the command line, the clients run on the
+ * {@link LoopbackKinesisVideoClient} instead, buffering in the Java heap, so the Java side can be profiled where the
+ * native library can't be loaded.
+ * <p>
+ * Usage: LoadHarness [clients] [streams per client] [bitrate in kbps] [duration in seconds] [endpoint]
+ */
+public final class LoadHarness {
+    private static final int DEFAULT_CLIENT_COUNT = 1;
+    private static final int DEFAULT_STREAMS_PER_CLIENT = 4;
+    private static final long DEFAULT_BITRATE_IN_KBPS = 2048;
+    private static final long DEFAULT_DURATION_IN_SECONDS = 60;
+    private static final long BITS_IN_A_KILOBIT = 1024L;
+    private static final long BYTES_IN_A_MEGABYTE = 1024L * 1024L;
+    private static final int STORAGE_SIZE_PER_STREAM_IN_MB = 64;
+    private static final int SPILL_RATIO_90_PERCENT = 90;
+    private static final int THREADS_PER_CLIENT = 2;
+    private static final String REGION = "us-west-2";
+    private static final Logger log = LogManager.getLogger(LoadHarness.class);
+
+    private final Builder builder;
+    private final List<KinesisVideoClient> clients = new ArrayList<KinesisVideoClient>();
+    private final List<ScheduledExecutorService> clientExecutors = new ArrayList<ScheduledExecutorService>();
+    private final List<MeasuredLoadGeneratorMediaSource> mediaSources =
+            new ArrayList<MeasuredLoadGeneratorMediaSource>();
+    private final AtomicInteger peakThreadCount = new AtomicInteger();
+    private final AtomicLong peakHeapUsed = new AtomicLong();
+    private final AtomicLong peakDirectMemoryUsed = new AtomicLong();
+    private final List<Long> gcPausesInMillis = Collections.synchronizedList(new ArrayList<Long>());
+
+    private LoadHarness(final Builder builder) {
+        this.builder = builder;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final LoadReport report = builder()
+                .clientCount(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENT_COUNT)
+                .streamsPerClient(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STREAMS_PER_CLIENT)
+                .bitrateInKbps(args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_BITRATE_IN_KBPS)
+                .durationInSeconds(args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_DURATION_IN_SECONDS)
+                .endpoint(args.length > 4 ? args[4] : null)
+                .loopbackProducer(Boolean.getBoolean("loopback"))
+                .build()
+                .run();
+        log.info("Load report\n{}", report);
+    }
+
+    /**
+     * Starts the streams, waits for the warm-up and the measurement window, and tears everything down.
+     */
+    public LoadReport run() throws Exception {
+        final LocalKinesisVideoService service = builder.endpoint == null
+                ? LocalKinesisVideoService.builder()
+                        .receivedAckDelayInMillis(builder.ackDelayInMillis)
+                        .roundTripTimeInMillis(builder.roundTripTimeInMillis)
+                        .start()
+                : null;
+        final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("KVS-LoadHarnessSampler").setDaemon(true).build());
+        final NotificationListener gcListener = listenToGcPauses();
+        try {
+            startStreams(service == null ? builder.endpoint : service.getEndpoint());
+            sampler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sample();
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(builder.warmUpInSeconds));
+            final Snapshot start = snapshot(service);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(builder.durationInSeconds));
+            final Snapshot end = snapshot(service);
+            return report(start, end, service != null);
+        } finally {
+            sampler.shutdownNow();
+            removeGcListener(gcListener);
+            stopStreams();
+            if (service != null) {
+                service.close();
+            }
+        }
+    }
+
+    private void startStreams(final String endpoint) throws KinesisVideoException {
+        final LoadGeneratorMediaSourceConfiguration configuration = new LoadGeneratorMediaSourceConfiguration.Builder()
+                .withFps(builder.fps)
+                .withBitrate(builder.bitrateInKbps * BITS_IN_A_KILOBIT, builder.gopLength, builder.keyFrameRatio)
+                .build();
+
+        for (int client = 0; client < builder.clientCount; client++) {
+            final ScheduledExecutorService executor = Executors.newScheduledThreadPool(THREADS_PER_CLIENT,
+                    new ThreadFactoryBuilder().setNameFormat("KVS-LoadClient" + client + "-%d").build());
+            clientExecutors.add(executor);
+            final KinesisVideoClientConfiguration clientConfiguration = KinesisVideoClientConfiguration.builder()
+                    .withRegion(REGION)
+                    .withEndpoint(endpoint)
+                    .withCredentialsProvider(new StaticCredentialsProvider(
+                            new KinesisVideoCredentials(builder.accessKey, builder.secretKey)))
+                    .withStorageCallbacks(new DefaultStorageCallbacks())
+                    .build();
+            final DeviceInfo deviceInfo = new DeviceInfo(0, "load-harness-" + client,
+                    new StorageInfo(0, StorageInfo.DeviceStorageType.DEVICE_STORAGE_TYPE_IN_MEM,
+                            (long) builder.streamsPerClient * STORAGE_SIZE_PER_STREAM_IN_MB * BYTES_IN_A_MEGABYTE,
+                            SPILL_RATIO_90_PERCENT, System.getProperty("java.io.tmpdir")),
+                    builder.streamsPerClient, null);
+            final KinesisVideoClient kinesisVideoClient;
+            if (builder.isLoopbackProducer) {
+                kinesisVideoClient = new LoopbackKinesisVideoClient(log, clientConfiguration,
+                        new JavaKinesisVideoServiceClient(log), executor);
+                kinesisVideoClient.initialize(deviceInfo);
+            } else {
+                kinesisVideoClient = KinesisVideoJavaClientFactory.createKinesisVideoClient(clientConfiguration,
+                        deviceInfo, executor);
+            }
+
+            clients.add(kinesisVideoClient);
+
+            for (int stream = 0; stream < builder.streamsPerClient; stream++) {
+                final MeasuredLoadGeneratorMediaSource mediaSource =
+                        new MeasuredLoadGeneratorMediaSource(String.format("load-%d-%d", client, stream));
+                mediaSource.configure(configuration);
+                kinesisVideoClient.registerMediaSource(mediaSource);
+                mediaSources.add(mediaSource);
+            }
+        }
+
+        for (final KinesisVideoClient kinesisVideoClient : clients) {
+            kinesisVideoClient.startAllMediaSources();
+        }
+    }
+
+    private void stopStreams() {
+        for (final KinesisVideoClient kinesisVideoClient : clients) {
+            try {
+                kinesisVideoClient.stopAllMediaSources();
+                kinesisVideoClient.free();
+            } catch (final KinesisVideoException e) {
+                log.error("Unable to stop a client", e);
+            }
+        }
+
+        for (final ScheduledExecutorService executor : clientExecutors) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void sample() {
+        peakThreadCount.accumulateAndGet(ManagementFactory.getThreadMXBean().getThreadCount(), Math::max);
+        peakHeapUsed.accumulateAndGet(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), Math::max);
+        for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                peakDirectMemoryUsed.accumulateAndGet(pool.getMemoryUsed(), Math::max);
+            }
+        }
+    }
+
+    private NotificationListener listenToGcPauses() {
+        final NotificationListener listener = new NotificationListener() {
+            @Override
+            public void handleNotification(final Notification notification, final Object handback) {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+                        notification.getType())) {
+                    return;
+                }
+
+                final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                        (CompositeData) notification.getUserData());
+                // The concurrent cycles run along the application, they are not pauses
+                if (!info.getGcName().contains("Concurrent")) {
+                    gcPausesInMillis.add(info.getGcInfo().getDuration());
+                }
+            }
+        };
+
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+        }
+
+        return listener;
+    }
+
+    private static void removeGcListener(final NotificationListener listener) {
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            try {
+                ((NotificationEmitter) collector).removeNotificationListener(listener);
+            } catch (final Exception e) {
+                // Not registered with this collector
+            }
+        }
+    }
+
+    private Snapshot snapshot(@Nullable final LocalKinesisVideoService service) {
+        final Snapshot snapshot = new Snapshot();
+        snapshot.nanos = System.nanoTime();
+        snapshot.cpuTimeInNanos = ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+        snapshot.gcPauseCount = gcPausesInMillis.size();
+        for (final MeasuredLoadGeneratorMediaSource mediaSource : mediaSources) {
+            snapshot.putByteCount += mediaSource.getByteCount();
+            snapshot.frameCount += mediaSource.getFrameCount();
+            snapshot.droppedFrameCount += mediaSource.getDroppedFrameCount();
+            snapshot.errorCount += mediaSource.getErrorCount();
+            snapshot.ackLatenciesInNanos.addAll(mediaSource.takeAckLatenciesInNanos());
+            if (service != null) {
+                snapshot.uploadedByteCount += service.getByteCount(mediaSource.getStreamInfo().getName());
+            }
+        }
+
+        return snapshot;
+    }
+
+    private LoadReport report(final Snapshot start, final Snapshot end, final boolean isLocalServiceInProcess) {
+        final List<Long> pauses;
+        synchronized (gcPausesInMillis) {
+            pauses = new ArrayList<Long>(gcPausesInMillis.subList(start.gcPauseCount, end.gcPauseCount));
+        }
+
+        long pauseTime = 0;
+        long maxPause = 0;
+        for (final long pause : pauses) {
+            pauseTime += pause;
+            maxPause = Math.max(maxPause, pause);
+        }
+
+        // The ACKs taken at the start of the window belong to the warm-up
+        final List<Long> ackLatencies = new ArrayList<Long>(end.ackLatenciesInNanos);
+        Collections.sort(ackLatencies);
+        return new LoadReport(builder.clientCount,
+                builder.clientCount * builder.streamsPerClient,
+                end.nanos - start.nanos,
+                end.putByteCount - start.putByteCount,
+                end.uploadedByteCount - start.uploadedByteCount,
+                end.frameCount - start.frameCount,
+                end.droppedFrameCount - start.droppedFrameCount,
+                end.errorCount - start.errorCount,
+                end.cpuTimeInNanos - start.cpuTimeInNanos,
+                isLocalServiceInProcess,
+                peakThreadCount.get(),
+                peakHeapUsed.get(),
+                peakDirectMemoryUsed.get(),
+                pauses.size(),
+                pauseTime,
+                maxPause,
+                ackLatencies);
+    }
+
+    private static final class Snapshot {
+        private final List<Long> ackLatenciesInNanos = new ArrayList<Long>();
+        private long nanos;
+        private long cpuTimeInNanos;
+        private int gcPauseCount;
+        private long putByteCount;
+        private long uploadedByteCount;
+        private long frameCount;
+        private long droppedFrameCount;
+        private long errorCount;
+    }
+
+    public static final class Builder {
+        private int clientCount = DEFAULT_CLIENT_COUNT;
+        private int streamsPerClient = DEFAULT_STREAMS_PER_CLIENT;
+        private long bitrateInKbps = DEFAULT_BITRATE_IN_KBPS;
+        private int fps = 30;
+        private int gopLength = 60;
+        private double keyFrameRatio = 4.0;
+        private long warmUpInSeconds = 5;
+        private long durationInSeconds = DEFAULT_DURATION_IN_SECONDS;
+        private long ackDelayInMillis = 100;
+        private long roundTripTimeInMillis;
+        private String endpoint;
+        private boolean isLoopbackProducer;
+        private String accessKey = "AKIDEXAMPLE";
+        private String secretKey = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+
+        public Builder clientCount(final int clientCount) {
+            this.clientCount = clientCount;
+            return this;
+        }
+
+        public Builder streamsPerClient(final int streamsPerClient) {
+            this.streamsPerClient = streamsPerClient;
+            return this;
+        }
+
+        public Builder bitrateInKbps(final long bitrateInKbps) {
+            this.bitrateInKbps = bitrateInKbps;
+            return this;
+        }
+
+        /**
+         * @param fps Frame rate of every stream
+         * @param gopLength Number of frames of a fragment
+         * @param keyFrameRatio Size of the key frames relative to the other frames
+         */
+        public Builder frames(final int fps, final int gopLength, final double keyFrameRatio) {
+            this.fps = fps;
+            this.gopLength = gopLength;
+            this.keyFrameRatio = keyFrameRatio;
+            return this;
+        }
+
+        /**
+         * @param warmUpInSeconds Time the streams run before the measurement window starts
+         */
+        public Builder warmUpInSeconds(final long warmUpInSeconds) {
+            this.warmUpInSeconds = warmUpInSeconds;
+            return this;
+        }
+
+        /**
+         * @param durationInSeconds Length of the measurement window
+         */
+        public Builder durationInSeconds(final long durationInSeconds) {
+            this.durationInSeconds = durationInSeconds;
+            return this;
+        }
+
+        /**
+         * @param ackDelayInMillis Delay of the RECEIVED and PERSISTED ACKs of the local stand-in
+         * @param roundTripTimeInMillis Round trip time of the local stand-in
+         */
+        public Builder localLatencies(final long ackDelayInMillis, final long roundTripTimeInMillis) {
+            this.ackDelayInMillis = ackDelayInMillis;
+            this.roundTripTimeInMillis = roundTripTimeInMillis;
+            return this;
+        }
+
+        /**
+         * @param endpoint Endpoint to upload to instead of a local stand-in started in the process
+         */
+        public Builder endpoint(@Nullable final String endpoint) {
+            this.endpoint = endpoint;
+            return this;
+        }
+
+        /**
+         * @param isLoopbackProducer Whether the clients run on the loopback producer instead of the native one
+         */
+        public Builder loopbackProducer(final boolean isLoopbackProducer) {
+            this.isLoopbackProducer = isLoopbackProducer;
+            return this;
+        }
+
+        public Builder credentials(final String accessKey, final String secretKey) {
+            this.accessKey = accessKey;
+            this.secretKey = secretKey;
+            return this;
+        }
+
+        public LoadHarness build() {
+            checkArgument(clientCount > 0, "Client count must be positive");
+            checkArgument(streamsPerClient > 0, "Stream count must be positive");
+            checkArgument(bitrateInKbps > 0, "Bitrate must be positive");
+            checkArgument(durationInSeconds > 0, "Duration must be positive");
+            return new LoadHarness(this);
+        }
+    }
+}
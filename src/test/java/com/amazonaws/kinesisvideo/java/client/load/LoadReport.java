@@ -0,0 +1,169 @@
+package com.amazonaws.kinesisvideo.java.client.load;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a {@link LoadHarness} run, over its measurement window.
+ */
+@Immutable
+public final class LoadReport {
+    private static final double BYTES_IN_MB = 1024.0 * 1024.0;
+    private static final double NANOS_IN_A_MILLI = 1000000.0;
+
+    private final int clientCount;
+    private final int streamCount;
+    private final long durationInNanos;
+    private final long putByteCount;
+    private final long uploadedByteCount;
+    private final long frameCount;
+    private final long droppedFrameCount;
+    private final long errorCount;
+    private final long cpuTimeInNanos;
+    private final boolean isLocalServiceInProcess;
+    private final int peakThreadCount;
+    private final long peakHeapUsed;
+    private final long peakDirectMemoryUsed;
+    private final long gcPauseCount;
+    private final long gcPauseTimeInMillis;
+    private final long maxGcPauseInMillis;
+    private final List<Long> sortedAckLatenciesInNanos;
+
+    // CHECKSTYLE:SUPPRESS:ParameterNumber
+    LoadReport(final int clientCount,
+               final int streamCount,
+               final long durationInNanos,
+               final long putByteCount,
+               final long uploadedByteCount,
+               final long frameCount,
+               final long droppedFrameCount,
+               final long errorCount,
+               final long cpuTimeInNanos,
+               final boolean isLocalServiceInProcess,
+               final int peakThreadCount,
+               final long peakHeapUsed,
+               final long peakDirectMemoryUsed,
+               final long gcPauseCount,
+               final long gcPauseTimeInMillis,
+               final long maxGcPauseInMillis,
+               final List<Long> sortedAckLatenciesInNanos) {
+        this.clientCount = clientCount;
+        this.streamCount = streamCount;
+        this.durationInNanos = durationInNanos;
+        this.putByteCount = putByteCount;
+        this.uploadedByteCount = uploadedByteCount;
+        this.frameCount = frameCount;
+        this.droppedFrameCount = droppedFrameCount;
+        this.errorCount = errorCount;
+        this.cpuTimeInNanos = cpuTimeInNanos;
+        this.isLocalServiceInProcess = isLocalServiceInProcess;
+        this.peakThreadCount = peakThreadCount;
+        this.peakHeapUsed = peakHeapUsed;
+        this.peakDirectMemoryUsed = peakDirectMemoryUsed;
+        this.gcPauseCount = gcPauseCount;
+        this.gcPauseTimeInMillis = gcPauseTimeInMillis;
+        this.maxGcPauseInMillis = maxGcPauseInMillis;
+        this.sortedAckLatenciesInNanos = Collections.unmodifiableList(sortedAckLatenciesInNanos);
+    }
+
+    /**
+     * @return frame data put into the streams, in MB/s
+     */
+    public double getPutMegabytesPerSecond() {
+        return putByteCount / BYTES_IN_MB / (durationInNanos / 1e9);
+    }
+
+    /**
+     * @return MKV data the local stand-in received, in MB/s, or 0 when running against another endpoint
+     */
+    public double getUploadedMegabytesPerSecond() {
+        return uploadedByteCount / BYTES_IN_MB / (durationInNanos / 1e9);
+    }
+
+    /**
+     * @return CPU time of the whole process per stream, in percent of a core, so not of the producers alone: it includes
+     * the local stand-in when it runs in the process
+     */
+    public double getProcessCpuPercentPerStream() {
+        return 100.0 * cpuTimeInNanos / durationInNanos / streamCount;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public int getPeakThreadCount() {
+        return peakThreadCount;
+    }
+
+    public long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    public long getPeakDirectMemoryUsed() {
+        return peakDirectMemoryUsed;
+    }
+
+    public long getGcPauseCount() {
+        return gcPauseCount;
+    }
+
+    public long getGcPauseTimeInMillis() {
+        return gcPauseTimeInMillis;
+    }
+
+    public long getMaxGcPauseInMillis() {
+        return maxGcPauseInMillis;
+    }
+
+    public int getAckCount() {
+        return sortedAckLatenciesInNanos.size();
+    }
+
+    /**
+     * @param percentile Percentile, from 0 to 100
+     * @return ACK latency at the percentile, from the put of the key frame of a fragment to its PERSISTED ACK, or -1
+     * without ACKs
+     */
+    public long getAckLatencyInNanos(final double percentile) {
+        if (sortedAckLatenciesInNanos.isEmpty()) {
+            return -1;
+        }
+
+        final int index = (int) Math.ceil(percentile / 100.0 * sortedAckLatenciesInNanos.size()) - 1;
+        return sortedAckLatenciesInNanos.get(Math.max(0, Math.min(index, sortedAckLatenciesInNanos.size() - 1)));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%d clients x %d streams over %.1f s%n",
+                clientCount, streamCount / clientCount, durationInNanos / 1e9));
+        report.append(String.format(Locale.US, "  throughput     put %.2f MB/s, uploaded %.2f MB/s%n",
+                getPutMegabytesPerSecond(), getUploadedMegabytesPerSecond()));
+        report.append(String.format(Locale.US, "  frames         %d put, %d dropped, %d stream errors%n",
+                frameCount, droppedFrameCount, errorCount));
+        report.append(String.format(Locale.US, "  process cpu    %.2f%% of a core per stream%s%n",
+                getProcessCpuPercentPerStream(), isLocalServiceInProcess ? ", local stand-in included" : ""));
+        report.append(String.format(Locale.US, "  threads        %d at peak%n", peakThreadCount));
+        report.append(String.format(Locale.US, "  memory         heap %.1f MB, direct %.1f MB at peak%n",
+                peakHeapUsed / BYTES_IN_MB, peakDirectMemoryUsed / BYTES_IN_MB));
+        report.append(String.format(Locale.US, "  gc pauses      %d, %d ms in total, %d ms at most%n",
+                gcPauseCount, gcPauseTimeInMillis, maxGcPauseInMillis));
+        report.append(String.format(Locale.US,
+                "  ack latency    %d ACKs, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                getAckCount(), getAckLatencyInNanos(50) / NANOS_IN_A_MILLI, getAckLatencyInNanos(90) / NANOS_IN_A_MILLI,
+                getAckLatencyInNanos(99) / NANOS_IN_A_MILLI, getAckLatencyInNanos(100) / NANOS_IN_A_MILLI));
+        return report.toString();
+    }
+}
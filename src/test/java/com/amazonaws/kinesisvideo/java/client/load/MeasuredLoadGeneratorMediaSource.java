@@ -0,0 +1,161 @@
+package com.amazonaws.kinesisvideo.java.client.load;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.client.mediasource.MediaSourceSink;
+import com.amazonaws.kinesisvideo.internal.mediasource.bytes.LoadGeneratorMediaSource;
+import com.amazonaws.kinesisvideo.internal.producer.KinesisVideoProducerStream;
+import com.amazonaws.kinesisvideo.producer.FragmentAckType;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFragmentAck;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.ProducerException;
+import com.amazonaws.kinesisvideo.producer.StreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.DefaultStreamCallbacks;
+import com.amazonaws.kinesisvideo.streaming.ForwardingStreamCallbacks;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+
+/**
+ * Load generator media source counting what it puts into its stream and timing the ACKs of its fragments.
+ * <p>
+ * The ACK latency of a fragment runs from the put of its key frame to its PERSISTED ACK, the key frame being the last
+ * one put at or before the timecode of the ACK.
+ */
+final class MeasuredLoadGeneratorMediaSource extends LoadGeneratorMediaSource {
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    private final AtomicLong droppedFrameCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final List<Long> ackLatenciesInNanos = new ArrayList<Long>();
+
+    /**
+     * Nano time of the put of the key frames not acknowledged yet, by their timecode in milliseconds
+     */
+    private final ConcurrentNavigableMap<Long, Long> keyFramePutNanos = new ConcurrentSkipListMap<Long, Long>();
+
+    private StreamCallbacks streamCallbacks;
+
+    MeasuredLoadGeneratorMediaSource(@Nonnull final String streamName) {
+        super(streamName);
+    }
+
+    @Override
+    public void initialize(@Nonnull final MediaSourceSink mediaSourceSink) throws KinesisVideoException {
+        super.initialize(new MediaSourceSink() {
+            @Override
+            public void onFrame(@Nonnull final KinesisVideoFrame kinesisVideoFrame) throws KinesisVideoException {
+                if (FrameFlags.isKeyFrame(kinesisVideoFrame.getFlags())) {
+                    keyFramePutNanos.put(kinesisVideoFrame.getDecodingTs() / HUNDREDS_OF_NANOS_IN_A_MILLISECOND,
+                            System.nanoTime());
+                }
+
+                mediaSourceSink.onFrame(kinesisVideoFrame);
+                frameCount.incrementAndGet();
+                byteCount.addAndGet(kinesisVideoFrame.getSize());
+            }
+
+            @Override
+            public void onCodecPrivateData(@Nullable final byte[] codecPrivateData) throws KinesisVideoException {
+                mediaSourceSink.onCodecPrivateData(codecPrivateData);
+            }
+
+            @Override
+            public void onCodecPrivateData(@Nullable final byte[] codecPrivateData, final int trackId)
+                    throws KinesisVideoException {
+                mediaSourceSink.onCodecPrivateData(codecPrivateData, trackId);
+            }
+
+            @Override
+            public void onFragmentMetadata(@Nonnull final String metadataName, @Nonnull final String metadataValue,
+                                           final boolean persistent) throws KinesisVideoException {
+                mediaSourceSink.onFragmentMetadata(metadataName, metadataValue, persistent);
+            }
+
+            @Override
+            public KinesisVideoProducerStream getProducerStream() {
+                return mediaSourceSink.getProducerStream();
+            }
+        });
+    }
+
+    @Nullable
+    @Override
+    public synchronized StreamCallbacks getStreamCallbacks() {
+        if (streamCallbacks == null) {
+            streamCallbacks = new ForwardingStreamCallbacks(new DefaultStreamCallbacks()) {
+                @Override
+                public void fragmentAckReceived(final long uploadHandle,
+                                                @Nonnull final KinesisVideoFragmentAck fragmentAck)
+                        throws ProducerException {
+                    if (fragmentAck.getAckType().getIntType() == FragmentAckType.FRAGMENT_ACK_TYPE_PERSISTED) {
+                        onPersisted(fragmentAck.getTimestamp() / HUNDREDS_OF_NANOS_IN_A_MILLISECOND);
+                    }
+
+                    super.fragmentAckReceived(uploadHandle, fragmentAck);
+                }
+
+                @Override
+                public void droppedFrameReport(final long frameTimecode) throws ProducerException {
+                    droppedFrameCount.incrementAndGet();
+                    super.droppedFrameReport(frameTimecode);
+                }
+
+                @Override
+                public void streamErrorReport(final long uploadHandle, final long fragmentTimecode,
+                                              final long statusCode) throws ProducerException {
+                    errorCount.incrementAndGet();
+                    super.streamErrorReport(uploadHandle, fragmentTimecode, statusCode);
+                }
+            };
+        }
+
+        return streamCallbacks;
+    }
+
+    long getFrameCount() {
+        return frameCount.get();
+    }
+
+    long getByteCount() {
+        return byteCount.get();
+    }
+
+    long getDroppedFrameCount() {
+        return droppedFrameCount.get();
+    }
+
+    long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Hands over the ACK latencies measured since the last call.
+     */
+    synchronized List<Long> takeAckLatenciesInNanos() {
+        final List<Long> latencies = new ArrayList<Long>(ackLatenciesInNanos);
+        ackLatenciesInNanos.clear();
+        return latencies;
+    }
+
+    private void onPersisted(final long timecodeInMillis) {
+        final Map.Entry<Long, Long> keyFrame = keyFramePutNanos.floorEntry(timecodeInMillis);
+        if (keyFrame == null) {
+            return;
+        }
+
+        final long latency = System.nanoTime() - keyFrame.getValue();
+        keyFramePutNanos.headMap(keyFrame.getKey(), true).clear();
+        synchronized (this) {
+            ackLatenciesInNanos.add(latency);
+        }
+    }
+}
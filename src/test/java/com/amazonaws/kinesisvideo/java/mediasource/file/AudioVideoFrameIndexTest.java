@@ -0,0 +1,79 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_KEY_FRAME;
+import static com.amazonaws.kinesisvideo.producer.FrameFlags.FRAME_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.AUDIO_TRACK_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VIDEO_TRACK_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AudioVideoFrameIndexTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("frames");
+        writeFrame("200000000-video-false-frame", 3, 30);
+        writeFrame("1000-video-true-frame", 1, 10);
+        writeFrame("100000000-audio-true-frame", 2, 20);
+    }
+
+    @Test
+    public void test_fromDirectory_indexesFramesSortedByTimecode() throws Exception {
+        assertIndex(AudioVideoFrameIndex.load(directory));
+    }
+
+    @Test
+    public void test_fromPackedFile_matchesDirectory() throws Exception {
+        final Path packedFile = folder.getRoot().toPath().resolve("frames.kvsf");
+        AudioVideoFrameIndex.pack(directory, packedFile);
+
+        assertIndex(AudioVideoFrameIndex.load(packedFile.toFile()));
+    }
+
+    private static void assertIndex(final AudioVideoFrameIndex index) {
+        assertEquals(3, index.getNumberOfFrames());
+
+        assertEquals(1000L, index.getTimecodeInNanos(0));
+        assertEquals(VIDEO_TRACK_ID, index.getTrackId(0));
+        assertEquals(FRAME_FLAG_KEY_FRAME, index.getFlags(0));
+
+        assertEquals(100000000L, index.getTimecodeInNanos(1));
+        assertEquals(AUDIO_TRACK_ID, index.getTrackId(1));
+        assertEquals(FRAME_FLAG_NONE, index.getFlags(1));
+
+        assertEquals(200000000L, index.getTimecodeInNanos(2));
+        assertEquals(FRAME_FLAG_NONE, index.getFlags(2));
+
+        for (int i = 0; i < 3; i++) {
+            final ByteBuffer data = index.getFrameData(i);
+            assertTrue(data.isReadOnly());
+            assertTrue(data.isDirect());
+            assertEquals((i + 1) * 10, data.remaining());
+            assertEquals(i + 1, data.get(0));
+
+            // Consuming the frame data does not affect the next replay
+            data.position(data.limit());
+            assertEquals((i + 1) * 10, index.getFrameData(i).remaining());
+        }
+    }
+
+    private void writeFrame(final String fileName, final int marker, final int size) throws Exception {
+        final byte[] frame = new byte[size];
+        frame[0] = (byte) marker;
+        Files.write(new File(directory, fileName).toPath(), frame);
+    }
+}
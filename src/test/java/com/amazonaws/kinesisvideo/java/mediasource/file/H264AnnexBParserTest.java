@@ -0,0 +1,131 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class H264AnnexBParserTest {
+    private static final byte[] FOUR_BYTE_START_CODE = {0, 0, 0, 1};
+    private static final byte[] THREE_BYTE_START_CODE = {0, 0, 1};
+    private static final byte[] SPS = {
+            (byte) 0x27, (byte) 0x42, (byte) 0x00, (byte) 0x1E, (byte) 0x89, (byte) 0x8B, (byte) 0x60, (byte) 0x50,
+            (byte) 0x1E, (byte) 0xD8, (byte) 0x08, (byte) 0x80, (byte) 0x00, (byte) 0x13, (byte) 0x88,
+            (byte) 0x00, (byte) 0x03, (byte) 0xD0, (byte) 0x90, (byte) 0x70, (byte) 0x30, (byte) 0x00, (byte) 0x5D,
+            (byte) 0xC0, (byte) 0x00, (byte) 0x17, (byte) 0x70, (byte) 0x5E, (byte) 0xF7, (byte) 0xC1, (byte) 0xF0,
+            (byte) 0x88, (byte) 0x46, (byte) 0xE0};
+    private static final byte[] PPS = {(byte) 0x28, (byte) 0xCE, (byte) 0x1F, (byte) 0x20};
+    private static final byte[] CODEC_PRIVATE_DATA = {
+            (byte) 0x01, (byte) 0x42, (byte) 0x00, (byte) 0x1E, (byte) 0xFF, (byte) 0xE1, (byte) 0x00, (byte) 0x22,
+            (byte) 0x27, (byte) 0x42, (byte) 0x00, (byte) 0x1E, (byte) 0x89, (byte) 0x8B, (byte) 0x60, (byte) 0x50,
+            (byte) 0x1E, (byte) 0xD8, (byte) 0x08, (byte) 0x80, (byte) 0x00, (byte) 0x13, (byte) 0x88,
+            (byte) 0x00, (byte) 0x03, (byte) 0xD0, (byte) 0x90, (byte) 0x70, (byte) 0x30, (byte) 0x00, (byte) 0x5D,
+            (byte) 0xC0, (byte) 0x00, (byte) 0x17, (byte) 0x70, (byte) 0x5E, (byte) 0xF7, (byte) 0xC1, (byte) 0xF0,
+            (byte) 0x88, (byte) 0x46, (byte) 0xE0, (byte) 0x01, (byte) 0x00, (byte) 0x04, (byte) 0x28, (byte) 0xCE,
+            (byte) 0x1F, (byte) 0x20};
+
+    // Slices, the first one of a picture has the first bit after the NAL header set
+    private static final byte[] IDR_FIRST_SLICE = {(byte) 0x65, (byte) 0x88, (byte) 0x84, 0, 0, 3, 0, (byte) 0x21};
+    private static final byte[] IDR_SECOND_SLICE = {(byte) 0x65, (byte) 0x48, (byte) 0x10, (byte) 0x33};
+    private static final byte[] NON_IDR_SLICE = {(byte) 0x41, (byte) 0x9A, 0, 0, 3, 1, (byte) 0x7F, 0};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_nextAccessUnit_groupsNalUnitsIntoFrames() throws Exception {
+        final byte[] stream = createStream();
+        final H264AnnexBParser parser = new H264AnnexBParser(ByteBuffer.wrap(stream));
+
+        final H264AnnexBParser.AccessUnit keyFrame = parser.nextAccessUnit();
+        assertTrue(keyFrame.isKeyFrame());
+        assertArrayEquals(CODEC_PRIVATE_DATA, keyFrame.getCodecPrivateData());
+        assertEquals(4 + SPS.length + 4 + PPS.length + 3 + IDR_FIRST_SLICE.length + 3 + IDR_SECOND_SLICE.length,
+                keyFrame.getData().remaining());
+        assertTrue(keyFrame.getData().isReadOnly());
+
+        final H264AnnexBParser.AccessUnit firstFrame = parser.nextAccessUnit();
+        assertFalse(firstFrame.isKeyFrame());
+        assertNull(firstFrame.getCodecPrivateData());
+        // Trailing zero of the slice goes with the next four byte start code
+        assertEquals(4 + NON_IDR_SLICE.length - 1, firstFrame.getData().remaining());
+
+        final H264AnnexBParser.AccessUnit secondFrame = parser.nextAccessUnit();
+        assertFalse(secondFrame.isKeyFrame());
+        assertEquals(1 + 4 + NON_IDR_SLICE.length, secondFrame.getData().remaining());
+        assertNull(parser.nextAccessUnit());
+
+        // Replaying does not report the parameter sets again
+        parser.rewind();
+        assertTrue(parser.nextAccessUnit().isKeyFrame());
+        assertArrayEquals(CODEC_PRIVATE_DATA, parser.readCodecPrivateData());
+        assertFalse(parser.nextAccessUnit().isKeyFrame());
+    }
+
+    @Test
+    public void test_open_mapsFileAndReadsCodecPrivateData() throws Exception {
+        final File file = temporaryFolder.newFile("stream.h264");
+        Files.write(file.toPath(), createStream());
+
+        final H264AnnexBParser parser = H264AnnexBParser.open(file.toPath());
+        assertArrayEquals(CODEC_PRIVATE_DATA, parser.readCodecPrivateData());
+
+        final H264AnnexBParser.AccessUnit keyFrame = parser.nextAccessUnit();
+        assertTrue(keyFrame.isKeyFrame());
+        assertTrue(keyFrame.getData().isDirect());
+        assertNull(keyFrame.getCodecPrivateData());
+    }
+
+    @Test
+    public void test_findStartCode_matchesByteByByteSearch() {
+        final Random random = new Random(42);
+        final byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            // Mostly small values so that zeros and start codes show up at every alignment
+            data[i] = (byte) random.nextInt(3);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (int from = 0; from < data.length; from++) {
+            assertEquals(naiveFindStartCode(data, from), H264AnnexBParser.findStartCode(buffer, from, data.length));
+        }
+    }
+
+    private static int naiveFindStartCode(final byte[] data, final int from) {
+        for (int i = from; i + 2 < data.length; i++) {
+            if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static byte[] createStream() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(FOUR_BYTE_START_CODE);
+        stream.write(SPS);
+        stream.write(FOUR_BYTE_START_CODE);
+        stream.write(PPS);
+        stream.write(THREE_BYTE_START_CODE);
+        stream.write(IDR_FIRST_SLICE);
+        stream.write(THREE_BYTE_START_CODE);
+        stream.write(IDR_SECOND_SLICE);
+        stream.write(FOUR_BYTE_START_CODE);
+        stream.write(NON_IDR_SLICE);
+        stream.write(FOUR_BYTE_START_CODE);
+        stream.write(NON_IDR_SLICE);
+        return stream.toByteArray();
+    }
+}
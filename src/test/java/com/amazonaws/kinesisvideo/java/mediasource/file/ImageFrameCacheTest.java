@@ -0,0 +1,96 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImageFrameCacheTest {
+    private static final int NUMBER_OF_FILES = 4;
+    private static final int FILE_SIZE = 100;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageFileMediaSourceConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 1; i <= NUMBER_OF_FILES; i++) {
+            final byte[] image = new byte[FILE_SIZE];
+            image[0] = (byte) i;
+            Files.write(new File(folder.getRoot(), String.format("frame-%03d.h264", i)).toPath(), image);
+        }
+
+        configuration = new ImageFileMediaSourceConfiguration.Builder()
+                .fps(25)
+                .dir(folder.getRoot().getAbsolutePath() + File.separator)
+                .filenameFormat("frame-%03d.h264")
+                .startFileIndex(1)
+                .endFileIndex(NUMBER_OF_FILES)
+                .build();
+    }
+
+    @Test
+    public void test_getFrameData_loopsOverFilesAsReadOnlySlices() throws Exception {
+        final ImageFrameCache cache = new ImageFrameCache(configuration);
+        cache.preload();
+        assertEquals(NUMBER_OF_FILES, cache.getNumberOfCachedFiles());
+
+        for (int frame = 0; frame < 2 * NUMBER_OF_FILES; frame++) {
+            final ByteBuffer data = cache.getFrameData(frame);
+            assertTrue(data.isReadOnly());
+            assertTrue(data.isDirect());
+            assertEquals(FILE_SIZE, data.remaining());
+            assertEquals(frame % NUMBER_OF_FILES + 1, data.get(0));
+        }
+
+        // Consuming a slice does not affect the next one
+        cache.getFrameData(0).position(FILE_SIZE);
+        assertEquals(FILE_SIZE, cache.getFrameData(0).remaining());
+    }
+
+    @Test
+    public void test_getFrameData_boundedBySize_evictsLeastRecentlyUsed() throws Exception {
+        final ImageFrameCache cache = new ImageFrameCache(configuration, 2 * FILE_SIZE + FILE_SIZE / 2);
+        cache.preload();
+        assertEquals(2, cache.getNumberOfCachedFiles());
+
+        cache.getFrameData(0);
+        cache.getFrameData(2);
+        assertEquals(2, cache.getNumberOfCachedFiles());
+        assertEquals(2 * FILE_SIZE, cache.getSizeInBytes());
+
+        // File 0 is the least recently used one by now and makes room for file 3
+        cache.getFrameData(3);
+        assertEquals(3, cache.getFrameData(2).get(0));
+        assertEquals(2, cache.getNumberOfCachedFiles());
+        assertEquals(4, cache.getFrameData(3).get(0));
+    }
+
+    @Test
+    public void test_preload_pinsFilesLargerThanTheCache() throws Exception {
+        final File oversizeFile = new File(folder.getRoot(), "frame-002.h264");
+        Files.write(oversizeFile.toPath(), new byte[3 * FILE_SIZE]);
+
+        final ImageFrameCache cache = new ImageFrameCache(configuration, 2 * FILE_SIZE + FILE_SIZE / 2);
+        cache.preload();
+        assertEquals(2, cache.getNumberOfCachedFiles());
+        assertEquals(1, cache.getNumberOfPinnedFiles());
+        assertEquals(2 * FILE_SIZE, cache.getSizeInBytes());
+
+        // The oversize file is served from the mapping made once, not from the file
+        Files.delete(oversizeFile.toPath());
+        assertEquals(3 * FILE_SIZE, cache.getFrameData(1).remaining());
+        assertEquals(3 * FILE_SIZE, cache.getFrameData(NUMBER_OF_FILES + 1).remaining());
+        assertEquals(1, cache.getNumberOfPinnedFiles());
+        assertEquals(3, cache.getFrameData(2).get(0));
+    }
+}
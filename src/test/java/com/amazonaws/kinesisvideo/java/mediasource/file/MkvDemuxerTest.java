@@ -0,0 +1,141 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MkvDemuxerTest {
+    private static final String MKV_FILE = "src/main/resources/data/mkv/clusters.mkv";
+    private static final long NANOS_IN_A_MILLISECOND = 1000000;
+
+    @Test
+    public void test_open_readsTracksAndFramesOfSampleFile() throws Exception {
+        final MkvDemuxer demuxer = MkvDemuxer.open(Paths.get(MKV_FILE));
+
+        assertEquals(1, demuxer.getTracks().size());
+        final MkvDemuxer.Track track = demuxer.getTracks().get(0);
+        assertEquals(1, track.getTrackNumber());
+        assertEquals(MkvTrackInfoType.VIDEO, track.getTrackType());
+        assertEquals("V_MPEG4/ISO/AVC", track.getCodecId());
+        assertEquals(29, track.getCodecPrivateData().length);
+
+        assertTrue(demuxer.nextFrame());
+        assertTrue(demuxer.isFrameKeyFrame());
+        assertEquals(1, demuxer.getFrameTrackNumber());
+        assertEquals(0, demuxer.getFrameTimecodeInNanos());
+        assertEquals(58274 - 4, demuxer.getFrameData().remaining());
+
+        assertTrue(demuxer.nextFrame());
+        assertFalse(demuxer.isFrameKeyFrame());
+        assertEquals(22 * NANOS_IN_A_MILLISECOND, demuxer.getFrameTimecodeInNanos());
+
+        int numberOfFrames = 2;
+        int numberOfKeyFrames = 1;
+        while (demuxer.nextFrame()) {
+            numberOfFrames++;
+            numberOfKeyFrames += demuxer.isFrameKeyFrame() ? 1 : 0;
+        }
+        assertTrue(numberOfKeyFrames > 1);
+
+        demuxer.rewind();
+        int numberOfReplayedFrames = 0;
+        while (demuxer.nextFrame()) {
+            numberOfReplayedFrames++;
+        }
+        assertEquals(numberOfFrames, numberOfReplayedFrames);
+    }
+
+    @Test
+    public void test_nextFrame_handlesUnknownSizesBlockGroupsAndLacing() throws Exception {
+        final ByteArrayOutputStream tracks = new ByteArrayOutputStream();
+        writeElement(tracks, MkvDemuxer.TRACK_ENTRY_ID, concat(
+                element(MkvDemuxer.TRACK_NUMBER_ID, new byte[] {2}),
+                element(MkvDemuxer.TRACK_TYPE_ID, new byte[] {2}),
+                element(MkvDemuxer.CODEC_ID_ID, "A_AAC".getBytes("US-ASCII"))));
+
+        final ByteArrayOutputStream cluster = new ByteArrayOutputStream();
+        writeElement(cluster, MkvDemuxer.TIMECODE_ID, new byte[] {0x03, (byte) 0xE8});
+        // Key frame in a block group, then a delta frame referencing it, then a laced block
+        writeElement(cluster, MkvDemuxer.BLOCK_GROUP_ID,
+                element(MkvDemuxer.BLOCK_ID, new byte[] {(byte) 0x82, 0, 10, 0, 1, 2}));
+        writeElement(cluster, MkvDemuxer.BLOCK_GROUP_ID, concat(
+                element(MkvDemuxer.BLOCK_ID, new byte[] {(byte) 0x82, 0, 20, 0, 3}),
+                element(MkvDemuxer.REFERENCE_BLOCK_ID, new byte[] {(byte) 0xF6})));
+        writeElement(cluster, MkvDemuxer.SIMPLE_BLOCK_ID, new byte[] {(byte) 0x82, 0, 30, (byte) 0x82, 0, 4, 5});
+        writeElement(cluster, MkvDemuxer.SIMPLE_BLOCK_ID, new byte[] {(byte) 0x82, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0x80, 6});
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        writeElement(file, MkvDemuxer.EBML_ID, element(0x4282, "matroska".getBytes("US-ASCII")));
+        writeUnknownSizeHeader(file, MkvDemuxer.SEGMENT_ID);
+        writeElement(file, MkvDemuxer.TRACKS_ID, tracks.toByteArray());
+        writeUnknownSizeHeader(file, MkvDemuxer.CLUSTER_ID);
+        file.write(cluster.toByteArray());
+
+        final MkvDemuxer demuxer = new MkvDemuxer(ByteBuffer.wrap(file.toByteArray()));
+        assertEquals(MkvTrackInfoType.AUDIO, demuxer.getTracks().get(0).getTrackType());
+
+        assertTrue(demuxer.nextFrame());
+        assertTrue(demuxer.isFrameKeyFrame());
+        assertEquals(2, demuxer.getFrameTrackNumber());
+        assertEquals(1010 * NANOS_IN_A_MILLISECOND, demuxer.getFrameTimecodeInNanos());
+        assertEquals(2, demuxer.getFrameData().remaining());
+
+        assertTrue(demuxer.nextFrame());
+        assertFalse(demuxer.isFrameKeyFrame());
+        assertEquals(1020 * NANOS_IN_A_MILLISECOND, demuxer.getFrameTimecodeInNanos());
+
+        assertTrue(demuxer.nextFrame());
+        assertTrue(demuxer.isFrameKeyFrame());
+        assertEquals(999 * NANOS_IN_A_MILLISECOND, demuxer.getFrameTimecodeInNanos());
+        assertEquals(6, demuxer.getFrameData().get());
+
+        assertFalse(demuxer.nextFrame());
+        assertEquals(1, demuxer.getSkippedLacedBlockCount());
+    }
+
+    static byte[] element(final int id, final byte[] payload) throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeElement(stream, id, payload);
+        return stream.toByteArray();
+    }
+
+    static byte[] concat(final byte[]... parts) throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (final byte[] part : parts) {
+            stream.write(part);
+        }
+        return stream.toByteArray();
+    }
+
+    static void writeElement(final ByteArrayOutputStream stream, final int id, final byte[] payload)
+            throws Exception {
+        writeId(stream, id);
+        // Eight byte size
+        stream.write(0x01);
+        for (int i = 6; i >= 0; i--) {
+            stream.write((int) ((long) payload.length >>> (8 * i)) & 0xFF);
+        }
+        stream.write(payload);
+    }
+
+    static void writeUnknownSizeHeader(final ByteArrayOutputStream stream, final int id) {
+        writeId(stream, id);
+        stream.write(0xFF);
+    }
+
+    private static void writeId(final ByteArrayOutputStream stream, final int id) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            if ((id >>> shift) != 0) {
+                stream.write((id >>> shift) & 0xFF);
+            }
+        }
+    }
+}
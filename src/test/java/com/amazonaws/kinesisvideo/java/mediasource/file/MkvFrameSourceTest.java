@@ -0,0 +1,59 @@
+package com.amazonaws.kinesisvideo.java.mediasource.file;
+
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.internal.mediasource.pacing.PacingClock;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+
+import static com.amazonaws.kinesisvideo.java.mediasource.file.MkvDemuxerTest.element;
+import static com.amazonaws.kinesisvideo.java.mediasource.file.MkvDemuxerTest.writeElement;
+import static com.amazonaws.kinesisvideo.java.mediasource.file.MkvDemuxerTest.writeUnknownSizeHeader;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MkvFrameSourceTest {
+    private static final String MKV_FILE = "src/main/resources/data/mkv/clusters.mkv";
+
+    private final PacingClock pacingClock = new PacingClock("MkvFrameSourceTest", 1);
+
+    @After
+    public void tearDown() {
+        pacingClock.shutdown();
+    }
+
+    @Test
+    public void test_start_replaysFramesInPresentationOrder() throws Exception {
+        final MkvFrameSource frameSource = new MkvFrameSource(MkvDemuxer.open(Paths.get(MKV_FILE)), pacingClock);
+        frameSource.start();
+        frameSource.stop();
+    }
+
+    @Test
+    public void test_start_rejectsBFrames() throws Exception {
+        final ByteArrayOutputStream cluster = new ByteArrayOutputStream();
+        writeElement(cluster, MkvDemuxer.TIMECODE_ID, new byte[] {0});
+        // I, P, B, B in decoding order, the B-frames are presented before the P-frame
+        writeElement(cluster, MkvDemuxer.SIMPLE_BLOCK_ID, new byte[] {(byte) 0x81, 0, 0, (byte) 0x80, 1});
+        writeElement(cluster, MkvDemuxer.SIMPLE_BLOCK_ID, new byte[] {(byte) 0x81, 0, 99, 0, 2});
+        writeElement(cluster, MkvDemuxer.SIMPLE_BLOCK_ID, new byte[] {(byte) 0x81, 0, 33, 0, 3});
+        writeElement(cluster, MkvDemuxer.SIMPLE_BLOCK_ID, new byte[] {(byte) 0x81, 0, 66, 0, 4});
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        writeElement(file, MkvDemuxer.EBML_ID, element(0x4282, "matroska".getBytes("US-ASCII")));
+        writeUnknownSizeHeader(file, MkvDemuxer.SEGMENT_ID);
+        writeElement(file, MkvDemuxer.CLUSTER_ID, cluster.toByteArray());
+
+        final MkvFrameSource frameSource = new MkvFrameSource(new MkvDemuxer(ByteBuffer.wrap(file.toByteArray())),
+                pacingClock);
+        try {
+            frameSource.start();
+            fail("Expected the B-frames to be rejected");
+        } catch (final KinesisVideoException e) {
+            assertTrue(e.getMessage().contains("B-frames"));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.amazonaws.kinesisvideo.java.service;
+
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import org.apache.logging.log4j.LogManager;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JavaKinesisVideoServiceClientTest {
+    @Test
+    public void test_free_failsTheLaterAsyncCalls() throws Exception {
+        final JavaKinesisVideoServiceClient serviceClient =
+                new JavaKinesisVideoServiceClient(LogManager.getLogger(JavaKinesisVideoServiceClientTest.class));
+        serviceClient.initialize(KinesisVideoClientConfiguration.builder()
+                .withRegion("us-west-2")
+                .withEndpoint("https://localhost:1")
+                .build());
+        serviceClient.free();
+
+        final CompletableFuture<String> dataEndpoint =
+                serviceClient.getDataEndpointAsync("test-stream", "PUT_MEDIA", 1000, null);
+        try {
+            dataEndpoint.get(1, TimeUnit.SECONDS);
+            fail("Expected the call to fail after free");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof KinesisVideoException);
+            assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
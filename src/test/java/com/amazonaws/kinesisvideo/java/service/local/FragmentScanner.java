@@ -0,0 +1,134 @@
+package com.amazonaws.kinesisvideo.java.service.local;
+
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Incremental walker of the Matroska stream of a PutMedia upload, reporting the timecode of every Cluster, each
+ * Cluster being a fragment.
+ * <p>
+ * The Segment and the Clusters are stepped into, every other element is skipped over as a whole, so the frame data
+ * is never mistaken for element ids.
+ */
+@NotThreadSafe
+final class FragmentScanner {
+    private static final int EBML_ID = 0x1A45DFA3;
+    private static final int SEGMENT_ID = 0x18538067;
+    private static final int CLUSTER_ID = 0x1F43B675;
+    private static final int TIMECODE_ID = 0xE7;
+
+    private static final int MAX_ID_LENGTH = 4;
+    private static final int MAX_SIZE_LENGTH = 8;
+    private static final long UNKNOWN_SIZE = -1;
+
+    private final Consumer<Long> fragmentConsumer;
+    private final byte[] header = new byte[MAX_ID_LENGTH + MAX_SIZE_LENGTH];
+    private int headerLength;
+    private long skipRemaining;
+    private boolean isTimecodeExpected;
+    private int timecodeRemaining;
+    private long timecode;
+
+    FragmentScanner(@Nonnull final Consumer<Long> fragmentConsumer) {
+        this.fragmentConsumer = fragmentConsumer;
+    }
+
+    void scan(@Nonnull final byte[] data, final int offset, final int length) {
+        int position = offset;
+        final int end = offset + length;
+        while (position < end) {
+            if (skipRemaining > 0) {
+                final int skipped = (int) Math.min(skipRemaining, end - position);
+                position += skipped;
+                skipRemaining -= skipped;
+                continue;
+            }
+
+            final byte value = data[position++];
+            if (timecodeRemaining > 0) {
+                timecode = (timecode << 8) | (value & 0xFF);
+                if (--timecodeRemaining == 0) {
+                    fragmentConsumer.accept(timecode);
+                }
+
+                continue;
+            }
+
+            header[headerLength++] = value;
+            readElementHeader();
+        }
+    }
+
+    private void readElementHeader() {
+        final int idLength = vintLength(header[0]);
+        if (idLength > MAX_ID_LENGTH) {
+            // Not an element header, the walk starts over with the next byte
+            headerLength = 0;
+            return;
+        }
+
+        if (headerLength <= idLength) {
+            return;
+        }
+
+        final int sizeLength = vintLength(header[idLength]);
+        if (sizeLength > MAX_SIZE_LENGTH) {
+            headerLength = 0;
+            return;
+        }
+
+        if (headerLength < idLength + sizeLength) {
+            return;
+        }
+
+        int id = 0;
+        for (int i = 0; i < idLength; i++) {
+            id = (id << 8) | (header[i] & 0xFF);
+        }
+
+        final long size = readVint(idLength, sizeLength);
+        headerLength = 0;
+        switch (id) {
+            case SEGMENT_ID:
+                isTimecodeExpected = false;
+                return;
+            case CLUSTER_ID:
+                isTimecodeExpected = true;
+                return;
+            case TIMECODE_ID:
+                if (isTimecodeExpected) {
+                    isTimecodeExpected = false;
+                    timecode = 0;
+                    timecodeRemaining = (int) size;
+                    if (timecodeRemaining == 0) {
+                        fragmentConsumer.accept(timecode);
+                    }
+
+                    return;
+                }
+
+                skipRemaining = size;
+                return;
+            case EBML_ID:
+            default:
+                // An unknown-sized element other than those can only be stepped into
+                skipRemaining = size == UNKNOWN_SIZE ? 0 : size;
+        }
+    }
+
+    private long readVint(final int start, final int length) {
+        long value = header[start] & (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (header[start + i] & 0xFF);
+        }
+
+        return value == (1L << (7L * length)) - 1 ? UNKNOWN_SIZE : value;
+    }
+
+    private static int vintLength(final byte firstByte) {
+        final int value = firstByte & 0xFF;
+        return value == 0 ? MAX_SIZE_LENGTH + 1 : Integer.numberOfLeadingZeros(value) - 23;
+    }
+}
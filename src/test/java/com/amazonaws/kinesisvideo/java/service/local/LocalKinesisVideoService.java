@@ -0,0 +1,583 @@
+package com.amazonaws.kinesisvideo.java.service.local;
+
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottler;
+import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottlerImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkArgument;
+import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
+
+/**
+ * Stand-in for Kinesis Video Streams on the loopback interface, for load and latency testing of the uploads without
+ * the service.
+ * <p>
+ * It takes the CreateStream, DescribeStream, DeleteStream, TagStream and GetDataEndpoint calls of the SDK client, so
+ * {@code JavaKinesisVideoServiceClient} can be pointed at {@link #getEndpoint()} through the endpoint of the client
+ * configuration, GetDataEndpoint handing out the same endpoint for PutMedia.
+ * <p>
+ * PutMedia uploads are read off their chunked encoding, every Cluster of the MKV stream being a fragment, which is
+ * acknowledged with a BUFFERING ACK when it starts, and RECEIVED then PERSISTED ACKs when the next one starts or the
+ * upload ends. Every request needs SigV4 headers, which are checked for their form only.
+ * <p>
+ * The ACKs are delayed by the configured latencies plus a round trip time, which is added before every control plane
+ * response as well, and the uploads can be read at a limited bandwidth. Errors are injected as ERROR ACKs in place of
+ * the RECEIVED and PERSISTED ones, as connections reset at a fragment and as failures of the next control plane calls.
+ */
+public final class LocalKinesisVideoService implements Closeable {
+    public static final String DEFAULT_MEDIA_TYPE = "video/h264";
+    public static final String DEFAULT_DEVICE_NAME = "local-device";
+
+    private static final String ARN_FORMAT = "arn:aws:kinesisvideo:us-west-2:123456789012:stream/%s/%d";
+    private static final String FRAGMENT_NUMBER_FORMAT = "91343852333%037d";
+    private static final String STREAM_NAME_HEADER = "x-amzn-stream-name";
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String DATE_HEADER = "X-Amz-Date";
+    private static final String SIGV4_ALGORITHM = "AWS4-HMAC-SHA256 ";
+    private static final String ERROR_TYPE_HEADER = "x-amzn-ErrorType";
+    private static final String ACK_FORMAT = "{\"EventType\":\"%s\",\"FragmentTimecode\":%d,\"FragmentNumber\":\"%s\"}";
+    private static final String ERROR_ACK_FORMAT =
+            "{\"EventType\":\"ERROR\",\"FragmentTimecode\":%d,\"FragmentNumber\":\"%s\",\"ErrorId\":%d}";
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final long BITS_IN_A_KILOBIT = 1024L;
+
+    private static final Logger log = LogManager.getLogger(LocalKinesisVideoService.class);
+
+    private final Builder builder;
+    private final HttpServer server;
+    private final ExecutorService handlerExecutor;
+    private final ScheduledExecutorService ackScheduler;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ConcurrentMap<String, LocalStream> streams = new ConcurrentHashMap<String, LocalStream>();
+    private final ConcurrentMap<String, Queue<Failure>> failures = new ConcurrentHashMap<String, Queue<Failure>>();
+    private final AtomicLong fragmentNumbers = new AtomicLong();
+    private final AtomicLong streamVersions = new AtomicLong();
+
+    private LocalKinesisVideoService(final Builder builder) throws IOException {
+        this.builder = builder;
+        handlerExecutor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("KVS-LocalService-%d").setDaemon(true).build());
+        ackScheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("KVS-LocalServiceAcks").setDaemon(true).build());
+
+        for (final String streamName : builder.streamNames) {
+            createStream(streamName, DEFAULT_DEVICE_NAME, DEFAULT_MEDIA_TYPE, null, 0);
+        }
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), 0);
+        server.setExecutor(handlerExecutor);
+        for (final String operation : new String[] {"createStream", "describeStream", "deleteStream", "tagStream",
+                "getDataEndpoint"}) {
+            server.createContext("/" + operation, controlPlaneHandler(operation));
+        }
+        server.createContext("/putMedia", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                putMedia(exchange);
+            }
+        });
+        server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return endpoint of the control plane and of PutMedia, such as http://127.0.0.1:49152
+     */
+    @Nonnull
+    public String getEndpoint() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Fails the next call of the control plane operation, on top of the failures already queued for it.
+     *
+     * @param operation Operation, such as describeStream
+     * @param statusCode HTTP status of the failure
+     * @param errorCode Error code of the failure, such as ResourceNotFoundException
+     */
+    public void failNextCall(@Nonnull final String operation, final int statusCode, @Nonnull final String errorCode) {
+        Queue<Failure> queue = failures.get(operation);
+        if (queue == null) {
+            failures.putIfAbsent(operation, new ConcurrentLinkedQueue<Failure>());
+            queue = failures.get(operation);
+        }
+
+        queue.add(new Failure(statusCode, errorCode, "Injected failure"));
+    }
+
+    /**
+     * @return whether the stream exists
+     */
+    public boolean hasStream(@Nonnull final String streamName) {
+        return streams.containsKey(streamName);
+    }
+
+    /**
+     * @return number of fragments the stream started in its uploads
+     */
+    public long getFragmentCount(@Nonnull final String streamName) {
+        final LocalStream stream = streams.get(streamName);
+        return stream == null ? 0 : stream.fragmentCount.get();
+    }
+
+    /**
+     * @return number of MKV bytes the stream received in its uploads
+     */
+    public long getByteCount(@Nonnull final String streamName) {
+        final LocalStream stream = streams.get(streamName);
+        return stream == null ? 0 : stream.byteCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ackScheduler.shutdownNow();
+        handlerExecutor.shutdownNow();
+    }
+
+    private HttpHandler controlPlaneHandler(final String operation) {
+        return new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    final JsonNode request = mapper.readTree(exchange.getRequestBody());
+                    sleep(builder.roundTripTimeInMillis);
+                    checkSigned(exchange);
+                    final Failure failure = nextFailure(operation);
+                    if (failure != null) {
+                        throw failure;
+                    }
+
+                    send(exchange, 200, mapper.writeValueAsBytes(invoke(operation, request)));
+                } catch (final Failure failure) {
+                    sendFailure(exchange, failure);
+                } finally {
+                    exchange.close();
+                }
+            }
+        };
+    }
+
+    private Map<String, Object> invoke(final String operation, final JsonNode request) throws Failure {
+        final Map<String, Object> response = new LinkedHashMap<String, Object>();
+        switch (operation) {
+            case "createStream":
+                final LocalStream created = createStream(request.path("StreamName").asText(),
+                        request.path("DeviceName").asText(DEFAULT_DEVICE_NAME),
+                        request.path("MediaType").asText(DEFAULT_MEDIA_TYPE),
+                        request.hasNonNull("KmsKeyId") ? request.get("KmsKeyId").asText() : null,
+                        request.path("DataRetentionInHours").asInt());
+                if (created == null) {
+                    throw new Failure(400, "ResourceInUseException", "The stream already exists");
+                }
+
+                response.put("StreamARN", created.arn);
+                return response;
+            case "describeStream":
+                response.put("StreamInfo", findStream(request).toStreamInfo());
+                return response;
+            case "deleteStream":
+                streams.remove(findStream(request).name);
+                return response;
+            case "tagStream":
+                findStream(request);
+                return response;
+            case "getDataEndpoint":
+                findStream(request);
+                response.put("DataEndpoint", getEndpoint());
+                return response;
+            default:
+                throw new Failure(400, "UnknownOperationException", "Unknown operation " + operation);
+        }
+    }
+
+    @Nullable
+    private LocalStream createStream(final String streamName,
+                                     final String deviceName,
+                                     final String mediaType,
+                                     @Nullable final String kmsKeyId,
+                                     final int retentionInHours) {
+        final LocalStream stream = new LocalStream(streamName, deviceName, mediaType, kmsKeyId, retentionInHours,
+                streamVersions.incrementAndGet());
+        return streams.putIfAbsent(streamName, stream) == null ? stream : null;
+    }
+
+    private LocalStream findStream(final JsonNode request) throws Failure {
+        final String streamName = request.path("StreamName").asText(null);
+        final String streamArn = request.path("StreamARN").asText(null);
+        for (final LocalStream stream : streams.values()) {
+            if (stream.name.equals(streamName) || stream.arn.equals(streamArn)) {
+                return stream;
+            }
+        }
+
+        throw new Failure(404, "ResourceNotFoundException", "The stream does not exist");
+    }
+
+    private void putMedia(final HttpExchange exchange) throws IOException {
+        final LocalStream stream;
+        try {
+            checkSigned(exchange);
+            stream = streams.get(String.valueOf(exchange.getRequestHeaders().getFirst(STREAM_NAME_HEADER)));
+            if (stream == null) {
+                throw new Failure(404, "ResourceNotFoundException", "The stream does not exist");
+            }
+        } catch (final Failure failure) {
+            sendFailure(exchange, failure);
+            exchange.close();
+            return;
+        }
+
+        // The ACKs are streamed back while the upload goes on
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        new Upload(stream, exchange.getResponseBody()).run(exchange.getRequestBody());
+        exchange.close();
+    }
+
+    private void checkSigned(final HttpExchange exchange) throws Failure {
+        final String authorization = exchange.getRequestHeaders().getFirst(AUTHORIZATION_HEADER);
+        if (authorization == null
+                || !authorization.startsWith(SIGV4_ALGORITHM)
+                || !authorization.contains("Credential=")
+                || !authorization.contains("SignedHeaders=")
+                || !authorization.contains("Signature=")
+                || exchange.getRequestHeaders().getFirst(DATE_HEADER) == null) {
+            throw new Failure(403, "AccessDeniedException", "Missing or malformed SigV4 headers");
+        }
+    }
+
+    @Nullable
+    private Failure nextFailure(final String operation) {
+        final Queue<Failure> queue = failures.get(operation);
+        return queue == null ? null : queue.poll();
+    }
+
+    private void sendFailure(final HttpExchange exchange, final Failure failure) throws IOException {
+        final Map<String, Object> body = new HashMap<String, Object>();
+        body.put("message", failure.getMessage());
+        exchange.getResponseHeaders().set(ERROR_TYPE_HEADER, failure.errorCode);
+        send(exchange, failure.statusCode, mapper.writeValueAsBytes(body));
+    }
+
+    private static void send(final HttpExchange exchange, final int statusCode, final byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sleep(final long millis) {
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One PutMedia connection, numbering its fragments from 0.
+     */
+    private final class Upload {
+        private final LocalStream stream;
+        private final OutputStream ackStream;
+        private final List<Future<?>> pendingAcks = new ArrayList<Future<?>>();
+        private final FragmentScanner scanner;
+        private long fragmentIndex = -1;
+        private long fragmentTimecode;
+        private String fragmentNumber;
+        private boolean isResetDue;
+
+        private Upload(final LocalStream stream, final OutputStream ackStream) {
+            this.stream = stream;
+            this.ackStream = ackStream;
+            this.scanner = new FragmentScanner(new Consumer<Long>() {
+                @Override
+                public void accept(final Long timecode) {
+                    onFragment(timecode);
+                }
+            });
+        }
+
+        private void run(final InputStream mkvStream) throws IOException {
+            final BandwidthThrottler throttler = builder.bandwidthInKbps > 0
+                    ? new BandwidthThrottlerImpl(builder.bandwidthInKbps * BITS_IN_A_KILOBIT) : null;
+            final byte[] buffer = new byte[READ_BUFFER_SIZE];
+            try {
+                while (true) {
+                    final int length = throttler == null ? buffer.length : throttler.getAllowedBytes(buffer.length);
+                    final int read = mkvStream.read(buffer, 0, length);
+                    if (read == -1) {
+                        break;
+                    }
+
+                    stream.byteCount.addAndGet(read);
+                    scanner.scan(buffer, 0, read);
+                    if (isResetDue) {
+                        // Thrown out of the handler, for the server to drop the connection
+                        throw new IOException("Injected connection reset at fragment " + fragmentIndex);
+                    }
+                }
+
+                completeFragment();
+                awaitPendingAcks();
+            } finally {
+                if (isResetDue) {
+                    for (final Future<?> ack : pendingAcks) {
+                        ack.cancel(false);
+                    }
+                }
+            }
+        }
+
+        private void onFragment(final long timecode) {
+            if (isResetDue || fragmentIndex + 1 == builder.resetAtFragment) {
+                isResetDue = true;
+                return;
+            }
+
+            completeFragment();
+            fragmentIndex++;
+            stream.fragmentCount.incrementAndGet();
+            fragmentTimecode = timecode;
+            fragmentNumber = String.format(FRAGMENT_NUMBER_FORMAT, fragmentNumbers.incrementAndGet());
+            scheduleAck(String.format(ACK_FORMAT, "BUFFERING", fragmentTimecode, fragmentNumber),
+                    builder.bufferingAckDelayInMillis);
+        }
+
+        private void completeFragment() {
+            if (fragmentIndex < 0) {
+                return;
+            }
+
+            final Integer errorId = builder.ackErrors.get(fragmentIndex);
+            if (errorId != null) {
+                scheduleAck(String.format(ERROR_ACK_FORMAT, fragmentTimecode, fragmentNumber, errorId),
+                        builder.receivedAckDelayInMillis);
+                return;
+            }
+
+            scheduleAck(String.format(ACK_FORMAT, "RECEIVED", fragmentTimecode, fragmentNumber),
+                    builder.receivedAckDelayInMillis);
+            scheduleAck(String.format(ACK_FORMAT, "PERSISTED", fragmentTimecode, fragmentNumber),
+                    builder.receivedAckDelayInMillis + builder.persistedAckDelayInMillis);
+        }
+
+        private void scheduleAck(final String ack, final long delayInMillis) {
+            final byte[] bytes = ack.getBytes(StandardCharsets.UTF_8);
+            pendingAcks.add(ackScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // Flushed as a chunk of its own
+                        ackStream.write(bytes);
+                        ackStream.flush();
+                    } catch (final IOException e) {
+                        log.debug("Unable to send ACK {} to stream {}", ack, stream.name, e);
+                    }
+                }
+            }, builder.roundTripTimeInMillis + delayInMillis, TimeUnit.MILLISECONDS));
+        }
+
+        private void awaitPendingAcks() throws IOException {
+            for (final Future<?> ack : pendingAcks) {
+                try {
+                    ack.get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while sending the ACKs", e);
+                } catch (final ExecutionException e) {
+                    throw new IOException("Unable to send the ACKs", e);
+                }
+            }
+        }
+    }
+
+    private static final class LocalStream {
+        private final String name;
+        private final String arn;
+        private final String deviceName;
+        private final String mediaType;
+        private final String kmsKeyId;
+        private final int retentionInHours;
+        private final long version;
+        private final long creationTimeInMillis = System.currentTimeMillis();
+        private final AtomicLong fragmentCount = new AtomicLong();
+        private final AtomicLong byteCount = new AtomicLong();
+
+        private LocalStream(final String name,
+                            final String deviceName,
+                            final String mediaType,
+                            @Nullable final String kmsKeyId,
+                            final int retentionInHours,
+                            final long version) {
+            this.name = name;
+            this.arn = String.format(ARN_FORMAT, name, creationTimeInMillis);
+            this.deviceName = deviceName;
+            this.mediaType = mediaType;
+            this.kmsKeyId = kmsKeyId;
+            this.retentionInHours = retentionInHours;
+            this.version = version;
+        }
+
+        private Map<String, Object> toStreamInfo() {
+            final Map<String, Object> info = new LinkedHashMap<String, Object>();
+            info.put("DeviceName", deviceName);
+            info.put("StreamName", name);
+            info.put("StreamARN", arn);
+            info.put("MediaType", mediaType);
+            info.put("KmsKeyId", kmsKeyId);
+            info.put("Version", String.valueOf(version));
+            info.put("Status", "ACTIVE");
+            info.put("CreationTime", TimeUnit.MILLISECONDS.toSeconds(creationTimeInMillis));
+            info.put("DataRetentionInHours", retentionInHours);
+            return info;
+        }
+    }
+
+    private static final class Failure extends Exception {
+        private final int statusCode;
+        private final String errorCode;
+
+        private Failure(final int statusCode, final String errorCode, final String message) {
+            super(message);
+            this.statusCode = statusCode;
+            this.errorCode = errorCode;
+        }
+    }
+
+    public static final class Builder {
+        private final List<String> streamNames = new ArrayList<String>();
+        private final Map<Long, Integer> ackErrors = new HashMap<Long, Integer>();
+        private int port;
+        private long bufferingAckDelayInMillis;
+        private long receivedAckDelayInMillis;
+        private long persistedAckDelayInMillis;
+        private long roundTripTimeInMillis;
+        private long bandwidthInKbps;
+        private long resetAtFragment = -1;
+
+        /**
+         * @param port Port to listen on, an ephemeral one by default
+         */
+        public Builder port(final int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Creates the stream up front.
+         */
+        public Builder stream(@Nonnull final String streamName) {
+            streamNames.add(checkNotNull(streamName));
+            return this;
+        }
+
+        /**
+         * @param delayInMillis Delay of the BUFFERING ACK after the start of its fragment
+         */
+        public Builder bufferingAckDelayInMillis(final long delayInMillis) {
+            bufferingAckDelayInMillis = delayInMillis;
+            return this;
+        }
+
+        /**
+         * @param delayInMillis Delay of the RECEIVED ACK after the end of its fragment
+         */
+        public Builder receivedAckDelayInMillis(final long delayInMillis) {
+            receivedAckDelayInMillis = delayInMillis;
+            return this;
+        }
+
+        /**
+         * @param delayInMillis Delay of the PERSISTED ACK after the RECEIVED one
+         */
+        public Builder persistedAckDelayInMillis(final long delayInMillis) {
+            persistedAckDelayInMillis = delayInMillis;
+            return this;
+        }
+
+        /**
+         * @param roundTripTimeInMillis Time added before every control plane response and every ACK
+         */
+        public Builder roundTripTimeInMillis(final long roundTripTimeInMillis) {
+            this.roundTripTimeInMillis = roundTripTimeInMillis;
+            return this;
+        }
+
+        /**
+         * @param kbps Bandwidth every upload is read at, unlimited by default
+         */
+        public Builder bandwidthInKbps(final long kbps) {
+            bandwidthInKbps = kbps;
+            return this;
+        }
+
+        /**
+         * Acknowledges the fragment of every upload with an ERROR ACK instead of the RECEIVED and PERSISTED ones.
+         *
+         * @param fragmentIndex Index of the fragment in its upload, from 0
+         * @param errorId Error id of the ACK, such as 4000 for an internal error
+         */
+        public Builder ackError(final long fragmentIndex, final int errorId) {
+            checkArgument(fragmentIndex >= 0);
+            ackErrors.put(fragmentIndex, errorId);
+            return this;
+        }
+
+        /**
+         * Resets the connection of every upload when the fragment starts, the ACKs not sent yet being lost.
+         *
+         * @param fragmentIndex Index of the fragment in its upload, from 0
+         */
+        public Builder resetAtFragment(final long fragmentIndex) {
+            checkArgument(fragmentIndex >= 0);
+            resetAtFragment = fragmentIndex;
+            return this;
+        }
+
+        public LocalKinesisVideoService start() throws IOException {
+            return new LocalKinesisVideoService(this);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.amazonaws.kinesisvideo.java.service.local;
+
+import com.amazonaws.kinesisvideo.auth.KinesisVideoCredentials;
+import com.amazonaws.kinesisvideo.auth.StaticCredentialsProvider;
+import com.amazonaws.kinesisvideo.client.KinesisVideoClientConfiguration;
+import com.amazonaws.kinesisvideo.common.exception.KinesisVideoException;
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+import com.amazonaws.kinesisvideo.java.service.JavaKinesisVideoServiceClient;
+import com.amazonaws.kinesisvideo.producer.StreamDescription;
+import com.amazonaws.kinesisvideo.producer.StreamStatus;
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LocalKinesisVideoServiceTest {
+    private static final String STREAM_NAME = "local-stream";
+    private static final long TIMEOUT_IN_MILLIS = 5000;
+    private static final StaticCredentialsProvider CREDENTIALS = new StaticCredentialsProvider(
+            new KinesisVideoCredentials("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY"));
+    private static final Pattern ACK_PATTERN = Pattern.compile("\"EventType\":\"(\\w+)\",\"FragmentTimecode\":(\\d+)");
+
+    private LocalKinesisVideoService service;
+    private JavaKinesisVideoServiceClient serviceClient;
+
+    @Before
+    public void setUp() throws Exception {
+        service = LocalKinesisVideoService.builder()
+                .ackError(1, 4000)
+                .start();
+        serviceClient = new JavaKinesisVideoServiceClient(LogManager.getLogger(LocalKinesisVideoServiceTest.class));
+        serviceClient.initialize(KinesisVideoClientConfiguration.builder()
+                .withRegion("us-west-2")
+                .withEndpoint(service.getEndpoint())
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void test_controlPlane_createsDescribesAndLocatesStreams() throws Exception {
+        final String streamArn = serviceClient.createStream(STREAM_NAME, "device", "video/h264", null, 2,
+                TIMEOUT_IN_MILLIS, CREDENTIALS);
+
+        final StreamDescription description = serviceClient.describeStream(STREAM_NAME, TIMEOUT_IN_MILLIS,
+                CREDENTIALS);
+        assertEquals(streamArn, description.getStreamArn());
+        assertEquals(STREAM_NAME, description.getStreamName());
+        assertEquals(StreamStatus.ACTIVE.intValue(), description.getStreamStatus());
+        assertEquals(service.getEndpoint(), serviceClient.getDataEndpoint(STREAM_NAME, "PUT_MEDIA",
+                TIMEOUT_IN_MILLIS, CREDENTIALS));
+
+        service.failNextCall("describeStream", 404, "ResourceNotFoundException");
+        try {
+            serviceClient.describeStream(STREAM_NAME, TIMEOUT_IN_MILLIS, CREDENTIALS);
+            fail("The injected failure should have been thrown");
+        } catch (final KinesisVideoException e) {
+            assertTrue(e.getMessage().contains("ResourceNotFoundException"));
+        }
+
+        serviceClient.deleteStream(STREAM_NAME, "1", null, TIMEOUT_IN_MILLIS, CREDENTIALS);
+        assertFalse(service.hasStream(STREAM_NAME));
+    }
+
+    @Test
+    public void test_putMedia_acknowledgesEveryFragment() throws Exception {
+        serviceClient.createStream(STREAM_NAME, "device", "video/h264", null, 2, TIMEOUT_IN_MILLIS, CREDENTIALS);
+        final byte[] mkv = mkvStream(3);
+        final ByteArrayOutputStream response = new ByteArrayOutputStream();
+        final CountDownLatch acksReceived = new CountDownLatch(1);
+
+        serviceClient.putMedia(STREAM_NAME, "video/h264", System.currentTimeMillis(), false, true,
+                serviceClient.getDataEndpoint(STREAM_NAME, "PUT_MEDIA", TIMEOUT_IN_MILLIS, CREDENTIALS),
+                TIMEOUT_IN_MILLIS, CREDENTIALS, new ByteArrayInputStream(mkv),
+                new Consumer<InputStream>() {
+                    @Override
+                    public void accept(final InputStream acks) {
+                        readUntilEndOfStream(acks, response);
+                        acksReceived.countDown();
+                    }
+                }, null);
+
+        assertTrue(acksReceived.await(10, TimeUnit.SECONDS));
+        final List<String> acks = new ArrayList<String>();
+        final Matcher matcher = ACK_PATTERN.matcher(new String(response.toByteArray(), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            acks.add(matcher.group(1) + "@" + matcher.group(2));
+        }
+
+        // The second fragment gets the injected error instead of its RECEIVED and PERSISTED ACKs
+        assertEquals(Arrays.asList(
+                "BUFFERING@0", "RECEIVED@0", "PERSISTED@0", "BUFFERING@1000",
+                "ERROR@1000", "BUFFERING@2000", "RECEIVED@2000", "PERSISTED@2000"), acks);
+        assertEquals(3, service.getFragmentCount(STREAM_NAME));
+        assertEquals(mkv.length, service.getByteCount(STREAM_NAME));
+        assertNull(serviceClient.describeStream(STREAM_NAME, TIMEOUT_IN_MILLIS, CREDENTIALS).getKmsKeyId());
+    }
+
+    /**
+     * Reads the raw response up to the terminating chunk, the connection being kept alive.
+     */
+    private static void readUntilEndOfStream(final InputStream acks, final ByteArrayOutputStream response) {
+        final byte[] buffer = new byte[4096];
+        try {
+            int read;
+            while ((read = acks.read(buffer)) != -1) {
+                response.write(buffer, 0, read);
+                if (new String(response.toByteArray(), StandardCharsets.UTF_8).endsWith("\r\n0\r\n\r\n")) {
+                    return;
+                }
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return stream of one video track with a Cluster a second, the way the producer packages it
+     */
+    private static byte[] mkvStream(final int clusterCount) throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(element(0x1A45DFA3, element(0x4282, "matroska".getBytes(StandardCharsets.US_ASCII))));
+        stream.write(unknownSizedHeader(0x18538067));
+        stream.write(element(0x1654AE6B, element(0xAE, element(0xD7, new byte[] {1}))));
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            stream.write(unknownSizedHeader(0x1F43B675));
+            stream.write(element(0xE7, new byte[] {(byte) (cluster * 1000 >> 8), (byte) (cluster * 1000)}));
+            for (int block = 0; block < 3; block++) {
+                final byte[] simpleBlock = new byte[4 + 5000];
+                simpleBlock[0] = (byte) 0x81;
+                simpleBlock[3] = (byte) (block == 0 ? 0x80 : 0);
+                // Frame data looking like a Cluster, which should not be taken for one
+                for (int i = 4; i + 4 <= simpleBlock.length; i += 4) {
+                    simpleBlock[i] = 0x1F;
+                    simpleBlock[i + 1] = 0x43;
+                    simpleBlock[i + 2] = (byte) 0xB6;
+                    simpleBlock[i + 3] = 0x75;
+                }
+                stream.write(element(0xA3, simpleBlock));
+            }
+        }
+
+        return stream.toByteArray();
+    }
+
+    private static byte[] element(final int id, final byte[] payload) throws IOException {
+        final ByteArrayOutputStream element = new ByteArrayOutputStream();
+        element.write(id(id));
+        element.write(0x01);
+        for (int i = 6; i >= 0; i--) {
+            element.write((int) ((long) payload.length >>> (8 * i)));
+        }
+        element.write(payload);
+        return element.toByteArray();
+    }
+
+    private static byte[] unknownSizedHeader(final int id) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(id(id));
+        header.write(new byte[] {0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF});
+        return header.toByteArray();
+    }
+
+    private static byte[] id(final int id) {
+        final int length = id > 0xFFFFFF || id < 0 ? 4 : id > 0xFFFF ? 3 : id > 0xFF ? 2 : 1;
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[length - 1 - i] = (byte) (id >>> (8 * i));
+        }
+
+        return bytes;
+    }
+}
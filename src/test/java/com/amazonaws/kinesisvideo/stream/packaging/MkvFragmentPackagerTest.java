@@ -0,0 +1,220 @@
+package com.amazonaws.kinesisvideo.stream.packaging;
+
+import com.amazonaws.kinesisvideo.java.mediasource.file.MkvDemuxer;
+import com.amazonaws.kinesisvideo.producer.FrameFlags;
+import com.amazonaws.kinesisvideo.producer.KinesisVideoFrame;
+import com.amazonaws.kinesisvideo.producer.MkvTrackInfoType;
+import com.amazonaws.kinesisvideo.producer.StreamInfo;
+import com.amazonaws.kinesisvideo.producer.Tag;
+import com.amazonaws.kinesisvideo.producer.TrackInfo;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.kinesisvideo.producer.StreamInfo.NalAdaptationFlags.NAL_ADAPTATION_FLAG_NONE;
+import static com.amazonaws.kinesisvideo.producer.Time.HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_BUFFER_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_GOP_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_REPLAY_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_STALENESS_DURATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.DEFAULT_TIMESCALE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.KEYFRAME_FRAGMENTATION;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.MAX_LATENCY_ZERO;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NOT_ADAPTIVE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.NO_KMS_KEY_ID;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECALCULATE_METRICS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RECOVER_ON_FAILURE;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.RELATIVE_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.REQUEST_FRAGMENT_ACKS;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.USE_FRAME_TIMECODES;
+import static com.amazonaws.kinesisvideo.util.StreamInfoConstants.VERSION_TWO;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MkvFragmentPackagerTest {
+    private static final long START_TIME = 1000000 * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+    private static final long FRAME_DURATION = 40 * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+    private static final byte[] CODEC_PRIVATE_DATA = {1, 2, 3, 4};
+
+    @Test
+    public void test_putFrame_packagesFramesTheDemuxerReadsBack() throws Exception {
+        final MkvFragmentPackager packager = MkvFragmentPackager.builder()
+                .streamInfo(streamInfo())
+                .streamStartTime(START_TIME)
+                .build();
+        packager.setCodecPrivateData(1, CODEC_PRIVATE_DATA);
+        packager.putFragmentMetadata("camera", "front door", true);
+        for (int i = 0; i < 10; i++) {
+            // Larger than a chunk, so the frames span several of them
+            assertTrue(packager.putFrame(frame(i, i % 5 == 0, 40000), 0, TimeUnit.MILLISECONDS));
+        }
+        packager.close();
+
+        final byte[] mkv = readAll(packager.getMkvStream());
+        assertEquals(mkv.length, packager.getPackagedByteCount());
+        assertEquals(mkv.length, packager.getReadByteCount());
+        assertEquals(2, packager.getFragmentCount());
+
+        final MkvDemuxer demuxer = new MkvDemuxer(ByteBuffer.wrap(mkv));
+        assertEquals(1, demuxer.getTracks().size());
+        assertEquals("V_MPEG4/ISO/AVC", demuxer.getTracks().get(0).getCodecId());
+        assertArrayEquals(CODEC_PRIVATE_DATA, demuxer.getTracks().get(0).getCodecPrivateData());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(demuxer.nextFrame());
+            assertEquals(i * 40 * 1000000L, demuxer.getFrameTimecodeInNanos());
+            assertEquals(i % 5 == 0, demuxer.isFrameKeyFrame());
+            final ByteBuffer data = demuxer.getFrameData();
+            assertEquals(40000, data.remaining());
+            assertEquals((byte) i, data.get(data.position() + 39999));
+        }
+        assertFalse(demuxer.nextFrame());
+        assertEquals(2, count(mkv, "front door".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void test_putFrame_dropsTheFramesDependingOnADroppedOne() throws Exception {
+        final MkvFragmentPackager packager = MkvFragmentPackager.builder()
+                .streamInfo(streamInfo())
+                .streamStartTime(START_TIME)
+                .maxBufferedBytes(4 * MkvFragmentPackager.CHUNK_SIZE)
+                .build();
+
+        // Before the first key frame
+        assertFalse(packager.putFrame(frame(0, false, 100), 0, TimeUnit.MILLISECONDS));
+        assertTrue(packager.putFrame(frame(1, true, 2 * MkvFragmentPackager.CHUNK_SIZE), 0, TimeUnit.MILLISECONDS));
+        // Not fitting until the stream is read, then depending on the dropped frame
+        assertFalse(packager.putFrame(frame(2, false, 2 * MkvFragmentPackager.CHUNK_SIZE), 0,
+                TimeUnit.MILLISECONDS));
+        final byte[] firstFragment = new byte[(int) packager.getPackagedByteCount()];
+        assertEquals(firstFragment.length, readFully(packager.getMkvStream(), firstFragment));
+        assertFalse(packager.putFrame(frame(3, false, 100), 0, TimeUnit.MILLISECONDS));
+        assertTrue(packager.putFrame(frame(4, true, 100), 0, TimeUnit.MILLISECONDS));
+        packager.close();
+
+        final ByteArrayOutputStream mkv = new ByteArrayOutputStream();
+        mkv.write(firstFragment);
+        mkv.write(readAll(packager.getMkvStream()));
+        final MkvDemuxer demuxer = new MkvDemuxer(ByteBuffer.wrap(mkv.toByteArray()));
+        assertTrue(demuxer.nextFrame());
+        assertEquals(40 * 1000000L, demuxer.getFrameTimecodeInNanos());
+        assertTrue(demuxer.nextFrame());
+        assertEquals(4 * 40 * 1000000L, demuxer.getFrameTimecodeInNanos());
+        assertFalse(demuxer.nextFrame());
+        assertEquals(3, packager.getDroppedFrameCount());
+    }
+
+    @Test
+    public void test_putFrame_dropsTheNonKeyFramesWhoseRelativeTimecodeWouldOverflow() throws Exception {
+        final MkvFragmentPackager packager = MkvFragmentPackager.builder()
+                .streamInfo(streamInfo())
+                .streamStartTime(START_TIME)
+                .build();
+
+        // 20 s apart, the third frame is more than 32767 ms past the start of the cluster and is not a key frame, so
+        // it is dropped along with the frames up to the next key frame, which starts a new cluster
+        assertTrue(packager.putFrame(frameAt(0, true), 0, TimeUnit.MILLISECONDS));
+        assertTrue(packager.putFrame(frameAt(20000, false), 0, TimeUnit.MILLISECONDS));
+        assertFalse(packager.putFrame(frameAt(40000, false), 0, TimeUnit.MILLISECONDS));
+        assertFalse(packager.putFrame(frameAt(40040, false), 0, TimeUnit.MILLISECONDS));
+        assertTrue(packager.putFrame(frameAt(40080, true), 0, TimeUnit.MILLISECONDS));
+        packager.close();
+
+        final MkvDemuxer demuxer = new MkvDemuxer(ByteBuffer.wrap(readAll(packager.getMkvStream())));
+        for (final long timecodeInMillis : new long[] {0, 20000, 40080}) {
+            assertTrue(demuxer.nextFrame());
+            assertEquals(timecodeInMillis * 1000000L, demuxer.getFrameTimecodeInNanos());
+        }
+        assertFalse(demuxer.nextFrame());
+        assertEquals(2, packager.getFragmentCount());
+        assertEquals(2, packager.getDroppedFrameCount());
+    }
+
+    private static KinesisVideoFrame frameAt(final long timecodeInMillis, final boolean isKeyFrame) {
+        final long timestamp = START_TIME + timecodeInMillis * HUNDREDS_OF_NANOS_IN_A_MILLISECOND;
+        return new KinesisVideoFrame((int) timecodeInMillis,
+                isKeyFrame ? FrameFlags.FRAME_FLAG_KEY_FRAME : FrameFlags.FRAME_FLAG_NONE,
+                timestamp, timestamp, FRAME_DURATION, ByteBuffer.wrap(new byte[100]));
+    }
+
+    private static KinesisVideoFrame frame(final int index, final boolean isKeyFrame, final int size) {
+        final byte[] data = new byte[size];
+        data[size - 1] = (byte) index;
+        final long timestamp = START_TIME + index * FRAME_DURATION;
+        return new KinesisVideoFrame(index,
+                isKeyFrame ? FrameFlags.FRAME_FLAG_KEY_FRAME : FrameFlags.FRAME_FLAG_NONE,
+                timestamp, timestamp, FRAME_DURATION, ByteBuffer.wrap(data));
+    }
+
+    private static StreamInfo streamInfo() {
+        return new StreamInfo(VERSION_TWO,
+                "packaged-stream",
+                StreamInfo.StreamingType.STREAMING_TYPE_REALTIME,
+                "video/h264",
+                NO_KMS_KEY_ID,
+                0,
+                NOT_ADAPTIVE,
+                MAX_LATENCY_ZERO,
+                DEFAULT_GOP_DURATION,
+                KEYFRAME_FRAGMENTATION,
+                USE_FRAME_TIMECODES,
+                RELATIVE_TIMECODES,
+                REQUEST_FRAGMENT_ACKS,
+                RECOVER_ON_FAILURE,
+                0,
+                25,
+                DEFAULT_BUFFER_DURATION,
+                DEFAULT_REPLAY_DURATION,
+                DEFAULT_STALENESS_DURATION,
+                DEFAULT_TIMESCALE,
+                RECALCULATE_METRICS,
+                new Tag[0],
+                NAL_ADAPTATION_FLAG_NONE,
+                UUID.randomUUID(),
+                new TrackInfo[] {
+                        new TrackInfo(1, "V_MPEG4/ISO/AVC", "kinesis_video", null, MkvTrackInfoType.VIDEO)});
+    }
+
+    private static byte[] readAll(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static int readFully(final InputStream inputStream, final byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            offset += inputStream.read(bytes, offset, bytes.length - offset);
+        }
+
+        return offset;
+    }
+
+    private static int count(final byte[] bytes, final byte[] pattern) {
+        int count = 0;
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            int matched = 0;
+            while (matched < pattern.length && bytes[i + matched] == pattern[matched]) {
+                matched++;
+            }
+
+            if (matched == pattern.length) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,146 @@
+package com.amazonaws.kinesisvideo.stream.recording;
+
+import com.amazonaws.kinesisvideo.java.mediasource.file.MkvDemuxer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MkvRecorderTest {
+    private static final int CLUSTER_COUNT = 4;
+    private static final int BLOCKS_PER_CLUSTER = 3;
+    private static final int BLOCK_SIZE = 1000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_record_withoutRotation_writesStreamAsIs() throws Exception {
+        final byte[] stream = stream();
+        final Path output = folder.getRoot().toPath().resolve("recording.mkv");
+        final MkvRecorder recorder = MkvRecorder.builder().outputPath(output).build();
+        record(recorder, stream, 4096);
+
+        assertArrayEquals(stream, Files.readAllBytes(output));
+        assertEquals(stream.length, recorder.getMetrics().getWrittenByteCount());
+        assertEquals(1, recorder.getMetrics().getFileCount());
+    }
+
+    @Test
+    public void test_record_rotatingBySize_startsEveryFileWithHeaderAndWholeClusters() throws Exception {
+        final Path output = folder.getRoot().toPath().resolve("recording.mkv");
+        final MkvRecorder recorder = MkvRecorder.builder()
+                .outputPath(output)
+                .maxFileSize(1)
+                .maxBufferedBytes(16 * 1024 * 1024)
+                .build();
+
+        // Small pieces, for element headers to be split across them
+        record(recorder, stream(), 7);
+
+        assertEquals(CLUSTER_COUNT, recorder.getMetrics().getFileCount());
+        for (int i = 0; i < CLUSTER_COUNT; i++) {
+            final Path file = folder.getRoot().toPath().resolve(String.format("recording-%05d.mkv", i));
+            final MkvDemuxer demuxer = MkvDemuxer.open(file);
+            assertEquals(1, demuxer.getTracks().size());
+            for (int block = 0; block < BLOCKS_PER_CLUSTER; block++) {
+                assertTrue(demuxer.nextFrame());
+                assertEquals((i * 1000L + block * 10) * 1000000, demuxer.getFrameTimecodeInNanos());
+                assertEquals(BLOCK_SIZE, demuxer.getFrameData().remaining());
+            }
+            assertTrue(!demuxer.nextFrame());
+        }
+    }
+
+    private static void record(final MkvRecorder recorder, final byte[] stream, final int pieceSize)
+            throws Exception {
+        for (int offset = 0; offset < stream.length; offset += pieceSize) {
+            recorder.record(stream, offset, Math.min(pieceSize, stream.length - offset));
+        }
+
+        recorder.close();
+        assertTrue(recorder.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, recorder.getMetrics().getDroppedByteCount());
+    }
+
+    /**
+     * @return stream of one video track with unknown-sized Segment and Clusters, the way the producer packages it
+     */
+    private static byte[] stream() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(element(ClusterBoundaryScanner.EBML_ID, element(0x4282, "matroska".getBytes("US-ASCII"))));
+        stream.write(unknownSizedHeader(ClusterBoundaryScanner.SEGMENT_ID));
+        stream.write(element(0x1549A966, element(0x2AD7B1, new byte[] {0x0F, 0x42, 0x40})));
+        stream.write(element(0x1654AE6B, element(0xAE, concat(
+                element(0xD7, new byte[] {1}),
+                element(0x83, new byte[] {1}),
+                element(0x86, "V_MPEG4/ISO/AVC".getBytes("US-ASCII"))))));
+
+        for (int cluster = 0; cluster < CLUSTER_COUNT; cluster++) {
+            stream.write(unknownSizedHeader(ClusterBoundaryScanner.CLUSTER_ID));
+            stream.write(element(0xE7, new byte[] {(byte) (cluster * 1000 >> 8), (byte) (cluster * 1000)}));
+            for (int block = 0; block < BLOCKS_PER_CLUSTER; block++) {
+                final byte[] simpleBlock = new byte[4 + BLOCK_SIZE];
+                simpleBlock[0] = (byte) 0x81;
+                simpleBlock[2] = (byte) (block * 10);
+                simpleBlock[3] = (byte) (block == 0 ? 0x80 : 0);
+
+                // Frame data looking like a Cluster, which should not be taken for one
+                for (int i = 4; i + 4 <= simpleBlock.length; i += 4) {
+                    simpleBlock[i] = 0x1F;
+                    simpleBlock[i + 1] = 0x43;
+                    simpleBlock[i + 2] = (byte) 0xB6;
+                    simpleBlock[i + 3] = 0x75;
+                }
+                stream.write(element(0xA3, simpleBlock));
+            }
+        }
+
+        return stream.toByteArray();
+    }
+
+    private static byte[] element(final int id, final byte[] payload) {
+        final byte[] size = new byte[8];
+        size[0] = 0x01;
+        for (int i = 0; i < 4; i++) {
+            size[7 - i] = (byte) (payload.length >>> (8 * i));
+        }
+
+        return concat(id(id), size, payload);
+    }
+
+    private static byte[] unknownSizedHeader(final int id) {
+        final byte[] size = new byte[8];
+        Arrays.fill(size, (byte) 0xFF);
+        size[0] = 0x01;
+        return concat(id(id), size);
+    }
+
+    private static byte[] id(final int id) {
+        final int length = id > 0xFFFFFF || id < 0 ? 4 : id > 0xFFFF ? 3 : id > 0xFF ? 2 : 1;
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[length - 1 - i] = (byte) (id >>> (8 * i));
+        }
+
+        return bytes;
+    }
+
+    private static byte[] concat(final byte[]... parts) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (final byte[] part : parts) {
+            bytes.write(part, 0, part.length);
+        }
+
+        return bytes.toByteArray();
+    }
+}